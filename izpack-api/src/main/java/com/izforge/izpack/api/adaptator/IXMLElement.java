@@ -98,9 +98,12 @@ public interface IXMLElement extends Serializable
 
     /**
      * Searches a child element.
+     * <p/>
+     * Only direct children are searched. An element of the same name nested deeper in the tree is not returned,
+     * even if it precedes the direct child in the document. Nested elements must be looked up via their parent.
      *
      * @param name the name of the child to search for.
-     * @return the child element, or null if no such child was found.
+     * @return the first direct child with the name, or null if no such child was found.
      */
     IXMLElement getFirstChildNamed(String name);
 
@@ -108,7 +111,7 @@ public interface IXMLElement extends Serializable
      * Returns a list of all child elements named <I>name</I>.
      *
      * @param name the name of the children to search for.
-     * @return the non-null list of child elements.
+     * @return the non-null, unmodifiable list of child elements.
      */
     List<IXMLElement> getChildrenNamed(String name);
 
@@ -29,8 +29,11 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Pattern;
 
@@ -60,6 +63,12 @@ public class XMLElementImpl implements IXMLElement
      */
     private List<IXMLElement> childrenList;
 
+    /**
+     * The children elements, keyed on name.
+     * It is generated from the childrenList as it is called, and discarded when the childrenList is regenerated.
+     */
+    private Map<String, List<IXMLElement>> childrenIndex;
+
     /**
      * Create a new root element in a new document.
      *
@@ -166,6 +175,7 @@ public class XMLElementImpl implements IXMLElement
         if (hasChanged)
         {
             hasChanged = false;
+            childrenIndex = null;
             childrenList = new ArrayList<IXMLElement>();
             for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
             {
@@ -177,6 +187,31 @@ public class XMLElementImpl implements IXMLElement
         }
     }
 
+    private Map<String, List<IXMLElement>> getChildrenIndex()
+    {
+        initChildrenList();
+        if (childrenIndex == null)
+        {
+            Map<String, List<IXMLElement>> index = new HashMap<String, List<IXMLElement>>();
+            for (IXMLElement child : childrenList)
+            {
+                List<IXMLElement> children = index.get(child.getName());
+                if (children == null)
+                {
+                    children = new ArrayList<IXMLElement>();
+                    index.put(child.getName(), children);
+                }
+                children.add(child);
+            }
+            for (Map.Entry<String, List<IXMLElement>> entry : index.entrySet())
+            {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            childrenIndex = index;
+        }
+        return childrenIndex;
+    }
+
     @Override
     public int getChildrenCount()
     {
@@ -201,27 +236,15 @@ public class XMLElementImpl implements IXMLElement
     @Override
     public IXMLElement getFirstChildNamed(String name)
     {
-        XMLElementImpl res = null;
-        NodeList nodeList = element.getElementsByTagName(name);
-        if (nodeList.getLength() > 0)
-        {
-            res = new XMLElementImpl(nodeList.item(0));
-        }
-        return res;
+        List<IXMLElement> children = getChildrenIndex().get(name);
+        return (children != null) ? children.get(0) : null;
     }
 
     @Override
     public List<IXMLElement> getChildrenNamed(String name)
     {
-        List<IXMLElement> res = new ArrayList<IXMLElement>();
-        for (IXMLElement child : getChildren())
-        {
-            if (child.getName() != null && child.getName().equals(name))
-            {
-                res.add(new XMLElementImpl(child.getElement()));
-            }
-        }
-        return res;
+        List<IXMLElement> children = getChildrenIndex().get(name);
+        return (children != null) ? children : Collections.<IXMLElement>emptyList();
     }
 
     @Override
@@ -346,6 +369,7 @@ public class XMLElementImpl implements IXMLElement
     @Override
     public void setContent(String content)
     {
+        hasChanged = true;
         Node child;
         while ((child = this.element.getFirstChild()) != null)
         {
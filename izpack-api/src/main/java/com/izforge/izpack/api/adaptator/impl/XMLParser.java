@@ -35,6 +35,7 @@ import org.xml.sax.XMLReader;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -95,14 +96,31 @@ public class XMLParser implements IXMLParser
     private LineNumberFilter filter;
     private String parsedItem = null;
 
+    /**
+     * The SAX parser factory, shared by all parsers. Access must be synchronized, as factories aren't thread safe.
+     */
+    private static SAXParserFactory saxParserFactory;
+
+    /**
+     * The compiled line number stylesheet, shared by all parsers. Templates are thread safe.
+     */
+    private static Templates templates;
+
     public XMLParser()
     {
         try
         {
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-            saxParserFactory.setNamespaceAware(true);
-            saxParserFactory.setXIncludeAware(true);
-            XMLReader xmlReader = saxParserFactory.newSAXParser().getXMLReader();
+            XMLReader xmlReader;
+            synchronized (XMLParser.class)
+            {
+                if (saxParserFactory == null)
+                {
+                    saxParserFactory = SAXParserFactory.newInstance();
+                    saxParserFactory.setNamespaceAware(true);
+                    saxParserFactory.setXIncludeAware(true);
+                }
+                xmlReader = saxParserFactory.newSAXParser().getXMLReader();
+            }
             filter = new LineNumberFilter(xmlReader);
 
         }
@@ -136,13 +154,7 @@ public class XMLParser implements IXMLParser
             result = new DOMResult();
             SAXSource source = new SAXSource(inputSource);
             source.setXMLReader(filter);
-            URL xslResourceUrl = IXMLParser.class.getResource(XSL_FILE_NAME);
-            if (xslResourceUrl == null)
-            {
-                throw new XMLException("Can't find IzPack internal file \"" + XSL_FILE_NAME + "\"");
-            }
-            Source xsltSource = new StreamSource(xslResourceUrl.openStream());
-            Transformer xformer = TransformerFactory.newInstance().newTransformer(xsltSource);
+            Transformer xformer = getTemplates().newTransformer();
             xformer.transform(source, result);
             filter.applyLN(result);
         }
@@ -215,6 +227,36 @@ public class XMLParser implements IXMLParser
         return searchFirstElement(domResult);
     }
 
+    /**
+     * Returns the compiled line number stylesheet, compiling it on first use.
+     *
+     * @return the compiled stylesheet
+     * @throws TransformerException if the stylesheet cannot be compiled
+     * @throws IOException          if the stylesheet cannot be read
+     */
+    private static synchronized Templates getTemplates() throws TransformerException, IOException
+    {
+        if (templates == null)
+        {
+            URL xslResourceUrl = IXMLParser.class.getResource(XSL_FILE_NAME);
+            if (xslResourceUrl == null)
+            {
+                throw new XMLException("Can't find IzPack internal file \"" + XSL_FILE_NAME + "\"");
+            }
+            InputStream xslStream = xslResourceUrl.openStream();
+            try
+            {
+                Source xsltSource = new StreamSource(xslStream);
+                templates = TransformerFactory.newInstance().newTemplates(xsltSource);
+            }
+            finally
+            {
+                xslStream.close();
+            }
+        }
+        return templates;
+    }
+
     private void checkNotNullStream(InputStream inputStream) {
         if (inputStream == null) {
             throw new NullPointerException("The input stream must be not null.");
@@ -0,0 +1,38 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.data;
+
+/**
+ * A dynamic variable {@link Value} whose result may be reused between refreshes.
+ * <p/>
+ * A cacheable value must derive its result solely from the installer variables it substitutes, or from state
+ * that doesn't change for the lifetime of the installer. The variables read during resolution are recorded, and
+ * the value is only resolved again when one of them changes.
+ */
+public interface CacheableValue
+{
+
+    /**
+     * Determines if the value may be reused until one of the variables it reads changes.
+     *
+     * @return {@code true} if the value may be cached, {@code false} if it must be resolved on every refresh
+     */
+    boolean isCacheable();
+}
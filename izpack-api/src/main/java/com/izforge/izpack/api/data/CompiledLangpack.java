@@ -0,0 +1,192 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import com.izforge.izpack.api.exception.ResourceException;
+
+
+/**
+ * Reads and writes langpacks in the compiled, binary form produced by the compiler.
+ * <p/>
+ * A compiled langpack consists of a {@link #MAGIC magic number}, a version, the number of messages, and a table of
+ * message identifier and message pairs. Each string is stored as its UTF-8 length followed by its UTF-8 bytes; a
+ * length of {@code -1} denotes a {@code null} message.
+ * <p/>
+ * Reading a compiled langpack avoids the cost of XML parsing at installer startup.
+ */
+public final class CompiledLangpack
+{
+
+    /**
+     * The magic number identifying a compiled langpack ("IZLP").
+     */
+    public static final int MAGIC = 0x495A4C50;
+
+    /**
+     * The format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The UTF-8 character set name.
+     */
+    private static final String UTF_8 = "UTF-8";
+
+    /**
+     * Private constructor. Use the static methods.
+     */
+    private CompiledLangpack()
+    {
+    }
+
+    /**
+     * Determines if a stream contains a compiled langpack.
+     * <p/>
+     * The stream must support {@link InputStream#mark(int) mark}. It is reset to its original position.
+     *
+     * @param in the stream
+     * @return {@code true} if the stream starts with the {@link #MAGIC magic number}
+     * @throws IOException for any I/O error
+     */
+    public static boolean isCompiled(InputStream in) throws IOException
+    {
+        in.mark(4);
+        try
+        {
+            int magic = 0;
+            for (int i = 0; i < 4; ++i)
+            {
+                int b = in.read();
+                if (b == -1)
+                {
+                    return false;
+                }
+                magic = (magic << 8) | b;
+            }
+            return magic == MAGIC;
+        }
+        finally
+        {
+            in.reset();
+        }
+    }
+
+    /**
+     * Reads a compiled langpack.
+     *
+     * @param in       the stream to read from
+     * @param messages the map to add the messages to
+     * @throws IOException       for any I/O error
+     * @throws ResourceException if the stream is not a compiled langpack, or has an unsupported version
+     */
+    public static void read(InputStream in, Map<String, String> messages) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+        {
+            throw new ResourceException("Invalid compiled langpack");
+        }
+        int version = data.readInt();
+        if (version != VERSION)
+        {
+            throw new ResourceException("Unsupported compiled langpack version: " + version);
+        }
+        int count = data.readInt();
+        byte[] buffer = new byte[4096];
+        for (int i = 0; i < count; ++i)
+        {
+            String id = readString(data, buffer);
+            messages.put(id, readString(data, buffer));
+        }
+    }
+
+    /**
+     * Writes messages as a compiled langpack.
+     *
+     * @param messages the messages to write
+     * @param out      the stream to write to. This is not closed
+     * @throws IOException for any I/O error
+     */
+    public static void write(Map<String, String> messages, OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(messages.size());
+        for (Map.Entry<String, String> entry : messages.entrySet())
+        {
+            writeString(data, entry.getKey());
+            writeString(data, entry.getValue());
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param data   the stream to read from
+     * @param buffer a buffer to use, if it is large enough
+     * @return the string. May be {@code null}
+     * @throws IOException for any I/O error
+     */
+    private static String readString(DataInputStream data, byte[] buffer) throws IOException
+    {
+        int length = data.readInt();
+        if (length == -1)
+        {
+            return null;
+        }
+        if (length < 0)
+        {
+            throw new ResourceException("Invalid compiled langpack string length: " + length);
+        }
+        byte[] bytes = (length <= buffer.length) ? buffer : new byte[length];
+        data.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, UTF_8);
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param data  the stream to write to
+     * @param value the string to write. May be {@code null}
+     * @throws IOException for any I/O error
+     */
+    private static void writeString(DataOutputStream data, String value) throws IOException
+    {
+        if (value == null)
+        {
+            data.writeInt(-1);
+        }
+        else
+        {
+            byte[] bytes = value.getBytes(UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+}
@@ -19,6 +19,8 @@
 
 package com.izforge.izpack.api.data;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
 import java.util.Collections;
@@ -119,13 +121,30 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
 
     /**
      * Adds the contents of the given stream to the data base. The stream have to contain key value
-     * pairs as declared by the DTD langpack.dtd.
+     * pairs as declared by the DTD langpack.dtd, or a langpack compiled by {@link CompiledLangpack}.
      *
      * @param in an InputStream to read the translation from.
      * @throws ResourceException if the stream is not an IzPack langpack file or cannot be read
      */
     public void add(InputStream in)
     {
+        if (!in.markSupported())
+        {
+            in = new BufferedInputStream(in);
+        }
+        try
+        {
+            if (CompiledLangpack.isCompiled(in))
+            {
+                CompiledLangpack.read(in, this);
+                return;
+            }
+        }
+        catch (IOException exception)
+        {
+            throw new ResourceException("Failed to read langpack stream", exception);
+        }
+
         IXMLElement data;
 
         try
@@ -22,8 +22,11 @@ package com.izforge.izpack.api.data;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.izforge.izpack.api.data.binding.OsModel;
@@ -132,6 +135,11 @@ public class Pack implements Serializable
      */
     private long fileSize;
 
+    /**
+     * The space required by the files in the pack, keyed on target root. See {@link #addTargetSize(PackFile)}.
+     */
+    private Map<String, Long> targetSizes = new LinkedHashMap<String, Long>();
+
     /**
      * Determines if the pack should be preselected for installation.
      */
@@ -188,6 +196,12 @@ public class Pack implements Serializable
      */
     private boolean hidden;
 
+    /**
+     * The allocation unit that file sizes are rounded up to when accounting for the space required per target.
+     * This is the block size of most file systems.
+     */
+    public static final long BLOCK_SIZE = 4096;
+
     /**
      * Used for conversions.
      */
@@ -574,6 +588,63 @@ public class Pack implements Serializable
         return fileSize;
     }
 
+    /**
+     * Adds the space required by a file to that of its target root.
+     * <p/>
+     * The target root is the leading part of the target path up to and including the first path element that
+     * refers to a variable, e.g. <tt>$INSTALL_PATH</tt> or <tt>${USER_HOME}</tt>, as the file system isn't known
+     * until the variable is resolved. For target paths without variables, it is the parent directory.
+     * <p/>
+     * File sizes are rounded up to whole {@link #BLOCK_SIZE blocks}, and directories take one block.
+     *
+     * @param file the pack file
+     */
+    public void addTargetSize(PackFile file)
+    {
+        String target = file.getTargetPath();
+        if (target == null)
+        {
+            return;
+        }
+        long size = file.isDirectory() ? BLOCK_SIZE : ((file.size() + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE;
+        String root = getTargetRoot(target);
+        Long current = targetSizes.get(root);
+        targetSizes.put(root, (current != null) ? current + size : size);
+    }
+
+    /**
+     * Returns the space required by the files in the pack, keyed on target root.
+     *
+     * @return the space required per target root, in bytes. Empty if it wasn't recorded when the pack was compiled
+     */
+    public Map<String, Long> getTargetSizes()
+    {
+        if (targetSizes == null)
+        {
+            // pack was serialized without target sizes
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(targetSizes);
+    }
+
+    /**
+     * Returns the target root of a target path.
+     *
+     * @param targetPath the target path, using '/' as the separator
+     * @return the target root
+     * @see #addTargetSize(PackFile)
+     */
+    private static String getTargetRoot(String targetPath)
+    {
+        int variable = targetPath.indexOf('$');
+        int end = (variable != -1) ? targetPath.indexOf('/', variable) : targetPath.lastIndexOf('/');
+        if (end == -1)
+        {
+            return targetPath;
+        }
+        return targetPath.substring(0, (end == 0) ? 1 : end);
+    }
+
     /**
      * Sets the parent pack name.
      *
@@ -154,6 +154,69 @@ public class PackFile implements Serializable
             throw new FileNotFoundException("No such file: " + src);
         }
 
+        init(src.getPath(), relativeSourcePath, target, src.isDirectory(), src.length(), src.lastModified(), osList,
+             override, overrideRenameTo, blockable, additionals);
+    }
+
+    /**
+     * Constructs and initializes from file data that isn't read from a file of its own, such as an archive entry.
+     *
+     * @param sourcePath         the path of the source of the data
+     * @param relativeSourcePath the path relative to the compiletime's basedirectory. May be {@code null}
+     * @param target             the path to install the file to
+     * @param isDirectory        {@code true} if the file is a directory
+     * @param length             the length of the file in bytes
+     * @param mtime              the last-modification time of the file
+     * @param osList             OS constraints
+     * @param override           what to do when the file already exists
+     * @param overrideRenameTo   the globmapper expression to rename the file with when overriding
+     * @param blockable          whether or not the file might be blocked by the operating system
+     * @param additionals        additional attributes
+     */
+    public PackFile(String sourcePath, String relativeSourcePath, String target, boolean isDirectory, long length,
+                    long mtime, List<OsModel> osList, OverrideType override, String overrideRenameTo,
+                    Blockable blockable, Map additionals)
+    {
+        init(sourcePath, relativeSourcePath, target, isDirectory, length, mtime, osList, override, overrideRenameTo,
+             blockable, additionals);
+    }
+
+    /**
+     * Constructs and initializes from a source file.
+     *
+     * @param baseDir     The Base directory that is used to search for the files. This is used to build the relative path's
+     * @param src         file which this PackFile describes
+     * @param target      the path to install the file to
+     * @param osList      OS constraints
+     * @param override    what to do when the file already exists
+     * @param additionals additional attributes
+     * @throws FileNotFoundException if the specified file does not exist.
+     */
+    public PackFile(File baseDir, File src, String target, List<OsModel> osList, OverrideType override, String overrideRenameTo, Blockable blockable, Map additionals)
+    throws IOException
+    {
+        this(src, FileUtil.getRelativeFileName(src, baseDir), target, osList, override, overrideRenameTo, blockable, additionals);
+    }
+
+    /**
+     * Initializes this.
+     *
+     * @param sourcePath         the path of the source of the data
+     * @param relativeSourcePath the path relative to the compiletime's basedirectory. May be {@code null}
+     * @param target             the path to install the file to
+     * @param isDirectory        {@code true} if the file is a directory
+     * @param length             the length of the file in bytes
+     * @param mtime              the last-modification time of the file
+     * @param osList             OS constraints
+     * @param override           what to do when the file already exists
+     * @param overrideRenameTo   the globmapper expression to rename the file with when overriding
+     * @param blockable          whether or not the file might be blocked by the operating system
+     * @param additionals        additional attributes
+     */
+    private void init(String sourcePath, String relativeSourcePath, String target, boolean isDirectory, long length,
+                      long mtime, List<OsModel> osList, OverrideType override, String overrideRenameTo,
+                      Blockable blockable, Map additionals)
+    {
         if ('/' != File.separatorChar)
         {
             target = target.replace(File.separatorChar, '/');
@@ -163,7 +226,7 @@ public class PackFile implements Serializable
             target = target.substring(0, target.length() - 1);
         }
 
-        this.sourcePath = src.getPath().replace(File.separatorChar, '/');
+        this.sourcePath = sourcePath.replace(File.separatorChar, '/');
         this.relativePath = (relativeSourcePath != null) ? relativeSourcePath.replace(File.separatorChar, '/') : relativeSourcePath;
 
         this.targetPath = (target != null) ? target.replace(File.separatorChar, '/') : target;
@@ -172,37 +235,20 @@ public class PackFile implements Serializable
         this.overrideRenameTo = overrideRenameTo;
         this.blockable = blockable;
 
-        this.length = src.length();
+        this.length = length;
         this.size = this.length;
-        this.mtime = src.lastModified();
-        this.isDirectory = src.isDirectory();
+        this.mtime = mtime;
+        this.isDirectory = isDirectory;
         this.additionals = additionals;
 
         // File.length is undefined for directories - we don't add any data, so don't skip
         // any please!
         if (isDirectory)
         {
-            length = 0;
+            this.length = 0;
         }
     }
 
-    /**
-     * Constructs and initializes from a source file.
-     *
-     * @param baseDir     The Base directory that is used to search for the files. This is used to build the relative path's
-     * @param src         file which this PackFile describes
-     * @param target      the path to install the file to
-     * @param osList      OS constraints
-     * @param override    what to do when the file already exists
-     * @param additionals additional attributes
-     * @throws FileNotFoundException if the specified file does not exist.
-     */
-    public PackFile(File baseDir, File src, String target, List<OsModel> osList, OverrideType override, String overrideRenameTo, Blockable blockable, Map additionals)
-    throws IOException
-    {
-        this(src, FileUtil.getRelativeFileName(src, baseDir), target, osList, override, overrideRenameTo, blockable, additionals);
-    }
-
     public void setPreviousPackFileRef(String previousPackId, Long offsetInPreviousPack)
     {
         this.previousPackId = previousPackId;
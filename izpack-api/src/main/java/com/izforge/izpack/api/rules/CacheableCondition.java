@@ -0,0 +1,39 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.rules;
+
+/**
+ * A condition whose result may be cached by the {@link RulesEngine}.
+ * <p/>
+ * A cacheable condition must derive its result solely from the values of the installer variables it reads.
+ * The rules engine records the variables read during an evaluation, and reuses the result until one of them
+ * changes.
+ */
+public interface CacheableCondition
+{
+
+    /**
+     * Determines if the result of this condition depends only on installer variables.
+     *
+     * @return {@code true} if the result may be cached, {@code false} if it depends on other state, such as
+     *         the file system or pack selection
+     */
+    boolean isCacheable();
+}
@@ -19,7 +19,7 @@
 
 package com.izforge.izpack.api.rules;
 
-public abstract class ConditionReference extends Condition
+public abstract class ConditionReference extends Condition implements CacheableCondition
 {
     private static final long serialVersionUID = -2118025238727923692L;
 
@@ -36,4 +36,16 @@ public abstract class ConditionReference extends Condition
     }
 
     public abstract void resolveReference();
+
+    /**
+     * Determines if the result of this condition depends only on installer variables.
+     *
+     * @return {@code true} if the referenced condition is cacheable
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        return referencedCondition instanceof CacheableCondition
+                && ((CacheableCondition) referencedCondition).isCacheable();
+    }
 }
@@ -23,7 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public abstract class ConditionWithMultipleOperands extends Condition
+public abstract class ConditionWithMultipleOperands extends Condition implements CacheableCondition
 {
     private static final long serialVersionUID = -947580950752190486L;
 
@@ -38,4 +38,22 @@ public abstract class ConditionWithMultipleOperands extends Condition
     {
         Collections.addAll(nestedConditions, operands);
     }
+
+    /**
+     * Determines if the result of this condition depends only on installer variables.
+     *
+     * @return {@code true} if all of the operands are cacheable
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        for (Condition condition : nestedConditions)
+        {
+            if (!(condition instanceof CacheableCondition) || !((CacheableCondition) condition).isCacheable())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
 }
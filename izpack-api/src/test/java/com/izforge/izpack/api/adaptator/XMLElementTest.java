@@ -119,6 +119,42 @@ public class XMLElementTest
     {
         IXMLElement element = root.getFirstChildNamed("locale");
         Assert.assertEquals(element.getName(), "locale");
+        Assert.assertSame(element, root.getFirstChildNamed("locale"));
+
+        // only direct children are searched
+        Assert.assertNull(root.getFirstChildNamed("modifier"));
+    }
+
+    /**
+     * Verifies that getFirstChildNamed only returns direct children, even where a nested element of the same name
+     * precedes them in the document.
+     */
+    @Test
+    public void testGetFirstChildNamedIgnoresNested()
+    {
+        IXMLParser parser = new XMLParser();
+        IXMLElement condition = parser.parse(
+                "<condition type=\"variable\" id=\"cond\">"
+                        + "<nested><name>nested</name><value>nested</value></nested>"
+                        + "<name>direct</name><value>direct</value>"
+                        + "</condition>");
+        Assert.assertEquals("direct", condition.getFirstChildNamed("name").getContent());
+        Assert.assertEquals("direct", condition.getFirstChildNamed("value").getContent());
+
+        IXMLElement panel = parser.parse("<panel><nested><installpath>/opt/nested</installpath></nested></panel>");
+        Assert.assertNull(panel.getFirstChildNamed("installpath"));
+        IXMLElement installPath = panel.getFirstChildNamed("nested").getFirstChildNamed("installpath");
+        Assert.assertEquals("/opt/nested", installPath.getContent());
+    }
+
+    @Test
+    public void testGetChildrenNamedAfterAddChild()
+    {
+        Assert.assertEquals(0, root.getChildrenNamed("child").size());
+        IXMLElement element = new XMLElementImpl("child", root);
+        root.addChild(element);
+        Assert.assertEquals(1, root.getChildrenNamed("child").size());
+        Assert.assertEquals("child", root.getFirstChildNamed("child").getName());
     }
 
     @Test
@@ -20,6 +20,10 @@
 package com.izforge.izpack.api.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -75,4 +79,23 @@ public class LocaleDatabaseTest
                 "string.with.quoted.arguments", new String[]{"one", null}));
     }
 
+    /**
+     * Verifies that a compiled langpack is read identically to the XML langpack it was compiled from.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCompiledLangpack() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledLangpack.write(db, out);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertTrue(CompiledLangpack.isCompiled(in));
+
+        LocaleDatabase compiled = new LocaleDatabase(in, Mockito.mock(Locales.class));
+        assertEquals(db, compiled);
+        assertEquals("String Text", compiled.get("string"));
+        assertEquals("Argument1: one, Argument2: two", compiled.get("string.with.arguments", "one", "two"));
+    }
+
 }
@@ -0,0 +1,74 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link Pack} class.
+ */
+public class PackTest
+{
+
+    /**
+     * Verifies that file sizes are rounded to whole blocks and accounted per target root.
+     */
+    @Test
+    public void testTargetSizes()
+    {
+        Pack pack = new Pack("core", null, null, null, null, true, true, false, null, true, 0);
+        assertTrue(pack.getTargetSizes().isEmpty());
+
+        pack.addTargetSize(createFile("$INSTALL_PATH/lib", true, 0));
+        pack.addTargetSize(createFile("$INSTALL_PATH/lib/a.jar", false, 1));
+        pack.addTargetSize(createFile("$INSTALL_PATH/lib/b.jar", false, Pack.BLOCK_SIZE));
+        pack.addTargetSize(createFile("$INSTALL_PATH/empty.txt", false, 0));
+        pack.addTargetSize(createFile("${USER_HOME}/.app/app.properties", false, Pack.BLOCK_SIZE + 1));
+        pack.addTargetSize(createFile("/etc/app/app.conf", false, 10));
+        pack.addTargetSize(createFile("/app.conf", false, 10));
+
+        Map<String, Long> sizes = pack.getTargetSizes();
+        assertEquals(4, sizes.size());
+        assertEquals(3 * Pack.BLOCK_SIZE, (long) sizes.get("$INSTALL_PATH"));
+        assertEquals(2 * Pack.BLOCK_SIZE, (long) sizes.get("${USER_HOME}"));
+        assertEquals(Pack.BLOCK_SIZE, (long) sizes.get("/etc/app"));
+        assertEquals(Pack.BLOCK_SIZE, (long) sizes.get("/"));
+    }
+
+    /**
+     * Creates a pack file.
+     *
+     * @param target      the target path
+     * @param isDirectory determines if the file is a directory
+     * @param length      the file length
+     * @return a new pack file
+     */
+    private PackFile createFile(String target, boolean isDirectory, long length)
+    {
+        return new PackFile("src", "src", target, isDirectory, length, 0, null, OverrideType.OVERRIDE_TRUE, null,
+                            Blockable.BLOCKABLE_NONE, null);
+    }
+}
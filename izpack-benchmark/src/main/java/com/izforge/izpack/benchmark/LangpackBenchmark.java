@@ -0,0 +1,113 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.izforge.izpack.api.data.CompiledLangpack;
+import com.izforge.izpack.api.data.LocaleDatabase;
+
+
+/**
+ * Compares the cost of loading the installer langpack from XML and from its compiled form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LangpackBenchmark
+{
+
+    /**
+     * The English installer langpack resource.
+     */
+    private static final String LANGPACK = "/com/izforge/izpack/bin/langpacks/installer/eng.xml";
+
+    /**
+     * The langpack XML.
+     */
+    private byte[] xml;
+
+    /**
+     * The compiled langpack.
+     */
+    private byte[] compiled;
+
+    /**
+     * Reads the langpack, and compiles it.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        InputStream in = getClass().getResourceAsStream(LANGPACK);
+        if (in == null)
+        {
+            throw new IOException("Resource not found: " + LANGPACK);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+        {
+            bytes.write(buffer, 0, read);
+        }
+        in.close();
+        xml = bytes.toByteArray();
+
+        bytes.reset();
+        CompiledLangpack.write(new LocaleDatabase(new ByteArrayInputStream(xml), null), bytes);
+        compiled = bytes.toByteArray();
+    }
+
+    /**
+     * Loads the langpack from XML.
+     *
+     * @return the langpack
+     */
+    @Benchmark
+    public LocaleDatabase parseXml()
+    {
+        return new LocaleDatabase(new ByteArrayInputStream(xml), null);
+    }
+
+    /**
+     * Loads the compiled langpack.
+     *
+     * @return the langpack
+     */
+    @Benchmark
+    public LocaleDatabase readCompiled()
+    {
+        return new LocaleDatabase(new ByteArrayInputStream(compiled), null);
+    }
+}
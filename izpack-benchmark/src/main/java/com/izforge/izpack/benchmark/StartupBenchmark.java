@@ -0,0 +1,541 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.benchmark;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.izforge.izpack.compiler.CompilerConfig;
+import com.izforge.izpack.compiler.container.CompilerContainer;
+import com.izforge.izpack.compiler.data.CompilerData;
+import com.izforge.izpack.util.PhaseTimer;
+
+
+/**
+ * Measures the cold start time of console and GUI installers.
+ * <p/>
+ * A {@link SyntheticInstallation synthetic installation} is compiled, and the installer is then started in a new JVM
+ * the specified number of times for each mode. Each run writes a {@link PhaseTimer} trace as soon as the installer
+ * is ready for user input, and is then stopped by the benchmark. The median time of each phase is reported, and
+ * appended to a history file so that the numbers can be tracked over time.
+ * <p/>
+ * The GUI installer requires a display; on headless machines it can be run with e.g. <em>xvfb-run</em>, otherwise
+ * only the console installer is measured.
+ * <p/>
+ * Usage:
+ * <pre>
+ * java -cp benchmarks.jar com.izforge.izpack.benchmark.StartupBenchmark [-packs n] [-variables n] [-conditions n]
+ *      [-runs n] [-warmup n] [-dir directory] [-history file] [-label label] [-console-only]
+ * </pre>
+ */
+public class StartupBenchmark
+{
+
+    /**
+     * The mark recorded when the console installer is ready for input.
+     */
+    private static final String CONSOLE_READY = "consoleReady";
+
+    /**
+     * The mark recorded when the GUI installer is first painted.
+     */
+    private static final String FIRST_PAINT = "firstPaint";
+
+    /**
+     * The metric for the time from process launch until the installer's trace is seen.
+     */
+    private static final String WALL = "wall";
+
+    /**
+     * The maximum time to wait for an installer to write its trace, in milliseconds.
+     */
+    private static final long TIMEOUT = 120000;
+
+    /**
+     * The interval at which to check for the installer's trace, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 5;
+
+    /**
+     * Matches complete events in the trace.
+     */
+    private static final Pattern PHASE = Pattern.compile(
+            "\\{\"name\":\"((?:[^\"\\\\]|\\\\.)*)\",\"ph\":\"X\",\"ts\":(\\d+),\"dur\":(\\d+)");
+
+    /**
+     * Matches instant events in the trace.
+     */
+    private static final Pattern MARK = Pattern.compile(
+            "\\{\"name\":\"((?:[^\"\\\\]|\\\\.)*)\",\"ph\":\"i\",\"ts\":(\\d+)");
+
+    /**
+     * The number of packs in the synthetic installation.
+     */
+    private int packs = 500;
+
+    /**
+     * The number of variables in the synthetic installation.
+     */
+    private int variables = 2000;
+
+    /**
+     * The number of conditions in the synthetic installation.
+     */
+    private int conditions = 1000;
+
+    /**
+     * The number of measured runs per mode.
+     */
+    private int runs = 10;
+
+    /**
+     * The number of unmeasured runs per mode.
+     */
+    private int warmup = 1;
+
+    /**
+     * The working directory.
+     */
+    private File dir = new File("target/startup-benchmark");
+
+    /**
+     * The history file. May be {@code null}.
+     */
+    private File history = new File("startup-history.csv");
+
+    /**
+     * The label to record in the history, e.g. a revision.
+     */
+    private String label = "";
+
+    /**
+     * Determines if only the console installer is measured.
+     */
+    private boolean consoleOnly;
+
+    /**
+     * Main entry point.
+     *
+     * @param args the command line arguments
+     * @throws Exception for any error
+     */
+    public static void main(String[] args) throws Exception
+    {
+        StartupBenchmark benchmark = new StartupBenchmark();
+        benchmark.parse(args);
+        benchmark.run();
+        System.exit(0);
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @throws Exception for any error
+     */
+    public void run() throws Exception
+    {
+        if (!dir.isDirectory() && !dir.mkdirs())
+        {
+            throw new IOException("Failed to create directory: " + dir);
+        }
+        File installer = compile();
+
+        Map<String, Map<String, Long>> results = new LinkedHashMap<String, Map<String, Long>>();
+        results.put("console", measure(installer, CONSOLE_READY, "-console"));
+        if (consoleOnly)
+        {
+            System.out.println("GUI installer not measured");
+        }
+        else if (GraphicsEnvironment.isHeadless())
+        {
+            System.out.println("GUI installer not measured: no display available");
+        }
+        else
+        {
+            results.put("gui", measure(installer, FIRST_PAINT, null));
+        }
+        report(results);
+    }
+
+    /**
+     * Generates and compiles the synthetic installation.
+     *
+     * @return the installer jar
+     * @throws Exception for any error
+     */
+    private File compile() throws Exception
+    {
+        SyntheticInstallation installation = new SyntheticInstallation(packs, variables, conditions);
+        File installFile = installation.write(dir);
+        File installer = new File(dir, "installer.jar");
+
+        long start = System.nanoTime();
+        CompilerContainer container = new CompilerContainer();
+        container.addConfig("installFile", installFile.getAbsolutePath());
+        container.addComponent(CompilerData.class, new CompilerData(installFile.getAbsolutePath(),
+                                                                    dir.getAbsolutePath(),
+                                                                    installer.getAbsolutePath(), false));
+        CompilerConfig compiler = container.getComponent(CompilerConfig.class);
+        compiler.executeCompiler();
+        if (!compiler.wasSuccessful())
+        {
+            throw new IllegalStateException("Failed to compile " + installFile);
+        }
+        System.out.println("Compiled " + packs + " packs, " + variables + " variables, " + conditions
+                                   + " conditions in " + (System.nanoTime() - start) / 1000000 + "ms");
+        return installer;
+    }
+
+    /**
+     * Measures the start time of an installer.
+     *
+     * @param installer the installer jar
+     * @param ready     the mark at which the installer is ready for input
+     * @param option    the installer option. May be {@code null}
+     * @return the median time of each metric, in microseconds
+     * @throws Exception for any error
+     */
+    private Map<String, Long> measure(File installer, String ready, String option) throws Exception
+    {
+        Map<String, List<Long>> samples = new LinkedHashMap<String, List<Long>>();
+        for (int i = 0; i < warmup + runs; ++i)
+        {
+            Map<String, Long> sample = launch(installer, ready, option);
+            if (i >= warmup)
+            {
+                for (Map.Entry<String, Long> entry : sample.entrySet())
+                {
+                    List<Long> values = samples.get(entry.getKey());
+                    if (values == null)
+                    {
+                        values = new ArrayList<Long>();
+                        samples.put(entry.getKey(), values);
+                    }
+                    values.add(entry.getValue());
+                }
+            }
+        }
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, List<Long>> entry : samples.entrySet())
+        {
+            List<Long> values = entry.getValue();
+            Collections.sort(values);
+            result.put(entry.getKey(), values.get(values.size() / 2));
+        }
+        return result;
+    }
+
+    /**
+     * Launches an installer in a new JVM, waits for it to write its trace, and stops it.
+     *
+     * @param installer the installer jar
+     * @param ready     the mark at which the installer writes its trace
+     * @param option    the installer option. May be {@code null}
+     * @return the time of each phase and mark, and the {@link #WALL wall} time, in microseconds
+     * @throws Exception for any error
+     */
+    private Map<String, Long> launch(File installer, String ready, String option) throws Exception
+    {
+        File trace = new File(dir, "trace.json");
+        if (trace.exists() && !trace.delete())
+        {
+            throw new IOException("Failed to delete " + trace);
+        }
+        // remove the lock file left by the previous run, so the installer doesn't prompt
+        File lock = new File(System.getProperty("java.io.tmpdir"), "iz-" + SyntheticInstallation.APP_NAME + ".tmp");
+        lock.delete();
+
+        List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.add("-D" + PhaseTimer.TRACE_FILE + "=" + trace.getAbsolutePath());
+        command.add("-D" + PhaseTimer.WRITE_AT + "=" + ready);
+        command.add("-jar");
+        command.add(installer.getAbsolutePath());
+        if (option != null)
+        {
+            command.add(option);
+        }
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.directory(dir);
+        builder.redirectErrorStream(true);
+
+        long start = System.nanoTime();
+        final Process process = builder.start();
+        process.getOutputStream().close();
+        final StringBuilder output = new StringBuilder();
+        Thread drainer = new Thread("StartupBenchmark-output")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    drain(process.getInputStream(), output);
+                }
+                catch (IOException ignore)
+                {
+                    // the process has been destroyed
+                }
+            }
+        };
+        drainer.setDaemon(true);
+        drainer.start();
+
+        Map<String, Long> result = null;
+        long wall = 0;
+        boolean exited = false;
+        try
+        {
+            long deadline = start + TIMEOUT * 1000000L;
+            while (result == null && !exited && System.nanoTime() < deadline)
+            {
+                // check for exit first, so that a trace written just before exit is still read.
+                // The trace is written by renaming, so it is complete once it exists
+                exited = hasExited(process);
+                if (trace.exists())
+                {
+                    wall = (System.nanoTime() - start) / 1000;
+                    result = read(trace);
+                }
+                else if (!exited)
+                {
+                    Thread.sleep(POLL_INTERVAL);
+                }
+            }
+        }
+        finally
+        {
+            process.destroy();
+            process.waitFor();
+            drainer.join(TIMEOUT);
+        }
+        if (result == null || !result.containsKey(ready))
+        {
+            // a trace without the mark is written if the installer exits early
+            String reason = (result == null && !exited) ? "timed out" : "exited";
+            throw new IllegalStateException("Installer " + reason + " before " + ready + ":\n" + output);
+        }
+        result.put(WALL, wall);
+        return result;
+    }
+
+    /**
+     * Determines if a process has exited.
+     *
+     * @param process the process
+     * @return {@code true} if the process has exited
+     */
+    private static boolean hasExited(Process process)
+    {
+        try
+        {
+            process.exitValue();
+            return true;
+        }
+        catch (IllegalThreadStateException exception)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a trace written by the {@link PhaseTimer}.
+     *
+     * @param trace the trace file
+     * @return the summed duration of each phase, and the time since JVM start of each mark, in microseconds
+     * @throws IOException for any I/O error
+     */
+    private Map<String, Long> read(File trace) throws IOException
+    {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        if (!trace.exists())
+        {
+            return result;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(trace), "UTF-8"));
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                Matcher phase = PHASE.matcher(line);
+                Matcher mark = MARK.matcher(line);
+                if (phase.lookingAt())
+                {
+                    String name = phase.group(1);
+                    Long total = result.get(name);
+                    long duration = Long.parseLong(phase.group(3));
+                    result.put(name, (total != null) ? total + duration : duration);
+                }
+                else if (mark.lookingAt())
+                {
+                    result.put(mark.group(1), Long.parseLong(mark.group(2)));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Reports the results, and appends them to the history file.
+     *
+     * @param results the median time of each metric, in microseconds, keyed on installer mode
+     * @throws IOException for any I/O error
+     */
+    private void report(Map<String, Map<String, Long>> results) throws IOException
+    {
+        String date = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+        PrintWriter out = null;
+        if (history != null)
+        {
+            boolean exists = history.exists();
+            out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(history, true), "UTF-8"));
+            if (!exists)
+            {
+                out.println("date,label,packs,variables,conditions,mode,metric,median_ms");
+            }
+        }
+        for (Map.Entry<String, Map<String, Long>> mode : results.entrySet())
+        {
+            System.out.println();
+            System.out.println(mode.getKey() + " (median of " + runs + " runs):");
+            for (Map.Entry<String, Long> metric : mode.getValue().entrySet())
+            {
+                String millis = String.format("%.1f", metric.getValue() / 1000.0);
+                System.out.println(String.format("  %-50s %10sms", metric.getKey(), millis));
+                if (out != null)
+                {
+                    out.println(date + "," + label + "," + packs + "," + variables + "," + conditions + ","
+                                        + mode.getKey() + ",\"" + metric.getKey().replace("\"", "\"\"") + "\","
+                                        + millis);
+                }
+            }
+        }
+        if (out != null)
+        {
+            out.close();
+            System.out.println();
+            System.out.println("Results appended to " + history.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Parses the command line arguments.
+     *
+     * @param args the arguments
+     */
+    private void parse(String[] args)
+    {
+        for (int i = 0; i < args.length; ++i)
+        {
+            String arg = args[i];
+            if ("-console-only".equals(arg))
+            {
+                consoleOnly = true;
+            }
+            else if (i + 1 == args.length)
+            {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+            else if ("-packs".equals(arg))
+            {
+                packs = Integer.parseInt(args[++i]);
+            }
+            else if ("-variables".equals(arg))
+            {
+                variables = Integer.parseInt(args[++i]);
+            }
+            else if ("-conditions".equals(arg))
+            {
+                conditions = Integer.parseInt(args[++i]);
+            }
+            else if ("-runs".equals(arg))
+            {
+                runs = Math.max(1, Integer.parseInt(args[++i]));
+            }
+            else if ("-warmup".equals(arg))
+            {
+                warmup = Integer.parseInt(args[++i]);
+            }
+            else if ("-dir".equals(arg))
+            {
+                dir = new File(args[++i]);
+            }
+            else if ("-history".equals(arg))
+            {
+                String path = args[++i];
+                history = (path.length() != 0) ? new File(path) : null;
+            }
+            else if ("-label".equals(arg))
+            {
+                label = args[++i];
+            }
+            else
+            {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+        }
+    }
+
+    /**
+     * Reads a stream until end of stream.
+     *
+     * @param in     the stream to read
+     * @param output the buffer to append to
+     * @throws IOException for any I/O error
+     */
+    private static void drain(InputStream in, StringBuilder output) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                output.append(line).append('\n');
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
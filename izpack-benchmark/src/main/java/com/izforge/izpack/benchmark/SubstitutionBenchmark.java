@@ -0,0 +1,168 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+
+
+/**
+ * Measures variable substitution, for a parsable file substituted as a stream, and for the short strings that are
+ * substituted repeatedly by panels, conditions and dynamic variables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubstitutionBenchmark
+{
+
+    /**
+     * The number of variables defined.
+     */
+    private static final int VARIABLES = 200;
+
+    /**
+     * The number of lines in the parsable file.
+     */
+    private static final int LINES = 2000;
+
+    /**
+     * The substitution type.
+     */
+    @Param({"TYPE_PLAIN", "TYPE_SHELL", "TYPE_XML", "TYPE_JAVA_PROPERTIES", "TYPE_AT", "TYPE_JAVA", "TYPE_ANT"})
+    public String type;
+
+    /**
+     * The substitution type.
+     */
+    private SubstitutionType substitutionType;
+
+    /**
+     * The substitutor.
+     */
+    private VariableSubstitutorImpl substitutor;
+
+    /**
+     * The parsable file content.
+     */
+    private byte[] file;
+
+    /**
+     * The strings to substitute.
+     */
+    private String[] strings;
+
+    /**
+     * Creates the variables, parsable file and strings, using the variable syntax of the substitution type.
+     */
+    @Setup
+    public void setUp()
+    {
+        substitutionType = SubstitutionType.valueOf(type);
+        Properties properties = new Properties();
+        for (int i = 0; i < VARIABLES; ++i)
+        {
+            properties.setProperty("var" + i, "/opt/application/value " + i + " <&\"'>");
+        }
+        substitutor = new VariableSubstitutorImpl(properties);
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < LINES; ++i)
+        {
+            content.append("line ").append(i).append(": some literal text, then ").append(reference(i % VARIABLES))
+                    .append(" and ").append(reference((i * 7) % VARIABLES)).append(" and an undefined ")
+                    .append(reference(VARIABLES + i)).append('\n');
+        }
+        file = content.toString().getBytes();
+
+        strings = new String[100];
+        for (int i = 0; i < strings.length; ++i)
+        {
+            strings[i] = (i % 4 == 0) ? "a literal string without variables " + i
+                    : reference(i % VARIABLES) + "/lib/" + reference((i + 1) % VARIABLES) + ".jar";
+        }
+    }
+
+    /**
+     * Substitutes the parsable file as a stream.
+     *
+     * @return the substituted content
+     * @throws Exception for any error
+     */
+    @Benchmark
+    public byte[] substituteStream() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(file.length * 2);
+        substitutor.substitute(new ByteArrayInputStream(file), out, substitutionType, "UTF-8");
+        return out.toByteArray();
+    }
+
+    /**
+     * Substitutes each of the strings.
+     *
+     * @return the total length of the substituted strings
+     */
+    @Benchmark
+    public int substituteStrings()
+    {
+        int length = 0;
+        for (String string : strings)
+        {
+            length += substitutor.substitute(string, substitutionType).length();
+        }
+        return length;
+    }
+
+    /**
+     * Returns a reference to a variable, in the syntax of the substitution type.
+     *
+     * @param index the variable index
+     * @return the variable reference
+     */
+    private String reference(int index)
+    {
+        String name = "var" + index;
+        switch (substitutionType)
+        {
+            case TYPE_SHELL:
+                return "%{" + name + "}";
+            case TYPE_AT:
+                return "@{" + name + "}";
+            case TYPE_ANT:
+                return "@" + name + "@";
+            default:
+                return "${" + name + "}";
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+
+/**
+ * Generates a large installation descriptor, for benchmarking.
+ * <p/>
+ * The installation contains the standard panels, and the specified number of packs, variables and conditions. Each
+ * pack installs a single small file, and depends on its predecessor, and every second pack has a condition.
+ */
+public class SyntheticInstallation
+{
+
+    /**
+     * The application name. This determines the name of the installer lock file.
+     */
+    public static final String APP_NAME = "izpack-benchmark";
+
+    /**
+     * The number of packs.
+     */
+    private final int packs;
+
+    /**
+     * The number of variables.
+     */
+    private final int variables;
+
+    /**
+     * The number of conditions.
+     */
+    private final int conditions;
+
+    /**
+     * Constructs a {@code SyntheticInstallation}.
+     *
+     * @param packs      the number of packs
+     * @param variables  the number of variables
+     * @param conditions the number of conditions
+     */
+    public SyntheticInstallation(int packs, int variables, int conditions)
+    {
+        this.packs = packs;
+        this.variables = variables;
+        this.conditions = Math.max(conditions, 1);
+    }
+
+    /**
+     * Writes the installation descriptor and the files it references.
+     *
+     * @param dir the directory to write to
+     * @return the installation descriptor
+     * @throws IOException for any I/O error
+     */
+    public File write(File dir) throws IOException
+    {
+        File payload = new File(dir, "payload");
+        if (!payload.isDirectory() && !payload.mkdirs())
+        {
+            throw new IOException("Failed to create directory: " + payload);
+        }
+        for (int i = 0; i < packs; ++i)
+        {
+            PrintWriter file = open(new File(payload, "file" + i + ".txt"));
+            file.println("Content of pack " + i);
+            file.close();
+        }
+
+        File result = new File(dir, "install.xml");
+        PrintWriter out = open(result);
+        out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.println("<izpack:installation version=\"5.0\" xmlns:izpack=\"http://izpack.org/schema/installation\"");
+        out.println("                     xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
+        out.println("                     xsi:schemaLocation=\"http://izpack.org/schema/installation "
+                            + "http://izpack.org/schema/5.0/izpack-installation-5.0.xsd\">");
+        out.println("    <info>");
+        out.println("        <appname>" + APP_NAME + "</appname>");
+        out.println("        <appversion>1.0</appversion>");
+        out.println("    </info>");
+        out.println("    <guiprefs width=\"640\" height=\"480\" resizable=\"yes\"/>");
+        out.println("    <locale>");
+        out.println("        <langpack iso3=\"eng\"/>");
+        out.println("    </locale>");
+
+        out.println("    <variables>");
+        for (int i = 0; i < variables; ++i)
+        {
+            out.println("        <variable name=\"var" + i + "\" value=\"value" + i + "\"/>");
+        }
+        out.println("    </variables>");
+
+        out.println("    <conditions>");
+        for (int i = 0; i < conditions; ++i)
+        {
+            out.println("        <condition type=\"variable\" id=\"cond" + i + "\">");
+            out.println("            <name>var" + (variables > 0 ? i % variables : 0) + "</name>");
+            out.println("            <value>value" + i + "</value>");
+            out.println("        </condition>");
+        }
+        out.println("    </conditions>");
+
+        out.println("    <panels>");
+        out.println("        <panel classname=\"HelloPanel\"/>");
+        out.println("        <panel classname=\"TargetPanel\"/>");
+        out.println("        <panel classname=\"PacksPanel\"/>");
+        out.println("        <panel classname=\"InstallPanel\"/>");
+        out.println("        <panel classname=\"FinishPanel\"/>");
+        out.println("    </panels>");
+
+        out.println("    <packs>");
+        for (int i = 0; i < packs; ++i)
+        {
+            out.print("        <pack name=\"Pack " + i + "\" required=\"no\" preselected=\"yes\"");
+            if (i % 2 == 1)
+            {
+                out.print(" condition=\"cond" + (i % conditions) + "\"");
+            }
+            out.println(">");
+            out.println("            <description>Synthetic pack " + i + "</description>");
+            if (i > 0)
+            {
+                out.println("            <depends packname=\"Pack " + (i - 1) + "\"/>");
+            }
+            out.println("            <file src=\"payload/file" + i + ".txt\" targetdir=\"$INSTALL_PATH/pack" + i
+                                + "\"/>");
+            out.println("        </pack>");
+        }
+        out.println("    </packs>");
+        out.println("</izpack:installation>");
+        out.close();
+        if (out.checkError())
+        {
+            throw new IOException("Failed to write " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Opens a file for writing.
+     *
+     * @param file the file
+     * @return a new writer
+     * @throws IOException if the file cannot be opened
+     */
+    private PrintWriter open(File file) throws IOException
+    {
+        return new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    }
+}
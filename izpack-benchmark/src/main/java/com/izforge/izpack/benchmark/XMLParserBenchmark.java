@@ -0,0 +1,116 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.adaptator.impl.XMLParser;
+
+
+/**
+ * Measures XML parsing, for a large installation descriptor and for the small documents the compiler and installer
+ * parse in quantity (refpacks, langpacks, icons, user input specs).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class XMLParserBenchmark
+{
+
+    /**
+     * A small document.
+     */
+    private static final String SMALL = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<izpack:langpack version=\"5.0\" xmlns:izpack=\"http://izpack.org/schema/langpack\">\n"
+            + "    <str id=\"installer.next\" txt=\"Next\"/>\n"
+            + "    <str id=\"installer.prev\" txt=\"Previous\"/>\n"
+            + "</izpack:langpack>\n";
+
+    /**
+     * The number of packs in the installation descriptor.
+     */
+    @Param({"100", "3000"})
+    public int packs;
+
+    /**
+     * The installation descriptor.
+     */
+    private byte[] large;
+
+    /**
+     * The small document.
+     */
+    private byte[] small;
+
+    /**
+     * Generates the installation descriptor.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        File dir = File.createTempFile("izpack-xml", "");
+        if (!dir.delete() || !dir.mkdir())
+        {
+            throw new IOException("Failed to create directory: " + dir);
+        }
+        File file = new SyntheticInstallation(packs, packs, packs / 2).write(dir);
+        large = FileUtils.readFileToByteArray(file);
+        small = SMALL.getBytes("UTF-8");
+        FileUtils.deleteDirectory(dir);
+    }
+
+    /**
+     * Parses the installation descriptor.
+     *
+     * @return the root element
+     */
+    @Benchmark
+    public IXMLElement parseInstallation()
+    {
+        return new XMLParser().parse(new ByteArrayInputStream(large));
+    }
+
+    /**
+     * Parses the small document.
+     *
+     * @return the root element
+     */
+    @Benchmark
+    public IXMLElement parseSmall()
+    {
+        return new XMLParser().parse(new ByteArrayInputStream(small));
+    }
+}
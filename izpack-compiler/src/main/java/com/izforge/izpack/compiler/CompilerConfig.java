@@ -47,6 +47,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -57,7 +58,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -95,8 +95,10 @@ import com.izforge.izpack.compiler.helper.AssertionHelper;
 import com.izforge.izpack.compiler.helper.TargetFileSet;
 import com.izforge.izpack.compiler.helper.XmlCompilerHelper;
 import com.izforge.izpack.compiler.listener.CompilerListener;
+import com.izforge.izpack.compiler.listener.ProfilingCompilerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.packager.IPackager;
+import com.izforge.izpack.compiler.profile.CompilerProfiler;
 import com.izforge.izpack.compiler.resource.ResourceFinder;
 import com.izforge.izpack.compiler.util.CompilerClassLoader;
 import com.izforge.izpack.core.data.DynamicInstallerRequirementValidatorImpl;
@@ -126,7 +128,6 @@ import com.izforge.izpack.panels.treepacks.PackValidator;
 import com.izforge.izpack.panels.userinput.UserInputPanel;
 import com.izforge.izpack.panels.userinput.field.UserInputPanelSpec;
 import com.izforge.izpack.util.FileUtil;
-import com.izforge.izpack.util.IoHelper;
 import com.izforge.izpack.util.OsConstraintHelper;
 import com.izforge.izpack.util.PlatformModelMatcher;
 import com.izforge.izpack.util.file.DirectoryScanner;
@@ -298,38 +299,68 @@ public class CompilerConfig extends Thread
         // We get the XML data tree
         IXMLElement data = resourceFinder.getXMLTree();
 
-        // construct compiler listeners to receive all further compiler events
-        addCompilerListeners(data);
-
-        // loads the specified packager
-        loadPackagingInformation(data);
+        // profile the compilation if required
+        String profile = compilerData.getProfile();
+        if (profile != null)
+        {
+            CompilerProfiler.enable();
+            compilerListeners.add(new ProfilingCompilerListener());
+        }
 
-        // Read the properties and perform replacement on the rest of the tree
-        substituteProperties(data);
-
-        // We add all the information
-        addVariables(data);
-        addDynamicVariables(data);
-        addDynamicInstallerRequirement(data);
-        addConditions(data);
-        addInfo(data);
-        addGUIPrefs(data);
-        addLangpacks(data);
-        addResources(data);
-        addNativeLibraries(data);
-        addJars(data);
-        addPanelJars(data);
-        addListenerJars(data);
-        addPanels(data);
-        addListeners(data);
-        addPacks(data);
-        addInstallerRequirement(data);
-
-        // merge multiple packlang.xml files
-        mergePacksLangFiles();
-
-        // We ask the packager to create the installer
-        compiler.createInstaller();
+        try
+        {
+            // construct compiler listeners to receive all further compiler events
+            addCompilerListeners(data);
+
+            // loads the specified packager
+            loadPackagingInformation(data);
+
+            // Read the properties and perform replacement on the rest of the tree
+            substituteProperties(data);
+
+            // We add all the information
+            addVariables(data);
+            addDynamicVariables(data);
+            addDynamicInstallerRequirement(data);
+            addConditions(data);
+            addInfo(data);
+            addGUIPrefs(data);
+            addLangpacks(data);
+            addResources(data);
+            addNativeLibraries(data);
+            addJars(data);
+            addPanelJars(data);
+            addListenerJars(data);
+            addPanels(data);
+            addListeners(data);
+            addPacks(data);
+            DirectoryScanner.clearListingCache(); // the pack sources have been scanned
+            addInstallerRequirement(data);
+
+            // merge multiple packlang.xml files
+            notifyCompilerListener("mergePacksLangFiles", CompilerListener.BEGIN, data);
+            mergePacksLangFiles();
+            notifyCompilerListener("mergePacksLangFiles", CompilerListener.END, data);
+
+            // We ask the packager to create the installer
+            notifyCompilerListener("createInstaller", CompilerListener.BEGIN, data);
+            compiler.createInstaller();
+            notifyCompilerListener("createInstaller", CompilerListener.END, data);
+
+            if (profile != null)
+            {
+                CompilerProfiler.write(new File(profile));
+                logger.info("Wrote compiler profile to " + profile);
+            }
+        }
+        finally
+        {
+            if (profile != null)
+            {
+                // stop collecting, so that later compilations in the same VM aren't profiled
+                CompilerProfiler.disable();
+            }
+        }
     }
 
     /**
@@ -942,9 +973,19 @@ public class CompilerConfig extends Thread
         {
             try
             {
+                CompilerProfiler.Phase phase = CompilerProfiler.start("scanFileSet", pack.toString());
+                DirectoryScanner scanner;
+                try
+                {
+                    scanner = fs.getDirectoryScanner();
+                }
+                finally
+                {
+                    phase.end();
+                }
                 String[][] includedFilesAndDirs = new String[][]{
-                        fs.getDirectoryScanner().getIncludedDirectories(),
-                        fs.getDirectoryScanner().getIncludedFiles()
+                        scanner.getIncludedDirectories(),
+                        scanner.getIncludedFiles()
                 };
                 for (String[] filesOrDirs : includedFilesAndDirs)
                 {
@@ -1071,8 +1112,18 @@ public class CompilerConfig extends Thread
                 }
 
                 LinkedList<String> srcfiles = new LinkedList<String>();
-                Collections.addAll(srcfiles, fs.getDirectoryScanner().getIncludedDirectories());
-                Collections.addAll(srcfiles, fs.getDirectoryScanner().getIncludedFiles());
+                CompilerProfiler.Phase phase = CompilerProfiler.start("scanFileSet", pack.toString());
+                DirectoryScanner scanner;
+                try
+                {
+                    scanner = fs.getDirectoryScanner();
+                }
+                finally
+                {
+                    phase.end();
+                }
+                Collections.addAll(srcfiles, scanner.getIncludedDirectories());
+                Collections.addAll(srcfiles, scanner.getIncludedFiles());
                 for (String filePath : srcfiles)
                 {
                     if (!filePath.isEmpty())
@@ -1427,59 +1478,42 @@ public class CompilerConfig extends Thread
                                      String condition) throws IOException
     {
 
-        FileInputStream fin = new FileInputStream(archive);
-        ZipInputStream zin = new ZipInputStream(fin);
-        List<String> allDirList = new ArrayList<String>();
-        while (true)
+        // entries are read from the archive when the pack is written
+        ZipFile zip = new ZipFile(archive);
+        try
         {
-            ZipEntry zentry = zin.getNextEntry();
-            if (zentry == null)
-            {
-                break;
-            }
-            if (zentry.isDirectory())
+            Map<String, ZipEntry> dirs = new TreeMap<String, ZipEntry>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements())
             {
-                // add to all dir listing/empty dir needs to be handle
-                String dName = zentry.getName().substring(0, zentry.getName().length() - 1);
-                allDirList.add(dName);
-                continue;
-            }
-
-            try
-            {
-                File temp = FileUtils.createTempFile("izpack", null);
-                temp.deleteOnExit();
-
-                FileOutputStream out = new FileOutputStream(temp);
-                IoHelper.copyStream(zin, out);
-                out.close();
+                ZipEntry zentry = entries.nextElement();
+                if (zentry.isDirectory())
+                {
+                    // add to all dir listing/empty dir needs to be handle
+                    String dName = zentry.getName().substring(0, zentry.getName().length() - 1);
+                    dirs.put(dName, zentry);
+                    continue;
+                }
 
                 String target = targetdir + "/" + zentry.getName();
                 logger.info("Adding file " + zentry.getName() + " from archive as target file=" + target);
-                pack.addFile(baseDir, temp, target, osList, override,
-                             overrideRenameTo, blockable, additionals, condition);
+                pack.addArchiveEntry(baseDir, archive, zentry, target, osList, override, overrideRenameTo, blockable,
+                                     additionals, condition);
             }
-            catch (IOException e)
+
+            // This corrects issues that could arise due to subfolders
+            for (Map.Entry<String, ZipEntry> dir : dirs.entrySet())
             {
-                throw new IOException("Couldn't create temporary file for " + zentry.getName()
-                                              + " in archive " + archive + " (" + e.getMessage() + ")");
+                String target = targetdir + "/" + dir.getKey();
+                logger.info("Adding directory " + dir.getKey() + " from archive as target file=" + target);
+                pack.addArchiveEntry(baseDir, archive, dir.getValue(), target, osList, override, overrideRenameTo,
+                                     blockable, additionals, condition);
             }
-
         }
-
-        // This corrects issues that could arise due to subfolders
-        Collections.sort(allDirList);
-        for (String dirName : allDirList)
+        finally
         {
-            File tmp = new File(dirName);
-            org.apache.commons.io.FileUtils.forceMkdir(tmp);
-            org.apache.commons.io.FileUtils.forceDeleteOnExit(tmp);
-            String target = targetdir + "/" + dirName;
-            logger.info("Adding file: " + tmp + ", as target file=" + target);
-            pack.addFile(baseDir, tmp, target, osList,
-                         override, overrideRenameTo, blockable, additionals, condition);
+            zip.close();
         }
-        fin.close();
     }
 
     /**
@@ -2319,19 +2353,36 @@ public class CompilerConfig extends Thread
                         }
                     }
                     String[] cmdarr = new String[cmd.size()];
+                    ExecValue execValue = null;
                     if (exectype.equalsIgnoreCase("process") || exectype == null)
                     {
-                        dynamicVariable.setValue(new ExecValue(cmd.toArray(cmdarr), dir, false, stderr));
+                        execValue = new ExecValue(cmd.toArray(cmdarr), dir, false, stderr);
                     }
                     else if (exectype.equalsIgnoreCase("shell"))
                     {
-                        dynamicVariable.setValue(new ExecValue(cmd.toArray(cmdarr), dir, true, stderr));
+                        execValue = new ExecValue(cmd.toArray(cmdarr), dir, true, stderr);
                     }
                     else
                     {
                         assertionHelper.parseError(
                                 "Bad execution type " + exectype + " given for dynamic variable " + name);
                     }
+                    String cache = var.getAttribute("cache");
+                    if (cache != null)
+                    {
+                        try
+                        {
+                            execValue.setCachePolicy(ExecValue.CachePolicy.valueOf(cache.toUpperCase(Locale.ENGLISH)),
+                                                     xmlCompilerHelper.getLong(var, "ttl", 0));
+                        }
+                        catch (IllegalArgumentException exception)
+                        {
+                            assertionHelper.parseError(
+                                    "Bad cache policy " + cache + " given for dynamic variable " + name);
+                        }
+                    }
+                    execValue.setTimeout(xmlCompilerHelper.getLong(var, "timeout", 0));
+                    dynamicVariable.setValue(execValue);
                 }
                 else
                 {
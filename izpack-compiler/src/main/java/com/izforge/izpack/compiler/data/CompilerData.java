@@ -90,6 +90,11 @@ public class CompilerData
      */
     private int comprLevel = -1;
 
+    /**
+     * The file to write the compiler profile report to. May be {@code null}
+     */
+    private String profile;
+
     /**
      * External Information
      */
@@ -228,6 +233,26 @@ public class CompilerData
         this.comprLevel = comprLevel;
     }
 
+    /**
+     * Returns the file to write the compiler profile report to.
+     *
+     * @return the profile report file, or {@code null} if the compiler isn't being profiled
+     */
+    public String getProfile()
+    {
+        return profile;
+    }
+
+    /**
+     * Sets the file to write the compiler profile report to.
+     *
+     * @param profile the profile report file. May be {@code null}
+     */
+    public void setProfile(String profile)
+    {
+        this.profile = profile;
+    }
+
     public Info getExternalInfo()
     {
         return this.externalInfo;
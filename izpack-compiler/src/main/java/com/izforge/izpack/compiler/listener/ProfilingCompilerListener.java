@@ -0,0 +1,68 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.listener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.compiler.packager.IPackager;
+import com.izforge.izpack.compiler.profile.CompilerProfiler;
+
+
+/**
+ * A compiler listener that records each step of packaging as a {@link CompilerProfiler} phase, named after the
+ * step, e.g. <em>addPacks</em>.
+ * <p/>
+ * This is registered by the compiler when the <tt>-profile</tt> option is specified.
+ */
+public class ProfilingCompilerListener extends SimpleCompilerListener
+{
+
+    /**
+     * The steps in progress, keyed on step name.
+     */
+    private final Map<String, CompilerProfiler.Phase> phases = new HashMap<String, CompilerProfiler.Phase>();
+
+    /**
+     * Starts a phase when a step begins, and ends it when the step ends.
+     *
+     * @param position name of the calling method, e.g. "addVariables"
+     * @param state    BEGIN or END
+     * @param data     current install data
+     * @param packager current packager object
+     */
+    @Override
+    public void notify(String position, int state, IXMLElement data, IPackager packager)
+    {
+        if (state == BEGIN)
+        {
+            phases.put(position, CompilerProfiler.start(position));
+        }
+        else if (state == END)
+        {
+            CompilerProfiler.Phase phase = phases.remove(position);
+            if (phase != null)
+            {
+                phase.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.izforge.izpack.data.ArchiveEntry;
+
+
+/**
+ * Reads the data of {@link ArchiveEntry}s.
+ * <p/>
+ * Each archive is opened once, on first use, and remains open until {@link #close()} is invoked.
+ */
+class ArchiveReader
+{
+
+    /**
+     * The open archives.
+     */
+    private final Map<File, ZipFile> archives = new HashMap<File, ZipFile>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ArchiveReader.class.getName());
+
+    /**
+     * Returns a stream to read the uncompressed data of an archive entry.
+     * <p/>
+     * The stream verifies the CRC-32 of the data once it has been read completely.
+     *
+     * @param entry the archive entry
+     * @return a stream to read the entry
+     * @throws IOException if the entry cannot be read
+     */
+    public InputStream getInputStream(final ArchiveEntry entry) throws IOException
+    {
+        ZipFile zip = archives.get(entry.getArchive());
+        if (zip == null)
+        {
+            zip = new ZipFile(entry.getArchive());
+            archives.put(entry.getArchive(), zip);
+        }
+        ZipEntry zipEntry = zip.getEntry(entry.getName());
+        if (zipEntry == null)
+        {
+            throw new FileNotFoundException("No such entry: " + entry);
+        }
+        return new CheckedInputStream(zip.getInputStream(zipEntry), new CRC32())
+        {
+            @Override
+            public int read() throws IOException
+            {
+                int result = super.read();
+                if (result == -1)
+                {
+                    verify();
+                }
+                return result;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException
+            {
+                int result = super.read(buffer, offset, length);
+                if (result == -1)
+                {
+                    verify();
+                }
+                return result;
+            }
+
+            private void verify() throws IOException
+            {
+                if (entry.getCrc() != -1 && getChecksum().getValue() != entry.getCrc())
+                {
+                    throw new IOException("CRC mismatch when reading " + entry);
+                }
+            }
+        };
+    }
+
+    /**
+     * Closes the open archives.
+     */
+    public void close()
+    {
+        for (ZipFile zip : archives.values())
+        {
+            try
+            {
+                zip.close();
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.WARNING, "Failed to close " + zip.getName(), exception);
+            }
+        }
+        archives.clear();
+    }
+}
@@ -21,29 +21,31 @@
  */
 package com.izforge.izpack.compiler.packager.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.Properties;
-import java.util.Set;
 import java.util.logging.Logger;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.tools.zip.ZipEntry;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.data.Pack;
-import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.XPackFile;
 import com.izforge.izpack.compiler.compressor.PackCompressor;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
+import com.izforge.izpack.compiler.profile.CompilerProfiler;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
 import com.izforge.izpack.core.io.FileSpanningOutputStream;
 import com.izforge.izpack.data.ExecutableFile;
+import com.izforge.izpack.data.PackFileManifest;
 import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.data.ParsableFile;
 import com.izforge.izpack.data.UpdateCheck;
@@ -209,8 +211,8 @@ public class MultiVolumePackager extends PackagerBase
         installerJar.closeEntry();
 
         // Now that we know sizes, write pack metadata to primary jar.
-        installerJar.putNextEntry(new ZipEntry(RESOURCES_PATH + "packs.info"));
-        out = new ObjectOutputStream(installerJar);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        out = new ObjectOutputStream(bytes);
         out.writeInt(count);
 
         for (PackInfo pack : packs)
@@ -218,7 +220,7 @@ public class MultiVolumePackager extends PackagerBase
             out.writeObject(pack.getPack());
         }
         out.flush();
-        installerJar.closeEntry();
+        writeStartupResource("packs.info", bytes.toByteArray());
     }
 
     /**
@@ -270,7 +272,17 @@ public class MultiVolumePackager extends PackagerBase
         installerJar.putNextEntry(entry);
         ObjectOutputStream packStream = new ObjectOutputStream(installerJar);
 
-        writePackFiles(packInfo, volumes, pack, packStream, targetDir);
+        CompilerProfiler.Phase phase = CompilerProfiler.start("writePack", name);
+        try
+        {
+            long position = volumes.getFilePointer();
+            writePackFiles(packInfo, volumes, pack, packStream, targetDir);
+            phase.end(pack.getFileSize(), volumes.getFilePointer() - position);
+        }
+        finally
+        {
+            phase.end();
+        }
 
         // Write out information about parsable files
         packStream.writeInt(packInfo.getParsables().size());
@@ -313,25 +325,33 @@ public class MultiVolumePackager extends PackagerBase
                                 ObjectOutputStream packStream, File targetDir) throws IOException
     {
         // write the file meta-data
-        Set<PackFile> files = packInfo.getPackFiles();
-        packStream.writeInt(files.size());
+        PackFileManifest manifest = packInfo.getManifest();
+        packStream.writeInt(manifest.size());
 
-        for (PackFile packfile : files)
+        int written = 0;
+        for (PackFileManifest.Entry entry : manifest)
         {
-            XPackFile pf = new XPackFile(packfile);
-            File file = packInfo.getFile(packfile);
-            logger.fine("Next file: " + file.getAbsolutePath());
+            XPackFile pf = new XPackFile(entry.getPackFile());
+            logger.fine("Next file: " + pf.sourcePath);
 
             if (!pf.isDirectory())
             {
                 if (!pack.isLoose())
                 {
-                    writePackFile(file, volumes, pf);
+                    writePackFile(entry, volumes, pf);
                 }
                 else
                 {
                     // just copy the file to the target directory
-                    FileUtils.copyFile(file, new File(targetDir, pf.getRelativeSourcePath()));
+                    InputStream in = getInputStream(entry);
+                    try
+                    {
+                        FileUtils.copyInputStreamToFile(in, new File(targetDir, pf.getRelativeSourcePath()));
+                    }
+                    finally
+                    {
+                        IOUtils.closeQuietly(in);
+                    }
                 }
             }
 
@@ -340,6 +360,12 @@ public class MultiVolumePackager extends PackagerBase
             packStream.flush(); // make sure it is written
             // even if not written, it counts towards pack size
             pack.addFileSize(pf.length());
+            pack.addTargetSize(pf);
+
+            if (++written % PACK_STREAM_RESET_INTERVAL == 0)
+            {
+                packStream.reset();
+            }
         }
 
         if (pack.getFileSize() > pack.getSize())
@@ -351,12 +377,13 @@ public class MultiVolumePackager extends PackagerBase
     /**
      * Writes a pack file to the volumes.
      *
-     * @param file     the file to write
+     * @param entry    the manifest entry of the file to write
      * @param volumes  the volumes
      * @param packFile the pack file
      * @throws IOException for any I/O error
      */
-    private void writePackFile(File file, FileSpanningOutputStream volumes, XPackFile packFile) throws IOException
+    private void writePackFile(PackFileManifest.Entry entry, FileSpanningOutputStream volumes, XPackFile packFile)
+            throws IOException
     {
         long beforePosition = volumes.getFilePointer();
         packFile.setArchiveFilePosition(beforePosition);
@@ -364,14 +391,14 @@ public class MultiVolumePackager extends PackagerBase
         // write the file to the volumes
         int volumeCount = volumes.getVolumes();
 
-        FileInputStream in = new FileInputStream(file);
+        InputStream in = getInputStream(entry);
         long bytesWritten = IoHelper.copyStream(in, volumes);
         long afterPosition = volumes.getFilePointer();
         logger.fine("File (" + packFile.sourcePath + ") " + beforePosition + " <-> " + afterPosition);
 
         if (volumes.getFilePointer() != (beforePosition + bytesWritten))
         {
-            logger.fine("file: " + file.getName());
+            logger.fine("file: " + packFile.sourcePath);
             logger.fine("(Filepos/BytesWritten/ExpectedNewFilePos/NewFilePointer) ("
                                 + beforePosition + "/" + bytesWritten + "/" + (beforePosition + bytesWritten)
                                 + "/" + volumes.getFilePointer() + ")");
@@ -381,7 +408,7 @@ public class MultiVolumePackager extends PackagerBase
 
         if (bytesWritten != packFile.length())
         {
-            throw new IOException("File size mismatch when reading " + file);
+            throw new IOException("File size mismatch when reading " + packFile.sourcePath);
         }
         in.close();
     }
@@ -20,9 +20,10 @@
 
 package com.izforge.izpack.compiler.packager.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.util.Enumeration;
@@ -42,9 +43,11 @@ import com.izforge.izpack.compiler.compressor.PackCompressor;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
+import com.izforge.izpack.compiler.profile.CompilerProfiler;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
 import com.izforge.izpack.core.io.ByteCountingOutputStream;
 import com.izforge.izpack.data.ExecutableFile;
+import com.izforge.izpack.data.PackFileManifest;
 import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.data.ParsableFile;
 import com.izforge.izpack.data.UpdateCheck;
@@ -104,9 +107,6 @@ public class Packager extends PackagerBase
         final int num = packs.size();
         sendMsg("Writing " + num + " Pack" + (num > 1 ? "s" : "") + " into installer");
 
-        // Map to remember pack number and bytes offsets of back references
-        Map<File, Object[]> storedFiles = new HashMap<File, Object[]>();
-
         // Pack200 files map
         Map<Integer, File> pack200Map = new HashMap<Integer, File>();
         int pack200Counter = 0;
@@ -141,30 +141,37 @@ public class Packager extends PackagerBase
             // Retrieve the correct output stream
             org.apache.tools.zip.ZipEntry entry = new org.apache.tools.zip.ZipEntry(
                     RESOURCES_PATH + "packs/pack-" + pack.getName());
-            installerJar.putNextEntry(entry);
-            installerJar.flush(); // flush before we start counting
-
-            ByteCountingOutputStream dos = new ByteCountingOutputStream(outputStream);
-            ObjectOutputStream objOut = new ObjectOutputStream(dos);
+            CompilerProfiler.Phase phase = CompilerProfiler.start("compressPack", pack.getName());
+            try
+            {
+                installerJar.putNextEntry(entry);
+                installerJar.flush(); // flush before we start counting
 
-            // We write the actual pack files
-            objOut.writeInt(packInfo.getPackFiles().size());
+                ByteCountingOutputStream dos = new ByteCountingOutputStream(outputStream);
+                ObjectOutputStream objOut = new ObjectOutputStream(dos);
 
-            for (PackFile packFile : packInfo.getPackFiles())
-            {
-                boolean addFile = !pack.isLoose();
-                boolean pack200 = false;
-                File file = packInfo.getFile(packFile);
+                // We write the actual pack files
+                PackFileManifest manifest = packInfo.getManifest();
+                objOut.writeInt(manifest.size());
 
-                if (file.getName().toLowerCase().endsWith(".jar") && getInfo().isPack200Compression()
-                        && isNotSignedJar(file))
+                int written = 0;
+                for (PackFileManifest.Entry manifestEntry : manifest)
                 {
-                    packFile.setPack200Jar(true);
-                    pack200 = true;
-                }
+                    PackFile packFile = manifestEntry.getPackFile();
+                    boolean addFile = !pack.isLoose();
+                    boolean pack200 = false;
+                    File file = manifestEntry.getFile();
+
+                    // pack200 requires a jar file of its own, so jars within archives are stored as is
+                    if (file.getName().toLowerCase().endsWith(".jar") && getInfo().isPack200Compression()
+                            && manifestEntry.getArchiveEntry() == null && isNotSignedJar(file))
+                    {
+                        packFile.setPack200Jar(true);
+                        pack200 = true;
+                    }
 
-                // use a back reference if file was in previous pack, and in
-                // same jar
+                    // use a back reference if file was in previous pack, and in
+                    // same jar
 //                Object[] info = storedFiles.get(file);
 //                if (info != null && !packSeparateJars())
 //                {
@@ -172,80 +179,88 @@ public class Packager extends PackagerBase
 //                    addFile = false;
 //                }
 
-                objOut.writeObject(packFile); // base info
-
-                if (addFile && !packFile.isDirectory())
-                {
-                    long pos = dos.getByteCount(); // get the position
+                    objOut.writeObject(packFile); // base info
 
-                    if (pack200)
-                    {
-                        /*
-                         * Warning!
-                         *
-                         * Pack200 archives must be stored in separated streams, as the Pack200 unpacker
-                         * reads the entire stream...
-                         *
-                         * See http://java.sun.com/javase/6/docs/api/java/util/jar/Pack200.Unpacker.html
-                         */
-                        pack200Map.put(pack200Counter, file);
-                        objOut.writeInt(pack200Counter);
-                        pack200Counter = pack200Counter + 1;
-                    }
-                    else
+                    if (addFile && !packFile.isDirectory())
                     {
-                        FileInputStream inStream = new FileInputStream(file);
-                        long bytesWritten = IoHelper.copyStream(inStream, objOut);
-                        inStream.close();
-                        if (bytesWritten != packFile.length())
+                        if (pack200)
                         {
-                            throw new IOException("File size mismatch when reading " + file);
+                            /*
+                             * Warning!
+                             *
+                             * Pack200 archives must be stored in separated streams, as the Pack200 unpacker
+                             * reads the entire stream...
+                             *
+                             * See http://java.sun.com/javase/6/docs/api/java/util/jar/Pack200.Unpacker.html
+                             */
+                            pack200Map.put(pack200Counter, file);
+                            objOut.writeInt(pack200Counter);
+                            pack200Counter = pack200Counter + 1;
+                        }
+                        else
+                        {
+                            InputStream inStream = getInputStream(manifestEntry);
+                            long bytesWritten = IoHelper.copyStream(inStream, objOut);
+                            inStream.close();
+                            if (bytesWritten != packFile.length())
+                            {
+                                throw new IOException("File size mismatch when reading " + packFile.sourcePath);
+                            }
                         }
                     }
 
-                    storedFiles.put(file, new Object[]{pack.getName(), pos}); // TODO - see IZPACK-799
+                    // even if not written, it counts towards pack size
+                    pack.addFileSize(packFile.size());
+                    pack.addTargetSize(packFile);
+
+                    if (++written % PACK_STREAM_RESET_INTERVAL == 0)
+                    {
+                        objOut.reset();
+                    }
                 }
 
-                // even if not written, it counts towards pack size
-                pack.addFileSize(packFile.size());
-            }
+                if (pack.getFileSize() > pack.getSize())
+                {
+                    pack.setSize(pack.getFileSize());
+                }
 
-            if (pack.getFileSize() > pack.getSize())
-            {
-                pack.setSize(pack.getFileSize());
-            }
+                // Write out information about parsable files
+                objOut.writeInt(packInfo.getParsables().size());
 
-            // Write out information about parsable files
-            objOut.writeInt(packInfo.getParsables().size());
+                for (ParsableFile parsableFile : packInfo.getParsables())
+                {
+                    objOut.writeObject(parsableFile);
+                }
 
-            for (ParsableFile parsableFile : packInfo.getParsables())
-            {
-                objOut.writeObject(parsableFile);
-            }
+                // Write out information about executable files
+                objOut.writeInt(packInfo.getExecutables().size());
+                for (ExecutableFile executableFile : packInfo.getExecutables())
+                {
+                    objOut.writeObject(executableFile);
+                }
 
-            // Write out information about executable files
-            objOut.writeInt(packInfo.getExecutables().size());
-            for (ExecutableFile executableFile : packInfo.getExecutables())
-            {
-                objOut.writeObject(executableFile);
-            }
+                // Write out information about updatecheck files
+                objOut.writeInt(packInfo.getUpdateChecks().size());
+                for (UpdateCheck updateCheck : packInfo.getUpdateChecks())
+                {
+                    objOut.writeObject(updateCheck);
+                }
 
-            // Write out information about updatecheck files
-            objOut.writeInt(packInfo.getUpdateChecks().size());
-            for (UpdateCheck updateCheck : packInfo.getUpdateChecks())
-            {
-                objOut.writeObject(updateCheck);
-            }
+                // Cleanup
+                objOut.flush();
+                if (!getCompressor().useStandardCompression())
+                {
+                    outputStream.close();
+                }
 
-            // Cleanup
-            objOut.flush();
-            if (!getCompressor().useStandardCompression())
+                installerJar.closeEntry();
+                phase.end(dos.getByteCount(), entry.getCompressedSize());
+            }
+            finally
             {
-                outputStream.close();
+                phase.end();
             }
 
-            installerJar.closeEntry();
-
             // close pack specific jar if required
             if (packSeparateJars())
             {
@@ -266,8 +281,8 @@ public class Packager extends PackagerBase
         }
 
         // Now that we know sizes, write pack metadata to primary jar.
-        installerJar.putNextEntry(new org.apache.tools.zip.ZipEntry(RESOURCES_PATH + "packs.info"));
-        ObjectOutputStream out = new ObjectOutputStream(installerJar);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
         out.writeInt(packs.size());
 
         for (PackInfo packInfo : packs)
@@ -275,18 +290,29 @@ public class Packager extends PackagerBase
             out.writeObject(packInfo.getPack());
         }
         out.flush();
-        installerJar.closeEntry();
+        writeStartupResource("packs.info", bytes.toByteArray());
 
         // Pack200 files
         Pack200.Packer packer = createAgressivePack200Packer();
         for (Integer key : pack200Map.keySet())
         {
             File file = pack200Map.get(key);
-            installerJar.putNextEntry(new org.apache.tools.zip.ZipEntry(RESOURCES_PATH + "packs/pack200-" + key));
-            JarFile jar = new JarFile(file);
-            packer.pack(jar, installerJar);
-            jar.close();
-            installerJar.closeEntry();
+            CompilerProfiler.Phase phase = CompilerProfiler.start("pack200");
+            try
+            {
+                org.apache.tools.zip.ZipEntry entry = new org.apache.tools.zip.ZipEntry(
+                        RESOURCES_PATH + "packs/pack200-" + key);
+                installerJar.putNextEntry(entry);
+                JarFile jar = new JarFile(file);
+                packer.pack(jar, installerJar);
+                jar.close();
+                installerJar.closeEntry();
+                phase.end(file.length(), entry.getCompressedSize());
+            }
+            finally
+            {
+                phase.end();
+            }
         }
     }
 
@@ -22,13 +22,16 @@
 
 package com.izforge.izpack.compiler.packager.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -40,12 +43,15 @@ import java.util.zip.ZipInputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
+import com.izforge.izpack.api.data.CompiledLangpack;
 import com.izforge.izpack.api.data.DynamicInstallerRequirementValidator;
 import com.izforge.izpack.api.data.DynamicVariable;
 import com.izforge.izpack.api.data.GUIPrefs;
 import com.izforge.izpack.api.data.Info;
 import com.izforge.izpack.api.data.InstallerRequirement;
+import com.izforge.izpack.api.data.LocaleDatabase;
 import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.api.exception.ResourceException;
 import com.izforge.izpack.api.rules.Condition;
 import com.izforge.izpack.compiler.compressor.PackCompressor;
 import com.izforge.izpack.compiler.data.CompilerData;
@@ -53,8 +59,12 @@ import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.PanelMerge;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.packager.IPackager;
+import com.izforge.izpack.compiler.profile.CompilerProfiler;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
+import com.izforge.izpack.core.resource.StartupSnapshot;
+import com.izforge.izpack.data.ArchiveEntry;
 import com.izforge.izpack.data.CustomData;
+import com.izforge.izpack.data.PackFileManifest;
 import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
@@ -76,6 +86,25 @@ public abstract class PackagerBase implements IPackager
      */
     public static final String RESOURCES_PATH = "resources/";
 
+    /**
+     * The number of pack files written to a pack stream between resets. Resetting the stream discards the
+     * references it retains to written objects, so that writing a large pack doesn't hold every pack file in memory.
+     */
+    protected static final int PACK_STREAM_RESET_INTERVAL = 1024;
+
+    /**
+     * The name of the custom langpack resource. Localised custom langpacks are merged into the corresponding
+     * installer langpack.
+     */
+    private static final String CUSTOM_LANGPACK = "CustomLangPack.xml";
+
+    /**
+     * The names of resources that contain langpacks, and are compiled to {@link CompiledLangpack}s when written to
+     * the installer. These may have a locale suffix e.g. <em>packsLang.xml_eng</em>.
+     */
+    private static final Set<String> LANGPACK_RESOURCES = new HashSet<String>(Arrays.asList(
+            CUSTOM_LANGPACK, "packsLang.xml", "userInputLang.xml", "CustomActionsLang.xml"));
+
     /**
      * Variables.
      */
@@ -162,6 +191,11 @@ public abstract class PackagerBase implements IPackager
      */
     private final Map<String, URL> installerResourceURLMap = new HashMap<String, URL>();
 
+    /**
+     * The startup snapshot, holding the resources read at installer startup.
+     */
+    private final StartupSnapshot snapshot = new StartupSnapshot();
+
     /**
      * The conditions.
      */
@@ -188,6 +222,11 @@ public abstract class PackagerBase implements IPackager
      */
     private Map<FilterOutputStream, Set<String>> alreadyWrittenFiles = new HashMap<FilterOutputStream, Set<String>>();
 
+    /**
+     * Reads pack file data from archives.
+     */
+    private final ArchiveReader archiveReader = new ArchiveReader();
+
 
     /**
      * Constructs a <tt>PackagerBase</tt>.
@@ -401,7 +440,18 @@ public abstract class PackagerBase implements IPackager
 
         sendStart();
 
-        writeInstaller();
+        try
+        {
+            writeInstaller();
+        }
+        finally
+        {
+            archiveReader.close();
+            for (PackInfo packInfo : packsList)
+            {
+                packInfo.getManifest().close();
+            }
+        }
 
         // Finish up. closeAlways is a hack for pack compressions other than
         // default. Some of it (e.g. BZip2) closes the slave of it also.
@@ -432,24 +482,59 @@ public abstract class PackagerBase implements IPackager
     {
         // write the installer jar. MUST be first so manifest is not overwritten by an included jar
         writeManifest();
-        writeSkeletonInstaller();
+        CompilerProfiler.Phase phase = CompilerProfiler.start("mergeSkeleton");
+        try
+        {
+            writeSkeletonInstaller();
+        }
+        finally
+        {
+            phase.end();
+        }
 
-        writeInstallerObject("info", info);
-        writeInstallerObject("vars", properties);
-        writeInstallerObject("GUIPrefs", guiPrefs);
+        snapshot.putInfo("info", info);
+        snapshot.putProperties("vars", properties);
+        snapshot.putGUIPrefs("GUIPrefs", guiPrefs);
         writeInstallerObject("panelsOrder", panelList);
         writeInstallerObject("customData", customDataList);
-        writeInstallerObject("langpacks.info", langpackNameList);
+        snapshot.putStrings("langpacks.info", langpackNameList);
         writeInstallerObject("rules", rules);
         writeInstallerObject("dynvariables", dynamicVariables);
         writeInstallerObject("dynconditions", dynamicInstallerRequirements);
         writeInstallerObject("installerrequirements", installerRequirements);
 
-        writeInstallerResources();
-        writeIncludedJars();
+        phase = CompilerProfiler.start("writeResources");
+        try
+        {
+            writeInstallerResources();
+        }
+        finally
+        {
+            phase.end();
+        }
+
+        phase = CompilerProfiler.start("mergeJars");
+        try
+        {
+            writeIncludedJars();
+        }
+        finally
+        {
+            phase.end();
+        }
 
         // Pack File Data may be written to separate jars
-        writePacks();
+        phase = CompilerProfiler.start("writePacks");
+        try
+        {
+            writePacks();
+        }
+        finally
+        {
+            phase.end();
+        }
+
+        writeStartupSnapshot();
     }
 
     /**
@@ -500,32 +585,65 @@ public abstract class PackagerBase implements IPackager
     }
 
     /**
-     * Write an arbitrary object to installer jar.
+     * Write an arbitrary object to the {@link StartupSnapshot startup snapshot}.
      *
      * @throws IOException for any I/O error
      */
     protected void writeInstallerObject(String entryName, Object object) throws IOException
     {
-        installerJar.putNextEntry(new org.apache.tools.zip.ZipEntry(RESOURCES_PATH + entryName));
-        ObjectOutputStream out = new ObjectOutputStream(installerJar);
         try
         {
-            out.writeObject(object);
+            snapshot.putObject(entryName, object);
         }
         catch (IOException e)
         {
             throw new IOException("Error serializing instance of " + object.getClass().getName()
                                           + " as entry \"" + entryName + "\"", e);
         }
+    }
+
+    /**
+     * Writes a serialized resource read at installer startup to the {@link StartupSnapshot startup snapshot}.
+     * <p/>
+     * The resource isn't written as an individual entry; it is only accessible via
+     * {@link com.izforge.izpack.api.resource.Resources}.
+     *
+     * @param entryName the resource name
+     * @param content   the serialized resource content
+     */
+    protected void writeStartupResource(String entryName, byte[] content)
+    {
+        snapshot.putSerialized(entryName, content);
+    }
+
+    /**
+     * Writes the {@link StartupSnapshot startup snapshot} to the installer jar.
+     * <p/>
+     * This must be invoked after all startup resources have been written.
+     *
+     * @throws IOException for any I/O error
+     */
+    protected void writeStartupSnapshot() throws IOException
+    {
+        // installerJar only supports writes of byte arrays, so buffer the snapshot
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.write(bytes);
+        installerJar.putNextEntry(new org.apache.tools.zip.ZipEntry(RESOURCES_PATH + StartupSnapshot.NAME));
+        try
+        {
+            installerJar.write(bytes.toByteArray(), 0, bytes.size());
+        }
         finally
         {
-            out.flush();
             installerJar.closeEntry();
         }
     }
 
     /**
      * Write the data referenced by URL to installer jar.
+     * <p/>
+     * Langpacks are written in their {@link CompiledLangpack compiled} form. Any localised custom langpack is merged
+     * into the installer langpack of the same locale.
      *
      * @throws IOException for any I/O error
      */
@@ -535,11 +653,10 @@ public abstract class PackagerBase implements IPackager
 
         for (Map.Entry<String, URL> stringURLEntry : installerResourceURLMap.entrySet())
         {
+            String name = stringURLEntry.getKey();
             URL url = stringURLEntry.getValue();
-            InputStream in = url.openStream();
 
-            org.apache.tools.zip.ZipEntry newEntry = new org.apache.tools.zip.ZipEntry(
-                    RESOURCES_PATH + stringURLEntry.getKey());
+            org.apache.tools.zip.ZipEntry newEntry = new org.apache.tools.zip.ZipEntry(RESOURCES_PATH + name);
             long dateTime = FileUtil.getFileDateTime(url);
             if (dateTime != -1)
             {
@@ -547,8 +664,102 @@ public abstract class PackagerBase implements IPackager
             }
             installerJar.putNextEntry(newEntry);
 
-            IoHelper.copyStream(in, installerJar);
+            Map<String, String> messages = isLangpack(name) ? compileLangpack(name, url) : null;
+            if (messages != null)
+            {
+                // installerJar only supports writes of byte arrays, so buffer the compiled langpack
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                CompiledLangpack.write(messages, bytes);
+                installerJar.write(bytes.toByteArray(), 0, bytes.size());
+            }
+            else
+            {
+                InputStream in = url.openStream();
+                IoHelper.copyStream(in, installerJar);
+                in.close();
+            }
             installerJar.closeEntry();
+        }
+    }
+
+    /**
+     * Determines if a resource is a langpack.
+     *
+     * @param name the resource name
+     * @return {@code true} if the resource is a langpack
+     */
+    private boolean isLangpack(String name)
+    {
+        if (name.startsWith("langpacks/") && name.endsWith(".xml"))
+        {
+            return true;
+        }
+        int index = name.lastIndexOf('_');
+        return LANGPACK_RESOURCES.contains(index != -1 ? name.substring(0, index) : name);
+    }
+
+    /**
+     * Reads the messages of a langpack resource, prior to it being compiled.
+     * <p/>
+     * Installer langpacks are merged with the custom langpack of the same locale, if any. As the installer
+     * applies the custom langpack after loading the installer langpack, the custom langpack itself is
+     * replaced with an empty one, rather than removed, so that it doesn't fall back to a non-localised version.
+     *
+     * @param name the resource name
+     * @param url  the resource URL
+     * @return the messages, or {@code null} if the resource isn't a valid langpack and should be copied verbatim
+     * @throws IOException for any I/O error
+     */
+    private Map<String, String> compileLangpack(String name, URL url) throws IOException
+    {
+        try
+        {
+            LocaleDatabase messages = readLangpack(url);
+            if (name.startsWith(CUSTOM_LANGPACK + "_"))
+            {
+                String iso3 = name.substring(CUSTOM_LANGPACK.length() + 1);
+                if (installerResourceURLMap.containsKey("langpacks/" + iso3 + ".xml"))
+                {
+                    return Collections.emptyMap();
+                }
+            }
+            else if (name.startsWith("langpacks/"))
+            {
+                String iso3 = name.substring("langpacks/".length(), name.length() - ".xml".length());
+                URL custom = installerResourceURLMap.get(CUSTOM_LANGPACK + "_" + iso3);
+                if (custom != null)
+                {
+                    sendMsg("Merging custom langpack: " + iso3, PackagerListener.MSG_VERBOSE);
+                    messages.add(readLangpack(custom));
+                }
+            }
+            return messages;
+        }
+        catch (ResourceException exception)
+        {
+            sendMsg("Copying invalid langpack " + name + " verbatim: " + exception.getMessage(),
+                    PackagerListener.MSG_WARN);
+            return null;
+        }
+    }
+
+    /**
+     * Reads a langpack.
+     *
+     * @param url the langpack URL
+     * @return the langpack messages
+     * @throws IOException       for any I/O error
+     * @throws ResourceException if the langpack is invalid
+     */
+    private LocaleDatabase readLangpack(URL url) throws IOException
+    {
+        InputStream in = url.openStream();
+        try
+        {
+            return new LocaleDatabase(in, null, null);
+        }
+        finally
+        {
             in.close();
         }
     }
@@ -577,6 +788,26 @@ public abstract class PackagerBase implements IPackager
      */
     protected abstract void writePacks() throws IOException;
 
+    /**
+     * Returns a stream to read the data of a pack file.
+     * <p/>
+     * The data is read from the file the pack file was added from, or from its archive entry if it was added from an
+     * archive.
+     *
+     * @param entry the pack manifest entry
+     * @return a stream to read the pack file
+     * @throws IOException if the file cannot be read
+     */
+    protected InputStream getInputStream(PackFileManifest.Entry entry) throws IOException
+    {
+        ArchiveEntry archiveEntry = entry.getArchiveEntry();
+        if (archiveEntry != null)
+        {
+            return archiveReader.getInputStream(archiveEntry);
+        }
+        return new FileInputStream(entry.getFile());
+    }
+
     /**
      * Returns the installer jar stream.
      *
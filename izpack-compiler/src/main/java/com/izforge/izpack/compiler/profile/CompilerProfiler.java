@@ -0,0 +1,647 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.profile;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.util.PhaseTimer;
+
+
+/**
+ * Records the wall time, CPU time and bytes processed by each phase of the compiler, for diagnosing where compile
+ * time goes.
+ * <p/>
+ * Profiling is disabled by default, in which case {@link #start(String)} returns a shared handle and nothing is
+ * recorded. It is enabled by the <tt>-profile</tt> compiler option, which writes a JSON report of the recorded
+ * phases once the installer has been created.
+ * <p/>
+ * A phase may be recorded more than once, and phases may nest; e.g. <em>scanFileSet</em> is recorded for each
+ * fileset, within <em>addPacks</em>. Phases may also be attributed to a pack, in which case they are reported both
+ * in total and for the pack. CPU time is that of the thread running the phase; work delegated to other threads,
+ * such as the directory listings prefetched by the scanner, isn't included.
+ * <p/>
+ * Each phase is also recorded by {@link PhaseTimer}, so that compiler phases appear in the timeline when it is
+ * enabled.
+ */
+public final class CompilerProfiler
+{
+
+    /**
+     * The report format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The handle returned when profiling is disabled.
+     */
+    private static final Phase DISABLED = new Phase(null, null);
+
+    /**
+     * The statistics of each phase, keyed on phase name.
+     */
+    private static final Map<String, Statistics> phases = new LinkedHashMap<String, Statistics>();
+
+    /**
+     * The statistics of each pack, keyed on pack name, and then on phase name.
+     */
+    private static final Map<String, Map<String, Statistics>> packs
+            = new LinkedHashMap<String, Map<String, Statistics>>();
+
+    /**
+     * Determines if profiling is enabled.
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * The thread management bean, used to determine CPU time. May be {@code null}.
+     */
+    private static final ThreadMXBean threads = getThreadMXBean();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(CompilerProfiler.class.getName());
+
+    /**
+     * Private constructor. Use the static methods.
+     */
+    private CompilerProfiler()
+    {
+    }
+
+    /**
+     * Enables profiling.
+     * <p/>
+     * Any previously recorded phases are discarded.
+     */
+    public static synchronized void enable()
+    {
+        phases.clear();
+        packs.clear();
+        enabled = true;
+    }
+
+    /**
+     * Disables profiling, discarding any recorded phases.
+     */
+    public static synchronized void disable()
+    {
+        enabled = false;
+        phases.clear();
+        packs.clear();
+    }
+
+    /**
+     * Determines if profiling is enabled.
+     *
+     * @return {@code true} if profiling is enabled
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts a phase.
+     *
+     * @param name the phase name
+     * @return a handle to {@link Phase#end() end} the phase
+     */
+    public static Phase start(String name)
+    {
+        return start(name, null);
+    }
+
+    /**
+     * Starts a phase for a pack.
+     *
+     * @param name the phase name
+     * @param pack the pack name. May be {@code null}
+     * @return a handle to {@link Phase#end() end} the phase
+     */
+    public static Phase start(String name, String pack)
+    {
+        return enabled ? new Phase(name, pack) : DISABLED;
+    }
+
+    /**
+     * Returns the statistics of each phase, in the order the phases were first recorded.
+     *
+     * @return the phase statistics, keyed on phase name
+     */
+    public static synchronized Map<String, Statistics> getPhases()
+    {
+        return copy(phases);
+    }
+
+    /**
+     * Returns the statistics of each phase recorded for a pack.
+     *
+     * @param pack the pack name
+     * @return the phase statistics, keyed on phase name
+     */
+    public static synchronized Map<String, Statistics> getPhases(String pack)
+    {
+        Map<String, Statistics> result = packs.get(pack);
+        return (result != null) ? copy(result) : new LinkedHashMap<String, Statistics>();
+    }
+
+    /**
+     * Writes the report to a file.
+     *
+     * @param file the file to write to
+     * @throws IOException for any I/O error
+     */
+    public static void write(File file) throws IOException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try
+        {
+            write(writer);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the report in JSON format.
+     * <p/>
+     * The report contains the statistics of each phase, followed by those of each pack. Times are in milliseconds.
+     *
+     * @param writer the writer to write to. This is flushed but not closed
+     * @throws IOException for any I/O error
+     */
+    public static synchronized void write(Writer writer) throws IOException
+    {
+        writer.write("{\"version\":" + VERSION + ",\n\"phases\":");
+        write(writer, phases);
+        writer.write(",\n\"packs\":[");
+        boolean first = true;
+        for (Map.Entry<String, Map<String, Statistics>> pack : packs.entrySet())
+        {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write("{\"name\":");
+            writeString(writer, pack.getKey());
+            writer.write(",\"phases\":");
+            write(writer, pack.getValue());
+            writer.write("}");
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    /**
+     * Records a completed phase.
+     *
+     * @param name     the phase name
+     * @param pack     the pack name. May be {@code null}
+     * @param wallTime the wall time, in nanoseconds
+     * @param cpuTime  the CPU time in nanoseconds, or {@code -1} if it isn't known
+     * @param bytesIn  the number of bytes read, or {@code -1} if it isn't known
+     * @param bytesOut the number of bytes written, or {@code -1} if it isn't known
+     */
+    private static synchronized void record(String name, String pack, long wallTime, long cpuTime, long bytesIn,
+                                            long bytesOut)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        get(phases, name).add(wallTime, cpuTime, bytesIn, bytesOut);
+        if (pack != null)
+        {
+            Map<String, Statistics> packPhases = packs.get(pack);
+            if (packPhases == null)
+            {
+                packPhases = new LinkedHashMap<String, Statistics>();
+                packs.put(pack, packPhases);
+            }
+            get(packPhases, name).add(wallTime, cpuTime, bytesIn, bytesOut);
+        }
+    }
+
+    /**
+     * Returns the statistics of a phase, creating them if required.
+     *
+     * @param statistics the statistics, keyed on phase name
+     * @param name       the phase name
+     * @return the phase statistics
+     */
+    private static Statistics get(Map<String, Statistics> statistics, String name)
+    {
+        Statistics result = statistics.get(name);
+        if (result == null)
+        {
+            result = new Statistics();
+            statistics.put(name, result);
+        }
+        return result;
+    }
+
+    /**
+     * Copies phase statistics.
+     *
+     * @param statistics the statistics to copy
+     * @return a copy of the statistics
+     */
+    private static Map<String, Statistics> copy(Map<String, Statistics> statistics)
+    {
+        Map<String, Statistics> result = new LinkedHashMap<String, Statistics>();
+        for (Map.Entry<String, Statistics> entry : statistics.entrySet())
+        {
+            result.put(entry.getKey(), new Statistics(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Writes phase statistics as a JSON array.
+     *
+     * @param writer     the writer to write to
+     * @param statistics the statistics, keyed on phase name
+     * @throws IOException for any I/O error
+     */
+    private static void write(Writer writer, Map<String, Statistics> statistics) throws IOException
+    {
+        writer.write("[");
+        boolean first = true;
+        for (Map.Entry<String, Statistics> entry : statistics.entrySet())
+        {
+            Statistics stats = entry.getValue();
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write("{\"name\":");
+            writeString(writer, entry.getKey());
+            writer.write(",\"count\":" + stats.getCount());
+            writer.write(",\"wallTime\":" + toMillis(stats.getWallTime()));
+            if (stats.getCpuTime() >= 0)
+            {
+                writer.write(",\"cpuTime\":" + toMillis(stats.getCpuTime()));
+            }
+            if (stats.getBytesIn() >= 0)
+            {
+                writer.write(",\"bytesIn\":" + stats.getBytesIn());
+            }
+            if (stats.getBytesOut() >= 0)
+            {
+                writer.write(",\"bytesOut\":" + stats.getBytesOut());
+            }
+            double ratio = stats.getCompressionRatio();
+            if (ratio >= 0)
+            {
+                writer.write(",\"compressionRatio\":" + String.format(Locale.ENGLISH, "%.4f", ratio));
+            }
+            writer.write("}");
+        }
+        writer.write("]");
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos the time in nanoseconds
+     * @return the time in milliseconds, to three decimal places
+     */
+    private static String toMillis(long nanos)
+    {
+        return String.format(Locale.ENGLISH, "%.3f", nanos / 1000000.0);
+    }
+
+    /**
+     * Writes a JSON string.
+     *
+     * @param writer the writer to write to
+     * @param value  the value to write
+     * @throws IOException for any I/O error
+     */
+    private static void writeString(Writer writer, String value) throws IOException
+    {
+        writer.write('"');
+        for (int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                writer.write('\\');
+                writer.write(c);
+            }
+            else if (c < 0x20)
+            {
+                String hex = Integer.toHexString(c);
+                writer.write("\\u0000", 0, 6 - hex.length());
+                writer.write(hex);
+            }
+            else
+            {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Returns the CPU time of the current thread.
+     *
+     * @return the CPU time in nanoseconds, or {@code -1} if it isn't supported
+     */
+    private static long getCpuTime()
+    {
+        return (threads != null) ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Returns the thread management bean, if it supports measuring the CPU time of the current thread.
+     *
+     * @return the thread management bean, or {@code null} if CPU time isn't supported
+     */
+    private static ThreadMXBean getThreadMXBean()
+    {
+        try
+        {
+            ThreadMXBean result = ManagementFactory.getThreadMXBean();
+            if (result.isCurrentThreadCpuTimeSupported())
+            {
+                if (!result.isThreadCpuTimeEnabled())
+                {
+                    result.setThreadCpuTimeEnabled(true);
+                }
+                return result;
+            }
+        }
+        catch (Throwable exception)
+        {
+            logger.log(Level.FINE, "CPU time is not available: " + exception.getMessage(), exception);
+        }
+        return null;
+    }
+
+    /**
+     * A phase in progress.
+     */
+    public static class Phase
+    {
+
+        /**
+         * The phase name, or {@code null} if profiling is disabled.
+         */
+        private final String name;
+
+        /**
+         * The pack name. May be {@code null}.
+         */
+        private final String pack;
+
+        /**
+         * The timeline phase.
+         */
+        private final PhaseTimer.Phase timeline;
+
+        /**
+         * The wall time when the phase started, in nanoseconds.
+         */
+        private final long start;
+
+        /**
+         * The CPU time when the phase started, in nanoseconds, or {@code -1} if it isn't supported.
+         */
+        private final long cpuStart;
+
+        /**
+         * Determines if the phase has ended.
+         */
+        private boolean ended;
+
+        /**
+         * Constructs a {@code Phase}.
+         *
+         * @param name the phase name, or {@code null} if profiling is disabled
+         * @param pack the pack name. May be {@code null}
+         */
+        private Phase(String name, String pack)
+        {
+            this.name = name;
+            this.pack = pack;
+            if (name != null)
+            {
+                timeline = PhaseTimer.start((pack != null) ? name + ":" + pack : name);
+                cpuStart = getCpuTime();
+                start = System.nanoTime();
+            }
+            else
+            {
+                timeline = null;
+                cpuStart = -1;
+                start = 0;
+            }
+        }
+
+        /**
+         * Ends the phase.
+         * <p/>
+         * Only the first call has any effect, so a phase ended with its byte counts may also be ended in a
+         * <em>finally</em> block, to record it if it fails.
+         */
+        public void end()
+        {
+            end(-1, -1);
+        }
+
+        /**
+         * Ends the phase, recording the bytes it processed.
+         * <p/>
+         * Only the first call has any effect.
+         *
+         * @param bytesIn  the number of bytes read, or {@code -1} if it isn't known
+         * @param bytesOut the number of bytes written, or {@code -1} if it isn't known
+         */
+        public void end(long bytesIn, long bytesOut)
+        {
+            if (name != null && !ended)
+            {
+                ended = true;
+                long wallTime = System.nanoTime() - start;
+                long cpuTime = (cpuStart >= 0) ? getCpuTime() - cpuStart : -1;
+                timeline.end();
+                record(name, pack, wallTime, cpuTime, bytesIn, bytesOut);
+            }
+        }
+    }
+
+    /**
+     * The accumulated statistics of a phase.
+     */
+    public static class Statistics
+    {
+
+        /**
+         * The number of times the phase was recorded.
+         */
+        private int count;
+
+        /**
+         * The total wall time, in nanoseconds.
+         */
+        private long wallTime;
+
+        /**
+         * The total CPU time in nanoseconds, or {@code -1} if it isn't known.
+         */
+        private long cpuTime = -1;
+
+        /**
+         * The total number of bytes read, or {@code -1} if it isn't known.
+         */
+        private long bytesIn = -1;
+
+        /**
+         * The total number of bytes written, or {@code -1} if it isn't known.
+         */
+        private long bytesOut = -1;
+
+        /**
+         * Constructs a {@code Statistics}.
+         */
+        Statistics()
+        {
+        }
+
+        /**
+         * Copy constructor.
+         *
+         * @param other the statistics to copy
+         */
+        Statistics(Statistics other)
+        {
+            count = other.count;
+            wallTime = other.wallTime;
+            cpuTime = other.cpuTime;
+            bytesIn = other.bytesIn;
+            bytesOut = other.bytesOut;
+        }
+
+        /**
+         * Returns the number of times the phase was recorded.
+         *
+         * @return the count
+         */
+        public int getCount()
+        {
+            return count;
+        }
+
+        /**
+         * Returns the total wall time.
+         *
+         * @return the wall time, in nanoseconds
+         */
+        public long getWallTime()
+        {
+            return wallTime;
+        }
+
+        /**
+         * Returns the total CPU time.
+         *
+         * @return the CPU time in nanoseconds, or {@code -1} if it isn't known
+         */
+        public long getCpuTime()
+        {
+            return cpuTime;
+        }
+
+        /**
+         * Returns the total number of bytes read.
+         *
+         * @return the bytes read, or {@code -1} if it isn't known
+         */
+        public long getBytesIn()
+        {
+            return bytesIn;
+        }
+
+        /**
+         * Returns the total number of bytes written.
+         *
+         * @return the bytes written, or {@code -1} if it isn't known
+         */
+        public long getBytesOut()
+        {
+            return bytesOut;
+        }
+
+        /**
+         * Returns the compression ratio, i.e. the bytes written divided by the bytes read.
+         *
+         * @return the compression ratio, or {@code -1} if it isn't known
+         */
+        public double getCompressionRatio()
+        {
+            return (bytesIn > 0 && bytesOut >= 0) ? (double) bytesOut / bytesIn : -1;
+        }
+
+        /**
+         * Adds a recording of the phase.
+         *
+         * @param wallTime the wall time, in nanoseconds
+         * @param cpuTime  the CPU time in nanoseconds, or {@code -1} if it isn't known
+         * @param bytesIn  the number of bytes read, or {@code -1} if it isn't known
+         * @param bytesOut the number of bytes written, or {@code -1} if it isn't known
+         */
+        void add(long wallTime, long cpuTime, long bytesIn, long bytesOut)
+        {
+            ++count;
+            this.wallTime += wallTime;
+            this.cpuTime = add(this.cpuTime, cpuTime);
+            this.bytesIn = add(this.bytesIn, bytesIn);
+            this.bytesOut = add(this.bytesOut, bytesOut);
+        }
+
+        /**
+         * Adds a value to a total, where {@code -1} indicates an unknown value.
+         *
+         * @param total the total
+         * @param value the value to add
+         * @return the new total
+         */
+        private static long add(long total, long value)
+        {
+            if (value < 0)
+            {
+                return total;
+            }
+            return (total < 0) ? value : total + value;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.junit.runner.RunWith;
 
 import com.izforge.izpack.compiler.container.TestCompilerContainer;
 import com.izforge.izpack.core.container.AbstractContainer;
+import com.izforge.izpack.core.resource.StartupSnapshot;
 import com.izforge.izpack.matcher.ZipMatcher;
 import com.izforge.izpack.test.Container;
 import com.izforge.izpack.test.InstallFile;
@@ -65,7 +66,7 @@ public class CompilerConfigSamplesTest
         jar = testContainer.getComponent(JarFile.class);
         assertThat((ZipFile)jar, ZipMatcher.isZipContainingFiles(
                 "com/izforge/izpack/panels/checkedhello/CheckedHelloPanel.class",
-                "resources/vars",
+                "resources/" + StartupSnapshot.NAME,
                 "com/izforge/izpack/img/JFrameIcon.png"));
     }
 
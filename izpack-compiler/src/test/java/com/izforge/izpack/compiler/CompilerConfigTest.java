@@ -20,12 +20,24 @@
 package com.izforge.izpack.compiler;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 
 import org.apache.maven.shared.jar.JarAnalyzer;
 import org.apache.maven.shared.jar.classes.JarClasses;
@@ -35,9 +47,13 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.izforge.izpack.api.data.CompiledLangpack;
+import com.izforge.izpack.api.data.Info;
 import com.izforge.izpack.compiler.container.TestCompilerContainer;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.core.container.AbstractContainer;
+import com.izforge.izpack.core.resource.ResourceManager;
+import com.izforge.izpack.core.resource.StartupSnapshot;
 import com.izforge.izpack.matcher.MergeMatcher;
 import com.izforge.izpack.matcher.ZipMatcher;
 import com.izforge.izpack.merge.MergeManagerImpl;
@@ -76,10 +92,92 @@ public class CompilerConfigTest
         assertThat(jar, ZipMatcher.isZipContainingFiles(
                 "com/izforge/izpack/installer/bootstrap/Installer.class",
                 "com/izforge/izpack/panels/hello/HelloPanel.class",
-                "resources/vars",
+                "resources/" + StartupSnapshot.NAME,
                 "com/izforge/izpack/img/JFrameIcon.png"));
     }
 
+    /**
+     * Verifies that langpacks are written to the installer in their compiled form, and can be read back.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCompiledLangpack() throws Exception
+    {
+        compilerConfig.executeCompiler();
+        jar = testContainer.getComponent(JarFile.class);
+        ZipEntry entry = jar.getEntry("resources/langpacks/eng.xml");
+        assertTrue(entry != null);
+
+        InputStream in = new BufferedInputStream(jar.getInputStream(entry));
+        try
+        {
+            assertTrue(CompiledLangpack.isCompiled(in));
+            Map<String, String> messages = new HashMap<String, String>();
+            CompiledLangpack.read(in, messages);
+            assertEquals("Next", messages.get("installer.next"));
+            assertEquals("Previous", messages.get("installer.prev"));
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Verifies that the startup resources are written to the installer once, in the startup snapshot, with the
+     * expected encodings, and can be loaded from it.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testStartupSnapshot() throws Exception
+    {
+        compilerConfig.executeCompiler();
+        jar = testContainer.getComponent(JarFile.class);
+        ZipEntry entry = jar.getEntry("resources/" + StartupSnapshot.NAME);
+        assertTrue(entry != null);
+
+        StartupSnapshot snapshot;
+        InputStream in = jar.getInputStream(entry);
+        try
+        {
+            snapshot = StartupSnapshot.read(in);
+        }
+        finally
+        {
+            in.close();
+        }
+        assertEquals(StartupSnapshot.INFO, snapshot.getEncoding("info"));
+        assertEquals(StartupSnapshot.PROPERTIES, snapshot.getEncoding("vars"));
+        assertEquals(StartupSnapshot.GUI_PREFS, snapshot.getEncoding("GUIPrefs"));
+        assertEquals(StartupSnapshot.STRINGS, snapshot.getEncoding("langpacks.info"));
+        assertEquals(StartupSnapshot.SERIALIZED, snapshot.getEncoding("rules"));
+        assertEquals(StartupSnapshot.SERIALIZED, snapshot.getEncoding("packs.info"));
+        for (String name : snapshot.getNames())
+        {
+            assertNull(name, jar.getEntry("resources/" + name));
+        }
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{new File(jar.getName()).toURI().toURL()}, null);
+        ResourceManager resources = new ResourceManager(loader);
+        Info info = (Info) resources.getObject("info");
+        assertEquals(TestCompilerContainer.APPNAME, info.getAppName());
+        assertTrue(resources.getObject("vars") instanceof Properties);
+        List<?> langpacks = (List<?>) resources.getObject("langpacks.info");
+        assertTrue(langpacks.contains("eng"));
+
+        ObjectInputStream packs = new ObjectInputStream(resources.getInputStream("packs.info"));
+        try
+        {
+            assertTrue(packs.readInt() >= 0);
+        }
+        finally
+        {
+            packs.close();
+        }
+    }
+
     @Test
     public void mergeManagerShouldGetTheMergeableFromPanel() throws Exception
     {
@@ -81,4 +81,13 @@ public class CliAnalyzerTest
         assertThat(data.getOutput(), Is.is("graou.jar"));
     }
 
+    @Test
+    public void profileShouldBeParsed() throws Exception
+    {
+        CompilerData data = analyzer.parseArgs(new String[]{"myInstall.xml", "-profile", "report.json", "-k", "web"});
+        assertThat(data.getInstallFile(), Is.is("myInstall.xml"));
+        assertThat(data.getProfile(), Is.is("report.json"));
+        assertThat(data.getKind(), Is.is("web"));
+    }
+
 }
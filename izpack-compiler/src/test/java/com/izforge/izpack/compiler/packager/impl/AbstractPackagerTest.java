@@ -50,6 +50,7 @@ import com.izforge.izpack.api.data.GUIPrefs;
 import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
+import com.izforge.izpack.core.resource.StartupSnapshot;
 import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
 
@@ -180,9 +181,10 @@ public abstract class AbstractPackagerTest
         packager.addPack(packInfo);
         packager.createInstaller();
 
-        InputStream jarEntry = getJarEntry("resources/packs.info", jar);
+        InputStream jarEntry = getJarEntry("resources/" + StartupSnapshot.NAME, jar);
 
-        ObjectInputStream packStream = new ObjectInputStream(jarEntry);
+        StartupSnapshot snapshot = StartupSnapshot.read(jarEntry);
+        ObjectInputStream packStream = new ObjectInputStream(snapshot.getInputStream("packs.info"));
         int packs = packStream.readInt();
         assertEquals(1, packs);
         Pack pack = (Pack) packStream.readObject();
@@ -0,0 +1,124 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.data.ArchiveEntry;
+import com.izforge.izpack.util.IoHelper;
+
+
+/**
+ * Tests the {@link ArchiveReader} class.
+ */
+public class ArchiveReaderTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that entries are read uncompressed, and that their CRC is verified.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testRead() throws IOException
+    {
+        byte[] content = "Some content to compress. Some content to compress.".getBytes("UTF-8");
+        File archive = temporaryFolder.newFile("archive.zip");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
+        out.putNextEntry(new ZipEntry("a.txt"));
+        out.write(content);
+        out.closeEntry();
+        out.close();
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        ArchiveReader reader = new ArchiveReader();
+        try
+        {
+            assertEquals(new String(content, "UTF-8"), read(reader, new ArchiveEntry(archive, "a.txt", crc.getValue())));
+            try
+            {
+                read(reader, new ArchiveEntry(archive, "a.txt", crc.getValue() + 1));
+                fail("Expected CRC mismatch");
+            }
+            catch (IOException expected)
+            {
+                // expected
+            }
+            try
+            {
+                read(reader, new ArchiveEntry(archive, "b.txt", -1));
+                fail("Expected missing entry");
+            }
+            catch (IOException expected)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads an archive entry.
+     *
+     * @param reader the reader
+     * @param entry  the entry
+     * @return the entry content
+     * @throws IOException for any I/O error
+     */
+    private String read(ArchiveReader reader, ArchiveEntry entry) throws IOException
+    {
+        InputStream in = reader.getInputStream(entry);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            IoHelper.copyStream(in, out);
+        }
+        finally
+        {
+            in.close();
+        }
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.profile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.izforge.izpack.compiler.listener.CompilerListener;
+import com.izforge.izpack.compiler.listener.ProfilingCompilerListener;
+
+
+/**
+ * Tests the {@link CompilerProfiler} class.
+ */
+public class CompilerProfilerTest
+{
+
+    /**
+     * Disables profiling after each test.
+     */
+    @After
+    public void tearDown()
+    {
+        CompilerProfiler.disable();
+    }
+
+    /**
+     * Verifies that nothing is recorded when profiling is disabled.
+     */
+    @Test
+    public void testDisabled()
+    {
+        assertFalse(CompilerProfiler.isEnabled());
+        CompilerProfiler.start("phase").end(10, 5);
+        assertTrue(CompilerProfiler.getPhases().isEmpty());
+    }
+
+    /**
+     * Verifies that phases are accumulated in total and per pack.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRecord() throws Exception
+    {
+        CompilerProfiler.enable();
+        CompilerProfiler.Phase phase = CompilerProfiler.start("compressPack", "Core");
+        Thread.sleep(5);
+        phase.end(1000, 250);
+        CompilerProfiler.start("compressPack", "Docs").end(1000, 750);
+        CompilerProfiler.start("mergeSkeleton").end();
+
+        Map<String, CompilerProfiler.Statistics> phases = CompilerProfiler.getPhases();
+        assertEquals(2, phases.size());
+        CompilerProfiler.Statistics compress = phases.get("compressPack");
+        assertEquals(2, compress.getCount());
+        assertTrue(compress.getWallTime() >= 5000000);
+        assertEquals(2000, compress.getBytesIn());
+        assertEquals(1000, compress.getBytesOut());
+        assertEquals(0.5, compress.getCompressionRatio(), 0.0001);
+
+        CompilerProfiler.Statistics merge = phases.get("mergeSkeleton");
+        assertEquals(1, merge.getCount());
+        assertEquals(-1, merge.getBytesIn());
+        assertEquals(-1, merge.getCompressionRatio(), 0.0001);
+
+        CompilerProfiler.Statistics core = CompilerProfiler.getPhases("Core").get("compressPack");
+        assertEquals(1, core.getCount());
+        assertEquals(0.25, core.getCompressionRatio(), 0.0001);
+        assertTrue(CompilerProfiler.getPhases("Unknown").isEmpty());
+
+        StringWriter writer = new StringWriter();
+        CompilerProfiler.write(writer);
+        String report = writer.toString();
+        assertTrue(report.startsWith("{\"version\":1,"));
+        assertTrue(report.contains("{\"name\":\"compressPack\",\"count\":2,"));
+        assertTrue(report.contains("\"bytesIn\":2000,\"bytesOut\":1000,\"compressionRatio\":0.5000}"));
+        assertTrue(report.contains("{\"name\":\"Docs\",\"phases\":["));
+        assertTrue(report.trim().endsWith("]}"));
+    }
+
+    /**
+     * Verifies that a phase is only recorded by the first call to end it.
+     */
+    @Test
+    public void testEndOnce()
+    {
+        CompilerProfiler.enable();
+        CompilerProfiler.Phase phase = CompilerProfiler.start("pack200");
+        try
+        {
+            phase.end(100, 40);
+        }
+        finally
+        {
+            phase.end();
+        }
+
+        CompilerProfiler.Statistics stats = CompilerProfiler.getPhases().get("pack200");
+        assertEquals(1, stats.getCount());
+        assertEquals(100, stats.getBytesIn());
+        assertEquals(40, stats.getBytesOut());
+    }
+
+    /**
+     * Verifies that the {@link ProfilingCompilerListener} records compiler steps as phases.
+     */
+    @Test
+    public void testListener()
+    {
+        CompilerProfiler.enable();
+        ProfilingCompilerListener listener = new ProfilingCompilerListener();
+        listener.notify("addPacks", CompilerListener.BEGIN, null, null);
+        listener.notify("addPacksSingle", CompilerListener.BEGIN, null, null);
+        listener.notify("addPacksSingle", CompilerListener.END, null, null);
+        listener.notify("addPacks", CompilerListener.END, null, null);
+        listener.notify("addPanels", CompilerListener.END, null, null); // no BEGIN, so ignored
+
+        Map<String, CompilerProfiler.Statistics> phases = CompilerProfiler.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals(1, phases.get("addPacks").getCount());
+        assertEquals(1, phases.get("addPacksSingle").getCount());
+        assertTrue(phases.get("addPacks").getWallTime() >= phases.get("addPacksSingle").getWallTime());
+    }
+}
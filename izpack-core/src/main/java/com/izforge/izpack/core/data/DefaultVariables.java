@@ -22,17 +22,38 @@
 package com.izforge.izpack.core.data;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.izforge.izpack.api.data.CacheableValue;
 import com.izforge.izpack.api.data.DynamicVariable;
+import com.izforge.izpack.api.data.Value;
 import com.izforge.izpack.api.data.Variables;
 import com.izforge.izpack.api.exception.IzPackException;
+import com.izforge.izpack.api.rules.CacheableCondition;
+import com.izforge.izpack.api.rules.Condition;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+import com.izforge.izpack.core.variable.PlainValue;
 
 
 /**
@@ -63,6 +84,51 @@ public class DefaultVariables implements Variables
      */
     private RulesEngine rules;
 
+    /**
+     * The number of changes made to the variables via {@link #set}.
+     */
+    private final AtomicLong modifications = new AtomicLong();
+
+    /**
+     * The variables read by the current thread, and their values, while recording is active.
+     */
+    private final ThreadLocal<Map<String, String>> reads = new ThreadLocal<Map<String, String>>();
+
+    /**
+     * The names of variables changed via {@link #set} since they were last processed by {@link #refresh}.
+     */
+    private final Set<String> changes = new HashSet<String>();
+
+    /**
+     * The results of the last evaluation of each dynamic variable.
+     */
+    private final Map<DynamicVariable, Evaluation> evaluations = new IdentityHashMap<DynamicVariable, Evaluation>();
+
+    /**
+     * The dynamic variables that depend on each variable, keyed on variable name.
+     */
+    private final Map<String, Set<DynamicVariable>> dependents = new HashMap<String, Set<DynamicVariable>>();
+
+    /**
+     * The maximum number of dynamic variables evaluated concurrently.
+     */
+    private int parallelism = Math.min(Runtime.getRuntime().availableProcessors() * 2, 8);
+
+    /**
+     * The executor used to evaluate dynamic variables in the background. Created on demand.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The dynamic variables that need to be evaluated on the next refresh.
+     */
+    private final Set<DynamicVariable> dirty = newIdentitySet();
+
+    /**
+     * The refresh statistics.
+     */
+    private final RefreshStatistics statistics = new RefreshStatistics();
+
 
     /**
      * The logger.
@@ -85,7 +151,7 @@ public class DefaultVariables implements Variables
     public DefaultVariables(Properties properties)
     {
         this.properties = properties;
-        replacer = new VariableSubstitutorImpl(properties);
+        replacer = new RecordingSubstitutor(properties);
     }
 
     /**
@@ -107,13 +173,22 @@ public class DefaultVariables implements Variables
     @Override
     public void set(String name, String value)
     {
+        Object previous;
         if (value != null)
         {
-            properties.setProperty(name, value);
+            previous = properties.setProperty(name, value);
         }
         else
         {
-            properties.remove(name);
+            previous = properties.remove(name);
+        }
+        if (value == null ? previous != null : !value.equals(previous))
+        {
+            modifications.incrementAndGet();
+            synchronized (changes)
+            {
+                changes.add(name);
+            }
         }
     }
 
@@ -126,7 +201,9 @@ public class DefaultVariables implements Variables
     @Override
     public String get(String name)
     {
-        return properties.getProperty(name);
+        String value = properties.getProperty(name);
+        record(name, value);
+        return value;
     }
 
     /**
@@ -138,7 +215,8 @@ public class DefaultVariables implements Variables
     @Override
     public String get(String name, String defaultValue)
     {
-        return properties.getProperty(name, defaultValue);
+        String value = get(name);
+        return (value != null) ? value : defaultValue;
     }
 
     /**
@@ -286,69 +364,675 @@ public class DefaultVariables implements Variables
     public synchronized void add(DynamicVariable variable)
     {
         dynamicVariables.add(variable);
+        dirty.add(variable);
     }
 
     /**
      * Refreshes dynamic variables.
+     * <p/>
+     * The variables read while evaluating a dynamic variable and its condition are recorded. If the variable's
+     * value and condition are {@link CacheableValue cacheable}, it is only evaluated again when one of those
+     * variables changes, and its previous value is re-applied in the meantime. Other dynamic variables are
+     * evaluated on every refresh.
+     * <p/>
+     * Where the variables a dynamic variable read on its last evaluation are known, it is evaluated in the
+     * background as soon as the dynamic variables declared before it that produce those variables have been
+     * applied. Only the value is resolved in the background; conditions are always evaluated by the refreshing
+     * thread. Results are always applied in declaration order, and are discarded and evaluated again if any
+     * variable read has since changed, so the outcome is the same as a sequential refresh.
      *
      * @throws IzPackException if variables cannot be refreshed
      */
     @Override
     public synchronized void refresh()
     {
-        for (DynamicVariable variable : dynamicVariables)
+        long start = System.nanoTime();
+        int evaluated = 0;
+        boolean log = logger.isLoggable(Level.FINE);
+        processChanges();
+
+        int size = dynamicVariables.size();
+        Map<Integer, List<Integer>> schedule = getSchedule();
+        List<Future<Evaluation>> futures = new ArrayList<Future<Evaluation>>(size);
+        for (int i = 0; i < size; ++i)
+        {
+            futures.add(null);
+        }
+        submit(schedule.get(-1), futures);
+
+        for (int i = 0; i < size; ++i)
         {
-            String conditionId = variable.getConditionid();
-            boolean log = logger.isLoggable(Level.FINE);
-            if (conditionId != null && !rules.isConditionTrue(conditionId))
+            DynamicVariable variable = dynamicVariables.get(i);
+            Future<Evaluation> future = futures.get(i);
+            Evaluation evaluation = evaluations.get(variable);
+            if (future != null)
             {
+                evaluation = get(future);
+                if (evaluation == null || !evaluation.isCurrent())
+                {
+                    // evaluated against variables that have since changed, so evaluate again
+                    evaluation = evaluate(variable);
+                }
+                apply(variable, evaluation);
+                ++evaluated;
+            }
+            else if (evaluation != null && evaluation.cacheable && !dirty.contains(variable))
+            {
+                if (evaluation.value != null)
+                {
+                    // re-apply the value, in case the variable has been changed by other means
+                    set(variable.getName(), evaluation.value);
+                }
                 if (log)
                 {
                     logger.fine("Refreshing dynamic variable=" + variable.getName()
-                                        + " skipped due to unmet condition=" + conditionId);
+                                        + " skipped, dependencies unchanged");
                 }
             }
             else
             {
-                String newValue;
+                apply(variable, evaluate(variable));
+                ++evaluated;
+            }
+            processChanges();
+            submit(schedule.get(i), futures);
+        }
+        long time = System.nanoTime() - start;
+        statistics.add(evaluated, size - evaluated, time);
+        if (log)
+        {
+            logger.fine("Refreshed dynamic variables: evaluated=" + evaluated + ", skipped="
+                                + (size - evaluated) + ", time=" + (time / 1000000) + "ms");
+        }
+    }
+
+    /**
+     * Sets the maximum number of dynamic variables that may be evaluated concurrently during a refresh.
+     *
+     * @param parallelism the maximum number of concurrent evaluations. If {@code <= 1}, dynamic variables are
+     *                    evaluated sequentially
+     */
+    public synchronized void setParallelism(int parallelism)
+    {
+        if (executor != null)
+        {
+            executor.shutdown();
+            executor = null;
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the dynamic variable refresh statistics.
+     *
+     * @return the refresh statistics
+     */
+    public RefreshStatistics getRefreshStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Exposes the variables as properties.
+     *
+     * @return the variables
+     */
+    @Override
+    public Properties getProperties()
+    {
+        return properties;
+    }
+
+    /**
+     * Returns the number of changes made to the variables via {@link #set}.
+     * <p/>
+     * This is incremented each time a variable is assigned a different value, and may be used to cheaply determine
+     * if anything has changed since a prior call.
+     *
+     * @return the modification count
+     */
+    public long getModificationCount()
+    {
+        return modifications.get();
+    }
+
+    /**
+     * Starts recording the variables read by the current thread.
+     * <p/>
+     * Recordings may be nested. Each call must be paired with a call to {@link #stopRecording}, passing the
+     * returned value.
+     *
+     * @return the enclosing recording, or {@code null} if there is none
+     */
+    public Map<String, String> startRecording()
+    {
+        Map<String, String> previous = reads.get();
+        reads.set(new HashMap<String, String>());
+        return previous;
+    }
+
+    /**
+     * Stops recording the variables read by the current thread.
+     * <p/>
+     * The variables read are also added to the enclosing recording, if any.
+     *
+     * @param previous the enclosing recording, as returned by {@link #startRecording}
+     * @return the variables read since recording started, and the values they had when first read
+     */
+    public Map<String, String> stopRecording(Map<String, String> previous)
+    {
+        Map<String, String> result = reads.get();
+        if (previous != null)
+        {
+            for (Map.Entry<String, String> entry : result.entrySet())
+            {
+                if (!previous.containsKey(entry.getKey()))
+                {
+                    previous.put(entry.getKey(), entry.getValue());
+                }
+            }
+            reads.set(previous);
+        }
+        else
+        {
+            reads.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Records that variables have been read, if the current thread is recording.
+     * <p/>
+     * This allows results derived from a prior recording to be reused, without losing their dependencies.
+     *
+     * @param variables the variables and their values
+     */
+    public void record(Map<String, String> variables)
+    {
+        Map<String, String> current = reads.get();
+        if (current != null)
+        {
+            for (Map.Entry<String, String> entry : variables.entrySet())
+            {
+                if (!current.containsKey(entry.getKey()))
+                {
+                    current.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that a variable has been read, if the current thread is recording.
+     *
+     * @param name  the variable name
+     * @param value the variable value. May be {@code null}
+     */
+    private void record(String name, String value)
+    {
+        Map<String, String> current = reads.get();
+        if (current != null && !current.containsKey(name))
+        {
+            current.put(name, value);
+        }
+    }
+
+    /**
+     * Evaluates a dynamic variable, recording the variables it depends on.
+     *
+     * @param variable the dynamic variable
+     * @return the result of the evaluation
+     * @throws IzPackException if the variable cannot be evaluated
+     */
+    private Evaluation evaluate(DynamicVariable variable)
+    {
+        String newValue = null;
+        Map<String, String> previous = startRecording();
+        Map<String, String> read;
+        try
+        {
+            if (isConditionMet(variable))
+            {
+                newValue = resolveValue(variable);
+            }
+        }
+        finally
+        {
+            read = stopRecording(previous);
+        }
+        return new Evaluation(newValue, read);
+    }
+
+    /**
+     * Evaluates the value of a dynamic variable, recording the variables it depends on.
+     * <p/>
+     * This doesn't evaluate the variable's condition, nor update any variable, so may be invoked concurrently for
+     * different dynamic variables.
+     *
+     * @param variable  the dynamic variable
+     * @param condition the variables read evaluating the variable's condition, and their values
+     * @return the result of the evaluation
+     * @throws IzPackException if the variable cannot be evaluated
+     */
+    private Evaluation evaluateValue(DynamicVariable variable, Map<String, String> condition)
+    {
+        String newValue;
+        Map<String, String> previous = startRecording();
+        Map<String, String> read;
+        try
+        {
+            newValue = resolveValue(variable);
+        }
+        finally
+        {
+            read = stopRecording(previous);
+        }
+        for (Map.Entry<String, String> entry : condition.entrySet())
+        {
+            if (!read.containsKey(entry.getKey()))
+            {
+                read.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new Evaluation(newValue, read);
+    }
+
+    /**
+     * Determines if the condition of a dynamic variable, if any, is met.
+     *
+     * @param variable the dynamic variable
+     * @return {@code true} if the variable has no condition, or its condition is true
+     */
+    private boolean isConditionMet(DynamicVariable variable)
+    {
+        String conditionId = variable.getConditionid();
+        if (conditionId != null && !rules.isConditionTrue(conditionId))
+        {
+            if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("Refreshing dynamic variable=" + variable.getName()
+                                    + " skipped due to unmet condition=" + conditionId);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the value of a dynamic variable.
+     *
+     * @param variable the dynamic variable
+     * @return the value, or {@code null} if the variable wasn't assigned
+     * @throws IzPackException if the variable cannot be evaluated
+     */
+    private String resolveValue(DynamicVariable variable)
+    {
+        try
+        {
+            return variable.evaluate(replacer);
+        }
+        catch (IzPackException exception)
+        {
+            throw exception;
+        }
+        catch (Exception exception)
+        {
+            throw new IzPackException("Failed to refresh dynamic variables (" + variable.getName() + ")",
+                                      exception);
+        }
+    }
+
+    /**
+     * Applies the result of evaluating a dynamic variable, and records the variables it depends on.
+     *
+     * @param variable   the dynamic variable
+     * @param evaluation the result of the evaluation
+     */
+    private void apply(DynamicVariable variable, Evaluation evaluation)
+    {
+        boolean log = logger.isLoggable(Level.FINE);
+        if (evaluation.value != null)
+        {
+            set(variable.getName(), evaluation.value);
+            if (log)
+            {
+                logger.fine("Dynamic variable=" + variable.getName() + " set, value=" + evaluation.value);
+            }
+        }
+        else if (log)
+        {
+            logger.fine("Dynamic variable=" + variable.getName() + " unchanged, value=" + variable.getValue());
+        }
+
+        removeDependencies(variable);
+        evaluation.cacheable = isCacheable(variable);
+        evaluations.put(variable, evaluation);
+        if (evaluation.cacheable)
+        {
+            for (String name : evaluation.reads.keySet())
+            {
+                Set<DynamicVariable> set = dependents.get(name);
+                if (set == null)
+                {
+                    set = newIdentitySet();
+                    dependents.put(name, set);
+                }
+                set.add(variable);
+            }
+            dirty.remove(variable);
+        }
+    }
+
+    /**
+     * Determines when each dynamic variable that needs evaluation may be evaluated in the background.
+     * <p/>
+     * A dynamic variable may be evaluated once every dynamic variable declared before it that assigns a variable
+     * it read on its last evaluation has been applied. Dynamic variables that haven't been evaluated before, or
+     * that can't be safely evaluated more than once, are evaluated in sequence.
+     *
+     * @return the indexes of the dynamic variables to evaluate, keyed on the index of the dynamic variable that
+     *         must be applied first, or {@code -1} if they may be evaluated immediately
+     */
+    private Map<Integer, List<Integer>> getSchedule()
+    {
+        Map<Integer, List<Integer>> result = new HashMap<Integer, List<Integer>>();
+        if (parallelism <= 1)
+        {
+            return result;
+        }
+        Map<String, Integer> lastAssigned = new HashMap<String, Integer>();
+        for (int i = 0; i < dynamicVariables.size(); ++i)
+        {
+            DynamicVariable variable = dynamicVariables.get(i);
+            Evaluation evaluation = evaluations.get(variable);
+            if (evaluation != null && (!evaluation.cacheable || dirty.contains(variable))
+                    && variable instanceof DynamicVariableImpl && !((DynamicVariableImpl) variable).isCheckonce())
+            {
+                int after = -1;
+                for (String name : evaluation.reads.keySet())
+                {
+                    Integer index = lastAssigned.get(name);
+                    if (index != null && index > after)
+                    {
+                        after = index;
+                    }
+                }
+                if (after < i - 1)
+                {
+                    List<Integer> list = result.get(after);
+                    if (list == null)
+                    {
+                        list = new ArrayList<Integer>();
+                        result.put(after, list);
+                    }
+                    list.add(i);
+                }
+            }
+            lastAssigned.put(variable.getName(), i);
+        }
+        return result;
+    }
+
+    /**
+     * Submits dynamic variables for evaluation in the background.
+     * <p/>
+     * Conditions and the rules engine aren't thread safe, so each variable's condition is evaluated by the calling
+     * thread, and only the values of variables whose conditions are met are resolved in the background. Variables
+     * whose conditions can't be evaluated are left to be evaluated in sequence, to propagate the error in order.
+     *
+     * @param indexes the indexes of the dynamic variables to evaluate. May be {@code null}
+     * @param futures the futures to populate, by index
+     */
+    private void submit(List<Integer> indexes, List<Future<Evaluation>> futures)
+    {
+        if (indexes != null)
+        {
+            for (int index : indexes)
+            {
+                final DynamicVariable variable = dynamicVariables.get(index);
+                final Map<String, String> condition;
+                boolean met;
+                Map<String, String> previous = startRecording();
                 try
                 {
-                    newValue = variable.evaluate(replacer);
+                    met = isConditionMet(variable);
+                }
+                catch (RuntimeException exception)
+                {
+                    logger.log(Level.FINE, "Condition evaluation failed: " + exception.getMessage(), exception);
+                    continue;
+                }
+                finally
+                {
+                    condition = stopRecording(previous);
                 }
-                catch (IzPackException exception)
+                if (met)
                 {
-                    throw exception;
+                    futures.set(index, getExecutor().submit(new Callable<Evaluation>()
+                    {
+                        @Override
+                        public Evaluation call() throws Exception
+                        {
+                            return evaluateValue(variable, condition);
+                        }
+                    }));
                 }
-                catch (Exception exception)
+                else
                 {
-                    throw new IzPackException("Failed to refresh dynamic variables (" + variable.getName() + ")", exception);
+                    FutureTask<Evaluation> skipped = new FutureTask<Evaluation>(new Callable<Evaluation>()
+                    {
+                        @Override
+                        public Evaluation call() throws Exception
+                        {
+                            return new Evaluation(null, condition);
+                        }
+                    });
+                    skipped.run();
+                    futures.set(index, skipped);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a background evaluation to complete.
+     *
+     * @param future the evaluation
+     * @return the result of the evaluation, or {@code null} if it failed or was interrupted
+     */
+    private Evaluation get(Future<Evaluation> future)
+    {
+        Evaluation result = null;
+        try
+        {
+            result = future.get();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException exception)
+        {
+            // the evaluation will be repeated in sequence, to propagate any error
+            logger.log(Level.FINE, "Background evaluation failed: " + exception.getMessage(), exception);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the executor used to evaluate dynamic variables in the background, creating it if required.
+     *
+     * @return the executor
+     */
+    private ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private int count;
 
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "DynamicVariableRefresh-" + (++count));
+                    thread.setDaemon(true);
+                    return thread;
                 }
-                if (newValue != null)
+            });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    /**
+     * Removes the recorded dependencies of a dynamic variable.
+     *
+     * @param variable the dynamic variable
+     */
+    private void removeDependencies(DynamicVariable variable)
+    {
+        Evaluation evaluation = evaluations.remove(variable);
+        if (evaluation != null && evaluation.cacheable)
+        {
+            for (String name : evaluation.reads.keySet())
+            {
+                Set<DynamicVariable> set = dependents.get(name);
+                if (set != null)
                 {
-                    set(variable.getName(), newValue);
-                    if (log)
+                    set.remove(variable);
+                    if (set.isEmpty())
                     {
-                        logger.fine("Dynamic variable=" + variable.getName() + " set, value=" + newValue);
+                        dependents.remove(name);
                     }
                 }
-                else if (log)
+            }
+        }
+    }
+
+    /**
+     * Marks the dynamic variables that depend on changed variables as requiring evaluation.
+     */
+    private void processChanges()
+    {
+        synchronized (changes)
+        {
+            for (String name : changes)
+            {
+                Set<DynamicVariable> set = dependents.get(name);
+                if (set != null)
                 {
-                    logger.fine("Dynamic variable=" + variable.getName() + " unchanged, value=" + variable.getValue());
+                    dirty.addAll(set);
                 }
             }
+            changes.clear();
         }
     }
 
     /**
-     * Exposes the variables as properties.
+     * Determines if the result of evaluating a dynamic variable may be reused until one of the variables it reads
+     * changes.
      *
-     * @return the variables
+     * @param variable the dynamic variable
+     * @return {@code true} if both the value and condition (if any) are cacheable
      */
-    @Override
-    public Properties getProperties()
+    private boolean isCacheable(DynamicVariable variable)
     {
-        return properties;
+        Value value = variable.getValue();
+        if (!(value instanceof CacheableValue) || !((CacheableValue) value).isCacheable())
+        {
+            return false;
+        }
+        String conditionId = variable.getConditionid();
+        if (conditionId != null)
+        {
+            Condition condition = rules.getCondition(conditionId);
+            if (!(condition instanceof CacheableCondition) || !((CacheableCondition) condition).isCacheable()
+                    || condition.getInstallData() == null || condition.getInstallData().getVariables() != this)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a set of dynamic variables that uses identity rather than equality for comparison.
+     *
+     * @return a new set
+     */
+    private static Set<DynamicVariable> newIdentitySet()
+    {
+        return Collections.newSetFromMap(new IdentityHashMap<DynamicVariable, Boolean>());
+    }
+
+    /**
+     * The result of evaluating a dynamic variable.
+     */
+    private class Evaluation
+    {
+
+        /**
+         * The value assigned to the variable, or {@code null} if it wasn't assigned.
+         */
+        private final String value;
+
+        /**
+         * The variables read during evaluation, and their values.
+         */
+        private final Map<String, String> reads;
+
+        /**
+         * Determines if the value may be reused until one of the variables read changes.
+         */
+        private boolean cacheable;
+
+        public Evaluation(String value, Map<String, String> reads)
+        {
+            this.value = value;
+            this.reads = reads;
+        }
+
+        /**
+         * Determines if the variables read during evaluation still have the values they had when read.
+         *
+         * @return {@code true} if none of the variables read have changed
+         */
+        public boolean isCurrent()
+        {
+            for (Map.Entry<String, String> entry : reads.entrySet())
+            {
+                String expected = entry.getValue();
+                String current = properties.getProperty(entry.getKey());
+                if (expected == null ? current != null : !expected.equals(current))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A substitutor that records the variables it reads.
+     */
+    private class RecordingSubstitutor extends VariableSubstitutorImpl
+    {
+
+        public RecordingSubstitutor(Properties properties)
+        {
+            super(properties);
+        }
+
+        @Override
+        public Value getValue(String name)
+        {
+            String value = variables.getProperty(name);
+            record(name, value);
+            return new PlainValue(value);
+        }
     }
 
 }
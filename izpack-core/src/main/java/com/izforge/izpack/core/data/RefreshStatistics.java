@@ -0,0 +1,132 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.data;
+
+/**
+ * Statistics on dynamic variable refreshes performed by {@link DefaultVariables}.
+ */
+public class RefreshStatistics
+{
+
+    /**
+     * The number of refreshes.
+     */
+    private long refreshes;
+
+    /**
+     * The number of dynamic variables evaluated, across all refreshes.
+     */
+    private long evaluated;
+
+    /**
+     * The number of dynamic variables skipped as their dependencies were unchanged, across all refreshes.
+     */
+    private long skipped;
+
+    /**
+     * The time spent refreshing, in nanoseconds.
+     */
+    private long totalTime;
+
+    /**
+     * The time spent in the last refresh, in nanoseconds.
+     */
+    private long lastTime;
+
+
+    /**
+     * Returns the number of refreshes.
+     *
+     * @return the number of refreshes
+     */
+    public synchronized long getRefreshes()
+    {
+        return refreshes;
+    }
+
+    /**
+     * Returns the number of dynamic variables evaluated, across all refreshes.
+     *
+     * @return the number of evaluated variables
+     */
+    public synchronized long getEvaluated()
+    {
+        return evaluated;
+    }
+
+    /**
+     * Returns the number of dynamic variables that weren't evaluated as none of their dependencies had changed,
+     * across all refreshes.
+     *
+     * @return the number of skipped variables
+     */
+    public synchronized long getSkipped()
+    {
+        return skipped;
+    }
+
+    /**
+     * Returns the total time spent refreshing.
+     *
+     * @return the total time, in milliseconds
+     */
+    public synchronized long getTotalTime()
+    {
+        return totalTime / 1000000;
+    }
+
+    /**
+     * Returns the time spent in the last refresh.
+     *
+     * @return the time, in milliseconds
+     */
+    public synchronized long getLastTime()
+    {
+        return lastTime / 1000000;
+    }
+
+    /**
+     * Adds a refresh.
+     *
+     * @param evaluated the number of variables evaluated
+     * @param skipped   the number of variables skipped
+     * @param time      the time taken, in nanoseconds
+     */
+    synchronized void add(int evaluated, int skipped, long time)
+    {
+        ++refreshes;
+        this.evaluated += evaluated;
+        this.skipped += skipped;
+        totalTime += time;
+        lastTime = time;
+    }
+
+    /**
+     * Returns a string representation of the statistics.
+     *
+     * @return the statistics as a string
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return "refreshes=" + refreshes + ", evaluated=" + evaluated + ", skipped=" + skipped
+                + ", totalTime=" + getTotalTime() + "ms, lastTime=" + getLastTime() + "ms";
+    }
+}
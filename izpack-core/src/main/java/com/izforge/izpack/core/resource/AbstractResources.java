@@ -27,6 +27,8 @@ import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.ImageIcon;
 
@@ -49,6 +51,16 @@ public abstract class AbstractResources implements Resources
      */
     private final ClassLoader loader;
 
+    /**
+     * The startup snapshot. Loaded on first access.
+     */
+    private StartupSnapshot snapshot;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(AbstractResources.class.getName());
+
 
     /**
      * Constructs an {@code AbstractResources} using the default class loader.
@@ -70,6 +82,8 @@ public abstract class AbstractResources implements Resources
 
     /**
      * Returns the stream to a resource.
+     * <p/>
+     * Resources contained in the {@link StartupSnapshot startup snapshot} are returned from memory.
      *
      * @param name the resource name
      * @return a stream to the resource
@@ -78,8 +92,13 @@ public abstract class AbstractResources implements Resources
     @Override
     public InputStream getInputStream(String name)
     {
+        InputStream result = getSnapshotStream(name);
+        if (result != null)
+        {
+            return result;
+        }
         name = resolveName(name);
-        InputStream result = loader.getResourceAsStream(name);
+        result = loader.getResourceAsStream(name);
         if (result == null)
         {
             throw new ResourceNotFoundException("Failed to locate resource: " + name);
@@ -89,6 +108,8 @@ public abstract class AbstractResources implements Resources
 
     /**
      * Returns the URL to a resource.
+     * <p/>
+     * Resources contained in the {@link StartupSnapshot startup snapshot} have no URL.
      *
      * @param name the resource name
      * @return the URL to the resource
@@ -164,6 +185,8 @@ public abstract class AbstractResources implements Resources
 
     /**
      * Returns an object resource.
+     * <p/>
+     * Resources contained in the {@link StartupSnapshot startup snapshot} are decoded from memory.
      *
      * @param name the resource name
      * @return the object resource
@@ -173,6 +196,18 @@ public abstract class AbstractResources implements Resources
     @Override
     public Object getObject(String name) throws ResourceException, ResourceNotFoundException
     {
+        StartupSnapshot snapshot = getSnapshot();
+        if (snapshot.contains(name))
+        {
+            try
+            {
+                return snapshot.getObject(name);
+            }
+            catch (IOException exception)
+            {
+                throw new ResourceException("Failed to read resource: " + name, exception);
+            }
+        }
         Object result;
         InputStream in = getInputStream(name);
         ObjectInputStream objectIn = null;
@@ -259,6 +294,29 @@ public abstract class AbstractResources implements Resources
         return name;
     }
 
+    /**
+     * Returns a stream to a resource contained in the {@link StartupSnapshot startup snapshot}.
+     *
+     * @param name the resource name
+     * @return a stream to the resource, or {@code null} if the snapshot doesn't contain it
+     */
+    protected InputStream getSnapshotStream(String name)
+    {
+        StartupSnapshot snapshot = getSnapshot();
+        if (!snapshot.contains(name))
+        {
+            return null;
+        }
+        try
+        {
+            return snapshot.getInputStream(name);
+        }
+        catch (IOException exception)
+        {
+            throw new ResourceException("Failed to read resource: " + name, exception);
+        }
+    }
+
     /**
      * Returns the class loader.
      *
@@ -296,4 +354,35 @@ public abstract class AbstractResources implements Resources
         return result;
     }
 
+    /**
+     * Returns the {@link StartupSnapshot startup snapshot}, loading it on first access.
+     *
+     * @return the snapshot. Empty if there is no snapshot, or it cannot be read
+     */
+    protected synchronized StartupSnapshot getSnapshot()
+    {
+        if (snapshot == null)
+        {
+            snapshot = new StartupSnapshot();
+            InputStream in = loader.getResourceAsStream(resolveName(StartupSnapshot.NAME));
+            if (in != null)
+            {
+                try
+                {
+                    snapshot = StartupSnapshot.read(in);
+                }
+                catch (Exception exception)
+                {
+                    logger.log(Level.WARNING, "Failed to read " + StartupSnapshot.NAME + ": "
+                            + exception.getMessage(), exception);
+                }
+                finally
+                {
+                    FileUtils.close(in);
+                }
+            }
+        }
+        return snapshot;
+    }
+
 }
@@ -37,6 +37,7 @@ import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Locales;
 import com.izforge.izpack.api.resource.Messages;
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.PhaseTimer;
 
 
 /**
@@ -272,8 +273,16 @@ public class DefaultLocales implements Locales
     @Override
     public Messages getMessages(String name)
     {
-        InputStream in = resources.getInputStream(name);
-        return new LocaleDatabase(in, this);
+        PhaseTimer.Phase phase = PhaseTimer.start("langpack " + name);
+        try
+        {
+            InputStream in = resources.getInputStream(name);
+            return new LocaleDatabase(in, this);
+        }
+        finally
+        {
+            phase.end();
+        }
     }
 
     /**
@@ -396,7 +405,15 @@ public class DefaultLocales implements Locales
                 }
                 else
                 {
-                    messages = new LocaleDatabase(in, parentMessages, this);
+                    PhaseTimer.Phase phase = PhaseTimer.start("langpack " + isoCode);
+                    try
+                    {
+                        messages = new LocaleDatabase(in, parentMessages, this);
+                    }
+                    finally
+                    {
+                        phase.end();
+                    }
                 }
             }
         }
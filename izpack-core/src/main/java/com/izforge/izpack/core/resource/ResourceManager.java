@@ -133,6 +133,12 @@ public class ResourceManager extends AbstractResources
      */
     public InputStream getInputStream(String resource)
     {
+        InputStream result = getSnapshotStream(resource);
+        if (result != null)
+        {
+            // snapshot resources are never localised
+            return result;
+        }
         resource = getLanguageResourceString(resource);
         return super.getInputStream(resource);
     }
@@ -0,0 +1,707 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.izforge.izpack.api.data.GUIPrefs;
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.exception.ResourceException;
+
+
+/**
+ * The installer startup snapshot.
+ * <p/>
+ * The snapshot holds the resources read at installer startup (<em>info</em>, <em>vars</em>, <em>rules</em>,
+ * <em>packs.info</em> etc.) in a single resource, so that they can be loaded with one read, rather than a jar
+ * lookup and stream per resource. The resources aren't written to the installer as individual entries.
+ * <p/>
+ * Each resource has an encoding. {@link Info}, {@link GUIPrefs}, {@link Properties} and string lists are written
+ * with an explicit {@link DataOutput} encoding. Other resources, such as conditions, dynamic variables and panels,
+ * are open to user extension, so are Java serialized. Resources are only decoded when they are requested.
+ * <p/>
+ * The format is:
+ * <pre>
+ * int      magic number
+ * int      version
+ * int      number of resources
+ * repeated:
+ *   UTF    resource name
+ *   byte   resource encoding
+ *   int    resource length
+ *   byte[] resource content
+ * </pre>
+ *
+ * @see AbstractResources
+ */
+public class StartupSnapshot
+{
+
+    /**
+     * The snapshot resource name.
+     */
+    public static final String NAME = "startup.snapshot";
+
+    /**
+     * The magic number identifying a snapshot ("IZSS").
+     */
+    public static final int MAGIC = 0x495A5353;
+
+    /**
+     * The format version.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Java serialized content.
+     */
+    public static final byte SERIALIZED = 0;
+
+    /**
+     * {@link Properties} content.
+     */
+    public static final byte PROPERTIES = 1;
+
+    /**
+     * String list content.
+     */
+    public static final byte STRINGS = 2;
+
+    /**
+     * {@link GUIPrefs} content.
+     */
+    public static final byte GUI_PREFS = 3;
+
+    /**
+     * {@link Info} content.
+     */
+    public static final byte INFO = 4;
+
+    /**
+     * The resources, keyed on name.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+
+    /**
+     * Determines if the snapshot contains a resource.
+     *
+     * @param name the resource name
+     * @return {@code true} if the snapshot contains the resource
+     */
+    public boolean contains(String name)
+    {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * Returns the names of the resources in the snapshot.
+     *
+     * @return the resource names, in the order they were added
+     */
+    public Set<String> getNames()
+    {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Returns the encoding of a resource.
+     *
+     * @param name the resource name
+     * @return the resource encoding
+     * @throws ResourceException if the snapshot doesn't contain the resource
+     */
+    public byte getEncoding(String name)
+    {
+        return getEntry(name).encoding;
+    }
+
+    /**
+     * Returns a resource as an object.
+     *
+     * @param name the resource name
+     * @return the decoded resource
+     * @throws ResourceException if the snapshot doesn't contain the resource
+     * @throws IOException       if the resource cannot be decoded
+     */
+    public Object getObject(String name) throws IOException
+    {
+        Entry entry = getEntry(name);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.content));
+        switch (entry.encoding)
+        {
+            case PROPERTIES:
+                return readProperties(in);
+            case STRINGS:
+                return readStrings(in);
+            case GUI_PREFS:
+                return readGUIPrefs(in);
+            case INFO:
+                return readInfo(in);
+            default:
+                ObjectInputStream objectIn = new ObjectInputStream(in);
+                try
+                {
+                    return objectIn.readObject();
+                }
+                catch (ClassNotFoundException exception)
+                {
+                    throw new ResourceException("Failed to read resource: " + name, exception);
+                }
+        }
+    }
+
+    /**
+     * Returns a stream to a resource.
+     * <p/>
+     * Resources with an explicit encoding are returned Java serialized, as they would be read from an individual
+     * resource entry.
+     *
+     * @param name the resource name
+     * @return a stream to the resource
+     * @throws ResourceException if the snapshot doesn't contain the resource
+     * @throws IOException       if the resource cannot be decoded
+     */
+    public InputStream getInputStream(String name) throws IOException
+    {
+        Entry entry = getEntry(name);
+        byte[] content = (entry.encoding == SERIALIZED) ? entry.content : serialize(getObject(name));
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Adds a Java serialized resource.
+     *
+     * @param name    the resource name
+     * @param content the serialized content
+     */
+    public void putSerialized(String name, byte[] content)
+    {
+        entries.put(name, new Entry(SERIALIZED, content));
+    }
+
+    /**
+     * Adds a resource, Java serializing it.
+     *
+     * @param name   the resource name
+     * @param object the resource
+     * @throws IOException if the resource cannot be serialized
+     */
+    public void putObject(String name, Object object) throws IOException
+    {
+        putSerialized(name, serialize(object));
+    }
+
+    /**
+     * Adds a {@link Properties} resource.
+     *
+     * @param name       the resource name
+     * @param properties the properties. If {@code null}, the resource is Java serialized
+     * @throws IOException for any I/O error
+     */
+    public void putProperties(String name, Properties properties) throws IOException
+    {
+        if (properties == null)
+        {
+            putObject(name, null);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Set<String> keys = properties.stringPropertyNames();
+        out.writeInt(keys.size());
+        for (String key : keys)
+        {
+            writeString(key, out);
+            writeString(properties.getProperty(key), out);
+        }
+        put(name, PROPERTIES, out, bytes);
+    }
+
+    /**
+     * Adds a string list resource.
+     *
+     * @param name    the resource name
+     * @param strings the strings. If {@code null}, the resource is Java serialized
+     * @throws IOException for any I/O error
+     */
+    public void putStrings(String name, List<String> strings) throws IOException
+    {
+        if (strings == null)
+        {
+            putObject(name, null);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeStrings(strings, out);
+        put(name, STRINGS, out, bytes);
+    }
+
+    /**
+     * Adds a {@link GUIPrefs} resource.
+     *
+     * @param name  the resource name
+     * @param prefs the GUI preferences. If {@code null}, the resource is Java serialized
+     * @throws IOException for any I/O error
+     */
+    public void putGUIPrefs(String name, GUIPrefs prefs) throws IOException
+    {
+        if (prefs == null)
+        {
+            putObject(name, null);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBoolean(prefs.resizable);
+        out.writeInt(prefs.width);
+        out.writeInt(prefs.height);
+        writeMap(prefs.lookAndFeelMapping, out);
+        out.writeInt(prefs.lookAndFeelParams.size());
+        for (Map.Entry<String, Map<String, String>> entry : prefs.lookAndFeelParams.entrySet())
+        {
+            writeString(entry.getKey(), out);
+            writeMap(entry.getValue(), out);
+        }
+        writeMap(prefs.modifier, out);
+        put(name, GUI_PREFS, out, bytes);
+    }
+
+    /**
+     * Adds an {@link Info} resource.
+     *
+     * @param name the resource name
+     * @param info the installation information. If {@code null}, the resource is Java serialized
+     * @throws IOException for any I/O error
+     */
+    public void putInfo(String name, Info info) throws IOException
+    {
+        if (info == null)
+        {
+            putObject(name, null);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(info.getAppName(), out);
+        writeString(info.getAppVersion(), out);
+        writeString(info.getInstallationSubPath(), out);
+        out.writeInt(info.getAuthors().size());
+        for (Info.Author author : info.getAuthors())
+        {
+            writeString(author.getName(), out);
+            writeString(author.getEmail(), out);
+        }
+        writeString(info.getAppURL(), out);
+        writeString(info.getJavaVersion(), out);
+        out.writeBoolean(info.isJdkRequired());
+        writeString(info.getInstallerBase(), out);
+        writeString(info.getWebDirURL(), out);
+        writeString(info.getUninstallerName(), out);
+        writeString(info.getUninstallerPath(), out);
+        writeString(info.getUninstallerCondition(), out);
+        writeString(info.getSummaryLogFilePath(), out);
+        writeString(info.getPackDecoderClassName(), out);
+        writeString(info.getUnpackerClassName(), out);
+        out.writeBoolean(info.isWriteInstallationInformation());
+        out.writeBoolean(info.isPack200Compression());
+        out.writeBoolean(info.isPrivilegedExecutionRequired());
+        out.writeBoolean(info.isPrivilegedExecutionRequiredUninstaller());
+        writeString(info.getPrivilegedExecutionConditionID(), out);
+        out.writeInt(info.getRebootAction());
+        writeString(info.getRebootActionConditionID(), out);
+        Set<Info.TempDir> tempDirs = info.getTempDirs();
+        out.writeInt(tempDirs != null ? tempDirs.size() : -1);
+        if (tempDirs != null)
+        {
+            for (Info.TempDir tempDir : tempDirs)
+            {
+                writeString(tempDir.getVariableName(), out);
+                writeString(tempDir.getPrefix(), out);
+                writeString(tempDir.getSuffix(), out);
+            }
+        }
+        put(name, INFO, out, bytes);
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param in the stream to read from. This is not closed
+     * @return the snapshot
+     * @throws IOException       for any I/O error
+     * @throws ResourceException if the stream is not a snapshot, or has an unsupported version
+     */
+    public static StartupSnapshot read(InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+        {
+            throw new ResourceException("Invalid startup snapshot");
+        }
+        int version = data.readInt();
+        if (version != VERSION)
+        {
+            throw new ResourceException("Unsupported startup snapshot version: " + version);
+        }
+        int count = data.readInt();
+        StartupSnapshot result = new StartupSnapshot();
+        for (int i = 0; i < count; ++i)
+        {
+            String name = data.readUTF();
+            byte encoding = data.readByte();
+            if (encoding < SERIALIZED || encoding > INFO)
+            {
+                throw new ResourceException("Invalid encoding for startup snapshot resource " + name + ": "
+                                                    + encoding);
+            }
+            int length = data.readInt();
+            if (length < 0)
+            {
+                throw new ResourceException("Invalid length for startup snapshot resource " + name + ": " + length);
+            }
+            byte[] content = new byte[length];
+            data.readFully(content);
+            result.entries.put(name, new Entry(encoding, content));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the snapshot.
+     *
+     * @param out the stream to write to. This is not closed
+     * @throws IOException for any I/O error
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet())
+        {
+            data.writeUTF(entry.getKey());
+            data.writeByte(entry.getValue().encoding);
+            data.writeInt(entry.getValue().content.length);
+            data.write(entry.getValue().content);
+        }
+        data.flush();
+    }
+
+    /**
+     * Returns a resource entry.
+     *
+     * @param name the resource name
+     * @return the corresponding entry
+     * @throws ResourceException if the snapshot doesn't contain the resource
+     */
+    private Entry getEntry(String name)
+    {
+        Entry entry = entries.get(name);
+        if (entry == null)
+        {
+            throw new ResourceException("Resource not in startup snapshot: " + name);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a resource.
+     *
+     * @param name     the resource name
+     * @param encoding the resource encoding
+     * @param out      the stream the resource was written to
+     * @param bytes    the buffer underlying {@code out}
+     * @throws IOException for any I/O error
+     */
+    private void put(String name, byte encoding, DataOutputStream out, ByteArrayOutputStream bytes)
+            throws IOException
+    {
+        out.flush();
+        entries.put(name, new Entry(encoding, bytes.toByteArray()));
+    }
+
+    /**
+     * Reads {@link Properties}.
+     *
+     * @param in the stream to read from
+     * @return the properties
+     * @throws IOException for any I/O error
+     */
+    private static Properties readProperties(DataInput in) throws IOException
+    {
+        Properties result = new Properties();
+        int size = in.readInt();
+        for (int i = 0; i < size; ++i)
+        {
+            String key = readString(in);
+            result.setProperty(key, readString(in));
+        }
+        return result;
+    }
+
+    /**
+     * Reads {@link GUIPrefs}.
+     *
+     * @param in the stream to read from
+     * @return the GUI preferences
+     * @throws IOException for any I/O error
+     */
+    private static GUIPrefs readGUIPrefs(DataInput in) throws IOException
+    {
+        GUIPrefs result = new GUIPrefs();
+        result.resizable = in.readBoolean();
+        result.width = in.readInt();
+        result.height = in.readInt();
+        readMap(in, result.lookAndFeelMapping);
+        int size = in.readInt();
+        for (int i = 0; i < size; ++i)
+        {
+            String key = readString(in);
+            Map<String, String> params = new TreeMap<String, String>();
+            readMap(in, params);
+            result.lookAndFeelParams.put(key, params);
+        }
+        readMap(in, result.modifier);
+        return result;
+    }
+
+    /**
+     * Reads {@link Info}.
+     *
+     * @param in the stream to read from
+     * @return the installation information
+     * @throws IOException for any I/O error
+     */
+    private static Info readInfo(DataInput in) throws IOException
+    {
+        Info result = new Info();
+        result.setAppName(readString(in));
+        result.setAppVersion(readString(in));
+        result.setInstallationSubPath(readString(in));
+        int authors = in.readInt();
+        for (int i = 0; i < authors; ++i)
+        {
+            String name = readString(in);
+            result.addAuthor(new Info.Author(name, readString(in)));
+        }
+        result.setAppURL(readString(in));
+        result.setJavaVersion(readString(in));
+        result.setJdkRequired(in.readBoolean());
+        result.setInstallerBase(readString(in));
+        result.setWebDirURL(readString(in));
+        result.setUninstallerName(readString(in));
+        result.setUninstallerPath(readString(in));
+        result.setUninstallerCondition(readString(in));
+        result.setSummaryLogFilePath(readString(in));
+        result.setPackDecoderClassName(readString(in));
+        result.setUnpackerClassName(readString(in));
+        result.setWriteInstallationInformation(in.readBoolean());
+        result.setPack200Compression(in.readBoolean());
+        result.setRequirePrivilegedExecution(in.readBoolean());
+        result.setRequirePrivilegedExecutionUninstaller(in.readBoolean());
+        result.setPrivilegedExecutionConditionID(readString(in));
+        result.setRebootAction(in.readInt());
+        result.setRebootActionConditionID(readString(in));
+        int tempDirs = in.readInt();
+        for (int i = 0; i < tempDirs; ++i)
+        {
+            String variableName = readString(in);
+            String prefix = readString(in);
+            result.addTempDir(new Info.TempDir(variableName, prefix, readString(in)));
+        }
+        return result;
+    }
+
+    /**
+     * Writes a string list.
+     *
+     * @param strings the strings to write
+     * @param out     the stream to write to
+     * @throws IOException for any I/O error
+     */
+    private static void writeStrings(List<String> strings, DataOutput out) throws IOException
+    {
+        out.writeInt(strings.size());
+        for (String string : strings)
+        {
+            writeString(string, out);
+        }
+    }
+
+    /**
+     * Reads a string list.
+     *
+     * @param in the stream to read from
+     * @return the strings
+     * @throws IOException for any I/O error
+     */
+    private static List<String> readStrings(DataInput in) throws IOException
+    {
+        int size = in.readInt();
+        List<String> result = new ArrayList<String>(size);
+        for (int i = 0; i < size; ++i)
+        {
+            result.add(readString(in));
+        }
+        return result;
+    }
+
+    /**
+     * Writes a map of strings.
+     *
+     * @param map the map to write
+     * @param out the stream to write to
+     * @throws IOException for any I/O error
+     */
+    private static void writeMap(Map<String, String> map, DataOutput out) throws IOException
+    {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet())
+        {
+            writeString(entry.getKey(), out);
+            writeString(entry.getValue(), out);
+        }
+    }
+
+    /**
+     * Reads a map of strings.
+     *
+     * @param in  the stream to read from
+     * @param map the map to populate
+     * @throws IOException for any I/O error
+     */
+    private static void readMap(DataInput in, Map<String, String> map) throws IOException
+    {
+        int size = in.readInt();
+        for (int i = 0; i < size; ++i)
+        {
+            String key = readString(in);
+            map.put(key, readString(in));
+        }
+    }
+
+    /**
+     * Writes a string that may be {@code null}.
+     * <p/>
+     * Strings are written as UTF-8 with an int length, as {@link DataOutput#writeUTF(String)} is limited to 64K.
+     *
+     * @param string the string to write. May be {@code null}
+     * @param out    the stream to write to
+     * @throws IOException for any I/O error
+     */
+    private static void writeString(String string, DataOutput out) throws IOException
+    {
+        if (string == null)
+        {
+            out.writeInt(-1);
+        }
+        else
+        {
+            byte[] bytes = string.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param in the stream to read from
+     * @return the string. May be {@code null}
+     * @throws IOException for any I/O error
+     */
+    private static String readString(DataInput in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Java serializes an object.
+     *
+     * @param object the object to serialize
+     * @return the serialized object
+     * @throws IOException if the object cannot be serialized
+     */
+    private static byte[] serialize(Object object) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A snapshot resource.
+     */
+    private static class Entry
+    {
+
+        /**
+         * The resource encoding.
+         */
+        private final byte encoding;
+
+        /**
+         * The encoded resource.
+         */
+        private final byte[] content;
+
+        /**
+         * Constructs an {@code Entry}.
+         *
+         * @param encoding the resource encoding
+         * @param content  the encoded resource
+         */
+        public Entry(byte encoding, byte[] content)
+        {
+            this.encoding = encoding;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.rules;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.rules.CacheableCondition;
+import com.izforge.izpack.api.rules.Condition;
+import com.izforge.izpack.core.data.DefaultVariables;
+
+
+/**
+ * Caches the results of {@link CacheableCondition}s.
+ * <p/>
+ * The variables read while evaluating a condition are recorded along with their values. A cached result is
+ * reused while the {@link DefaultVariables#getModificationCount() modification count} is unchanged. When it
+ * changes, the recorded variables are compared with their current values, so that the condition is only
+ * re-evaluated when a variable it actually depends on has changed.
+ * <p/>
+ * Only changes made via {@link Variables#set} are detected; variables changed directly via
+ * {@link Variables#getProperties()} will only be picked up once another variable is set.
+ */
+class ConditionCache
+{
+
+    /**
+     * The cached results, keyed on condition.
+     */
+    private final Map<Condition, Result> results = new IdentityHashMap<Condition, Result>();
+
+
+    /**
+     * Evaluates a condition, returning a cached result if none of the variables it depends on have changed.
+     * <p/>
+     * Conditions that aren't cacheable, or that don't use {@link DefaultVariables}, are always evaluated.
+     *
+     * @param condition the condition to evaluate
+     * @return the condition result
+     */
+    public boolean isTrue(Condition condition)
+    {
+        InstallData installData = condition.getInstallData();
+        Variables variables = (installData != null) ? installData.getVariables() : null;
+        if (!(variables instanceof DefaultVariables) || !(condition instanceof CacheableCondition)
+                || !((CacheableCondition) condition).isCacheable())
+        {
+            return condition.isTrue();
+        }
+        DefaultVariables defaultVariables = (DefaultVariables) variables;
+        long modifications = defaultVariables.getModificationCount();
+        Result result;
+        synchronized (results)
+        {
+            result = results.get(condition);
+        }
+        if (result != null && result.isValid(defaultVariables, modifications))
+        {
+            // propagate the dependencies to any enclosing evaluation
+            defaultVariables.record(result.reads);
+            return result.value;
+        }
+
+        Map<String, String> previous = defaultVariables.startRecording();
+        boolean value;
+        Map<String, String> reads;
+        try
+        {
+            value = condition.isTrue();
+        }
+        finally
+        {
+            reads = defaultVariables.stopRecording(previous);
+        }
+        synchronized (results)
+        {
+            results.put(condition, new Result(value, defaultVariables, modifications, reads));
+        }
+        return value;
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear()
+    {
+        synchronized (results)
+        {
+            results.clear();
+        }
+    }
+
+    /**
+     * A cached condition result.
+     */
+    private static class Result
+    {
+
+        /**
+         * The condition result.
+         */
+        private final boolean value;
+
+        /**
+         * The variables the result was derived from.
+         */
+        private final DefaultVariables variables;
+
+        /**
+         * The variables read during evaluation, and their values.
+         */
+        private final Map<String, String> reads;
+
+        /**
+         * The modification count at which the result is known to be valid.
+         */
+        private volatile long modifications;
+
+        public Result(boolean value, DefaultVariables variables, long modifications, Map<String, String> reads)
+        {
+            this.value = value;
+            this.variables = variables;
+            this.modifications = modifications;
+            this.reads = reads;
+        }
+
+        /**
+         * Determines if the result is still valid.
+         *
+         * @param variables     the variables
+         * @param modifications the current modification count
+         * @return {@code true} if none of the variables read have changed
+         */
+        public boolean isValid(DefaultVariables variables, long modifications)
+        {
+            if (this.variables != variables)
+            {
+                return false;
+            }
+            if (this.modifications == modifications)
+            {
+                return true;
+            }
+            Properties properties = variables.getProperties();
+            for (Map.Entry<String, String> entry : reads.entrySet())
+            {
+                String expected = entry.getValue();
+                String current = properties.getProperty(entry.getKey());
+                if (expected == null ? current != null : !expected.equals(current))
+                {
+                    return false;
+                }
+            }
+            this.modifications = modifications;
+            return true;
+        }
+    }
+}
@@ -82,6 +82,11 @@ public class RulesEngineImpl implements RulesEngine
 
     private final ConditionContainer container;
 
+    /**
+     * Caches the results of conditions that depend only on variables.
+     */
+    private final ConditionCache cache = new ConditionCache();
+
     private static final Logger logger = Logger.getLogger(RulesEngineImpl.class.getName());
 
     /**
@@ -138,6 +143,7 @@ public class RulesEngineImpl implements RulesEngine
                 resolveBuiltinConditions(condition);
             }
         }
+        cache.clear();
     }
 
     /**
@@ -347,7 +353,16 @@ public class RulesEngineImpl implements RulesEngine
         {
             cond.setInstallData(this.installData);
         }
-        boolean value = cond.isTrue();
+        boolean value;
+        if (conditionsMap.get(cond.getId()) == cond)
+        {
+            value = cache.isTrue(cond);
+        }
+        else
+        {
+            // expressions are parsed into new conditions each time, so don't cache them
+            value = cond.isTrue();
+        }
         logger.fine("Condition " + cond.getId() + ": " + Boolean.toString(value));
         return value;
     }
@@ -369,7 +384,7 @@ public class RulesEngineImpl implements RulesEngine
             return true;
         }
         Condition condition = getCondition(this.panelConditions.get(panelid));
-        boolean b = condition.isTrue();
+        boolean b = isConditionTrue(condition);
         logger.fine("Panel " + panelid + ": activation depends on condition "
                             + condition.getId() + " -> " + b);
         return b;
@@ -396,7 +411,7 @@ public class RulesEngineImpl implements RulesEngine
             return true;
         }
         Condition condition = getCondition(this.packConditions.get(packid));
-        boolean b = condition.isTrue();
+        boolean b = isConditionTrue(condition);
         logger.fine("Package " + packid + ": installation depends on condition "
                             + condition.getId() + " -> " + b);
         return b;
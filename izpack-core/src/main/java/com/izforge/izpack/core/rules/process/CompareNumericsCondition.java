@@ -26,10 +26,11 @@ import java.util.logging.Logger;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.rules.CacheableCondition;
 import com.izforge.izpack.api.rules.CompareCondition;
 import com.izforge.izpack.api.rules.ComparisonOperator;
 
-public class CompareNumericsCondition extends CompareCondition
+public class CompareNumericsCondition extends CompareCondition implements CacheableCondition
 {
     private static final long serialVersionUID = 3463371028276391505L;
 
@@ -84,4 +85,15 @@ public class CompareNumericsCondition extends CompareCondition
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Determines if the result of this condition depends only on installer variables.
+     *
+     * @return {@code true}; the operands are resolved from variables
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        return true;
+    }
+}
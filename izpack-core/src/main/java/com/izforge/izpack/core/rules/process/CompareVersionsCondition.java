@@ -25,10 +25,11 @@ import java.util.Comparator;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.rules.CacheableCondition;
 import com.izforge.izpack.api.rules.CompareCondition;
 import com.izforge.izpack.api.rules.ComparisonOperator;
 
-public class CompareVersionsCondition extends CompareCondition
+public class CompareVersionsCondition extends CompareCondition implements CacheableCondition
 {
     private static final long serialVersionUID = 5605592864539142416L;
 
@@ -144,4 +145,15 @@ public class CompareVersionsCondition extends CompareCondition
             return 0;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Determines if the result of this condition depends only on installer variables.
+     *
+     * @return {@code true}; the operands are resolved from variables
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        return true;
+    }
+}
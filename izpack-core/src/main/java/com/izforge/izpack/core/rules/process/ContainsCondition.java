@@ -20,9 +20,10 @@ import java.util.regex.Pattern;
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.impl.XMLElementImpl;
 import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.rules.CacheableCondition;
 import com.izforge.izpack.api.rules.Condition;
 
-public class ContainsCondition extends Condition {
+public class ContainsCondition extends Condition implements CacheableCondition {
 
   private static final long serialVersionUID = 114116957546161583L;
 
@@ -306,4 +307,14 @@ public class ContainsCondition extends Condition {
     }
   }
 
+  /**
+   * Determines if the result of this condition depends only on installer variables.
+   *
+   * @return {@code true} for string and variable content, {@code false} for files
+   */
+  @Override
+  public boolean isCacheable()
+  {
+      return contentType == ContentType.STRING || contentType == ContentType.VARIABLE;
+  }
 }
@@ -31,12 +31,13 @@ import java.util.logging.Logger;
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.impl.XMLElementImpl;
 import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.rules.CacheableCondition;
 import com.izforge.izpack.api.rules.Condition;
 
 /**
  * This condition checks if a certain type is empty
  */
-public class EmptyCondition extends Condition
+public class EmptyCondition extends Condition implements CacheableCondition
 {
     private static final long serialVersionUID = -5036558553194497000L;
 
@@ -106,6 +107,17 @@ public class EmptyCondition extends Condition
         return result;
     }
 
+    /**
+     * Determines if the result of this condition depends only on installer variables.
+     *
+     * @return {@code true} for string and variable content, {@code false} for files and directories
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        return contentType == ContentType.STRING || contentType == ContentType.VARIABLE;
+    }
+
     @Override
     public void readFromXML(IXMLElement xmlcondition) throws Exception
     {
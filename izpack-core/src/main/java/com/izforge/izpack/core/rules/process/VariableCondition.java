@@ -25,12 +25,13 @@ import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.impl.XMLElementImpl;
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.rules.CacheableCondition;
 import com.izforge.izpack.api.rules.Condition;
 
 /**
  * @author Dennis Reil, <izpack@reil-online.de>
  */
-public class VariableCondition extends Condition
+public class VariableCondition extends Condition implements CacheableCondition
 {
     private static final long serialVersionUID = 2153074626635361048L;
 
@@ -134,4 +135,15 @@ public class VariableCondition extends Condition
         valueEl.setContent(this.value);
         conditionRoot.addChild(valueEl);
     }
-}
\ No newline at end of file
+
+    /**
+     * Determines if the result of this condition depends only on installer variables.
+     *
+     * @return {@code true}; both the variable and the expected value are resolved from variables
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        return true;
+    }
+}
@@ -28,7 +28,10 @@ import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.util.IoHelper;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,6 +55,36 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
 {
     private static final Logger LOGGER = Logger.getLogger(VariableSubstitutorBase.class.getName());
 
+    /**
+     * The size of the buffer used when reading from streams.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The maximum length of a string to compile to a template.
+     */
+    private static final int MAX_TEMPLATE_LENGTH = 4096;
+
+    /**
+     * The maximum number of templates to cache.
+     */
+    private static final int MAX_TEMPLATES = 1024;
+
+    /**
+     * The compiled templates, in least recently used order.
+     */
+    private static final Map<TemplateKey, Template> templates
+            = new LinkedHashMap<TemplateKey, Template>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 5524405338633582167L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TemplateKey, Template> eldest)
+        {
+            return size() > MAX_TEMPLATES;
+        }
+    };
+
     /**
      * Whether braces are required for substitution.
      */
@@ -162,24 +195,33 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
         {
             return null;
         }
-
-        // Create reader and write for the strings
-        StringReader reader = new StringReader(str);
-        StringWriter writer = new StringWriter();
+        if (type == null)
+        {
+            type = SubstitutionType.getDefault();
+        }
+        char variableStart = getVariableStart(type);
+        if (str.indexOf(variableStart) == -1)
+        {
+            // nothing to substitute
+            return str;
+        }
 
         // Substitute any variables
         try
         {
-            substitute(reader, writer, type);
+            if (getVariableEnd(type) == '\0' && str.length() <= MAX_TEMPLATE_LENGTH)
+            {
+                return getTemplate(str, variableStart).substitute(new Resolver(type));
+            }
+            StringWriter writer = new StringWriter(str.length());
+            substitute(new CharSource(str), writer, type);
+            return writer.getBuffer().toString();
         }
         catch (Exception e)
         {
             LOGGER.log(Level.SEVERE, "Error when substituting variables", e);
             throw new IzPackException(e);
         }
-
-        // Return the resulting string
-        return writer.getBuffer().toString();
     }
 
     /**
@@ -290,6 +332,20 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
      * @throws IOException
      */
     public int substitute(Reader reader, Writer writer, SubstitutionType type) throws Exception
+    {
+        return substitute(new CharSource(reader), writer, type);
+    }
+
+    /**
+     * Substitutes the variables found in the specified source.
+     *
+     * @param source the source to read
+     * @param writer the writer used to write data out
+     * @param type   the file type or null for plain
+     * @return the number of substitutions made
+     * @throws Exception if a variable cannot be resolved, or an I/O error occurs
+     */
+    private int substitute(CharSource source, Writer writer, SubstitutionType type) throws Exception
     {
         if (type == null)
         {
@@ -297,39 +353,23 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
         }
 
         // determine character which starts (and ends) a variable
-        char variable_start = '$';
-        char variable_end = '\0';
-        switch (type)
-        {
-            case TYPE_SHELL:
-                variable_start = '%';
-                break;
-
-            case TYPE_AT:
-                variable_start = '@';
-                break;
-
-            case TYPE_ANT:
-                variable_start = '@';
-                variable_end = '@';
-                break;
-
-            default:
-                break;
-        }
+        char variable_start = getVariableStart(type);
+        char variable_end = getVariableEnd(type);
 
+        Resolver resolver = new Resolver(type);
+        StringBuilder nameBuffer = new StringBuilder();
         int subs = 0;
 
         // Copy data and substitute variables
-        int c = reader.read();
+        int c = source.read();
 
         while (true)
         {
             // Find the next potential variable reference or EOF
-            while (c != -1 && c != variable_start)
+            if (c != -1 && c != variable_start)
             {
                 writer.write(c);
-                c = reader.read();
+                c = source.copyTo(variable_start, writer);
             }
             if (c == -1)
             {
@@ -338,11 +378,11 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
 
             // Check if braces used or start char escaped
             boolean braces = false;
-            c = reader.read();
+            c = source.read();
             if (c == '{')
             {
                 braces = true;
-                c = reader.read();
+                c = source.read();
             }
             else if (bracesRequired)
             {
@@ -356,13 +396,11 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
             }
 
             // Read the variable name
-            StringBuffer nameBuffer = new StringBuffer();
-            while (c != -1 && (braces && c != '}') || (c >= 'a' && c <= 'z')
-                    || (c >= 'A' && c <= 'Z') || (braces && ((c == '[') || (c == ']')))
-                    || (((c >= '0' && c <= '9') || c == '_' || c == '.' || c == '-') && nameBuffer.length() > 0))
+            nameBuffer.setLength(0);
+            while (isNameChar(c, braces, nameBuffer.length()))
             {
                 nameBuffer.append((char) c);
-                c = reader.read();
+                c = source.read();
             }
             String name = nameBuffer.toString();
 
@@ -373,35 +411,17 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
                     (!braces || variable_end == '\0' || variable_end == c)
             ) && name.length() > 0)
             {
-                // check for environment variables
-                if (braces && name.startsWith("ENV[")
-                        && (name.lastIndexOf(']') == name.length() - 1))
-                {
-                    varvalue = IoHelper.getenv(name.substring(4, name.length() - 1));
-                    if (varvalue == null)
-                    {
-                        varvalue = "";
-                    }
-                }
-                else
-                {
-                    Value val = getValue(name);
-                    if (val != null)
-                    {
-                        varvalue = val.resolve();
-                    }
-                }
-
+                varvalue = resolver.resolve(name, braces);
                 subs++;
             }
 
             // Substitute the variable...
             if (varvalue != null)
             {
-                writer.write(escapeSpecialChars(varvalue, type));
+                writer.write(varvalue);
                 if (braces || variable_end != '\0')
                 {
-                    c = reader.read();
+                    c = source.read();
                 }
             }
             // ...or ignore it
@@ -417,6 +437,78 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
         }
     }
 
+    /**
+     * Returns the character that starts a variable, for the specified file type.
+     *
+     * @param type the file type
+     * @return the variable start character
+     */
+    private static char getVariableStart(SubstitutionType type)
+    {
+        switch (type)
+        {
+            case TYPE_SHELL:
+                return '%';
+            case TYPE_AT:
+            case TYPE_ANT:
+                return '@';
+            default:
+                return '$';
+        }
+    }
+
+    /**
+     * Returns the character that ends a variable, for the specified file type.
+     *
+     * @param type the file type
+     * @return the variable end character, or {@code '\0'} if variables have no end character
+     */
+    private static char getVariableEnd(SubstitutionType type)
+    {
+        return (type == SubstitutionType.TYPE_ANT) ? '@' : '\0';
+    }
+
+    /**
+     * Determines if a character may be part of a variable name.
+     *
+     * @param c      the character, or {@code -1} if the end of input has been reached
+     * @param braces if {@code true}, the name is enclosed in braces
+     * @param length the length of the name read so far
+     * @return {@code true} if the character belongs to the name
+     */
+    private static boolean isNameChar(int c, boolean braces, int length)
+    {
+        return (c != -1 && braces && c != '}') || (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z') || (braces && ((c == '[') || (c == ']')))
+                || (((c >= '0' && c <= '9') || c == '_' || c == '.' || c == '-') && length > 0);
+    }
+
+    /**
+     * Returns the compiled template for a string, compiling and caching it if required.
+     *
+     * @param str           the string
+     * @param variableStart the character that starts a variable
+     * @return the template
+     */
+    private Template getTemplate(String str, char variableStart)
+    {
+        TemplateKey key = new TemplateKey(str, variableStart, bracesRequired);
+        Template template;
+        synchronized (templates)
+        {
+            template = templates.get(key);
+        }
+        if (template == null)
+        {
+            template = Template.compile(str, variableStart, bracesRequired);
+            synchronized (templates)
+            {
+                templates.put(key, template);
+            }
+        }
+        return template;
+    }
+
     /**
      * Returns the internal constant for the specified file type.
      *
@@ -573,4 +665,408 @@ public abstract class VariableSubstitutorBase implements VariableSubstitutor
                 throw new Error("Unknown file type constant " + type);
         }
     }
+
+    /**
+     * Resolves variables for a single substitution pass.
+     * <p/>
+     * Escaped values are memoized, so that variables referenced multiple times are only resolved once.
+     */
+    private class Resolver
+    {
+
+        /**
+         * The file type.
+         */
+        private final SubstitutionType type;
+
+        /**
+         * The escaped values, keyed on variable name. A {@code null} value indicates an undefined variable.
+         */
+        private final Map<String, String> values = new HashMap<String, String>();
+
+        public Resolver(SubstitutionType type)
+        {
+            this.type = type;
+        }
+
+        /**
+         * Resolves a variable.
+         *
+         * @param name   the variable name
+         * @param braces if {@code true}, the name was enclosed in braces
+         * @return the escaped variable value, or {@code null} if the variable is undefined
+         * @throws Exception if the variable cannot be resolved
+         */
+        public String resolve(String name, boolean braces) throws Exception
+        {
+            String result = values.get(name);
+            if (result == null && !values.containsKey(name))
+            {
+                String varvalue = null;
+                // check for environment variables
+                if (braces && name.startsWith("ENV[")
+                        && (name.lastIndexOf(']') == name.length() - 1))
+                {
+                    varvalue = IoHelper.getenv(name.substring(4, name.length() - 1));
+                    if (varvalue == null)
+                    {
+                        varvalue = "";
+                    }
+                }
+                else
+                {
+                    Value val = getValue(name);
+                    if (val != null)
+                    {
+                        varvalue = val.resolve();
+                    }
+                }
+                result = (varvalue != null) ? escapeSpecialChars(varvalue, type) : null;
+                values.put(name, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A buffered source of characters, that can copy runs of characters in bulk.
+     */
+    private static class CharSource
+    {
+
+        /**
+         * The reader to fill the buffer from. May be {@code null}.
+         */
+        private final Reader reader;
+
+        /**
+         * The buffer.
+         */
+        private final char[] buffer;
+
+        /**
+         * The position of the next character to read.
+         */
+        private int position;
+
+        /**
+         * The number of valid characters in the buffer.
+         */
+        private int limit;
+
+        /**
+         * Constructs a {@code CharSource} that reads from a reader.
+         *
+         * @param reader the reader
+         */
+        public CharSource(Reader reader)
+        {
+            this.reader = reader;
+            this.buffer = new char[BUFFER_SIZE];
+        }
+
+        /**
+         * Constructs a {@code CharSource} that reads from a string.
+         *
+         * @param str the string
+         */
+        public CharSource(String str)
+        {
+            this.reader = null;
+            this.buffer = str.toCharArray();
+            this.limit = buffer.length;
+        }
+
+        /**
+         * Reads a character.
+         *
+         * @return the character, or {@code -1} if the end of input has been reached
+         * @throws IOException for any I/O error
+         */
+        public int read() throws IOException
+        {
+            if (position == limit && !fill())
+            {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * Copies characters to a writer until the stop character or the end of input is reached.
+         * <p/>
+         * The stop character is consumed, but not written.
+         *
+         * @param stop   the stop character
+         * @param writer the writer to write to
+         * @return the stop character, or {@code -1} if the end of input has been reached
+         * @throws IOException for any I/O error
+         */
+        public int copyTo(char stop, Writer writer) throws IOException
+        {
+            while (true)
+            {
+                int start = position;
+                for (int i = start; i < limit; ++i)
+                {
+                    if (buffer[i] == stop)
+                    {
+                        writer.write(buffer, start, i - start);
+                        position = i + 1;
+                        return stop;
+                    }
+                }
+                if (limit > start)
+                {
+                    writer.write(buffer, start, limit - start);
+                }
+                position = limit;
+                if (!fill())
+                {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Refills the buffer.
+         *
+         * @return {@code true} if characters were read, {@code false} if the end of input has been reached
+         * @throws IOException for any I/O error
+         */
+        private boolean fill() throws IOException
+        {
+            if (reader == null)
+            {
+                return false;
+            }
+            int count;
+            do
+            {
+                count = reader.read(buffer, 0, buffer.length);
+            }
+            while (count == 0);
+            if (count == -1)
+            {
+                return false;
+            }
+            position = 0;
+            limit = count;
+            return true;
+        }
+    }
+
+    /**
+     * A string compiled into literal text and variable references.
+     * <p/>
+     * Templates are only used for file types without a variable end character, as for these the parse of a
+     * string doesn't depend on which variables are defined.
+     */
+    private static class Template
+    {
+
+        /**
+         * The literal text. Element <em>i</em> precedes variable <em>i</em>; the last element follows the last
+         * variable.
+         */
+        private final String[] literals;
+
+        /**
+         * The variable names.
+         */
+        private final String[] names;
+
+        /**
+         * Determines if each variable name was enclosed in braces.
+         */
+        private final boolean[] braces;
+
+        /**
+         * The original text of each variable reference, output when the variable is undefined.
+         */
+        private final String[] references;
+
+        /**
+         * The length of the original string.
+         */
+        private final int length;
+
+        private Template(List<String> literals, List<String> names, List<Boolean> braces, List<String> references,
+                         int length)
+        {
+            this.literals = literals.toArray(new String[literals.size()]);
+            this.names = names.toArray(new String[names.size()]);
+            this.references = references.toArray(new String[references.size()]);
+            this.braces = new boolean[braces.size()];
+            for (int i = 0; i < this.braces.length; ++i)
+            {
+                this.braces[i] = braces.get(i);
+            }
+            this.length = length;
+        }
+
+        /**
+         * Substitutes the variables in the template.
+         *
+         * @param resolver the variable resolver
+         * @return the substituted string
+         * @throws Exception if a variable cannot be resolved
+         */
+        public String substitute(Resolver resolver) throws Exception
+        {
+            StringBuilder result = new StringBuilder(length + 16);
+            for (int i = 0; i < names.length; ++i)
+            {
+                result.append(literals[i]);
+                String value = resolver.resolve(names[i], braces[i]);
+                result.append(value != null ? value : references[i]);
+            }
+            result.append(literals[names.length]);
+            return result.toString();
+        }
+
+        /**
+         * Compiles a string.
+         * <p/>
+         * This follows the same rules as {@link VariableSubstitutorBase#substitute(CharSource, Writer,
+         * SubstitutionType)}.
+         *
+         * @param str            the string to compile
+         * @param variableStart  the character that starts a variable
+         * @param bracesRequired whether braces are required for substitution
+         * @return the compiled template
+         */
+        public static Template compile(String str, char variableStart, boolean bracesRequired)
+        {
+            List<String> literals = new ArrayList<String>();
+            List<String> names = new ArrayList<String>();
+            List<Boolean> braces = new ArrayList<Boolean>();
+            List<String> references = new ArrayList<String>();
+            StringBuilder literal = new StringBuilder();
+            int length = str.length();
+            int index = 0;
+            int c = (index < length) ? str.charAt(index++) : -1;
+            while (true)
+            {
+                // Find the next potential variable reference or end of string
+                while (c != -1 && c != variableStart)
+                {
+                    literal.append((char) c);
+                    c = (index < length) ? str.charAt(index++) : -1;
+                }
+                if (c == -1)
+                {
+                    break;
+                }
+
+                // Check if braces used or start char escaped
+                boolean brace = false;
+                c = (index < length) ? str.charAt(index++) : -1;
+                if (c == '{')
+                {
+                    brace = true;
+                    c = (index < length) ? str.charAt(index++) : -1;
+                }
+                else if (bracesRequired)
+                {
+                    literal.append(variableStart);
+                    continue;
+                }
+                else if (c == -1)
+                {
+                    literal.append(variableStart);
+                    break;
+                }
+
+                // Read the variable name
+                int nameStart = (c == -1) ? length : index - 1;
+                while (isNameChar(c, brace, index - 1 - nameStart))
+                {
+                    c = (index < length) ? str.charAt(index++) : -1;
+                }
+                int nameEnd = (c == -1) ? length : index - 1;
+                String name = str.substring(nameStart, nameEnd);
+
+                if ((!brace || c == '}') && name.length() > 0)
+                {
+                    // a variable reference. When the variable is undefined, the closing brace is copied as is
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    names.add(name);
+                    braces.add(brace);
+                    if (brace)
+                    {
+                        references.add(variableStart + "{" + name + "}");
+                        c = (index < length) ? str.charAt(index++) : -1;
+                    }
+                    else
+                    {
+                        references.add(variableStart + name);
+                    }
+                }
+                else
+                {
+                    literal.append(variableStart);
+                    if (brace)
+                    {
+                        literal.append('{');
+                    }
+                    literal.append(name);
+                }
+            }
+            literals.add(literal.toString());
+            return new Template(literals, names, braces, references, length);
+        }
+    }
+
+    /**
+     * The key of a cached {@link Template}.
+     */
+    private static class TemplateKey
+    {
+
+        /**
+         * The string.
+         */
+        private final String str;
+
+        /**
+         * The character that starts a variable.
+         */
+        private final char variableStart;
+
+        /**
+         * Whether braces are required for substitution.
+         */
+        private final boolean bracesRequired;
+
+        public TemplateKey(String str, char variableStart, boolean bracesRequired)
+        {
+            this.str = str;
+            this.variableStart = variableStart;
+            this.bracesRequired = bracesRequired;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (this == other)
+            {
+                return true;
+            }
+            if (!(other instanceof TemplateKey))
+            {
+                return false;
+            }
+            TemplateKey key = (TemplateKey) other;
+            return variableStart == key.variableStart && bracesRequired == key.bracesRequired
+                    && str.equals(key.str);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return str.hashCode() * 31 + variableStart + (bracesRequired ? 1 : 0);
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.variable;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+
+/**
+ * A process-wide cache of parsed configuration files, shared by all {@link ConfigFileValue}s.
+ * <p/>
+ * Entries are keyed on the file path, the archive entry name (if any), and the parse variant (file type and
+ * escape mode). An entry is only reused while the size and last modification time of the file are unchanged.
+ * The least recently used entries are evicted once {@link #MAX_ENTRIES} is reached.
+ */
+final class ConfigFileCache
+{
+
+    /**
+     * The maximum number of parsed configurations to retain.
+     */
+    static final int MAX_ENTRIES = 32;
+
+    /**
+     * The cached configurations, in least recently used order.
+     */
+    private static final Map<String, Configuration> entries
+            = new LinkedHashMap<String, Configuration>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = -2463018870152342297L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Configuration> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Private constructor. Use the static methods.
+     */
+    private ConfigFileCache()
+    {
+    }
+
+    /**
+     * Returns the parsed configuration of a file, parsing it if it isn't cached or has changed since it was
+     * cached.
+     *
+     * @param file    the file. For archives, this is the archive file
+     * @param entry   the archive entry name. May be {@code null}
+     * @param variant identifies how the file is parsed
+     * @param parser  the parser, used if no valid cached configuration exists
+     * @return the parsed configuration
+     * @throws Exception if the file cannot be parsed
+     */
+    public static Object get(File file, String entry, String variant, Callable<Object> parser) throws Exception
+    {
+        String key = file.getAbsolutePath() + "!" + (entry != null ? entry : "") + "#" + variant;
+        long length = file.length();
+        long lastModified = file.lastModified();
+        if (lastModified == 0)
+        {
+            // the file doesn't exist or can't be accessed. Let the parser report the error
+            return parser.call();
+        }
+        Configuration cached;
+        synchronized (entries)
+        {
+            cached = entries.get(key);
+        }
+        if (cached != null && cached.length == length && cached.lastModified == lastModified)
+        {
+            return cached.config;
+        }
+
+        // the size and modification time are determined prior to parsing, so that concurrent changes are
+        // detected on the next access
+        Object config = parser.call();
+        synchronized (entries)
+        {
+            entries.put(key, new Configuration(config, length, lastModified));
+        }
+        return config;
+    }
+
+    /**
+     * Returns the number of cached configurations.
+     *
+     * @return the number of cached configurations
+     */
+    public static int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all cached configurations.
+     */
+    public static void clear()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+    }
+
+    /**
+     * A parsed configuration, and the state of the file it was parsed from.
+     */
+    private static class Configuration
+    {
+
+        /**
+         * The parsed configuration.
+         */
+        private final Object config;
+
+        /**
+         * The file size, when the configuration was parsed.
+         */
+        private final long length;
+
+        /**
+         * The file modification time, when the configuration was parsed.
+         */
+        private final long lastModified;
+
+        public Configuration(Object config, long length, long lastModified)
+        {
+            this.config = config;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -21,13 +21,14 @@
 
 package com.izforge.izpack.core.variable;
 
-import java.io.IOException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.concurrent.Callable;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
@@ -36,7 +37,6 @@ import javax.xml.xpath.XPathFactory;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.util.config.base.Config;
@@ -124,67 +124,150 @@ public abstract class ConfigFileValue extends ValueImpl implements Serializable
 
     protected String resolve(InputStream in) throws Exception
     {
-        Config config;
+        return getValue(parse(in, false), section, key);
+    }
+
+    protected String resolve(InputStream in, VariableSubstitutor... substitutors)
+            throws Exception
+    {
+        return getValue(parse(in, true), substitute(section, substitutors), substitute(key, substitutors));
+    }
+
+    /**
+     * Substitutes variables in a string.
+     *
+     * @param value        the value to substitute. May be {@code null}
+     * @param substitutors the substitutors
+     * @return the substituted value. May be {@code null}
+     */
+    protected static String substitute(String value, VariableSubstitutor... substitutors)
+    {
+        if (value != null)
+        {
+            for (VariableSubstitutor substitutor : substitutors)
+            {
+                value = substitutor.substitute(value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Resolves a value from a configuration file, using a cached parse of the file if it hasn't changed since it
+     * was last read.
+     *
+     * @param filename  the file name
+     * @param entryname the archive entry name, or {@code null} if the file isn't an archive
+     * @param section   the INI section. May be {@code null}
+     * @param key       the key, or XPath expression for XML files
+     * @param global    if {@code true}, parse the file using the global configuration, otherwise honour the
+     *                  escape flag
+     * @return the value. May be {@code null}
+     * @throws Exception if the file cannot be read or parsed
+     */
+    protected String resolve(final String filename, final String entryname, String section, String key,
+                             final boolean global) throws Exception
+    {
+        String variant = global ? Integer.toString(type) : type + ":" + isEscape();
+        Object config = ConfigFileCache.get(new File(filename), entryname, variant, new Callable<Object>()
+        {
+            @Override
+            public Object call() throws Exception
+            {
+                InputStream in = getInputStream(filename, entryname);
+                try
+                {
+                    return parse(in, global);
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        });
+        return getValue(config, section, key);
+    }
+
+    /**
+     * Opens a configuration file.
+     * <p/>
+     * This implementation opens a plain file. Subclasses reading from archives must override it.
+     *
+     * @param filename  the file name
+     * @param entryname the archive entry name. May be {@code null}
+     * @return a stream to read the configuration from
+     * @throws Exception if the file cannot be opened
+     */
+    protected InputStream getInputStream(String filename, String entryname) throws Exception
+    {
+        return new FileInputStream(filename);
+    }
+
+    /**
+     * Parses a configuration file.
+     *
+     * @param in     the stream to read from
+     * @param global if {@code true}, parse using the global configuration, otherwise honour the escape flag
+     * @return the parsed configuration
+     * @throws Exception if the file cannot be parsed
+     */
+    private Object parse(InputStream in, boolean global) throws Exception
+    {
+        Config config = Config.getGlobal().clone();
+        if (!global)
+        {
+            config.setEscape(isEscape());
+        }
         switch (type)
         {
             case CONFIGFILE_TYPE_OPTIONS:
-                config = Config.getGlobal().clone();
-                config.setEscape(isEscape());
                 Options opts = new Options(config);
                 opts.load(in);
-                return opts.get(key);
+                return opts;
             case CONFIGFILE_TYPE_INI:
-                config = Config.getGlobal().clone();
-                config.setEscape(isEscape());
                 Ini ini = new Ini(config);
                 ini.load(in);
-                return ini.get(section, key);
+                return ini;
             case CONFIGFILE_TYPE_XML:
-                return parseXPath(in, key, System.getProperty("line.separator"));
+                DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+                domFactory.setNamespaceAware(true);
+                DocumentBuilder builder = domFactory.newDocumentBuilder();
+                return builder.parse(in);
             default:
                 throw new Exception("Invalid configuration file type " + type);
         }
     }
 
-    protected String resolve(InputStream in, VariableSubstitutor... substitutors)
-            throws Exception
+    /**
+     * Returns a value from a parsed configuration.
+     *
+     * @param config  the parsed configuration
+     * @param section the INI section. May be {@code null}
+     * @param key     the key, or XPath expression for XML files
+     * @return the value. May be {@code null}
+     * @throws Exception if the value cannot be determined
+     */
+    private static String getValue(Object config, String section, String key) throws Exception
     {
-        String _key_ = key;
-        for (VariableSubstitutor substitutor : substitutors)
+        if (config instanceof Options)
         {
-            _key_ = substitutor.substitute(_key_);
+            return ((Options) config).get(key);
         }
-
-        switch (type)
+        else if (config instanceof Ini)
         {
-            case CONFIGFILE_TYPE_OPTIONS:
-                Options opts;
-                opts = new Options(in);
-                return opts.get(_key_);
-            case CONFIGFILE_TYPE_INI:
-                Ini ini;
-                String _section_ = section;
-                for (VariableSubstitutor substitutor : substitutors)
-                {
-                    _key_ = substitutor.substitute(_key_);
-                }
-                ini = new Ini(in);
-                return ini.get(_section_, _key_);
-            case CONFIGFILE_TYPE_XML:
-                return parseXPath(in, _key_, System.getProperty("line.separator"));
-            default:
-                throw new Exception("Invalid configuration file type '" + type + "'");
+            return ((Ini) config).get(section, key);
+        }
+        // DOM implementations aren't thread safe, even for reads
+        Document doc = (Document) config;
+        synchronized (doc)
+        {
+            return parseXPath(doc, key, System.getProperty("line.separator"));
         }
     }
 
-    private static String parseXPath(InputStream in, String expression, String separator)
-            throws ParserConfigurationException, SAXException, IOException, XPathExpressionException
+    private static String parseXPath(Document doc, String expression, String separator)
+            throws XPathExpressionException
     {
-        DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-        domFactory.setNamespaceAware(true);
-        DocumentBuilder builder;
-        builder = domFactory.newDocumentBuilder();
-        Document doc = builder.parse(in);
         XPath xpath = XPathFactory.newInstance().newXPath();
         // XPath Query for showing all nodes value
         XPathExpression expr = xpath.compile(expression);
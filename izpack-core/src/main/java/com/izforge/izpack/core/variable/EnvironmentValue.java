@@ -21,12 +21,13 @@
 
 package com.izforge.izpack.core.variable;
 
+import com.izforge.izpack.api.data.CacheableValue;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.util.IoHelper;
 
 import java.io.Serializable;
 
-public class EnvironmentValue extends ValueImpl implements Serializable
+public class EnvironmentValue extends ValueImpl implements CacheableValue, Serializable
 {
     /**
      *
@@ -78,4 +79,14 @@ public class EnvironmentValue extends ValueImpl implements Serializable
         return IoHelper.getenv(_variable_);
     }
 
+    /**
+     * Determines if the value may be reused until one of the variables it reads changes.
+     *
+     * @return {@code true}; the environment doesn't change while the installer runs
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        return true;
+    }
 }
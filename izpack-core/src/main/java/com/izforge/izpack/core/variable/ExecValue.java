@@ -22,24 +22,119 @@
 package com.izforge.izpack.core.variable;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
 
+import com.izforge.izpack.api.data.CacheableValue;
+import com.izforge.izpack.api.exception.IzPackException;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
 import com.izforge.izpack.util.FileExecutor;
 import com.izforge.izpack.util.OsVersion;
 
 
-public class ExecValue extends ValueImpl implements Serializable
+public class ExecValue extends ValueImpl implements CacheableValue, Serializable
 {
     /**
      *
      */
     private static final long serialVersionUID = -6438593229737421526L;
 
+    /**
+     * Determines when the output of a command may be reused, rather than executing the command again.
+     */
+    public enum CachePolicy
+    {
+        /**
+         * The command is executed each time the value is resolved.
+         */
+        NONE,
+
+        /**
+         * The command is executed once. Its output is reused thereafter.
+         */
+        ONCE,
+
+        /**
+         * The output is reused until the time-to-live expires.
+         */
+        TTL,
+
+        /**
+         * The output is reused until the command line or working directory change, i.e. until a variable they
+         * refer to changes.
+         */
+        DEPENDENCIES
+    }
+
     private String cmd[];
     private String dir;
     private boolean useStdErr = true;
 
+    /**
+     * The cache policy.
+     */
+    private CachePolicy cachePolicy = CachePolicy.NONE;
+
+    /**
+     * The time-to-live of cached output, in milliseconds, for {@link CachePolicy#TTL}.
+     */
+    private long ttl;
+
+    /**
+     * The maximum time to wait for the command, in milliseconds. If {@code <= 0}, wait until it completes.
+     */
+    private long timeout;
+
+    /**
+     * The most recent output of the command. May be {@code null}.
+     */
+    private transient Result result;
+
+    /**
+     * The pending execution, when the command is run asynchronously. May be {@code null}.
+     */
+    private transient Future<Result> pending;
+
+    /**
+     * The command line and working directory of the pending execution. May be {@code null}.
+     */
+    private transient String pendingKey;
+
+    /**
+     * Determines if the last resolution timed out, and so didn't return the current output of the command.
+     */
+    private transient boolean timedOut;
+
+    /**
+     * Executes commands that are subject to a timeout.
+     */
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory()
+    {
+        private int count;
+
+        @Override
+        public synchronized Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "ExecValue-" + (++count));
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ExecValue.class.getName());
+
     public ExecValue(String[] command, String dir, boolean isShellCommand, boolean useStdErr)
     {
         super();
@@ -88,6 +183,76 @@ public class ExecValue extends ValueImpl implements Serializable
         this.cmd = cmd;
     }
 
+    /**
+     * Returns the cache policy.
+     *
+     * @return the cache policy
+     */
+    public CachePolicy getCachePolicy()
+    {
+        return cachePolicy;
+    }
+
+    /**
+     * Sets the cache policy.
+     *
+     * @param cachePolicy the cache policy
+     * @param ttl         the time-to-live of cached output, in milliseconds, for {@link CachePolicy#TTL}
+     */
+    public void setCachePolicy(CachePolicy cachePolicy, long ttl)
+    {
+        this.cachePolicy = cachePolicy;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the time-to-live of cached output.
+     *
+     * @return the time-to-live, in milliseconds
+     */
+    public long getTTL()
+    {
+        return ttl;
+    }
+
+    /**
+     * Returns the maximum time to wait for the command to complete.
+     *
+     * @return the timeout, in milliseconds. If {@code <= 0}, resolution waits for the command to complete
+     */
+    public long getTimeout()
+    {
+        return timeout;
+    }
+
+    /**
+     * Sets the maximum time to wait for the command to complete.
+     * <p/>
+     * If the command doesn't complete in time, resolution returns the output of the previous execution, if any.
+     * The command continues to run in the background, and its output is used by the next resolution.
+     *
+     * @param timeout the timeout, in milliseconds. If {@code <= 0}, resolution waits for the command to complete
+     */
+    public void setTimeout(long timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Determines if the value may be cached by the variables, when none of the variables it depends on change.
+     * <p/>
+     * A value whose last resolution timed out is not cacheable until a resolution returns the output of the
+     * command, so that the output is picked up by a subsequent refresh.
+     *
+     * @return {@code true} if the cache policy is {@link CachePolicy#ONCE} or {@link CachePolicy#DEPENDENCIES},
+     *         and the last resolution didn't time out
+     */
+    @Override
+    public synchronized boolean isCacheable()
+    {
+        return (cachePolicy == CachePolicy.ONCE || cachePolicy == CachePolicy.DEPENDENCIES) && !timedOut;
+    }
+
     @Override
     public void validate() throws Exception
     {
@@ -95,6 +260,10 @@ public class ExecValue extends ValueImpl implements Serializable
         {
             throw new IllegalArgumentException("Bad command line");
         }
+        if (this.cachePolicy == CachePolicy.TTL && this.ttl <= 0)
+        {
+            throw new IllegalArgumentException("No time-to-live given for cached command output");
+        }
     }
 
     @Override
@@ -123,20 +292,155 @@ public class ExecValue extends ValueImpl implements Serializable
             }
             _cmd_[i] = _cmdarg_;
         }
+        final String[] command = _cmd_;
+        final String directory = _dir_;
+        String key = Arrays.toString(command) + "@" + directory;
+        Future<Result> future = null;
+        synchronized (this)
+        {
+            if (isValid(result, key))
+            {
+                timedOut = false;
+                return result.value;
+            }
+            if (timeout > 0)
+            {
+                // don't start another instance of a command that hasn't completed
+                if (pending == null || pending.isDone() || !key.equals(pendingKey))
+                {
+                    pending = executor.submit(new Callable<Result>()
+                    {
+                        @Override
+                        public Result call()
+                        {
+                            return execute(command, directory);
+                        }
+                    });
+                    pendingKey = key;
+                }
+                future = pending;
+            }
+        }
+        if (future == null)
+        {
+            return execute(command, directory).value;
+        }
+        try
+        {
+            String value = future.get(timeout, TimeUnit.MILLISECONDS).value;
+            synchronized (this)
+            {
+                timedOut = false;
+            }
+            return value;
+        }
+        catch (TimeoutException exception)
+        {
+            logger.warning("Command " + key + " did not complete within " + timeout + "ms");
+            synchronized (this)
+            {
+                timedOut = true;
+                return (result != null) ? result.value : null;
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new IzPackException("Interrupted executing command " + key, exception);
+        }
+        catch (ExecutionException exception)
+        {
+            throw new IzPackException("Failed to execute command " + key, exception.getCause());
+        }
+    }
+
+    /**
+     * Executes a command. If it succeeds, its output is retained for reuse by subsequent resolutions.
+     *
+     * @param command   the command line
+     * @param directory the working directory. May be {@code null}
+     * @return the result of the execution
+     */
+    private Result execute(String[] command, String directory)
+    {
         String[] execOut = new String[2];
-        int ret = new FileExecutor().executeCommand(_cmd_, execOut, _dir_);
+        int ret = new FileExecutor().executeCommand(command, execOut, directory);
+        String value = null;
         if (ret == 0)
         {
             if (useStdErr)
             {
                 // Some commands return their output on stderr (as java -version)
-                return execOut[1];
+                value = execOut[1];
             }
             else
             {
-                return execOut[0];
+                value = execOut[0];
+            }
+        }
+        Result executed = new Result(value, Arrays.toString(command) + "@" + directory);
+        if (value != null)
+        {
+            synchronized (this)
+            {
+                result = executed;
             }
         }
-        return null;
+        return executed;
+    }
+
+    /**
+     * Determines if the output of a previous execution may be reused, according to the cache policy.
+     *
+     * @param result the previous result. May be {@code null}
+     * @param key    the current command line and working directory
+     * @return {@code true} if the result may be reused
+     */
+    private boolean isValid(Result result, String key)
+    {
+        if (result == null)
+        {
+            return false;
+        }
+        switch (cachePolicy)
+        {
+            case ONCE:
+                return true;
+            case TTL:
+                return result.key.equals(key) && System.currentTimeMillis() - result.time < ttl;
+            case DEPENDENCIES:
+                return result.key.equals(key);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The output of a command execution.
+     */
+    private static class Result
+    {
+
+        /**
+         * The command output. May be {@code null}.
+         */
+        private final String value;
+
+        /**
+         * The command line and working directory.
+         */
+        private final String key;
+
+        /**
+         * The time when the command completed.
+         */
+        private final long time;
+
+        public Result(String value, String key)
+        {
+            this.value = value;
+            this.key = key;
+            this.time = System.currentTimeMillis();
+        }
     }
 }
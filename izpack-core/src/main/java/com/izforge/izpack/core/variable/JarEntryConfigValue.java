@@ -19,13 +19,13 @@
 
 package com.izforge.izpack.core.variable;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipException;
 
-import com.izforge.izpack.api.substitutor.VariableSubstitutor;
-
 
 public class JarEntryConfigValue extends ZipEntryConfigFileValue
 {
@@ -36,39 +36,33 @@ public class JarEntryConfigValue extends ZipEntryConfigFileValue
     }
 
     @Override
-    public String resolve() throws Exception
+    protected InputStream getInputStream(String filename, String entryname) throws Exception
     {
-        return super.resolve(getJarEntryInputStream(getFilename(), getEntryname()));
-    }
-
-    @Override
-    public String resolve(VariableSubstitutor... substitutors)
-            throws Exception
-    {
-        String _filename_ = getFilename(), _entryname_ = getEntryname();
-        for (VariableSubstitutor substitutor : substitutors)
-        {
-            _filename_ = substitutor.substitute(_filename_);
-        }
-        for (VariableSubstitutor substitutor : substitutors)
-        {
-            _entryname_ = substitutor.substitute(_entryname_);
-        }
-        return super.resolve(getJarEntryInputStream(_filename_, _entryname_), substitutors);
-    }
-
-    private InputStream getJarEntryInputStream(String filename, String entryname) throws Exception
-    {
-        JarFile jarfile;
+        final JarFile jarfile;
         try
         {
             jarfile = new JarFile(filename);
             JarEntry entry = jarfile.getJarEntry(entryname);
             if (entry == null)
             {
+                jarfile.close();
                 throw new Exception("Jar file entry " + entryname + " not found in " + jarfile.getName());
             }
-            return jarfile.getInputStream(entry);
+            return new FilterInputStream(jarfile.getInputStream(entry))
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        jarfile.close();
+                    }
+                }
+            };
         }
         catch (ZipException ze)
         {
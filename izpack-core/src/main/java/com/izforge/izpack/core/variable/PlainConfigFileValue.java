@@ -23,7 +23,6 @@ package com.izforge.izpack.core.variable;
 
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 
-import java.io.FileInputStream;
 import java.io.Serializable;
 
 public class PlainConfigFileValue extends ConfigFileValue implements Serializable
@@ -64,18 +63,14 @@ public class PlainConfigFileValue extends ConfigFileValue implements Serializabl
     @Override
     public String resolve() throws Exception
     {
-        return resolve(new FileInputStream(location));
+        return resolve(location, null, section, key, false);
     }
 
     @Override
     public String resolve(VariableSubstitutor... substitutors)
             throws Exception
     {
-        String _location_ = location;
-        for (VariableSubstitutor substitutor : substitutors)
-        {
-            _location_ = substitutor.substitute(_location_);
-        }
-        return resolve(new FileInputStream(_location_), substitutors);
+        return resolve(substitute(location, substitutors), null, substitute(section, substitutors),
+                       substitute(key, substitutors), true);
     }
 }
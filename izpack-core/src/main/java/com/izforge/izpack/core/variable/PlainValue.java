@@ -21,12 +21,13 @@
 
 package com.izforge.izpack.core.variable;
 
+import com.izforge.izpack.api.data.CacheableValue;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 
 import java.io.Serializable;
 
 
-public class PlainValue extends ValueImpl implements Serializable
+public class PlainValue extends ValueImpl implements CacheableValue, Serializable
 {
     /**
      *
@@ -77,4 +78,15 @@ public class PlainValue extends ValueImpl implements Serializable
 
         return _value_;
     }
+
+    /**
+     * Determines if the value may be reused until one of the variables it reads changes.
+     *
+     * @return {@code true}; the value depends only on the variables it references
+     */
+    @Override
+    public boolean isCacheable()
+    {
+        return true;
+    }
 }
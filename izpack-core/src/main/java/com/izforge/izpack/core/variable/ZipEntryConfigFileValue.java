@@ -19,6 +19,8 @@
 
 package com.izforge.izpack.core.variable;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
@@ -77,37 +79,45 @@ public class ZipEntryConfigFileValue extends ConfigFileValue
     @Override
     public String resolve() throws Exception
     {
-        return super.resolve(getZipEntryInputStream(getFilename(), getEntryname()));
+        return resolve(getFilename(), getEntryname(), section, key, false);
     }
 
     @Override
     public String resolve(VariableSubstitutor... substitutors)
             throws Exception
     {
-        String _filename_ = this.filename, _entryname_ = this.entryname;
-        for (VariableSubstitutor substitutor : substitutors)
-        {
-            _filename_ = substitutor.substitute(_filename_);
-        }
-        for (VariableSubstitutor substitutor : substitutors)
-        {
-            _entryname_ = substitutor.substitute(_entryname_);
-        }
-        return super.resolve(getZipEntryInputStream(_filename_, _entryname_), substitutors);
+        return resolve(substitute(filename, substitutors), substitute(entryname, substitutors),
+                       substitute(section, substitutors), substitute(key, substitutors), true);
     }
 
-    private InputStream getZipEntryInputStream(String filename, String entryname) throws Exception
+    @Override
+    protected InputStream getInputStream(String filename, String entryname) throws Exception
     {
-        ZipFile zipfile;
+        final ZipFile zipfile;
         try
         {
             zipfile = new ZipFile(filename);
             ZipEntry entry = zipfile.getEntry(entryname);
             if (entry == null)
             {
+                zipfile.close();
                 throw new Exception("Zip file entry " + entryname + " not found in " + zipfile.getName());
             }
-            return zipfile.getInputStream(entry);
+            return new FilterInputStream(zipfile.getInputStream(entry))
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        zipfile.close();
+                    }
+                }
+            };
         }
         catch (ZipException ze)
         {
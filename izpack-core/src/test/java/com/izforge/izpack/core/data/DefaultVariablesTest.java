@@ -22,22 +22,31 @@
 package com.izforge.izpack.core.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 
 import com.izforge.izpack.api.data.AutomatedInstallData;
 import com.izforge.izpack.api.data.DynamicVariable;
+import com.izforge.izpack.api.data.Value;
 import com.izforge.izpack.api.data.Variables;
 import com.izforge.izpack.api.rules.Condition;
+import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.core.container.DefaultContainer;
 import com.izforge.izpack.core.rules.ConditionContainer;
 import com.izforge.izpack.core.rules.RulesEngineImpl;
 import com.izforge.izpack.core.rules.process.VariableCondition;
+import com.izforge.izpack.core.variable.ExecValue;
 import com.izforge.izpack.core.variable.PlainValue;
+import com.izforge.izpack.core.variable.ValueImpl;
+import com.izforge.izpack.util.OsVersion;
 import com.izforge.izpack.util.Platforms;
 
 
@@ -236,6 +245,184 @@ public class DefaultVariablesTest
         assertEquals("/usr/local/bin", variables.get("INSTALL_PATH"));
     }
 
+    /**
+     * Verifies that dynamic variables are only re-evaluated when a variable they depend on changes.
+     */
+    @Test
+    public void testIncrementalRefresh()
+    {
+        DefaultVariables defaultVariables = (DefaultVariables) variables;
+        RefreshStatistics statistics = defaultVariables.getRefreshStatistics();
+        variables.add(createDynamic("var1", "${INSTALL_PATH}/lib"));
+        variables.add(createDynamic("var2", "${var1}/ext"));
+        variables.add(createDynamic("var3", "${OTHER}"));
+        variables.set("INSTALL_PATH", "a");
+        variables.set("OTHER", "b");
+
+        variables.refresh();
+        assertEquals("a/lib", variables.get("var1"));
+        assertEquals("a/lib/ext", variables.get("var2"));
+        assertEquals("b", variables.get("var3"));
+        assertEquals(3, statistics.getEvaluated());
+        assertEquals(0, statistics.getSkipped());
+
+        // nothing changed, so nothing should be evaluated
+        variables.refresh();
+        assertEquals(3, statistics.getEvaluated());
+        assertEquals(3, statistics.getSkipped());
+
+        // changing INSTALL_PATH should re-evaluate var1, and var2 which depends on it
+        variables.set("INSTALL_PATH", "c");
+        variables.refresh();
+        assertEquals("c/lib", variables.get("var1"));
+        assertEquals("c/lib/ext", variables.get("var2"));
+        assertEquals("b", variables.get("var3"));
+        assertEquals(5, statistics.getEvaluated());
+        assertEquals(4, statistics.getSkipped());
+
+        // values overwritten by other means should be re-applied
+        variables.set("var3", "d");
+        variables.refresh();
+        assertEquals("b", variables.get("var3"));
+        assertEquals(5, statistics.getEvaluated());
+        assertEquals(4, statistics.getRefreshes());
+    }
+
+    /**
+     * Verifies that refreshing dynamic variables in parallel produces the same results as a sequential refresh,
+     * including where a dynamic variable reads one declared after it.
+     */
+    @Test
+    public void testParallelRefresh()
+    {
+        DefaultVariables parallel = new DefaultVariables();
+        DefaultVariables sequential = new DefaultVariables();
+        parallel.setParallelism(4);
+        sequential.setParallelism(1);
+        for (DefaultVariables vars : new DefaultVariables[]{parallel, sequential})
+        {
+            vars.add(createDynamic("var1", new UncachedValue("${A}/1")));
+            vars.add(createDynamic("var2", new UncachedValue("${var1}/2")));
+            vars.add(createDynamic("var3", new UncachedValue("${B}/3")));
+            vars.add(createDynamic("var4", new UncachedValue("${B}/4")));
+            vars.add(createDynamic("A", new UncachedValue("${B}")));
+            vars.set("A", "a");
+            vars.set("B", "b");
+        }
+
+        for (String b : new String[]{"b", "b", "c", "d"})
+        {
+            parallel.set("B", b);
+            sequential.set("B", b);
+            parallel.refresh();
+            sequential.refresh();
+            for (String name : new String[]{"var1", "var2", "var3", "var4", "A"})
+            {
+                assertEquals(sequential.get(name), parallel.get(name));
+            }
+        }
+        assertEquals("c/1", parallel.get("var1"));
+        assertEquals("c/1/2", parallel.get("var2"));
+        assertEquals("d/4", parallel.get("var4"));
+    }
+
+    /**
+     * Verifies that when dynamic variables are refreshed in parallel, their conditions are evaluated by the
+     * refreshing thread, and only their values are resolved in the background.
+     */
+    @Test
+    public void testParallelRefreshConditions()
+    {
+        final Set<Thread> conditionThreads = Collections.synchronizedSet(new HashSet<Thread>());
+        final Set<Thread> valueThreads = Collections.synchronizedSet(new HashSet<Thread>());
+        Map<String, Condition> conditions = new HashMap<String, Condition>();
+        conditions.put("cond", new VariableCondition("os", "unix")
+        {
+            @Override
+            public boolean isTrue()
+            {
+                conditionThreads.add(Thread.currentThread());
+                return super.isTrue();
+            }
+        });
+
+        AutomatedInstallData installData = new AutomatedInstallData(variables, Platforms.FREEBSD);
+        RulesEngineImpl rules = new RulesEngineImpl(installData, new ConditionContainer(new DefaultContainer()),
+                                                    installData.getPlatform());
+        rules.readConditionMap(conditions);
+        DefaultVariables defaultVariables = (DefaultVariables) variables;
+        defaultVariables.setRules(rules);
+        defaultVariables.setParallelism(4);
+        for (int i = 0; i < 8; ++i)
+        {
+            DynamicVariable variable = createDynamic("var" + i, new UncachedValue("${B}/" + i)
+            {
+                @Override
+                public String resolve(VariableSubstitutor... substitutors)
+                {
+                    valueThreads.add(Thread.currentThread());
+                    return super.resolve(substitutors);
+                }
+            });
+            ((DynamicVariableImpl) variable).setConditionid("cond");
+            variables.add(variable);
+        }
+
+        for (String os : new String[]{"unix", "windows", "unix", "windows", "unix"})
+        {
+            variables.set("os", os);
+            variables.set("B", os + "-b");
+            variables.refresh();
+        }
+        for (int i = 0; i < 8; ++i)
+        {
+            assertEquals("unix-b/" + i, variables.get("var" + i));
+        }
+        assertEquals(Collections.singleton(Thread.currentThread()), conditionThreads);
+        valueThreads.remove(Thread.currentThread());
+        assertFalse(valueThreads.isEmpty());
+    }
+
+    /**
+     * Verifies that a cached command output variable whose command times out is evaluated again on the next
+     * refresh, rather than caching the output returned on timeout.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testExecValueTimeout() throws Exception
+    {
+        if (!OsVersion.IS_UNIX)
+        {
+            return;
+        }
+        for (ExecValue.CachePolicy policy : new ExecValue.CachePolicy[]{ExecValue.CachePolicy.ONCE,
+                ExecValue.CachePolicy.DEPENDENCIES})
+        {
+            DefaultVariables defaultVariables = new DefaultVariables();
+            RefreshStatistics statistics = defaultVariables.getRefreshStatistics();
+            ExecValue value = new ExecValue(new String[]{"-c", "sleep 1; echo done"}, null, true, false);
+            value.setCachePolicy(policy, 0);
+            value.setTimeout(100);
+            defaultVariables.add(createDynamic("exec", value));
+
+            defaultVariables.refresh();
+            assertNull(defaultVariables.get("exec"));
+            assertEquals(1, statistics.getEvaluated());
+
+            // the command completes in the background. Its output must be picked up by the next refresh
+            Thread.sleep(2000);
+            defaultVariables.refresh();
+            assertEquals("done", defaultVariables.get("exec").trim());
+            assertEquals(2, statistics.getEvaluated());
+
+            // the output is now cached
+            defaultVariables.refresh();
+            assertEquals("done", defaultVariables.get("exec").trim());
+            assertEquals(2, statistics.getEvaluated());
+        }
+    }
+
     /**
      * Creates a dynamic variable.
      *
@@ -264,5 +451,55 @@ public class DefaultVariablesTest
         result.setConditionid(conditionId);
         return result;
     }
-}
 
+    /**
+     * Creates a dynamic variable.
+     *
+     * @param name  the variable name
+     * @param value the variable value
+     * @return a new variable
+     */
+    private DynamicVariable createDynamic(String name, Value value)
+    {
+        DynamicVariableImpl result = new DynamicVariableImpl();
+        result.setName(name);
+        result.setValue(value);
+        return result;
+    }
+
+    /**
+     * A value that is resolved on every refresh.
+     */
+    private static class UncachedValue extends ValueImpl
+    {
+
+        private final String value;
+
+        public UncachedValue(String value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public void validate() throws Exception
+        {
+        }
+
+        @Override
+        public String resolve()
+        {
+            return value;
+        }
+
+        @Override
+        public String resolve(VariableSubstitutor... substitutors)
+        {
+            String result = value;
+            for (VariableSubstitutor substitutor : substitutors)
+            {
+                result = substitutor.substitute(result);
+            }
+            return result;
+        }
+    }
+}
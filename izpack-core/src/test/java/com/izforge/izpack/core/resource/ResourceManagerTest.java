@@ -21,10 +21,25 @@
 
 package com.izforge.izpack.core.resource;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
 
 import org.junit.Test;
 
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
+import com.izforge.izpack.util.file.FileUtils;
+
 /**
  * Tests the {@link ResourceManager}.
  *
@@ -59,4 +74,46 @@ public class ResourceManagerTest
         }
     }
 
+    /**
+     * Verifies that resources are read from the startup snapshot, if present.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testStartupSnapshot() throws Exception
+    {
+        File dir = File.createTempFile("snapshot", "");
+        assertTrue(dir.delete());
+        File resourceDir = new File(dir, "resources");
+        assertTrue(resourceDir.mkdirs());
+
+        Properties properties = new Properties();
+        properties.setProperty("foo", "bar");
+        StartupSnapshot snapshot = new StartupSnapshot();
+        snapshot.putProperties("vars", properties);
+        snapshot.putObject("panelsOrder", new ArrayList<String>(Arrays.asList("a", "b")));
+        FileOutputStream out = new FileOutputStream(new File(resourceDir, StartupSnapshot.NAME));
+        snapshot.write(out);
+        out.close();
+
+        ResourceManager resources = new ResourceManager(new URLClassLoader(new URL[]{dir.toURI().toURL()}, null));
+        assertEquals(properties, resources.getObject("vars"));
+        assertEquals(Arrays.asList("a", "b"), resources.getObject("panelsOrder"));
+
+        // explicitly encoded resources are returned serialized by streams
+        ObjectInputStream in = new ObjectInputStream(resources.getInputStream("vars"));
+        assertEquals(properties, in.readObject());
+        in.close();
+        try
+        {
+            resources.getInputStream("info");
+            fail("Expected ResourceNotFoundException");
+        }
+        catch (ResourceNotFoundException expected)
+        {
+            // expected
+        }
+        FileUtils.deleteRecursively(dir);
+    }
+
 }
@@ -0,0 +1,296 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.GUIPrefs;
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.exception.ResourceException;
+
+
+/**
+ * Tests the {@link StartupSnapshot} class.
+ */
+public class StartupSnapshotTest
+{
+
+    /**
+     * Verifies that {@link Info} is written with an explicit encoding, and every field is read back.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInfo() throws Exception
+    {
+        Info info = new Info();
+        info.setAppName("app");
+        info.setAppVersion("1.0");
+        info.setInstallationSubPath("sub");
+        info.addAuthor(new Info.Author("name", "email"));
+        info.addAuthor(new Info.Author("other", ""));
+        info.setAppURL("http://izpack.org");
+        info.setJavaVersion("1.6");
+        info.setJdkRequired(true);
+        info.setInstallerBase("base");
+        info.setWebDirURL("http://izpack.org/web");
+        info.setUninstallerName("uninstall.jar");
+        info.setUninstallerPath("$INSTALL_PATH/uninstall");
+        info.setUninstallerCondition("uninstall.cond");
+        info.setSummaryLogFilePath("summary.htm");
+        info.setPackDecoderClassName("Decoder");
+        info.setUnpackerClassName("Unpacker");
+        info.setWriteInstallationInformation(false);
+        info.setPack200Compression(true);
+        info.setRequirePrivilegedExecution(true);
+        info.setRequirePrivilegedExecutionUninstaller(true);
+        info.setPrivilegedExecutionConditionID("privileged.cond");
+        info.setRebootAction(Info.REBOOT_ACTION_ASK);
+        info.setRebootActionConditionID("reboot.cond");
+        info.addTempDir(new Info.TempDir("TEMP", "pre", "suf"));
+
+        StartupSnapshot snapshot = new StartupSnapshot();
+        snapshot.putInfo("info", info);
+        snapshot = copy(snapshot);
+        assertEquals(StartupSnapshot.INFO, snapshot.getEncoding("info"));
+        Info read = (Info) snapshot.getObject("info");
+
+        // compare every field, so that fields added to Info must be added to the encoding
+        for (Field field : Info.class.getDeclaredFields())
+        {
+            if (Modifier.isStatic(field.getModifiers()))
+            {
+                continue;
+            }
+            field.setAccessible(true);
+            Object expected = field.get(info);
+            Object actual = field.get(read);
+            if ("authors".equals(field.getName()))
+            {
+                assertEquals(Arrays.asList("name <email>", "other <>"), toStrings((List<?>) actual));
+            }
+            else if ("tempdirs".equals(field.getName()))
+            {
+                Info.TempDir tempDir = ((Set<Info.TempDir>) actual).iterator().next();
+                assertEquals("TEMP", tempDir.getVariableName());
+                assertEquals("pre", tempDir.getPrefix());
+                assertEquals("suf", tempDir.getSuffix());
+            }
+            else
+            {
+                assertEquals(field.getName(), expected, actual);
+            }
+        }
+    }
+
+    /**
+     * Verifies that the defaults of {@link Info}, including {@code null} fields, are read back.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDefaultInfo() throws Exception
+    {
+        StartupSnapshot snapshot = new StartupSnapshot();
+        snapshot.putInfo("info", new Info());
+        Info read = (Info) copy(snapshot).getObject("info");
+        assertEquals("", read.getAppName());
+        assertNull(read.getAppURL());
+        assertNull(read.getTempDirs());
+        assertEquals("uninstaller.jar", read.getUninstallerName());
+        assertEquals(Info.REBOOT_ACTION_IGNORE, read.getRebootAction());
+    }
+
+    /**
+     * Verifies that {@link GUIPrefs} are written with an explicit encoding, and read back.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testGUIPrefs() throws Exception
+    {
+        GUIPrefs prefs = new GUIPrefs();
+        prefs.resizable = true;
+        prefs.width = 800;
+        prefs.height = 600;
+        prefs.lookAndFeelMapping.put("windows", "looks");
+        Map<String, String> params = new TreeMap<String, String>();
+        params.put("variant", "windows");
+        prefs.lookAndFeelParams.put("looks", params);
+        prefs.modifier.put("useButtonIcons", "no");
+
+        StartupSnapshot snapshot = new StartupSnapshot();
+        snapshot.putGUIPrefs("GUIPrefs", prefs);
+        snapshot = copy(snapshot);
+        assertEquals(StartupSnapshot.GUI_PREFS, snapshot.getEncoding("GUIPrefs"));
+        GUIPrefs read = (GUIPrefs) snapshot.getObject("GUIPrefs");
+        assertEquals(true, read.resizable);
+        assertEquals(800, read.width);
+        assertEquals(600, read.height);
+        assertEquals(prefs.lookAndFeelMapping, read.lookAndFeelMapping);
+        assertEquals(prefs.lookAndFeelParams, read.lookAndFeelParams);
+        assertEquals(prefs.modifier, read.modifier);
+    }
+
+    /**
+     * Verifies that properties and string lists are written with an explicit encoding, and read back.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPropertiesAndStrings() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty("foo", "bar");
+        properties.setProperty("unicode", "é中");
+        char[] large = new char[70000];
+        Arrays.fill(large, 'x');
+        properties.setProperty("large", new String(large));
+
+        StartupSnapshot snapshot = new StartupSnapshot();
+        snapshot.putProperties("vars", properties);
+        snapshot.putStrings("langpacks.info", Arrays.asList("eng", "fra"));
+        snapshot = copy(snapshot);
+        assertEquals(StartupSnapshot.PROPERTIES, snapshot.getEncoding("vars"));
+        assertEquals(StartupSnapshot.STRINGS, snapshot.getEncoding("langpacks.info"));
+        assertEquals(properties, snapshot.getObject("vars"));
+        assertEquals(Arrays.asList("eng", "fra"), snapshot.getObject("langpacks.info"));
+        assertEquals(Arrays.asList("vars", "langpacks.info"), new ArrayList<String>(snapshot.getNames()));
+
+        // explicitly encoded resources are returned serialized by streams
+        ObjectInputStream in = new ObjectInputStream(snapshot.getInputStream("vars"));
+        assertEquals(properties, in.readObject());
+        in.close();
+    }
+
+    /**
+     * Verifies that other objects, and {@code null} values passed to the explicit encodings, are Java serialized.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSerialized() throws Exception
+    {
+        StartupSnapshot snapshot = new StartupSnapshot();
+        snapshot.putObject("rules", Collections.singletonMap("a", "b"));
+        snapshot.putGUIPrefs("GUIPrefs", null);
+        snapshot = copy(snapshot);
+        assertEquals(StartupSnapshot.SERIALIZED, snapshot.getEncoding("rules"));
+        assertEquals(StartupSnapshot.SERIALIZED, snapshot.getEncoding("GUIPrefs"));
+        assertEquals(Collections.singletonMap("a", "b"), snapshot.getObject("rules"));
+        assertNull(snapshot.getObject("GUIPrefs"));
+        assertFalse(snapshot.contains("info"));
+    }
+
+    /**
+     * Verifies that invalid snapshots are rejected.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInvalid() throws Exception
+    {
+        checkInvalid(0, StartupSnapshot.VERSION, 0, "Invalid startup snapshot");
+        checkInvalid(StartupSnapshot.MAGIC, 1, 0, "Unsupported startup snapshot version: 1");
+        checkInvalid(StartupSnapshot.MAGIC, StartupSnapshot.VERSION, 99,
+                     "Invalid encoding for startup snapshot resource foo: 99");
+    }
+
+    /**
+     * Verifies that a snapshot is rejected.
+     *
+     * @param magic    the magic number
+     * @param version  the version
+     * @param encoding the encoding of the single resource
+     * @param message  the expected message
+     * @throws Exception for any error
+     */
+    private void checkInvalid(int magic, int version, int encoding, String message) throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeInt(1);
+        out.writeUTF("foo");
+        out.writeByte(encoding);
+        out.writeInt(0);
+        out.close();
+        try
+        {
+            StartupSnapshot.read(new ByteArrayInputStream(bytes.toByteArray()));
+            fail("Expected ResourceException");
+        }
+        catch (ResourceException expected)
+        {
+            assertEquals(message, expected.getMessage());
+        }
+    }
+
+    /**
+     * Writes and reads back a snapshot.
+     *
+     * @param snapshot the snapshot to copy
+     * @return the copy
+     * @throws Exception for any error
+     */
+    private StartupSnapshot copy(StartupSnapshot snapshot) throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.write(bytes);
+        return StartupSnapshot.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    /**
+     * Converts a list of objects to strings.
+     *
+     * @param list the list
+     * @return the string form of each object
+     */
+    private List<String> toStrings(List<?> list)
+    {
+        List<String> result = new ArrayList<String>();
+        for (Object object : list)
+        {
+            result.add(object.toString());
+        }
+        return result;
+    }
+}
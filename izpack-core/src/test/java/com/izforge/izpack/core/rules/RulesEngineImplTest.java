@@ -635,6 +635,50 @@ public class RulesEngineImplTest
         assertTrue(rules2.isConditionTrue("izpack.windowsinstall.nt5OrHigher"));
     }
 
+    /**
+     * Verifies that the results of conditions that depend only on variables are cached, and re-evaluated only
+     * when a variable they read changes.
+     */
+    @Test
+    public void testCachedConditions()
+    {
+        InstallData installData = new AutomatedInstallData(new DefaultVariables(), Platforms.LINUX);
+        RulesEngine rules = createRulesEngine(installData);
+        CountingVariableCondition condition = new CountingVariableCondition("var1", "${var2}");
+        condition.setId("cond1");
+        condition.setInstallData(installData);
+        rules.addCondition(condition);
+
+        installData.setVariable("var1", "a");
+        installData.setVariable("var2", "a");
+        assertTrue(rules.isConditionTrue("cond1"));
+        assertTrue(rules.isConditionTrue("cond1"));
+        assertEquals(1, condition.getEvaluations());
+
+        // changing an unrelated variable shouldn't trigger re-evaluation
+        installData.setVariable("var3", "b");
+        assertTrue(rules.isConditionTrue("cond1"));
+        assertEquals(1, condition.getEvaluations());
+
+        // setting a variable to the same value shouldn't trigger re-evaluation
+        installData.setVariable("var1", "a");
+        assertTrue(rules.isConditionTrue("cond1"));
+        assertEquals(1, condition.getEvaluations());
+
+        // changing a variable referenced in the value should
+        installData.setVariable("var2", "b");
+        assertFalse(rules.isConditionTrue("cond1"));
+        assertEquals(2, condition.getEvaluations());
+
+        installData.setVariable("var1", "b");
+        assertTrue(rules.isConditionTrue("cond1"));
+        assertEquals(3, condition.getEvaluations());
+
+        // conditions evaluated directly are never cached
+        assertTrue(condition.isTrue());
+        assertEquals(4, condition.getEvaluations());
+    }
+
     /**
      * Checks conditions read from the test <em>conditions.xml</em> file.
      *
@@ -733,6 +777,30 @@ public class RulesEngineImplTest
         return rules;
     }
 
-}
+    /**
+     * A {@link VariableCondition} that counts the number of times it is evaluated.
+     */
+    private static class CountingVariableCondition extends VariableCondition
+    {
 
+        private int evaluations;
 
+        public CountingVariableCondition(String name, String value)
+        {
+            super(name, value);
+        }
+
+        @Override
+        public boolean isTrue()
+        {
+            ++evaluations;
+            return super.isTrue();
+        }
+
+        public int getEvaluations()
+        {
+            return evaluations;
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.substitutor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.Value;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+import com.izforge.izpack.core.variable.PlainValue;
+import com.izforge.izpack.util.IoHelper;
+
+
+/**
+ * Tests the {@link VariableSubstitutorBase} class.
+ */
+public class VariableSubstitutorBaseTest
+{
+
+    /**
+     * The characters used to generate random input.
+     */
+    private static final String ALPHABET = "$%@{}[]ab_.-1 \t\n\r<&\"'\\ENV";
+
+    /**
+     * Verifies that the output of the substitutor is identical to that of the original character at a time
+     * implementation, for all substitution types, for both strings and streams.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testIdenticalOutput() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty("a", "A<\t\"'\\ \r\n");
+        properties.setProperty("a_1", " x&y ");
+        properties.setProperty("b.-", "%@$");
+        properties.setProperty("a[b]", "brackets");
+        VariableSubstitutorImpl substitutor = new VariableSubstitutorImpl(properties);
+        ReferenceSubstitutor reference = new ReferenceSubstitutor(properties);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; ++i)
+        {
+            int length = random.nextInt(40);
+            StringBuilder builder = new StringBuilder();
+            for (int j = 0; j < length; ++j)
+            {
+                if (random.nextInt(10) == 0)
+                {
+                    builder.append(random.nextBoolean() ? "${a}" : "@a_1@");
+                }
+                else
+                {
+                    builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                }
+            }
+            String input = builder.toString();
+            boolean braces = random.nextBoolean();
+            substitutor.setBracesRequired(braces);
+            reference.setBracesRequired(braces);
+            for (SubstitutionType type : SubstitutionType.values())
+            {
+                String expected = reference.substitute(input, type);
+                assertEquals(input, expected, substitutor.substitute(input, type));
+
+                // use a reader that returns few characters at a time, to exercise buffer refills
+                StringWriter writer = new StringWriter();
+                substitutor.substitute(new TrickleReader(input, random.nextInt(3) + 1), writer, type);
+                assertEquals(input, expected, writer.toString());
+            }
+        }
+    }
+
+    /**
+     * Verifies that variables are only resolved once per substitution.
+     */
+    @Test
+    public void testResolveOncePerSubstitution()
+    {
+        final int[] count = {0};
+        VariableSubstitutorBase substitutor = new VariableSubstitutorBase()
+        {
+            @Override
+            public Value getValue(String name)
+            {
+                ++count[0];
+                return new PlainValue(name.toUpperCase());
+            }
+        };
+        assertEquals("X X Y %x", substitutor.substitute("$x ${x} $y %x", SubstitutionType.TYPE_PLAIN));
+        assertEquals(2, count[0]);
+        assertEquals("X X Y %x", substitutor.substitute("$x ${x} $y %x", SubstitutionType.TYPE_PLAIN));
+        assertEquals(4, count[0]);
+    }
+
+    /**
+     * A reader that returns at most the specified number of characters per read.
+     */
+    private static class TrickleReader extends StringReader
+    {
+
+        private final int max;
+
+        public TrickleReader(String str, int max)
+        {
+            super(str);
+            this.max = max;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException
+        {
+            return super.read(buffer, offset, Math.min(length, max));
+        }
+    }
+
+    /**
+     * The original character at a time implementation of {@link VariableSubstitutorBase#substitute(Reader,
+     * Writer, SubstitutionType)}, used to verify that output is unchanged.
+     */
+    private static class ReferenceSubstitutor extends VariableSubstitutorImpl
+    {
+
+        public ReferenceSubstitutor(Properties properties)
+        {
+            super(properties);
+        }
+
+        @Override
+        public String substitute(String str, SubstitutionType type)
+        {
+            StringWriter writer = new StringWriter();
+            try
+            {
+                substitute(new StringReader(str), writer, type);
+            }
+            catch (Exception exception)
+            {
+                throw new IllegalStateException(exception);
+            }
+            return writer.toString();
+        }
+
+        @Override
+        public int substitute(Reader reader, Writer writer, SubstitutionType type) throws Exception
+        {
+            char variable_start = '$';
+            char variable_end = '\0';
+            switch (type)
+            {
+                case TYPE_SHELL:
+                    variable_start = '%';
+                    break;
+                case TYPE_AT:
+                    variable_start = '@';
+                    break;
+                case TYPE_ANT:
+                    variable_start = '@';
+                    variable_end = '@';
+                    break;
+                default:
+                    break;
+            }
+
+            int subs = 0;
+            int c = reader.read();
+            while (true)
+            {
+                while (c != -1 && c != variable_start)
+                {
+                    writer.write(c);
+                    c = reader.read();
+                }
+                if (c == -1)
+                {
+                    return subs;
+                }
+
+                boolean braces = false;
+                c = reader.read();
+                if (c == '{')
+                {
+                    braces = true;
+                    c = reader.read();
+                }
+                else if (bracesRequired)
+                {
+                    writer.write(variable_start);
+                    continue;
+                }
+                else if (c == -1)
+                {
+                    writer.write(variable_start);
+                    return subs;
+                }
+
+                StringBuffer nameBuffer = new StringBuffer();
+                while (c != -1 && (braces && c != '}') || (c >= 'a' && c <= 'z')
+                        || (c >= 'A' && c <= 'Z') || (braces && ((c == '[') || (c == ']')))
+                        || (((c >= '0' && c <= '9') || c == '_' || c == '.' || c == '-') && nameBuffer.length() > 0))
+                {
+                    nameBuffer.append((char) c);
+                    c = reader.read();
+                }
+                String name = nameBuffer.toString();
+
+                String varvalue = null;
+                if (((!braces || c == '}') &&
+                        (!braces || variable_end == '\0' || variable_end == c)
+                ) && name.length() > 0)
+                {
+                    if (braces && name.startsWith("ENV[")
+                            && (name.lastIndexOf(']') == name.length() - 1))
+                    {
+                        varvalue = IoHelper.getenv(name.substring(4, name.length() - 1));
+                        if (varvalue == null)
+                        {
+                            varvalue = "";
+                        }
+                    }
+                    else
+                    {
+                        Value val = getValue(name);
+                        if (val != null)
+                        {
+                            varvalue = val.resolve();
+                        }
+                    }
+                    subs++;
+                }
+
+                if (varvalue != null)
+                {
+                    writer.write(escapeSpecialChars(varvalue, type));
+                    if (braces || variable_end != '\0')
+                    {
+                        c = reader.read();
+                    }
+                }
+                else
+                {
+                    writer.write(variable_start);
+                    if (braces)
+                    {
+                        writer.write('{');
+                    }
+                    writer.write(name);
+                }
+            }
+        }
+    }
+}
@@ -122,6 +122,26 @@ public class ConfigFileValueTest
         }
     }
 
+    @Test
+    public void testCachedConfigFileValue() throws Exception
+    {
+        ConfigFileCache.clear();
+        PlainConfigFileValue value = new PlainConfigFileValue(properties.getPath(), ConfigFileValue.CONFIGFILE_TYPE_OPTIONS, null, "test.path", false);
+        PlainConfigFileValue value2 = new PlainConfigFileValue(properties.getPath(), ConfigFileValue.CONFIGFILE_TYPE_OPTIONS, null, "test.path2", false);
+        Assert.assertEquals("C:\\mypath\\myfile", value.resolve());
+        Assert.assertEquals("C:\\\\mypath\\\\myfile", value2.resolve());
+        Assert.assertEquals(1, ConfigFileCache.size());
+
+        // the file has changed, so must be re-read
+        long lastModified = properties.lastModified();
+        BufferedWriter out = new BufferedWriter(new FileWriter(properties));
+        out.write("test.path = C:\\otherpath\\myfile\n");
+        out.close();
+        properties.setLastModified(lastModified + 2000);
+        Assert.assertEquals("C:\\otherpath\\myfile", value.resolve());
+        Assert.assertEquals(1, ConfigFileCache.size());
+    }
+
     @After
     public void cleanUp() {
        Assert.assertTrue(properties.exists());
@@ -0,0 +1,153 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.variable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.substitutor.VariableSubstitutor;
+import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+import com.izforge.izpack.util.OsVersion;
+
+
+/**
+ * Tests the {@link ExecValue} class.
+ */
+public class ExecValueTest
+{
+
+    /**
+     * Verifies that the {@link ExecValue.CachePolicy#ONCE} policy only executes the command once.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCacheOnce() throws Exception
+    {
+        if (!OsVersion.IS_UNIX)
+        {
+            return;
+        }
+        File counter = File.createTempFile("execvalue", ".txt");
+        counter.deleteOnExit();
+        ExecValue value = createCounter(counter, "");
+        value.setCachePolicy(ExecValue.CachePolicy.ONCE, 0);
+        VariableSubstitutor substitutor = new VariableSubstitutorImpl(new Properties());
+
+        assertEquals("1", value.resolve(substitutor).trim());
+        assertEquals("1", value.resolve(substitutor).trim());
+        assertTrue(value.isCacheable());
+    }
+
+    /**
+     * Verifies that the {@link ExecValue.CachePolicy#DEPENDENCIES} policy executes the command again when a
+     * variable in the command line changes.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCacheDependencies() throws Exception
+    {
+        if (!OsVersion.IS_UNIX)
+        {
+            return;
+        }
+        File counter = File.createTempFile("execvalue", ".txt");
+        counter.deleteOnExit();
+        ExecValue value = createCounter(counter, " ${suffix}");
+        value.setCachePolicy(ExecValue.CachePolicy.DEPENDENCIES, 0);
+        Properties properties = new Properties();
+        properties.setProperty("suffix", "a");
+        VariableSubstitutor substitutor = new VariableSubstitutorImpl(properties);
+
+        assertEquals("1 a", value.resolve(substitutor).trim());
+        assertEquals("1 a", value.resolve(substitutor).trim());
+
+        properties.setProperty("suffix", "b");
+        assertEquals("2 b", value.resolve(substitutor).trim());
+    }
+
+    /**
+     * Verifies that without a cache policy, the command is executed each time.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testNoCache() throws Exception
+    {
+        if (!OsVersion.IS_UNIX)
+        {
+            return;
+        }
+        File counter = File.createTempFile("execvalue", ".txt");
+        counter.deleteOnExit();
+        ExecValue value = createCounter(counter, "");
+        VariableSubstitutor substitutor = new VariableSubstitutorImpl(new Properties());
+
+        assertEquals("1", value.resolve(substitutor).trim());
+        assertEquals("2", value.resolve(substitutor).trim());
+    }
+
+    /**
+     * Verifies that resolution doesn't wait for a command that exceeds the timeout.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testTimeout() throws Exception
+    {
+        if (!OsVersion.IS_UNIX)
+        {
+            return;
+        }
+        ExecValue value = new ExecValue(new String[]{"-c", "sleep 2; echo done"}, null, true, false);
+        value.setCachePolicy(ExecValue.CachePolicy.DEPENDENCIES, 0);
+        value.setTimeout(100);
+        VariableSubstitutor substitutor = new VariableSubstitutorImpl(new Properties());
+
+        long start = System.currentTimeMillis();
+        assertNull(value.resolve(substitutor));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        // the command continues in the background, and its output is used once available
+        Thread.sleep(3000);
+        assertEquals("done", value.resolve(substitutor).trim());
+    }
+
+    /**
+     * Creates a value that counts the number of times it has been executed.
+     *
+     * @param counter the file to record executions in
+     * @param suffix  the suffix to append to the output
+     * @return a new value
+     */
+    private ExecValue createCounter(File counter, String suffix)
+    {
+        String script = "echo x >> " + counter.getPath() + "; echo `cat " + counter.getPath()
+                + " | wc -l`" + suffix;
+        return new ExecValue(new String[]{"-c", script}, null, true, false);
+    }
+}
@@ -19,15 +19,694 @@
 
 package com.izforge.izpack.gui;
 
-import javax.swing.*;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.ImageIcon;
 
 /**
  * The icons database class.
+ * <p/>
+ * As well as icons {@link #put added} directly, icons may be {@link #add(String, URL) registered} by URL. These are
+ * only decoded when first requested via {@link #get}, or in the background via {@link #preload()}. Decoded icons are
+ * held in a cache bounded by {@link #MAX_CACHED}, in least recently used order; evicted icons are decoded again on
+ * their next request.
+ * <p/>
+ * Registered icons are included by {@link #containsKey}, {@link #size()}, {@link #isEmpty()}, {@link #remove} and
+ * {@link #clear()} without being decoded. The methods that return icons in bulk or in key order, such as
+ * {@link #keySet()}, {@link #values()}, {@link #entrySet()} and {@link #firstKey()}, first decode every registered
+ * icon and add it to the database, so they see the same icons as before registration was supported.
  *
  * @author Julien Ponge October 27, 2002
  */
 public class IconsDatabase extends TreeMap<String, ImageIcon>
 {
     private static final long serialVersionUID = 3257567287145083446L;
+
+    /**
+     * The default maximum number of registered icons to retain once decoded.
+     */
+    public static final int MAX_CACHED = 64;
+
+    /**
+     * The registered icon URLs, keyed on icon identifier.
+     */
+    private Map<String, URL> sources = new HashMap<String, URL>();
+
+    /**
+     * The decoded registered icons, in least recently used order.
+     */
+    private Map<String, ImageIcon> cache;
+
+    /**
+     * The maximum number of registered icons to retain once decoded.
+     */
+    private final int maxCached;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(IconsDatabase.class.getName());
+
+    /**
+     * Constructs an {@code IconsDatabase}.
+     */
+    public IconsDatabase()
+    {
+        this(MAX_CACHED);
+    }
+
+    /**
+     * Constructs an {@code IconsDatabase}.
+     *
+     * @param maxCached the maximum number of registered icons to retain once decoded
+     */
+    public IconsDatabase(int maxCached)
+    {
+        this.maxCached = maxCached;
+        cache = createCache();
+    }
+
+    /**
+     * Registers an icon, to be decoded on first use.
+     * <p/>
+     * This replaces any existing icon with the same identifier.
+     *
+     * @param id  the icon identifier
+     * @param url the icon URL
+     */
+    public void add(String id, URL url)
+    {
+        super.remove(id);
+        synchronized (sources)
+        {
+            sources.put(id, url);
+            cache.remove(id);
+        }
+    }
+
+    /**
+     * Returns an icon, decoding it if it is registered and not cached.
+     *
+     * @param id the icon identifier
+     * @return the icon, or {@code null} if none is found
+     */
+    @Override
+    public ImageIcon get(Object id)
+    {
+        ImageIcon result = super.get(id);
+        if (result == null && id instanceof String)
+        {
+            result = load((String) id);
+        }
+        return result;
+    }
+
+    /**
+     * Determines if an icon exists.
+     *
+     * @param id the icon identifier
+     * @return {@code true} if the icon has been added or registered
+     */
+    @Override
+    public boolean containsKey(Object id)
+    {
+        if (super.containsKey(id))
+        {
+            return true;
+        }
+        synchronized (sources)
+        {
+            return sources.containsKey(id);
+        }
+    }
+
+    /**
+     * Adds an icon.
+     * <p/>
+     * This replaces any registered icon with the same identifier.
+     *
+     * @param id   the icon identifier
+     * @param icon the icon
+     * @return the previous icon added with the identifier, or {@code null} if there was none
+     */
+    @Override
+    public ImageIcon put(String id, ImageIcon icon)
+    {
+        synchronized (sources)
+        {
+            sources.remove(id);
+            cache.remove(id);
+        }
+        return super.put(id, icon);
+    }
+
+    /**
+     * Returns the number of icons.
+     *
+     * @return the number of icons added or registered
+     */
+    @Override
+    public int size()
+    {
+        synchronized (sources)
+        {
+            return super.size() + sources.size();
+        }
+    }
+
+    /**
+     * Determines if there are no icons.
+     *
+     * @return {@code true} if no icons have been added or registered
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Removes an icon.
+     *
+     * @param id the icon identifier
+     * @return the removed icon, or {@code null} if there was none
+     */
+    @Override
+    public ImageIcon remove(Object id)
+    {
+        ImageIcon result = super.remove(id);
+        if (result == null && id instanceof String)
+        {
+            result = load((String) id);
+        }
+        synchronized (sources)
+        {
+            sources.remove(id);
+            cache.remove(id);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all icons.
+     */
+    @Override
+    public void clear()
+    {
+        synchronized (sources)
+        {
+            sources.clear();
+            cache.clear();
+        }
+        super.clear();
+    }
+
+    /**
+     * Returns the icon identifiers, decoding any registered icons.
+     *
+     * @return the icon identifiers
+     */
+    @Override
+    public Set<String> keySet()
+    {
+        decodeAll();
+        return super.keySet();
+    }
+
+    /**
+     * Returns the icon identifiers, decoding any registered icons.
+     *
+     * @return the icon identifiers
+     */
+    @Override
+    public NavigableSet<String> navigableKeySet()
+    {
+        decodeAll();
+        return super.navigableKeySet();
+    }
+
+    /**
+     * Returns the icon identifiers in reverse order, decoding any registered icons.
+     *
+     * @return the icon identifiers
+     */
+    @Override
+    public NavigableSet<String> descendingKeySet()
+    {
+        decodeAll();
+        return super.descendingKeySet();
+    }
+
+    /**
+     * Returns the icons, decoding any registered icons.
+     *
+     * @return the icons
+     */
+    @Override
+    public Collection<ImageIcon> values()
+    {
+        decodeAll();
+        return super.values();
+    }
+
+    /**
+     * Returns the icons keyed on identifier, decoding any registered icons.
+     *
+     * @return the icons
+     */
+    @Override
+    public Set<Map.Entry<String, ImageIcon>> entrySet()
+    {
+        decodeAll();
+        return super.entrySet();
+    }
+
+    /**
+     * Determines if an icon exists, decoding any registered icons.
+     *
+     * @param icon the icon
+     * @return {@code true} if the icon exists
+     */
+    @Override
+    public boolean containsValue(Object icon)
+    {
+        decodeAll();
+        return super.containsValue(icon);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public NavigableMap<String, ImageIcon> descendingMap()
+    {
+        decodeAll();
+        return super.descendingMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public String firstKey()
+    {
+        decodeAll();
+        return super.firstKey();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public String lastKey()
+    {
+        decodeAll();
+        return super.lastKey();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> firstEntry()
+    {
+        decodeAll();
+        return super.firstEntry();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> lastEntry()
+    {
+        decodeAll();
+        return super.lastEntry();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> pollFirstEntry()
+    {
+        decodeAll();
+        return super.pollFirstEntry();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> pollLastEntry()
+    {
+        decodeAll();
+        return super.pollLastEntry();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> lowerEntry(String id)
+    {
+        decodeAll();
+        return super.lowerEntry(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public String lowerKey(String id)
+    {
+        decodeAll();
+        return super.lowerKey(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> floorEntry(String id)
+    {
+        decodeAll();
+        return super.floorEntry(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public String floorKey(String id)
+    {
+        decodeAll();
+        return super.floorKey(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> ceilingEntry(String id)
+    {
+        decodeAll();
+        return super.ceilingEntry(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public String ceilingKey(String id)
+    {
+        decodeAll();
+        return super.ceilingKey(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public Map.Entry<String, ImageIcon> higherEntry(String id)
+    {
+        decodeAll();
+        return super.higherEntry(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public String higherKey(String id)
+    {
+        decodeAll();
+        return super.higherKey(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public NavigableMap<String, ImageIcon> subMap(String fromId, boolean fromInclusive, String toId,
+                                                  boolean toInclusive)
+    {
+        decodeAll();
+        return super.subMap(fromId, fromInclusive, toId, toInclusive);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public NavigableMap<String, ImageIcon> headMap(String toId, boolean inclusive)
+    {
+        decodeAll();
+        return super.headMap(toId, inclusive);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public NavigableMap<String, ImageIcon> tailMap(String fromId, boolean inclusive)
+    {
+        decodeAll();
+        return super.tailMap(fromId, inclusive);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public SortedMap<String, ImageIcon> subMap(String fromId, String toId)
+    {
+        decodeAll();
+        return super.subMap(fromId, toId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public SortedMap<String, ImageIcon> headMap(String toId)
+    {
+        decodeAll();
+        return super.headMap(toId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Any registered icons are decoded first.
+     */
+    @Override
+    public SortedMap<String, ImageIcon> tailMap(String fromId)
+    {
+        decodeAll();
+        return super.tailMap(fromId);
+    }
+
+    /**
+     * Returns a copy of the database.
+     * <p/>
+     * Any registered icons are decoded first, so the copy holds every icon.
+     *
+     * @return a copy of the database
+     */
+    @Override
+    public Object clone()
+    {
+        decodeAll();
+        IconsDatabase result = (IconsDatabase) super.clone();
+        result.sources = new HashMap<String, URL>();
+        result.cache = result.createCache();
+        return result;
+    }
+
+    /**
+     * Decodes registered icons in a background thread, so that they are available when first requested.
+     * <p/>
+     * No more than the cache limit are decoded.
+     */
+    public void preload()
+    {
+        final List<String> ids;
+        synchronized (sources)
+        {
+            ids = new ArrayList<String>(sources.keySet());
+        }
+        if (ids.isEmpty())
+        {
+            return;
+        }
+        Thread thread = new Thread("IconsDatabase-preload")
+        {
+            @Override
+            public void run()
+            {
+                for (String id : ids)
+                {
+                    synchronized (sources)
+                    {
+                        if (cache.containsKey(id) || !sources.containsKey(id) || cache.size() >= maxCached)
+                        {
+                            continue;
+                        }
+                    }
+                    try
+                    {
+                        load(id);
+                    }
+                    catch (Throwable exception)
+                    {
+                        logger.log(Level.FINE, "Failed to preload icon: " + id, exception);
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Decodes a registered icon, if it isn't cached.
+     *
+     * @param id the icon identifier
+     * @return the icon, or {@code null} if it isn't registered
+     */
+    private ImageIcon load(String id)
+    {
+        URL url;
+        synchronized (sources)
+        {
+            ImageIcon result = cache.get(id);
+            if (result != null)
+            {
+                return result;
+            }
+            url = sources.get(id);
+        }
+        if (url == null)
+        {
+            return null;
+        }
+        ImageIcon result = new ImageIcon(url);
+        synchronized (sources)
+        {
+            // only cache the icon if it hasn't been replaced while it was being decoded
+            if (sources.get(id) == url)
+            {
+                ImageIcon existing = cache.get(id);
+                if (existing != null)
+                {
+                    result = existing;
+                }
+                else
+                {
+                    cache.put(id, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes every registered icon, and adds it to the database.
+     * <p/>
+     * Registered icons whose resources cannot be decoded remain registered.
+     */
+    private void decodeAll()
+    {
+        List<String> ids;
+        synchronized (sources)
+        {
+            if (sources.isEmpty())
+            {
+                return;
+            }
+            ids = new ArrayList<String>(sources.keySet());
+        }
+        for (String id : ids)
+        {
+            ImageIcon icon = load(id);
+            if (icon != null)
+            {
+                put(id, icon);
+            }
+        }
+    }
+
+    /**
+     * Creates the cache of decoded registered icons.
+     *
+     * @return a new cache
+     */
+    private Map<String, ImageIcon> createCache()
+    {
+        return new LinkedHashMap<String, ImageIcon>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = -5925390264749315286L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> eldest)
+            {
+                return size() > maxCached;
+            }
+        };
+    }
 }
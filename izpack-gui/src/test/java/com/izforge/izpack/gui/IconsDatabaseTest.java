@@ -0,0 +1,203 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link IconsDatabase} class.
+ */
+public class IconsDatabaseTest
+{
+
+    /**
+     * Temporary folder to write icons to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that registered icons are decoded on request, and the same icon is returned while it is cached.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testGet() throws Exception
+    {
+        IconsDatabase icons = new IconsDatabase();
+        icons.add("a", createIcon("a", 2, 3));
+
+        ImageIcon icon = icons.get("a");
+        assertEquals(2, icon.getIconWidth());
+        assertEquals(3, icon.getIconHeight());
+        assertSame(icon, icons.get("a"));
+        assertNull(icons.get("b"));
+    }
+
+    /**
+     * Verifies that the least recently used icon is evicted once the cache limit is exceeded, and is decoded
+     * again on its next request.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testEviction() throws Exception
+    {
+        IconsDatabase icons = new IconsDatabase(2);
+        icons.add("a", createIcon("a", 1, 1));
+        icons.add("b", createIcon("b", 1, 1));
+        icons.add("c", createIcon("c", 1, 1));
+
+        ImageIcon a = icons.get("a");
+        ImageIcon b = icons.get("b");
+        assertSame(a, icons.get("a"));      // a is now the most recently used
+        icons.get("c");                     // evicts b
+
+        assertSame(a, icons.get("a"));
+        ImageIcon reloaded = icons.get("b");
+        assertNotSame(b, reloaded);
+        assertEquals(1, reloaded.getIconWidth());
+
+        // evicted icons are still reported
+        assertTrue(icons.containsKey("b"));
+        assertEquals(3, icons.size());
+    }
+
+    /**
+     * Verifies that re-registering an icon discards the decoded icon, and that put() and add() replace each other.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testReload() throws Exception
+    {
+        IconsDatabase icons = new IconsDatabase();
+        icons.add("a", createIcon("a1", 1, 1));
+        ImageIcon first = icons.get("a");
+        assertEquals(1, first.getIconWidth());
+
+        icons.add("a", createIcon("a2", 4, 5));
+        ImageIcon second = icons.get("a");
+        assertNotSame(first, second);
+        assertEquals(4, second.getIconWidth());
+        assertEquals(5, second.getIconHeight());
+
+        ImageIcon added = new ImageIcon(new BufferedImage(6, 6, BufferedImage.TYPE_INT_ARGB));
+        icons.put("a", added);
+        assertSame(added, icons.get("a"));
+        assertEquals(1, icons.size());
+
+        icons.add("a", createIcon("a3", 7, 7));
+        assertEquals(7, icons.get("a").getIconWidth());
+        assertEquals(1, icons.size());
+    }
+
+    /**
+     * Verifies that the map methods include registered icons.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMapMethods() throws Exception
+    {
+        IconsDatabase icons = new IconsDatabase(1);
+        assertTrue(icons.isEmpty());
+        icons.add("c", createIcon("c", 1, 1));
+        icons.add("a", createIcon("a", 2, 2));
+        icons.put("b", new ImageIcon(new BufferedImage(3, 3, BufferedImage.TYPE_INT_ARGB)));
+
+        assertFalse(icons.isEmpty());
+        assertEquals(3, icons.size());
+        assertEquals("a", icons.firstKey());
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<String>(icons.keySet()));
+        assertEquals(3, icons.values().size());
+        assertEquals(3, icons.size());
+
+        // the icons are now held by the database, so aren't subject to the cache limit
+        assertSame(icons.get("a"), icons.get("a"));
+        assertSame(icons.get("c"), icons.get("c"));
+
+        IconsDatabase copy = (IconsDatabase) icons.clone();
+        assertEquals(icons.keySet(), copy.keySet());
+        copy.add("d", createIcon("d", 1, 1));
+        assertFalse(icons.containsKey("d"));
+    }
+
+    /**
+     * Verifies that registered icons can be removed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRemoveAndClear() throws Exception
+    {
+        IconsDatabase icons = new IconsDatabase();
+        icons.add("a", createIcon("a", 2, 2));
+        icons.add("b", createIcon("b", 1, 1));
+        icons.put("c", new ImageIcon(new BufferedImage(3, 3, BufferedImage.TYPE_INT_ARGB)));
+
+        assertEquals(2, icons.remove("a").getIconWidth());
+        assertFalse(icons.containsKey("a"));
+        assertNull(icons.get("a"));
+        assertNull(icons.remove("a"));
+        assertEquals(2, icons.size());
+
+        icons.clear();
+        assertTrue(icons.isEmpty());
+        assertFalse(icons.containsKey("b"));
+        assertNull(icons.get("b"));
+    }
+
+    /**
+     * Writes an icon.
+     *
+     * @param name   the icon name
+     * @param width  the icon width
+     * @param height the icon height
+     * @return the icon URL
+     * @throws Exception for any error
+     */
+    private URL createIcon(String name, int width, int height) throws Exception
+    {
+        File file = temporaryFolder.newFile(name + ".png");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", file);
+        return file.toURI().toURL();
+    }
+}
@@ -36,6 +36,7 @@ import com.izforge.izpack.installer.console.ConsoleInstaller;
 import com.izforge.izpack.installer.container.impl.ConsoleInstallerContainer;
 import com.izforge.izpack.installer.container.impl.InstallerContainer;
 import com.izforge.izpack.util.Debug;
+import com.izforge.izpack.util.PhaseTimer;
 import com.izforge.izpack.util.StringTool;
 
 /**
@@ -63,7 +64,15 @@ public class Installer
     {
         try
         {
-            initializeLogging();
+            PhaseTimer.Phase phase = PhaseTimer.start("logging");
+            try
+            {
+                initializeLogging();
+            }
+            finally
+            {
+                phase.end();
+            }
             Installer installer = new Installer();
             installer.start(args);
         }
@@ -230,8 +239,17 @@ public class Installer
      */
     private void launchAutomatedInstaller(String path, String mediaDir) throws Exception
     {
-        InstallerContainer container = new ConsoleInstallerContainer();
-        AutomatedInstaller automatedInstaller = container.getComponent(AutomatedInstaller.class);
+        AutomatedInstaller automatedInstaller;
+        PhaseTimer.Phase phase = PhaseTimer.start("container");
+        try
+        {
+            InstallerContainer container = new ConsoleInstallerContainer();
+            automatedInstaller = container.getComponent(AutomatedInstaller.class);
+        }
+        finally
+        {
+            phase.end();
+        }
         automatedInstaller.init(path, mediaDir);
         automatedInstaller.doInstall();
     }
@@ -246,12 +264,21 @@ public class Installer
      */
     private void launchConsoleInstaller(int consoleAction, String path, String langCode, String mediaDir)
     {
-        InstallerContainer container = new ConsoleInstallerContainer();
-        if (langCode != null)
+        ConsoleInstaller consoleInstaller;
+        PhaseTimer.Phase phase = PhaseTimer.start("container");
+        try
+        {
+            InstallerContainer container = new ConsoleInstallerContainer();
+            if (langCode != null)
+            {
+                container.setLocale(langCode);
+            }
+            consoleInstaller = container.getComponent(ConsoleInstaller.class);
+        }
+        finally
         {
-            container.setLocale(langCode);
+            phase.end();
         }
-        ConsoleInstaller consoleInstaller = container.getComponent(ConsoleInstaller.class);
         consoleInstaller.setMediaPath(mediaDir);
         consoleInstaller.run(consoleAction, path);
     }
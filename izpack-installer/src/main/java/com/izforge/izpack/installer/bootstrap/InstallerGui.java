@@ -30,6 +30,7 @@ import com.izforge.izpack.installer.container.impl.GUIInstallerContainer;
 import com.izforge.izpack.installer.container.impl.InstallerContainer;
 import com.izforge.izpack.installer.gui.InstallerController;
 import com.izforge.izpack.installer.language.LanguageDialog;
+import com.izforge.izpack.util.PhaseTimer;
 
 /**
  * Gui-dedicated installer bootstrap
@@ -45,16 +46,26 @@ public class InstallerGui
             {
                 try
                 {
-                    InstallerContainer applicationComponent = new GUIInstallerContainer();
-                    if (mediaPath != null)
+                    Container installerContainer;
+                    InstallerController controller;
+                    PhaseTimer.Phase phase = PhaseTimer.start("container");
+                    try
                     {
-                        InstallData installData = applicationComponent.getComponent(InstallData.class);
-                        installData.setMediaPath(mediaPath);
-                    }
+                        InstallerContainer applicationComponent = new GUIInstallerContainer();
+                        if (mediaPath != null)
+                        {
+                            InstallData installData = applicationComponent.getComponent(InstallData.class);
+                            installData.setMediaPath(mediaPath);
+                        }
 
-                    Container installerContainer = applicationComponent.getComponent(Container.class);
+                        installerContainer = applicationComponent.getComponent(Container.class);
 
-                    InstallerController controller = installerContainer.getComponent(InstallerController.class);
+                        controller = installerContainer.getComponent(InstallerController.class);
+                    }
+                    finally
+                    {
+                        phase.end();
+                    }
 
                     installerContainer.getComponent(LanguageDialog.class).initLangPack();
                     controller.buildInstallation().launchInstallation();
@@ -39,6 +39,7 @@ import com.izforge.izpack.installer.gui.InstallerFrame;
 import com.izforge.izpack.installer.requirement.RequirementsChecker;
 import com.izforge.izpack.util.Console;
 import com.izforge.izpack.util.Housekeeper;
+import com.izforge.izpack.util.PhaseTimer;
 import com.izforge.izpack.util.file.FileUtils;
 
 /**
@@ -164,6 +165,7 @@ public class ConsoleInstaller extends InstallerBase
                 {
                     action = createConsoleAction(type, path, console);
                     panels.setAction(action);
+                    PhaseTimer.mark("consoleReady");
                     while (panels.hasNext())
                     {
                         success = panels.next();
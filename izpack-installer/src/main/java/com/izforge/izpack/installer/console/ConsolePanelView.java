@@ -51,6 +51,16 @@ public class ConsolePanelView extends AbstractPanelView<ConsolePanel>
      */
     private final ConsolePrompt prompt;
 
+    /**
+     * The console implementation class. Resolved on first use.
+     */
+    private Class<ConsolePanel> viewClass;
+
+    /**
+     * Determines if the console implementation class has been resolved.
+     */
+    private boolean viewClassResolved;
+
 
     /**
      * Constructs a {@code ConsolePanelView}.
@@ -68,13 +78,20 @@ public class ConsolePanelView extends AbstractPanelView<ConsolePanel>
 
     /**
      * Returns the ConsolePanel class corresponding to the panel's class name
+     * <p/>
+     * The class is resolved once; the panel itself is only created when it is first displayed.
      *
      * @return the corresponding {@link ConsolePanel} implementation class, or {@code null} if none is found
      */
     public Class<ConsolePanel> getViewClass()
     {
-        Panel panel = getPanel();
-        return PanelHelper.getConsolePanel(panel.getClassName());
+        if (!viewClassResolved)
+        {
+            Panel panel = getPanel();
+            viewClass = PanelHelper.getConsolePanel(panel.getClassName());
+            viewClassResolved = true;
+        }
+        return viewClass;
     }
 
     /**
@@ -43,6 +43,7 @@ import com.izforge.izpack.merge.resolve.PathResolver;
 import com.izforge.izpack.util.DefaultTargetPlatformFactory;
 import com.izforge.izpack.util.Housekeeper;
 import com.izforge.izpack.util.Librarian;
+import com.izforge.izpack.util.PhaseTimer;
 import com.izforge.izpack.util.PlatformModelMatcher;
 import com.izforge.izpack.util.Platforms;
 import com.izforge.izpack.util.TargetFactory;
@@ -75,8 +76,24 @@ public abstract class InstallerContainer extends AbstractContainer
     @Override
     protected void fillContainer(MutablePicoContainer container)
     {
-        registerComponents(container);
-        resolveComponents(container);
+        PhaseTimer.Phase phase = PhaseTimer.start("container.register");
+        try
+        {
+            registerComponents(container);
+        }
+        finally
+        {
+            phase.end();
+        }
+        phase = PhaseTimer.start("container.resolve");
+        try
+        {
+            resolveComponents(container);
+        }
+        finally
+        {
+            phase.end();
+        }
     }
 
     /**
@@ -35,6 +35,7 @@ import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.util.Housekeeper;
 import com.izforge.izpack.util.IoHelper;
 import com.izforge.izpack.util.OsVersion;
+import com.izforge.izpack.util.PhaseTimer;
 import com.izforge.izpack.util.PlatformModelMatcher;
 import com.izforge.izpack.util.TemporaryDirectory;
 
@@ -74,97 +75,105 @@ public abstract class AbstractInstallDataProvider implements Provider
                                    PlatformModelMatcher matcher, Housekeeper housekeeper)
             throws IOException, ClassNotFoundException
     {
-        // We load the Info data
-        Info info = (Info) resources.getObject("info");
-
-        // We put the Info data as variables
-        installData.setVariable(ScriptParserConstant.APP_NAME, info.getAppName());
-        if (info.getAppURL() != null)
-        {
-            installData.setVariable(ScriptParserConstant.APP_URL, info.getAppURL());
-        }
-        installData.setVariable(ScriptParserConstant.APP_VER, info.getAppVersion());
-        if (info.getUninstallerCondition() != null)
+        PhaseTimer.Phase phase = PhaseTimer.start("installdata");
+        try
         {
-            installData.setVariable("UNINSTALLER_CONDITION", info.getUninstallerCondition());
-        }
+            // We load the Info data
+            Info info = (Info) resources.getObject("info");
 
-        installData.setInfo(info);
-        // Set the installation path in a default manner
-        String dir = getDir(resources);
-        String installPath = dir + info.getAppName();
-        if (info.getInstallationSubPath() != null)
-        { // A sub-path was defined, use it.
-            installPath = IoHelper.translatePath(dir + info.getInstallationSubPath(), installData.getVariables());
-        }
+            // We put the Info data as variables
+            installData.setVariable(ScriptParserConstant.APP_NAME, info.getAppName());
+            if (info.getAppURL() != null)
+            {
+                installData.setVariable(ScriptParserConstant.APP_URL, info.getAppURL());
+            }
+            installData.setVariable(ScriptParserConstant.APP_VER, info.getAppVersion());
+            if (info.getUninstallerCondition() != null)
+            {
+                installData.setVariable("UNINSTALLER_CONDITION", info.getUninstallerCondition());
+            }
 
-        installData.setDefaultInstallPath(installPath);
-        // Pre-set install path from a system property,
-        // for instance in unattended installations
-        installPath = System.getProperty(InstallData.INSTALL_PATH);
-        if (installPath != null)
-        {
-            installData.setInstallPath(installPath);
-        }
+            installData.setInfo(info);
+            // Set the installation path in a default manner
+            String dir = getDir(resources);
+            String installPath = dir + info.getAppName();
+            if (info.getInstallationSubPath() != null)
+            { // A sub-path was defined, use it.
+                installPath = IoHelper.translatePath(dir + info.getInstallationSubPath(), installData.getVariables());
+            }
 
-        // We read the panels order data
-        List<Panel> panelsOrder = (List<Panel>) resources.getObject("panelsOrder");
+            installData.setDefaultInstallPath(installPath);
+            // Pre-set install path from a system property,
+            // for instance in unattended installations
+            installPath = System.getProperty(InstallData.INSTALL_PATH);
+            if (installPath != null)
+            {
+                installData.setInstallPath(installPath);
+            }
 
-        // We read the packs data
-        InputStream in = resources.getInputStream("packs.info");
-        ObjectInputStream objIn = new ObjectInputStream(in);
-        int size = objIn.readInt();
-        List<Pack> availablePacks = new ArrayList<Pack>();
-        List<Pack> allPacks = new ArrayList<Pack>();
+            // We read the panels order data
+            List<Panel> panelsOrder = (List<Panel>) resources.getObject("panelsOrder");
 
-        for (int i = 0; i < size; i++)
-        {
-            Pack pack = (Pack) objIn.readObject();
-            allPacks.add(pack);
-            if (matcher.matchesCurrentPlatform(pack.getOsConstraints()))
+            // We read the packs data
+            InputStream in = resources.getInputStream("packs.info");
+            ObjectInputStream objIn = new ObjectInputStream(in);
+            int size = objIn.readInt();
+            List<Pack> availablePacks = new ArrayList<Pack>();
+            List<Pack> allPacks = new ArrayList<Pack>();
+
+            for (int i = 0; i < size; i++)
             {
-                availablePacks.add(pack);
+                Pack pack = (Pack) objIn.readObject();
+                allPacks.add(pack);
+                if (matcher.matchesCurrentPlatform(pack.getOsConstraints()))
+                {
+                    availablePacks.add(pack);
+                }
             }
-        }
-        objIn.close();
+            objIn.close();
 
-        setStandardVariables(installData, dir);
+            setStandardVariables(installData, dir);
 
-        // We load the user variables
-        Properties properties = (Properties) resources.getObject("vars");
-        if (properties != null)
-        {
-            Set<String> vars = properties.stringPropertyNames();
-            for (String varName : vars)
+            // We load the user variables
+            Properties properties = (Properties) resources.getObject("vars");
+            if (properties != null)
             {
-                installData.setVariable(varName, properties.getProperty(varName));
+                Set<String> vars = properties.stringPropertyNames();
+                for (String varName : vars)
+                {
+                    installData.setVariable(varName, properties.getProperty(varName));
+                }
             }
-        }
 
-        installData.setPanelsOrder(panelsOrder);
-        installData.setAvailablePacks(availablePacks);
-        installData.setAllPacks(allPacks);
+            installData.setPanelsOrder(panelsOrder);
+            installData.setAvailablePacks(availablePacks);
+            installData.setAllPacks(allPacks);
 
-        // get list of preselected packs
-        for (Pack availablePack : availablePacks)
-        {
-            if (availablePack.isPreselected())
+            // get list of preselected packs
+            for (Pack availablePack : availablePacks)
             {
-                installData.getSelectedPacks().add(availablePack);
+                if (availablePack.isPreselected())
+                {
+                    installData.getSelectedPacks().add(availablePack);
+                }
             }
-        }
 
-        // Create any temp directories
-        Set<TempDir> tempDirs = info.getTempDirs();
-        if (null != tempDirs && tempDirs.size() > 0)
-        {
-            for (TempDir tempDir : tempDirs)
+            // Create any temp directories
+            Set<TempDir> tempDirs = info.getTempDirs();
+            if (null != tempDirs && tempDirs.size() > 0)
             {
-                TemporaryDirectory directory = new TemporaryDirectory(tempDir, installData, housekeeper);
-                directory.create();
-                directory.cleanUp();
+                for (TempDir tempDir : tempDirs)
+                {
+                    TemporaryDirectory directory = new TemporaryDirectory(tempDir, installData, housekeeper);
+                    directory.create();
+                    directory.cleanUp();
+                }
             }
         }
+        finally
+        {
+            phase.end();
+        }
     }
 
     protected void setStandardVariables(AutomatedInstallData installData, String dir)
@@ -173,6 +182,7 @@ public abstract class AbstractInstallDataProvider implements Provider
         String hostname;
         String IPAddress;
 
+        PhaseTimer.Phase phase = PhaseTimer.start("hostname");
         try
         {
             InetAddress localHost = InetAddress.getLocalHost();
@@ -185,6 +195,10 @@ public abstract class AbstractInstallDataProvider implements Provider
             hostname = "";
             IPAddress = "";
         }
+        finally
+        {
+            phase.end();
+        }
 
         installData.setVariable("APPLICATIONS_DEFAULT_ROOT", dir);
         dir += File.separator;
@@ -5,6 +5,7 @@ import java.net.URL;
 import java.util.logging.Logger;
 
 import javax.swing.ImageIcon;
+import javax.swing.UIDefaults;
 import javax.swing.UIManager;
 
 import org.picocontainer.injectors.Provider;
@@ -33,6 +34,7 @@ public class IconsProvider implements Provider
         IconsDatabase icons = new IconsDatabase();
         loadIcons(icons);
         loadCustomIcons(icons, resources);
+        icons.preload();
         return icons;
     }
 
@@ -79,6 +81,9 @@ public class IconsProvider implements Provider
 
     /**
      * parse the xml and fill in the db
+     * <p/>
+     * Icons are registered by URL, and only decoded on first use or by {@link IconsDatabase#preload()}.
+     * Swing-specific icons are registered with the {@code UIManager} as lazy values.
      *
      * @param inXML
      * @param icons
@@ -86,7 +91,7 @@ public class IconsProvider implements Provider
     private void parseXML(InputStream inXML, IconsDatabase icons)
     {
         URL url;
-        ImageIcon img;// Initialises the parser
+        // Initialises the parser
         IXMLParser parser = new XMLParser();
 
         // We get the data
@@ -95,18 +100,73 @@ public class IconsProvider implements Provider
         // We load the icons
         for (IXMLElement icon : data.getChildrenNamed("icon"))
         {
-            url = InstallerFrame.class.getResource(icon.getAttribute("res"));
-            img = new ImageIcon(url);
-            logger.fine("Icon with id found: " + icon.getAttribute("id"));
-            icons.put(icon.getAttribute("id"), img);
+            url = getURL(icon);
+            if (url != null)
+            {
+                logger.fine("Icon with id found: " + icon.getAttribute("id"));
+                icons.add(icon.getAttribute("id"), url);
+            }
         }
 
         // We load the Swing-specific icons
         for (IXMLElement icon : data.getChildrenNamed("sysicon"))
         {
-            url = InstallerFrame.class.getResource(icon.getAttribute("res"));
-            img = new ImageIcon(url);
-            UIManager.put(icon.getAttribute("id"), img);
+            url = getURL(icon);
+            if (url != null)
+            {
+                UIManager.put(icon.getAttribute("id"), new LazyIcon(url));
+            }
+        }
+    }
+
+    /**
+     * Returns the URL of an icon.
+     *
+     * @param icon the icon element
+     * @return the icon URL, or {@code null} if the icon resource doesn't exist
+     */
+    private URL getURL(IXMLElement icon)
+    {
+        String res = icon.getAttribute("res");
+        URL url = InstallerFrame.class.getResource(res);
+        if (url == null)
+        {
+            logger.warning("Icon " + icon.getAttribute("id") + " not found: " + res);
+        }
+        return url;
+    }
+
+    /**
+     * An icon that is decoded when first requested from the {@code UIManager}.
+     */
+    private static class LazyIcon implements UIDefaults.LazyValue
+    {
+
+        /**
+         * The icon URL.
+         */
+        private final URL url;
+
+        /**
+         * Constructs a {@code LazyIcon}.
+         *
+         * @param url the icon URL
+         */
+        public LazyIcon(URL url)
+        {
+            this.url = url;
+        }
+
+        /**
+         * Decodes the icon.
+         *
+         * @param table the defaults table
+         * @return the icon
+         */
+        @Override
+        public Object createValue(UIDefaults table)
+        {
+            return new ImageIcon(url);
         }
     }
 
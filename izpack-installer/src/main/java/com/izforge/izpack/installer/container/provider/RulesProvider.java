@@ -39,6 +39,7 @@ import com.izforge.izpack.api.rules.Condition;
 import com.izforge.izpack.core.data.DefaultVariables;
 import com.izforge.izpack.core.rules.ConditionContainer;
 import com.izforge.izpack.core.rules.RulesEngineImpl;
+import com.izforge.izpack.util.PhaseTimer;
 
 /**
  * Injection provider for rules.
@@ -67,22 +68,31 @@ public class RulesProvider implements Provider
     public RulesEngine provide(AutomatedInstallData installData, DefaultVariables variables,
                                ConditionContainer conditionContainer, Resources resources)
     {
-        RulesEngine result = new RulesEngineImpl(installData, conditionContainer, installData.getPlatform());
-        Map<String, Condition> conditions = readConditions(resources);
-        if (conditions != null && !conditions.isEmpty())
-        {
-            result.readConditionMap(conditions);
-        }
-        else
+        PhaseTimer.Phase phase = PhaseTimer.start("rules");
+        RulesEngine result;
+        try
         {
-            IXMLElement xml = readConditions();
-            if (xml != null)
+            result = new RulesEngineImpl(installData, conditionContainer, installData.getPlatform());
+            Map<String, Condition> conditions = readConditions(resources);
+            if (conditions != null && !conditions.isEmpty())
             {
-                result.analyzeXml(xml);
+                result.readConditionMap(conditions);
             }
+            else
+            {
+                IXMLElement xml = readConditions();
+                if (xml != null)
+                {
+                    result.analyzeXml(xml);
+                }
+            }
+            installData.setRules(result);
+            variables.setRules(result);
+        }
+        finally
+        {
+            phase.end();
         }
-        installData.setRules(result);
-        variables.setRules(result);
         return result;
     }
 
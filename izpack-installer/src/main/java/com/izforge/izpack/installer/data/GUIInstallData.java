@@ -81,4 +81,14 @@ public class GUIInstallData extends InstallData implements Serializable
     {
         return panels;
     }
+
+    /**
+     * Sets the panels.
+     *
+     * @param panels the panels
+     */
+    public void setPanels(List<IzPanel> panels)
+    {
+        this.panels = panels;
+    }
 }
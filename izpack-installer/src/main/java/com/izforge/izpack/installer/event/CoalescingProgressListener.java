@@ -0,0 +1,261 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.event;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import com.izforge.izpack.api.event.ProgressListener;
+
+
+/**
+ * A {@link ProgressListener} that limits the rate at which sub-step progress is delivered to another listener.
+ * <p/>
+ * Unpacking many small files generates a {@link #progress(int, String)} notification per file, far more than a user
+ * interface can usefully display. This listener delivers at most one such notification per interval; notifications
+ * received in between are coalesced, so that only the latest sub-step and message is delivered, at the end of the
+ * interval. All other notifications are delivered immediately, after any pending progress, so that the order of
+ * events is preserved.
+ * <p/>
+ * Notifications are delivered to the underlying listener on the thread that invokes this listener, or on a timer
+ * thread for coalesced progress, but never concurrently.
+ */
+public class CoalescingProgressListener implements ProgressListener
+{
+
+    /**
+     * The interval for graphical progress, in milliseconds. This limits updates to ~60 per second.
+     */
+    public static final long FRAME_INTERVAL = 16;
+
+    /**
+     * The timer used to deliver coalesced progress, shared by all listeners.
+     */
+    private static Timer timer;
+
+    /**
+     * The listener to deliver notifications to.
+     */
+    private final ProgressListener listener;
+
+    /**
+     * The minimum interval between sub-step progress notifications, in nanoseconds.
+     */
+    private final long interval;
+
+    /**
+     * The time of the last sub-step progress notification, in nanoseconds.
+     */
+    private long published;
+
+    /**
+     * Determines if sub-step progress is pending delivery.
+     */
+    private boolean pending;
+
+    /**
+     * The pending sub-step.
+     */
+    private int pendingStep;
+
+    /**
+     * The pending message.
+     */
+    private String pendingMessage;
+
+    /**
+     * Determines if a delivery of pending progress has been scheduled.
+     */
+    private boolean scheduled;
+
+    /**
+     * Constructs a {@code CoalescingProgressListener}.
+     *
+     * @param listener the listener to deliver notifications to
+     * @param interval the minimum interval between sub-step progress notifications, in milliseconds
+     */
+    public CoalescingProgressListener(ProgressListener listener, long interval)
+    {
+        this.listener = listener;
+        this.interval = interval * 1000000L;
+        this.published = System.nanoTime() - this.interval;
+    }
+
+    /**
+     * Returns the listener that notifications are delivered to.
+     *
+     * @return the listener
+     */
+    public ProgressListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Invoked when an action starts.
+     *
+     * @param name  the name of the action
+     * @param steps the number of steps the action consists of
+     */
+    @Override
+    public synchronized void startAction(String name, int steps)
+    {
+        flush();
+        listener.startAction(name, steps);
+    }
+
+    /**
+     * Invoked when an action finishes.
+     */
+    @Override
+    public synchronized void stopAction()
+    {
+        flush();
+        listener.stopAction();
+    }
+
+    /**
+     * Invoked when an action step starts.
+     *
+     * @param stepName the name of the step
+     * @param step     the step number
+     * @param subSteps the number of sub-steps the step consists of
+     */
+    @Override
+    public synchronized void nextStep(String stepName, int step, int subSteps)
+    {
+        // progress for the previous step is out of date
+        pending = false;
+        listener.nextStep(stepName, step, subSteps);
+    }
+
+    /**
+     * Sets the number of sub-steps.
+     *
+     * @param subSteps the number of sub-steps
+     */
+    @Override
+    public synchronized void setSubStepNo(int subSteps)
+    {
+        flush();
+        listener.setSubStepNo(subSteps);
+    }
+
+    /**
+     * Invoked to notify progress.
+     * <p/>
+     * This is delivered immediately, as the underlying listener counts these notifications.
+     *
+     * @param message a message describing the step
+     */
+    @Override
+    public synchronized void progress(String message)
+    {
+        flush();
+        listener.progress(message);
+    }
+
+    /**
+     * Invoked to notify progress.
+     * <p/>
+     * This is delivered immediately if the interval has elapsed since the last delivery, otherwise it is coalesced
+     * with any subsequent notifications and delivered at the end of the interval.
+     *
+     * @param subStep the sub-step which will be performed next
+     * @param message an additional message describing the sub-step
+     */
+    @Override
+    public synchronized void progress(int subStep, String message)
+    {
+        long now = System.nanoTime();
+        if (!pending && now - published >= interval)
+        {
+            published = now;
+            listener.progress(subStep, message);
+        }
+        else
+        {
+            pending = true;
+            pendingStep = subStep;
+            pendingMessage = message;
+            if (!scheduled)
+            {
+                scheduled = true;
+                long delay = Math.max(0, published + interval - now) / 1000000L + 1;
+                getTimer().schedule(new TimerTask()
+                {
+                    @Override
+                    public void run()
+                    {
+                        synchronized (CoalescingProgressListener.this)
+                        {
+                            scheduled = false;
+                            flush();
+                        }
+                    }
+                }, delay);
+            }
+        }
+    }
+
+    /**
+     * Invoked when an action restarts.
+     *
+     * @param name           the name of the action
+     * @param overallMessage a message describing the overall progress
+     * @param tip            a tip describing the current progress
+     * @param steps          the number of steps the action consists of
+     */
+    @Override
+    public synchronized void restartAction(String name, String overallMessage, String tip, int steps)
+    {
+        flush();
+        listener.restartAction(name, overallMessage, tip, steps);
+    }
+
+    /**
+     * Delivers any pending sub-step progress.
+     */
+    private void flush()
+    {
+        if (pending)
+        {
+            pending = false;
+            published = System.nanoTime();
+            String message = pendingMessage;
+            pendingMessage = null;
+            listener.progress(pendingStep, message);
+        }
+    }
+
+    /**
+     * Returns the timer used to deliver coalesced progress, creating it if required.
+     *
+     * @return the timer
+     */
+    private static synchronized Timer getTimer()
+    {
+        if (timer == null)
+        {
+            timer = new Timer("IzPack - Progress", true);
+        }
+        return timer;
+    }
+}
@@ -30,6 +30,7 @@ import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.Graphics;
 import java.awt.GraphicsEnvironment;
 import java.awt.GridLayout;
 import java.awt.Point;
@@ -88,9 +89,11 @@ import com.izforge.izpack.installer.data.GUIInstallData;
 import com.izforge.izpack.installer.data.UninstallData;
 import com.izforge.izpack.installer.data.UninstallDataWriter;
 import com.izforge.izpack.installer.debugger.Debugger;
+import com.izforge.izpack.installer.event.CoalescingProgressListener;
 import com.izforge.izpack.installer.unpacker.IUnpacker;
 import com.izforge.izpack.util.Debug;
 import com.izforge.izpack.util.Housekeeper;
+import com.izforge.izpack.util.PhaseTimer;
 
 /**
  * The IzPack installer frame.
@@ -234,6 +237,11 @@ public class InstallerFrame extends JFrame implements InstallerView
      */
     private Locales locales;
 
+    /**
+     * Determines if the frame has been painted.
+     */
+    private boolean painted;
+
     /**
      * Constructs an <tt>InstallerFrame</tt>.
      *
@@ -305,112 +313,138 @@ public class InstallerFrame extends JFrame implements InstallerView
      */
     public void buildGUI()
     {
-        this.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
-        ImageIcon jframeIcon = getIcons().get("JFrameIcon");
-        setIconImage(jframeIcon.getImage());
-        // Prepares the glass pane to block the gui interaction when needed
-        JPanel glassPane = (JPanel) getGlassPane();
-        glassPane.addMouseListener(new MouseAdapter()
-        {
-        });
-        glassPane.addMouseMotionListener(new MouseMotionAdapter()
-        {
-        });
-        glassPane.addKeyListener(new KeyAdapter()
-        {
-        });
-        glassPane.addFocusListener(new FocusAdapter()
+        PhaseTimer.Phase phase = PhaseTimer.start("frame");
+        try
         {
-        });
+            this.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            ImageIcon jframeIcon = getIcons().get("JFrameIcon");
+            setIconImage(jframeIcon.getImage());
+            // Prepares the glass pane to block the gui interaction when needed
+            JPanel glassPane = (JPanel) getGlassPane();
+            glassPane.addMouseListener(new MouseAdapter()
+            {
+            });
+            glassPane.addMouseMotionListener(new MouseMotionAdapter()
+            {
+            });
+            glassPane.addKeyListener(new KeyAdapter()
+            {
+            });
+            glassPane.addFocusListener(new FocusAdapter()
+            {
+            });
 
-        // We set the layout & prepare the constraint object
-        contentPane = (JPanel) getContentPane();
-        contentPane.setLayout(new BorderLayout()); // layout);
+            // We set the layout & prepare the constraint object
+            contentPane = (JPanel) getContentPane();
+            contentPane.setLayout(new BorderLayout()); // layout);
 
-        // We add the panels container
-        panelsContainer = new JPanel();
-        panelsContainer.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
-        panelsContainer.setLayout(new GridLayout(1, 1));
-        contentPane.add(panelsContainer, BorderLayout.CENTER);
+            // We add the panels container
+            panelsContainer = new JPanel();
+            panelsContainer.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
+            panelsContainer.setLayout(new GridLayout(1, 1));
+            contentPane.add(panelsContainer, BorderLayout.CENTER);
 
-        logger.fine("Building GUI. The panel list to display is " + installdata.getPanels());
+            logger.fine("Building GUI. The panel list to display is " + installdata.getPanels());
 
-        Messages messages = locales.getMessages();
-        navigator.updateButtonText(messages);
-
-        JPanel navPanel = new JPanel();
-        navPanel.setLayout(new BoxLayout(navPanel, BoxLayout.X_AXIS));
-        TitledBorder border = BorderFactory.createTitledBorder(
-                new EtchedLineBorder(), messages.get("installer.madewith"),
-                TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("Dialog", Font.PLAIN, 10));
-        navPanel.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8), border));
-
-        // Add help Button to the navigation panel
-        this.helpButton = ButtonFactory.createButton(messages.get("installer.help"), getIcons()
-                .get("help"), installdata.buttonsHColor);
-        navPanel.add(this.helpButton);
-        this.helpButton.setName(BUTTON_HELP.id);
-        this.helpButton.addActionListener(new HelpHandler());
-
-        navPanel.add(Box.createHorizontalGlue());
-        navPanel.add(navigator.getPrevious());
-        navPanel.add(Box.createRigidArea(new Dimension(5, 0)));
-        navPanel.add(navigator.getNext());
-        navPanel.add(Box.createRigidArea(new Dimension(5, 0)));
-        navPanel.add(navigator.getQuit());
-
-        contentPane.add(navPanel, BorderLayout.SOUTH);
-
-        // always initialize debugger
-        debugger = new Debugger(installdata, getIcons(), rules);
-        // this needed to fully initialize the debugger.
-        JPanel debugpanel = debugger.getDebugPanel();
-
-        // create a debug panel if TRACE is enabled
-        if (Debug.isTRACE())
-        {
-            if (installdata.guiPrefs.modifier.containsKey("showDebugWindow")
-                    && Boolean.valueOf(installdata.guiPrefs.modifier.get("showDebugWindow")))
+            Messages messages = locales.getMessages();
+            navigator.updateButtonText(messages);
+
+            JPanel navPanel = new JPanel();
+            navPanel.setLayout(new BoxLayout(navPanel, BoxLayout.X_AXIS));
+            TitledBorder border = BorderFactory.createTitledBorder(
+                    new EtchedLineBorder(), messages.get("installer.madewith"),
+                    TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("Dialog", Font.PLAIN, 10));
+            navPanel.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8), border));
+
+            // Add help Button to the navigation panel
+            this.helpButton = ButtonFactory.createButton(messages.get("installer.help"), getIcons()
+                    .get("help"), installdata.buttonsHColor);
+            navPanel.add(this.helpButton);
+            this.helpButton.setName(BUTTON_HELP.id);
+            this.helpButton.addActionListener(new HelpHandler());
+
+            navPanel.add(Box.createHorizontalGlue());
+            navPanel.add(navigator.getPrevious());
+            navPanel.add(Box.createRigidArea(new Dimension(5, 0)));
+            navPanel.add(navigator.getNext());
+            navPanel.add(Box.createRigidArea(new Dimension(5, 0)));
+            navPanel.add(navigator.getQuit());
+
+            contentPane.add(navPanel, BorderLayout.SOUTH);
+
+            // always initialize debugger
+            debugger = new Debugger(installdata, getIcons(), rules);
+            // this needed to fully initialize the debugger.
+            JPanel debugpanel = debugger.getDebugPanel();
+
+            // create a debug panel if TRACE is enabled
+            if (Debug.isTRACE())
             {
-                JFrame debugframe = new JFrame("Debug information");
-                debugframe.setContentPane(debugpanel);
-                debugframe.setSize(new Dimension(400, 400));
-                debugframe.setVisible(true);
+                if (installdata.guiPrefs.modifier.containsKey("showDebugWindow")
+                        && Boolean.valueOf(installdata.guiPrefs.modifier.get("showDebugWindow")))
+                {
+                    JFrame debugframe = new JFrame("Debug information");
+                    debugframe.setContentPane(debugpanel);
+                    debugframe.setSize(new Dimension(400, 400));
+                    debugframe.setVisible(true);
+                }
+                else
+                {
+                    debugpanel.setPreferredSize(new Dimension(200, 400));
+                    contentPane.add(debugpanel, BorderLayout.EAST);
+                }
             }
-            else
+
+            ImageIcon icon = loadIcon(ICON_RESOURCE, 0 + "");
+            if (icon != null)
             {
-                debugpanel.setPreferredSize(new Dimension(200, 400));
-                contentPane.add(debugpanel, BorderLayout.EAST);
+                JPanel imgPanel = new JPanel();
+                imgPanel.setLayout(new BorderLayout());
+                imgPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 0));
+                iconLabel = new JLabel(icon);
+                iconLabel.setBorder(BorderFactory.createLoweredBevelBorder());
+                imgPanel.add(iconLabel, BorderLayout.NORTH);
+                contentPane.add(imgPanel, BorderLayout.WEST);
+                loadAndShowImageForPanelNum(iconLabel, 0);
             }
-        }
+            getRootPane().setDefaultButton(navigator.setDefaultButton());
+            callGUIListener(GUIListener.GUI_BUILDED, navPanel);
+            createHeading(navPanel);
 
-        ImageIcon icon = loadIcon(ICON_RESOURCE, 0 + "");
-        if (icon != null)
-        {
-            JPanel imgPanel = new JPanel();
-            imgPanel.setLayout(new BorderLayout());
-            imgPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 0));
-            iconLabel = new JLabel(icon);
-            iconLabel.setBorder(BorderFactory.createLoweredBevelBorder());
-            imgPanel.add(iconLabel, BorderLayout.NORTH);
-            contentPane.add(imgPanel, BorderLayout.WEST);
-            loadAndShowImageForPanelNum(iconLabel, 0);
-        }
-        getRootPane().setDefaultButton(navigator.setDefaultButton());
-        callGUIListener(GUIListener.GUI_BUILDED, navPanel);
-        createHeading(navPanel);
-
-        // need to initialise the panels after construction, as many of the panels require InstallerFrame
-        panels.initialise();
-        panels.setListener(new IzPanelsListener()
-        {
-            @Override
-            public void switchPanel(IzPanelView newPanel, IzPanelView oldPanel)
+            // need to initialise the panels after construction, as many of the panels require InstallerFrame
+            panels.initialise();
+            panels.setListener(new IzPanelsListener()
             {
-                InstallerFrame.this.switchPanel(newPanel, oldPanel);
-            }
+                @Override
+                public void switchPanel(IzPanelView newPanel, IzPanelView oldPanel)
+                {
+                    InstallerFrame.this.switchPanel(newPanel, oldPanel);
+                }
 
-        });
+            });
+        }
+        finally
+        {
+            phase.end();
+        }
+    }
+
+    /**
+     * Paints the frame.
+     * <p/>
+     * The first paint is recorded with the {@link PhaseTimer}.
+     *
+     * @param g the graphics context
+     */
+    @Override
+    public void paint(Graphics g)
+    {
+        super.paint(g);
+        if (!painted)
+        {
+            painted = true;
+            PhaseTimer.mark("firstPaint");
+        }
     }
 
     /**
@@ -749,12 +783,15 @@ public class InstallerFrame extends JFrame implements InstallerView
 
     /**
      * Launches the installation.
+     * <p/>
+     * Sub-step progress is coalesced, so that the listener is notified at most once per frame.
      *
      * @param listener The installation listener.
      */
     public void install(ProgressListener listener)
     {
-        unpacker.setProgressListener(listener);
+        unpacker.setProgressListener(
+                new CoalescingProgressListener(listener, CoalescingProgressListener.FRAME_INTERVAL));
         Thread unpackerthread = new Thread(unpacker, "IzPack - Unpacker thread");
         unpackerthread.start();
     }
@@ -21,7 +21,12 @@
 
 package com.izforge.izpack.installer.gui;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
 
 import com.izforge.izpack.api.container.Container;
 import com.izforge.izpack.installer.data.GUIInstallData;
@@ -30,6 +35,14 @@ import com.izforge.izpack.installer.panel.AbstractPanels;
 
 /**
  * Implementation of {@link AbstractPanels} for {@link IzPanel}.
+ * <p/>
+ * By default, {@link IzPanel}s are created when they are first displayed, rather than when the installer starts.
+ * This may be changed using the following <em>guiprefs</em> modifiers:
+ * <ul>
+ * <li><em>lazyPanels</em> - if {@code "no"}, all panels are created at startup</li>
+ * <li><em>preloadNextPanel</em> - if {@code "yes"}, the next panel is created once the current panel has been
+ * displayed, rather than when it is navigated to</li>
+ * </ul>
  *
  * @author Tim Anderson
  */
@@ -55,6 +68,16 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
      */
     private boolean isBack = false;
 
+    /**
+     * Determines if each panel has been registered with the container, indexed on panel index.
+     */
+    private final boolean[] registered;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(IzPanels.class.getName());
+
     /**
      * Constructs a {@code IzPanels}.
      *
@@ -67,18 +90,41 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
         super(panels, installData.getVariables());
         this.container = container;
         this.installData = installData;
+        registered = new boolean[panels.size()];
     }
 
     /**
      * Initialises the {@link IzPanel} instances.
+     * <p/>
+     * Unless the <em>lazyPanels</em> modifier is {@code "no"}, this doesn't create the panels, but makes them
+     * available via {@link GUIInstallData#getPanels()}, which creates them on access.
      */
     public void initialise()
     {
-        for (IzPanelView panel : getPanelViews())
+        // need to defer creation of the IzPanel until after the InstallerFrame is constructed
+        installData.setPanels(new PanelList());
+        if ("no".equalsIgnoreCase(getModifier("lazyPanels")))
+        {
+            for (IzPanelView panel : getPanelViews())
+            {
+                getView(panel);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link IzPanel} for a panel, creating it and registering it with the container if required.
+     *
+     * @param panel the panel
+     * @return the panel user interface
+     */
+    public IzPanel getView(IzPanelView panel)
+    {
+        IzPanel view = panel.getView();
+        int index = panel.getIndex();
+        if (!registered[index])
         {
-            // need to defer creation of the IzPanel until after the InstallerFrame is constructed
-            IzPanel view = panel.getView();
-            installData.getPanels().add(view);
+            registered[index] = true;
             String panelId = panel.getPanelId();
             if (panelId == null)
             {
@@ -86,6 +132,7 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
             }
             container.addComponent(panelId, view);
         }
+        return view;
     }
 
     /**
@@ -125,6 +172,7 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
             isBack = oldPanel != null && newPanel.getIndex() < oldPanel.getIndex();
             if (listener != null)
             {
+                getView(newPanel);
                 listener.switchPanel(newPanel, oldPanel);
                 result = true;
             }
@@ -133,7 +181,131 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
         {
             isBack = false;
         }
+        if (result && "yes".equalsIgnoreCase(getModifier("preloadNextPanel")))
+        {
+            preload();
+        }
         return result;
     }
 
+    /**
+     * Returns a <em>guiprefs</em> modifier.
+     *
+     * @param key the modifier key
+     * @return the modifier value. May be {@code null}
+     */
+    private String getModifier(String key)
+    {
+        return (installData.guiPrefs != null) ? installData.guiPrefs.modifier.get(key) : null;
+    }
+
+    /**
+     * Creates the panel following the current panel, once pending events have been processed.
+     * <p/>
+     * Panels are Swing components, so they are created on the event dispatch thread, while the user is
+     * interacting with the current panel. Any failure is deferred until the panel is navigated to.
+     */
+    private void preload()
+    {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                int next = getNext(getIndex(), false);
+                if (next != -1)
+                {
+                    IzPanelView nextPanel = getPanelViews().get(next);
+                    if (!nextPanel.hasView())
+                    {
+                        try
+                        {
+                            getView(nextPanel);
+                        }
+                        catch (Throwable exception)
+                        {
+                            logger.log(Level.FINE, "Failed to preload panel: " + nextPanel.getPanelId(), exception);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * The {@link IzPanel}s, in panel order. Panels are created on access, however {@link #indexOf} and
+     * {@link #contains} only consider panels that have already been created.
+     */
+    private class PanelList extends AbstractList<IzPanel>
+    {
+
+        /**
+         * Returns the panel at the specified index, creating it if required.
+         *
+         * @param index the panel index
+         * @return the panel
+         */
+        @Override
+        public IzPanel get(int index)
+        {
+            return getView(getPanelViews().get(index));
+        }
+
+        /**
+         * Returns the number of panels.
+         *
+         * @return the number of panels
+         */
+        @Override
+        public int size()
+        {
+            return getPanelViews().size();
+        }
+
+        /**
+         * Returns the index of a panel.
+         *
+         * @param object the panel
+         * @return the index of the panel, or {@code -1} if it hasn't been created
+         */
+        @Override
+        public int indexOf(Object object)
+        {
+            List<IzPanelView> panels = getPanelViews();
+            for (int i = 0; i < panels.size(); ++i)
+            {
+                IzPanelView panel = panels.get(i);
+                if (panel.hasView() && panel.getView() == object)
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the last index of a panel.
+         *
+         * @param object the panel
+         * @return the index of the panel, or {@code -1} if it hasn't been created
+         */
+        @Override
+        public int lastIndexOf(Object object)
+        {
+            return indexOf(object);
+        }
+
+        /**
+         * Determines if a panel is present.
+         *
+         * @param object the panel
+         * @return {@code true} if the panel has been created
+         */
+        @Override
+        public boolean contains(Object object)
+        {
+            return indexOf(object) != -1;
+        }
+    }
+
 }
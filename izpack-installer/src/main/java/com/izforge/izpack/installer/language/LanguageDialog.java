@@ -54,6 +54,7 @@ import com.izforge.izpack.api.GuiId;
 import com.izforge.izpack.api.exception.ResourceException;
 import com.izforge.izpack.api.resource.Locales;
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.gui.IconsDatabase;
 import com.izforge.izpack.installer.container.provider.AbstractInstallDataProvider;
 import com.izforge.izpack.installer.data.GUIInstallData;
 import com.izforge.izpack.installer.requirement.RequirementsChecker;
@@ -394,6 +395,9 @@ public class LanguageDialog extends JDialog
 
     /**
      * A list cell renderer that adds the flags on the display.
+     * <p/>
+     * Flags are decoded in the background when the renderer is created, and their grayed variants are only
+     * created when first displayed.
      *
      * @author Julien Ponge
      */
@@ -403,7 +407,7 @@ public class LanguageDialog extends JDialog
         /**
          * Icons cache.
          */
-        private TreeMap<String, ImageIcon> icons = new TreeMap<String, ImageIcon>();
+        private final IconsDatabase icons = new IconsDatabase();
 
         /**
          * Grayed icons cache.
@@ -416,6 +420,18 @@ public class LanguageDialog extends JDialog
         public FlagRenderer()
         {
             setOpaque(true);
+            for (String code : displayNames.keySet())
+            {
+                try
+                {
+                    icons.add(code, resources.getURL("flag." + code));
+                }
+                catch (ResourceException exception)
+                {
+                    logger.log(Level.WARNING, exception.getMessage(), exception);
+                }
+            }
+            icons.preload();
         }
 
         /**
@@ -435,29 +451,18 @@ public class LanguageDialog extends JDialog
             Component result = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
 
             String code = (String) value;
-            if (!icons.containsKey(code))
+            ImageIcon icon = icons.get(code);
+            if (icon != null && !isSelected && index != -1)
             {
-                try
+                ImageIcon gray = grayIcons.get(code);
+                if (gray == null)
                 {
-                    ImageIcon icon;
-                    icon = resources.getImageIcon("flag." + code);
-                    icons.put(code, icon);
-                    icon = new ImageIcon(GrayFilter.createDisabledImage(icon.getImage()));
-                    grayIcons.put(code, icon);
+                    gray = new ImageIcon(GrayFilter.createDisabledImage(icon.getImage()));
+                    grayIcons.put(code, gray);
                 }
-                catch (ResourceException exception)
-                {
-                    logger.log(Level.WARNING, exception.getMessage(), exception);
-                }
-            }
-            if (isSelected || index == -1)
-            {
-                setIcon(icons.get(code));
-            }
-            else
-            {
-                setIcon(grayIcons.get(code));
+                icon = gray;
             }
+            setIcon(icon);
             return result;
         }
     }
@@ -37,6 +37,7 @@ import com.izforge.izpack.api.handler.AbstractUIHandler;
 import com.izforge.izpack.api.installer.DataValidator;
 import com.izforge.izpack.api.resource.Messages;
 import com.izforge.izpack.data.PanelAction;
+import com.izforge.izpack.util.PhaseTimer;
 
 
 /**
@@ -170,6 +171,16 @@ public abstract class AbstractPanelView<T> implements PanelView<T>
         this.index = index;
     }
 
+    /**
+     * Determines if the panel user interface has been created.
+     *
+     * @return {@code true} if the view has been created, otherwise {@code false}
+     */
+    public boolean hasView()
+    {
+        return view != null;
+    }
+
     /**
      * Returns the panel user interface.
      * <br/>
@@ -185,19 +196,27 @@ public abstract class AbstractPanelView<T> implements PanelView<T>
     {
         if (view == null)
         {
-            executePreConstructionActions();
-            view = createView(panel, viewClass);
-            String dataValidator = panel.getValidator();
-            if (dataValidator != null)
+            PhaseTimer.Phase phase = PhaseTimer.start("panel " + panel.getClassName());
+            try
             {
-                validator = factory.create(dataValidator, DataValidator.class, panel, view);
-            }
+                executePreConstructionActions();
+                view = createView(panel, viewClass);
+                String dataValidator = panel.getValidator();
+                if (dataValidator != null)
+                {
+                    validator = factory.create(dataValidator, DataValidator.class, panel, view);
+                }
 
-            addActions(panel.getPreActivationActions(), preActivationActions, ActionStage.preactivate);
-            addActions(panel.getPreValidationActions(), preValidationActions, ActionStage.prevalidate);
-            addActions(panel.getPostValidationActions(), postValidationActions, ActionStage.postvalidate);
+                addActions(panel.getPreActivationActions(), preActivationActions, ActionStage.preactivate);
+                addActions(panel.getPreValidationActions(), preValidationActions, ActionStage.prevalidate);
+                addActions(panel.getPostValidationActions(), postValidationActions, ActionStage.postvalidate);
 
-            initialise(view, panel, installData);
+                initialise(view, panel, installData);
+            }
+            finally
+            {
+                phase.end();
+            }
         }
         return view;
     }
@@ -0,0 +1,240 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.api.exception.ResourceInterruptedException;
+import com.izforge.izpack.data.ParsableFile;
+
+
+/**
+ * Parses the {@link ParsableFile}s collected during unpacking, on a pool of threads.
+ * <p/>
+ * Parsables that refer to the same file are parsed sequentially, in the order they were collected. Parsables that
+ * refer to different files are parsed concurrently.
+ */
+public class ParsableFileParser
+{
+
+    /**
+     * The parser.
+     */
+    private final ScriptParser parser;
+
+    /**
+     * Determines if parsing should be cancelled.
+     */
+    private final Cancellable cancellable;
+
+    /**
+     * The maximum number of threads to parse with.
+     */
+    private final int threads;
+
+
+    /**
+     * Constructs a <tt>ParsableFileParser</tt> that uses a thread per available processor.
+     *
+     * @param parser      the parser
+     * @param cancellable determines if parsing should be cancelled
+     */
+    public ParsableFileParser(ScriptParser parser, Cancellable cancellable)
+    {
+        this(parser, cancellable, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a <tt>ParsableFileParser</tt>.
+     *
+     * @param parser      the parser
+     * @param cancellable determines if parsing should be cancelled
+     * @param threads     the maximum number of threads to parse with. If {@code <= 1}, files are parsed by the
+     *                    calling thread
+     */
+    public ParsableFileParser(ScriptParser parser, Cancellable cancellable, int threads)
+    {
+        this.parser = parser;
+        this.cancellable = cancellable;
+        this.threads = threads;
+    }
+
+    /**
+     * Parses files.
+     * <p/>
+     * If a file fails to parse, no further files are started, and the first failure is rethrown once the files
+     * being parsed have completed. The thread pool is always shut down before returning.
+     *
+     * @param files the files to parse
+     * @throws InstallerException           if parsing fails
+     * @throws ResourceInterruptedException if parsing is cancelled
+     */
+    public void parse(List<ParsableFile> files)
+    {
+        if (files.isEmpty())
+        {
+            return;
+        }
+        Map<String, List<ParsableFile>> paths = new LinkedHashMap<String, List<ParsableFile>>();
+        for (ParsableFile file : files)
+        {
+            List<ParsableFile> list = paths.get(file.getPath());
+            if (list == null)
+            {
+                list = new ArrayList<ParsableFile>();
+                paths.put(file.getPath(), list);
+            }
+            list.add(file);
+        }
+
+        int count = Math.min(threads, paths.size());
+        if (count <= 1)
+        {
+            for (ParsableFile file : files)
+            {
+                parse(file);
+                checkCancelled();
+            }
+            return;
+        }
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        ExecutorService executor = createExecutor(count);
+        try
+        {
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for (final List<ParsableFile> list : paths.values())
+            {
+                results.add(executor.submit(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (ParsableFile file : list)
+                        {
+                            if (failed.get() || cancellable.isCancelled())
+                            {
+                                break;
+                            }
+                            try
+                            {
+                                parse(file);
+                            }
+                            catch (RuntimeException exception)
+                            {
+                                failed.set(true);
+                                throw exception;
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results)
+            {
+                try
+                {
+                    result.get();
+                }
+                catch (ExecutionException exception)
+                {
+                    Throwable cause = exception.getCause();
+                    if (cause instanceof RuntimeException)
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new InstallerException("Failed to parse files", cause);
+                }
+                catch (InterruptedException exception)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new ResourceInterruptedException("Installation cancelled");
+                }
+                checkCancelled();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses a file.
+     *
+     * @param file the file to parse
+     * @throws InstallerException if parsing fails
+     */
+    protected void parse(ParsableFile file)
+    {
+        try
+        {
+            parser.parse(file);
+        }
+        catch (Exception exception)
+        {
+            throw new InstallerException("Failed to parse: " + file.getPath(), exception);
+        }
+    }
+
+    /**
+     * Creates the executor used to parse files.
+     *
+     * @param threads the number of threads
+     * @return a new executor
+     */
+    protected ExecutorService createExecutor(int threads)
+    {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "ScriptParser-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Throws an exception if parsing has been cancelled.
+     *
+     * @throws ResourceInterruptedException if parsing has been cancelled
+     */
+    private void checkCancelled()
+    {
+        if (cancellable.isCancelled())
+        {
+            throw new ResourceInterruptedException("Installation cancelled");
+        }
+    }
+}
@@ -21,8 +21,6 @@
 
 package com.izforge.izpack.installer.unpacker;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -92,11 +90,8 @@ public class ScriptParser
         }
 
         // Parses the file
-        // (Use buffering because substitutor processes byte at a time)
-        FileInputStream inFile = new FileInputStream(file);
-        BufferedInputStream in = new BufferedInputStream(inFile, 5120);
-        FileOutputStream outFile = new FileOutputStream(parsedFile);
-        BufferedOutputStream out = new BufferedOutputStream(outFile, 5120);
+        FileInputStream in = new FileInputStream(file);
+        FileOutputStream out = new FileOutputStream(parsedFile);
         replacer.substitute(in, out, parsable.getType(), parsable.getEncoding());
         in.close();
         out.close();
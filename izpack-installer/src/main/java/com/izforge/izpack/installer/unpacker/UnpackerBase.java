@@ -852,6 +852,9 @@ public abstract class UnpackerBase implements IUnpacker
 
     /**
      * Parses {@link ParsableFile} instances collected during unpacking.
+     * <p/>
+     * Files are parsed concurrently. Parsables that refer to the same file are parsed sequentially, in the order
+     * they were collected.
      *
      * @param files the files to parse
      * @throws InstallerException           if parsing fails
@@ -859,22 +862,8 @@ public abstract class UnpackerBase implements IUnpacker
      */
     private void parseFiles(List<ParsableFile> files)
     {
-        if (!files.isEmpty())
-        {
-            ScriptParser parser = new ScriptParser(getVariableSubstitutor(), matcher);
-            for (ParsableFile file : files)
-            {
-                try
-                {
-                    parser.parse(file);
-                }
-                catch (Exception exception)
-                {
-                    throw new InstallerException("Failed to parse: " + file.getPath(), exception);
-                }
-                checkInterrupt();
-            }
-        }
+        ScriptParser parser = new ScriptParser(getVariableSubstitutor(), matcher);
+        new ParsableFileParser(parser, cancellable).parse(files);
     }
 
     /**
@@ -974,7 +963,6 @@ public abstract class UnpackerBase implements IUnpacker
                     }
                 }
                 DirectoryScanner scanner = fileset.getDirectoryScanner();
-                scanner.scan();
                 String[] srcFiles = scanner.getIncludedFiles();
                 String[] srcDirs = scanner.getIncludedDirectories();
 
@@ -24,7 +24,9 @@ package com.izforge.izpack.util.os;
 import com.izforge.izpack.installer.data.UninstallData;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /*---------------------------------------------------------------------------*/
 
@@ -606,6 +608,18 @@ public class Shortcut
         //Debug.log("Call of unused execPostAction Method in " + this.getClass().getName() );
     }
 
+    /**
+     * Returns the number of shortcuts created for each user, for shortcuts created on behalf of other users.
+     * <br>
+     * This implementation returns an empty map.
+     *
+     * @return the shortcut counts, keyed on user name
+     */
+    public Map<String, Integer> getShortcutCounts()
+    {
+        return Collections.emptyMap();
+    }
+
     /**
      * Clean Up Method to do some cleanups after Shortcut Creation.
      * <br>
@@ -59,8 +59,11 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.logging.Level;
@@ -83,6 +86,11 @@ import com.izforge.izpack.util.unix.UnixUsers;
  */
 public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
 {
+    /**
+     * The variable which, when <tt>true</tt>, enables batched creation of desktop shortcuts for all users.
+     */
+    public static final String BATCH_MODE = "DesktopShortcutBatchMode";
+
     private static final Logger logger = Logger.getLogger(Unix_Shortcut.class.getName());
 
     // ~ Static fields/initializers
@@ -208,6 +216,21 @@ public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
 
     private String myXdgDesktopIconCmd;
 
+    /**
+     * The names of the desktop files staged in batched mode that are yet to be copied, keyed on user.
+     */
+    private final Map<UnixUser, List<String>> batchedFiles = new LinkedHashMap<UnixUser, List<String>>();
+
+    /**
+     * The directory that desktop files are staged in, in batched mode. May be <tt>null</tt>.
+     */
+    private File stagingDir;
+
+    /**
+     * The number of desktop shortcuts created in batched mode, keyed on user name.
+     */
+    private final Map<String, Integer> shortcutCounts = new LinkedHashMap<String, Integer>();
+
     /**
      * The resources.
      */
@@ -547,7 +570,11 @@ public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
             // If I'm root and this Desktop.ShortCut should be for all other users
             if (rootUser4All && create4All)
             {
-                if (cmd != null)
+                if (isBatchMode())
+                {
+                    writeDesktopFileToAllUsersDesktop(writtenDesktopFile);
+                }
+                else if (cmd != null)
                 {
                     installDesktopFileToAllUsersDesktop(writtenDesktopFile);
                 }
@@ -682,7 +709,10 @@ public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
         myXdgDesktopIconCmd = new String(shortCutLocation + FS
                                                  + "IzPackLocaleEnabledXdgDesktopIconScript.sh");
         myXdgDesktopIconScript.write(myXdgDesktopIconCmd);
-        FileExecutor.getExecOutput(new String[]{UnixHelper.getCustomCommand("chmod"), "+x", myXdgDesktopIconCmd}, true);
+        if (!new File(myXdgDesktopIconCmd).setExecutable(true))
+        {
+            FileExecutor.getExecOutput(new String[]{UnixHelper.getCustomCommand("chmod"), "+x", myXdgDesktopIconCmd}, true);
+        }
     }
 
 
@@ -723,6 +753,160 @@ public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
         logger.fine(rootScript.getContentAsString());
     }
 
+    /**
+     * Schedules an applications desktop file to be copied to the desktop of each user, in batched mode.
+     * <p/>
+     * The file is staged in a directory readable by all users. The copies are made by the users themselves, using
+     * a single <tt>su</tt> per user appended to the root script by {@link #execPostAction()}, so that nothing is
+     * written to the users' home directories with root privileges.
+     *
+     * @param writtenDesktopFile An applications desktop file, which should be installed.
+     */
+    private void writeDesktopFileToAllUsersDesktop(File writtenDesktopFile)
+    {
+        try
+        {
+            stageDesktopFile(writtenDesktopFile, getUsers());
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, "Could not stage " + writtenDesktopFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stages an applications desktop file, and schedules it to be copied to the desktop of each user.
+     *
+     * @param writtenDesktopFile An applications desktop file, which should be installed.
+     * @param users              the users to install the desktop file for
+     * @throws IOException if the desktop file cannot be staged
+     */
+    void stageDesktopFile(File writtenDesktopFile, List<UnixUser> users) throws IOException
+    {
+        File staged = new File(getStagingDir(), writtenDesktopFile.getName());
+        copyTo(writtenDesktopFile, staged);
+        staged.setReadable(true, false);
+
+        for (UnixUser user : users)
+        {
+            if (user.getHome().equals(myHome))
+            {
+                logger.info("Skipping self-copy: " + user.getHome() + " == " + myHome);
+                continue;
+            }
+            List<String> files = batchedFiles.get(user);
+            if (files == null)
+            {
+                files = new ArrayList<String>();
+                batchedFiles.put(user, files);
+            }
+            files.add(writtenDesktopFile.getName());
+
+            Integer count = shortcutCounts.get(user.getName());
+            shortcutCounts.put(user.getName(), (count != null) ? count + 1 : 1);
+        }
+    }
+
+    /**
+     * Returns the directory that desktop files are staged in, in batched mode, creating it if required.
+     * <p/>
+     * The directory is readable by all users, but only writable by this process.
+     *
+     * @return the staging directory
+     * @throws IOException if the directory cannot be created
+     */
+    File getStagingDir() throws IOException
+    {
+        if (stagingDir == null)
+        {
+            File dir = File.createTempFile(getClass().getName(), ".tmp");
+            // mkdir() fails if another process created the directory after the file was deleted
+            if (!dir.delete() || !dir.mkdir())
+            {
+                throw new IOException("Failed to create directory: " + dir);
+            }
+            dir.setReadable(true, false);
+            dir.setExecutable(true, false);
+            dir.setWritable(false, false);
+            dir.setWritable(true, true);
+            stagingDir = dir;
+        }
+        return stagingDir;
+    }
+
+    /**
+     * Appends the commands to copy the desktop files staged in batched mode to the users' desktops.
+     * <p/>
+     * Each user's files are copied by a single <tt>su</tt> running as that user, which creates the desktop folder
+     * if it is missing. The corresponding removal is appended to the uninstall script, and the staging directory is
+     * removed once all users have been processed.
+     *
+     * @param script    the script to append the copy commands to
+     * @param uninstall the script to append the remove commands to
+     */
+    void appendBatchedCopy(ShellScript script, ShellScript uninstall)
+    {
+        String mkdir = UnixHelper.getCustomCommand("mkdir");
+        String copy = UnixHelper.getCpCommand();
+        String rm = UnixHelper.getRmCommand();
+        for (Map.Entry<UnixUser, List<String>> entry : batchedFiles.entrySet())
+        {
+            UnixUser user = entry.getKey();
+            String desktop = quote(user.getXdgDesktopfolder());
+            StringBuilder install = new StringBuilder();
+            install.append(mkdir).append(" -p ").append(desktop).append(" && ").append(copy);
+            StringBuilder remove = new StringBuilder();
+            remove.append(rm).append(" -f");
+            for (String name : entry.getValue())
+            {
+                install.append(S).append(quote(new File(stagingDir, name).getPath()));
+                remove.append(S).append(quote(new File(user.getXdgDesktopfolder(), name).getPath()));
+            }
+            install.append(S).append(desktop);
+
+            script.appendln(new String[]{getSuCommand(), user.getName(), "-c", quote(install.toString())});
+            uninstall.appendln(new String[]{getSuCommand(), user.getName(), "-c", quote(remove.toString())});
+        }
+        if (stagingDir != null)
+        {
+            script.appendln(new String[]{rm, "-rf", quote(stagingDir.getPath())});
+            stagingDir = null;
+        }
+        batchedFiles.clear();
+    }
+
+    /**
+     * Quotes a string for the shell.
+     *
+     * @param value the string to quote
+     * @return the string, in single quotes
+     */
+    private static String quote(String value)
+    {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * Returns the number of desktop shortcuts created in batched mode, keyed on user name.
+     *
+     * @return the shortcut counts, in the order the users were first scheduled
+     */
+    @Override
+    public Map<String, Integer> getShortcutCounts()
+    {
+        return Collections.unmodifiableMap(shortcutCounts);
+    }
+
+    /**
+     * Determines if desktop shortcuts for all users are created in batched mode.
+     *
+     * @return <tt>true</tt> if the {@link #BATCH_MODE} variable is <tt>true</tt>
+     */
+    private boolean isBatchMode()
+    {
+        return Boolean.valueOf(installData.getVariable(BATCH_MODE));
+    }
+
     private String getSuCommand()
     {
         if (su == null)
@@ -885,10 +1069,21 @@ public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
             e.printStackTrace();
         }
 
-        rootScript.write(scriptFilename);
-        rootScript.exec();
-        rootScript.delete();
-        logger.fine(rootScript.toString());
+        if (!batchedFiles.isEmpty())
+        {
+            appendBatchedCopy(rootScript, uninstallScript);
+        }
+        if (!isEmpty(rootScript))
+        {
+            rootScript.write(scriptFilename);
+            rootScript.exec();
+            rootScript.delete();
+            logger.fine(rootScript.toString());
+        }
+        else
+        {
+            new File(scriptFilename).delete();
+        }
 
         // Quick an dirty copy & paste code - will be cleanup in one of 4.1.1++
         pseudoUnique = this.getClass().getName() + Long.toString(System.currentTimeMillis());
@@ -903,9 +1098,16 @@ public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
             e.printStackTrace();
         }
 
-        myInstallScript.write(scriptFilename);
-        myInstallScript.exec();
-        myInstallScript.delete();
+        if (!isEmpty(myInstallScript))
+        {
+            myInstallScript.write(scriptFilename);
+            myInstallScript.exec();
+            myInstallScript.delete();
+        }
+        else
+        {
+            new File(scriptFilename).delete();
+        }
 
 
         logger.fine(myInstallScript.toString());
@@ -913,6 +1115,31 @@ public class Unix_Shortcut extends Shortcut implements Unix_ShortcutConstants
         logger.fine(uninstallScript.toString());
 
         uninstaller.addUninstallScript(uninstallScript.getContentAsString());
+
+        if (!shortcutCounts.isEmpty())
+        {
+            int total = 0;
+            for (int count : shortcutCounts.values())
+            {
+                total += count;
+            }
+            logger.info("Created " + total + " desktop shortcut(s) for " + shortcutCounts.size() + " user(s)");
+            for (Map.Entry<String, Integer> entry : shortcutCounts.entrySet())
+            {
+                logger.info("  " + entry.getKey() + ": " + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Determines if a script has no commands.
+     *
+     * @param script the script
+     * @return <tt>true</tt> if the script only contains its header
+     */
+    private static boolean isEmpty(ShellScript script)
+    {
+        return script.getContentAsString().trim().equals(new ShellScript().getContentAsString().trim());
     }
 
     /**
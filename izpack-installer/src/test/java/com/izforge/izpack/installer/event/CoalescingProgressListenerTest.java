@@ -0,0 +1,138 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.event.ProgressListener;
+
+
+/**
+ * Tests the {@link CoalescingProgressListener} class.
+ */
+public class CoalescingProgressListenerTest
+{
+
+    /**
+     * Verifies that sub-step progress is coalesced, and that pending progress is delivered before other
+     * notifications.
+     */
+    @Test
+    public void testCoalesce()
+    {
+        RecordingListener recorder = new RecordingListener();
+        CoalescingProgressListener listener = new CoalescingProgressListener(recorder, 60000);
+
+        listener.startAction("Unpacking", 2);
+        listener.nextStep("pack1", 1, 1000);
+        for (int i = 0; i < 1000; ++i)
+        {
+            listener.progress(i, "file" + i);
+        }
+        listener.progress("message");
+        listener.nextStep("pack2", 2, 10);
+        listener.progress(0, "a");
+        listener.progress(1, "b");
+        listener.nextStep("pack3", 3, 10);
+        listener.stopAction();
+
+        assertEquals(Arrays.asList("startAction Unpacking 2", "nextStep pack1 1 1000", "progress 0 file0",
+                                   "progress 999 file999", "progress message", "nextStep pack2 2 10",
+                                   "nextStep pack3 3 10", "stopAction"), recorder.events);
+    }
+
+    /**
+     * Verifies that pending progress is delivered at the end of the interval, if no other notification arrives.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDeliverPending() throws Exception
+    {
+        RecordingListener recorder = new RecordingListener();
+        CoalescingProgressListener listener = new CoalescingProgressListener(recorder, 20);
+
+        listener.progress(0, "file0");
+        listener.progress(1, "file1");
+        listener.progress(2, "file2");
+        Thread.sleep(500);
+        synchronized (listener)
+        {
+            assertEquals(Arrays.asList("progress 0 file0", "progress 2 file2"), recorder.events);
+        }
+    }
+
+    /**
+     * Records notifications.
+     */
+    private static class RecordingListener implements ProgressListener
+    {
+
+        private final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void startAction(String name, int steps)
+        {
+            events.add("startAction " + name + " " + steps);
+        }
+
+        @Override
+        public void stopAction()
+        {
+            events.add("stopAction");
+        }
+
+        @Override
+        public void nextStep(String stepName, int step, int subSteps)
+        {
+            events.add("nextStep " + stepName + " " + step + " " + subSteps);
+        }
+
+        @Override
+        public void setSubStepNo(int subSteps)
+        {
+            events.add("setSubStepNo " + subSteps);
+        }
+
+        @Override
+        public void progress(String message)
+        {
+            events.add("progress " + message);
+        }
+
+        @Override
+        public void progress(int subStep, String message)
+        {
+            events.add("progress " + subStep + " " + message);
+        }
+
+        @Override
+        public void restartAction(String name, String overallMessage, String tip, int steps)
+        {
+            events.add("restartAction " + name);
+        }
+    }
+}
@@ -287,6 +287,32 @@ public class DefaultNavigatorTest
         assertEquals(2, panels.getIndex());
     }
 
+    /**
+     * Verifies that panels are only created when they are navigated to.
+     */
+    @Test
+    public void testLazyPanelCreation()
+    {
+        IzPanels panels = createPanels(3);
+        Navigator navigator = createNavigator(panels);
+        List<IzPanelView> views = panels.getPanelViews();
+        assertFalse(views.get(0).hasView());
+        assertFalse(views.get(1).hasView());
+        assertEquals(3, installData.getPanels().size());
+
+        assertTrue(navigator.next());
+        assertTrue(views.get(0).hasView());
+        assertFalse(views.get(1).hasView());
+        assertEquals(0, installData.getPanels().indexOf(views.get(0).getView()));
+        assertTrue(container.getComponent(views.get(0).getPanelId()) == views.get(0).getView());
+
+        // accessing the panels via the installation data creates them
+        IzPanel last = installData.getPanels().get(2);
+        assertTrue(views.get(2).hasView());
+        assertTrue(last == views.get(2).getView());
+        assertFalse(views.get(1).hasView());
+    }
+
     /**
      * Creates a new {@code Navigator} for the specified panels
      *
@@ -0,0 +1,260 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.api.exception.ResourceInterruptedException;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+import com.izforge.izpack.data.ParsableFile;
+
+
+/**
+ * Tests the {@link ParsableFileParser} class.
+ */
+public class ParsableFileParserTest
+{
+
+    /**
+     * Verifies that every file is parsed, and that parsables referring to the same file are parsed in the order
+     * they were collected.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testOrdering() throws Exception
+    {
+        List<ParsableFile> files = new ArrayList<ParsableFile>();
+        for (int i = 0; i < 3; ++i)
+        {
+            for (String path : new String[]{"a", "b", "c", "d", "e", "f"})
+            {
+                files.add(createParsable(path));
+            }
+        }
+        TestParser parser = new TestParser(4, null);
+        parser.parse(files);
+
+        assertEquals(files.size(), parser.parsed.size());
+        for (String path : new String[]{"a", "b", "c", "d", "e", "f"})
+        {
+            List<ParsableFile> expected = new ArrayList<ParsableFile>();
+            for (ParsableFile file : files)
+            {
+                if (file.getPath().equals(path))
+                {
+                    expected.add(file);
+                }
+            }
+            List<ParsableFile> actual = new ArrayList<ParsableFile>();
+            for (ParsableFile file : parser.parsed)
+            {
+                if (file.getPath().equals(path))
+                {
+                    actual.add(file);
+                }
+            }
+            assertEquals(expected, actual);
+        }
+        checkShutdown(parser.executor);
+    }
+
+    /**
+     * Verifies that files are parsed by the calling thread, in order, when only one thread may be used.
+     */
+    @Test
+    public void testSequential()
+    {
+        List<ParsableFile> files = Arrays.asList(createParsable("a"), createParsable("b"), createParsable("a"));
+        TestParser parser = new TestParser(1, null);
+        parser.parse(files);
+
+        assertEquals(files, parser.parsed);
+        assertEquals(Collections.singleton(Thread.currentThread()), parser.threads);
+        assertNull(parser.executor);
+    }
+
+    /**
+     * Verifies that the failure of a worker is propagated, that no further parsables for the same file are parsed,
+     * and that the pool is shut down.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testFailure() throws Exception
+    {
+        ParsableFile bad = createParsable("b");
+        ParsableFile next = createParsable("b");
+        List<ParsableFile> files = Arrays.asList(createParsable("a"), bad, next, createParsable("c"));
+        TestParser parser = new TestParser(4, bad);
+        try
+        {
+            parser.parse(files);
+            fail("Expected InstallerException");
+        }
+        catch (InstallerException expected)
+        {
+            assertEquals("Failed to parse: b", expected.getMessage());
+        }
+        assertFalse(parser.parsed.contains(next));
+        checkShutdown(parser.executor);
+    }
+
+    /**
+     * Verifies that parsing stops when cancelled, and that the pool is shut down.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCancel() throws Exception
+    {
+        List<ParsableFile> files = new ArrayList<ParsableFile>();
+        for (int i = 0; i < 10; ++i)
+        {
+            files.add(createParsable("a"));
+            files.add(createParsable("b"));
+        }
+        final TestParser[] holder = new TestParser[1];
+        Cancellable cancellable = new Cancellable()
+        {
+            @Override
+            public boolean isCancelled()
+            {
+                return !holder[0].parsed.isEmpty();
+            }
+        };
+        TestParser parser = new TestParser(2, null, cancellable);
+        holder[0] = parser;
+        try
+        {
+            parser.parse(files);
+            fail("Expected ResourceInterruptedException");
+        }
+        catch (ResourceInterruptedException expected)
+        {
+            assertEquals("Installation cancelled", expected.getMessage());
+        }
+        assertTrue(parser.parsed.size() < files.size());
+        checkShutdown(parser.executor);
+    }
+
+    /**
+     * Verifies that an executor has been shut down, and its threads have terminated.
+     *
+     * @param executor the executor
+     * @throws InterruptedException if interrupted
+     */
+    private void checkShutdown(ExecutorService executor) throws InterruptedException
+    {
+        assertTrue(executor.isShutdown());
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Creates a new parsable file.
+     *
+     * @param path the file path
+     * @return a new parsable file
+     */
+    private ParsableFile createParsable(String path)
+    {
+        return new ParsableFile(path, SubstitutionType.TYPE_PLAIN, null, null);
+    }
+
+    /**
+     * A parser that records the files it parses, rather than parsing them.
+     */
+    private static class TestParser extends ParsableFileParser
+    {
+
+        /**
+         * The files parsed, in the order they were parsed.
+         */
+        private final List<ParsableFile> parsed = Collections.synchronizedList(new ArrayList<ParsableFile>());
+
+        /**
+         * The threads that parsed files.
+         */
+        private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        /**
+         * The file to fail on. May be {@code null}.
+         */
+        private final ParsableFile fail;
+
+        /**
+         * The executor, or {@code null} if none was created.
+         */
+        private ExecutorService executor;
+
+        public TestParser(int threads, ParsableFile fail)
+        {
+            this(threads, fail, new Cancellable()
+            {
+                @Override
+                public boolean isCancelled()
+                {
+                    return false;
+                }
+            });
+        }
+
+        public TestParser(int threads, ParsableFile fail, Cancellable cancellable)
+        {
+            super(null, cancellable, threads);
+            this.fail = fail;
+        }
+
+        @Override
+        protected void parse(ParsableFile file)
+        {
+            threads.add(Thread.currentThread());
+            if (file == fail)
+            {
+                throw new InstallerException("Failed to parse: " + file.getPath());
+            }
+            parsed.add(file);
+        }
+
+        @Override
+        protected ExecutorService createExecutor(int threads)
+        {
+            assertNull(executor);
+            executor = super.createExecutor(threads);
+            return executor;
+        }
+    }
+}
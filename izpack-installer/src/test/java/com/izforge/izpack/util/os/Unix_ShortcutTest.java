@@ -1,12 +1,29 @@
 package com.izforge.izpack.util.os;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.exception.ResourceNotFoundException;
+import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.unix.ShellScript;
+import com.izforge.izpack.util.unix.UnixHelper;
+import com.izforge.izpack.util.unix.UnixUser;
 
 /**
  * Created by IntelliJ IDEA.
@@ -15,6 +32,12 @@ import com.izforge.izpack.api.exception.ResourceNotFoundException;
  */
 public class Unix_ShortcutTest
 {
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private InstallData idata;
 
     @Test
@@ -74,4 +97,138 @@ public class Unix_ShortcutTest
 //        System.out.println("DONE.\n");
     }
 
+    /**
+     * Verifies that in batched mode, desktop files are staged, and copied with a single su per user, as that user,
+     * without root writing to or changing the owner of files in the users' home directories.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testBatchedCopy() throws IOException
+    {
+        UnixUser alice = createUser("alice", "alice");
+        UnixUser bob = createUser("bob", "bob's home");
+        List<UnixUser> users = Arrays.asList(alice, bob);
+        File app = createDesktopFile("app.desktop");
+        File docs = createDesktopFile("docs.desktop");
+
+        Unix_Shortcut shortcut = new Unix_Shortcut(mock(Resources.class), mock(InstallData.class));
+        shortcut.stageDesktopFile(app, users);
+        shortcut.stageDesktopFile(docs, users);
+
+        File stagingDir = shortcut.getStagingDir();
+        assertTrue(new File(stagingDir, "app.desktop").canRead());
+        assertTrue(new File(stagingDir, "docs.desktop").canRead());
+        assertFalse(new File(alice.getXdgDesktopfolder(), "app.desktop").exists());
+
+        Map<String, Integer> counts = shortcut.getShortcutCounts();
+        assertEquals(2, counts.size());
+        assertEquals(2, (int) counts.get("alice"));
+        assertEquals(2, (int) counts.get("bob"));
+
+        ShellScript script = new ShellScript();
+        ShellScript uninstall = new ShellScript();
+        shortcut.appendBatchedCopy(script, uninstall);
+
+        String content = script.getContentAsString();
+        assertFalse(content.contains("chown"));
+        List<String> lines = getCommands(content);
+        assertEquals(3, lines.size());
+        String su = UnixHelper.getSuCommand();
+        String rm = UnixHelper.getRmCommand();
+        for (int i = 0; i < users.size(); ++i)
+        {
+            UnixUser user = users.get(i);
+            String desktop = quote(user.getXdgDesktopfolder());
+            String copy = UnixHelper.getCustomCommand("mkdir") + " -p " + desktop + " && "
+                    + UnixHelper.getCpCommand() + " " + quote(new File(stagingDir, "app.desktop").getPath()) + " "
+                    + quote(new File(stagingDir, "docs.desktop").getPath()) + " " + desktop;
+            assertEquals(su + " " + user.getName() + " -c " + quote(copy) + " ", lines.get(i));
+        }
+        assertEquals(rm + " -rf " + quote(stagingDir.getPath()) + " ", lines.get(2));
+
+        List<String> removes = getCommands(uninstall.getContentAsString());
+        assertEquals(2, removes.size());
+        String remove = rm + " -f " + quote(new File(bob.getXdgDesktopfolder(), "app.desktop").getPath()) + " "
+                + quote(new File(bob.getXdgDesktopfolder(), "docs.desktop").getPath());
+        assertEquals(su + " bob -c " + quote(remove) + " ", removes.get(1));
+
+        if (File.separatorChar == '/')
+        {
+            // run bob's copy as the current user, rather than via su. The desktop folder doesn't exist yet
+            String command = lines.get(1).substring(lines.get(1).indexOf(" -c ") + 4);
+            ShellScript run = new ShellScript();
+            run.appendln("sh -c " + command);
+            run.write(new File(temporaryFolder.getRoot(), "run.sh").getPath());
+            run.exec();
+            assertTrue(new File(bob.getXdgDesktopfolder(), "app.desktop").isFile());
+            assertTrue(new File(bob.getXdgDesktopfolder(), "docs.desktop").isFile());
+        }
+
+        // the scheduled copies are only appended once
+        ShellScript empty = new ShellScript();
+        shortcut.appendBatchedCopy(empty, new ShellScript());
+        assertTrue(getCommands(empty.getContentAsString()).isEmpty());
+    }
+
+    /**
+     * Quotes a string for the shell.
+     *
+     * @param value the string to quote
+     * @return the quoted string
+     */
+    private String quote(String value)
+    {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * Returns the commands of a script, excluding its header and comments.
+     *
+     * @param content the script content
+     * @return the commands
+     */
+    private List<String> getCommands(String content)
+    {
+        List<String> result = new ArrayList<String>();
+        for (String line : content.split("\n"))
+        {
+            if (line.trim().length() != 0 && !line.startsWith("#"))
+            {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a user with an existing home directory.
+     *
+     * @param name the user name
+     * @param home the name of the home directory
+     * @return a new user
+     */
+    private UnixUser createUser(String name, String home)
+    {
+        File dir = new File(temporaryFolder.getRoot(), home);
+        assertTrue(dir.mkdir());
+        return new UnixUser().fromEtcPasswdLine(name + ":x:1000:1000:" + name + ":" + dir.getPath() + ":/bin/sh");
+    }
+
+    /**
+     * Creates a desktop file.
+     *
+     * @param name the file name
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File createDesktopFile(String name) throws IOException
+    {
+        File file = temporaryFolder.newFile(name);
+        FileWriter writer = new FileWriter(file);
+        writer.write("[Desktop Entry]\nName=" + name + "\n");
+        writer.close();
+        return file;
+    }
+
 }
@@ -37,6 +37,11 @@ import com.izforge.izpack.util.Console;
  */
 public class InstallConsolePanel extends AbstractConsolePanel implements ProgressListener
 {
+    /**
+     * The minimum interval between file progress reports, in nanoseconds.
+     */
+    private static final long REPORT_INTERVAL = 500 * 1000000L;
+
     /**
      * The unpacker.
      */
@@ -44,6 +49,21 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
 
     private int noOfPacks = 0;
 
+    /**
+     * The number of files in the current pack.
+     */
+    private int noOfFiles = 0;
+
+    /**
+     * The last file number reported, or {@code -1} if none has been reported for the current pack.
+     */
+    private int reportedFile = -1;
+
+    /**
+     * The time of the last file progress report, in nanoseconds.
+     */
+    private long reported;
+
     public InstallConsolePanel(IUnpacker unpacker, PanelView<Console> panel)
     {
         super(panel);
@@ -81,15 +101,37 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
         System.out.println("[ Unpacking finished ]");
     }
 
+    /**
+     * Reports the file being unpacked.
+     * <p/>
+     * The unpacker notifies every file, so a file is only reported if it differs from the last one reported, and
+     * either {@link #REPORT_INTERVAL} has elapsed since the last report, or it is the last file of the pack.
+     *
+     * @param val the file number
+     * @param msg the file path
+     */
     @Override
     public void progress(int val, String msg)
     {
-
+        if (val == reportedFile)
+        {
+            return;
+        }
+        long now = System.nanoTime();
+        if (reportedFile == -1 || now - reported >= REPORT_INTERVAL
+                || (noOfFiles > 0 && val + 1 >= noOfFiles))
+        {
+            reportedFile = val;
+            reported = now;
+            System.out.println("  [ " + (val + 1) + "/" + noOfFiles + " ] " + msg);
+        }
     }
 
     @Override
     public void nextStep(String packName, int stepno, int stepsize)
     {
+        this.noOfFiles = stepsize;
+        this.reportedFile = -1;
         System.out.print("[ Processing package: " + packName + " (");
         System.out.print(stepno);
         System.out.print('/');
@@ -100,7 +142,7 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
     @Override
     public void setSubStepNo(int no_of_substeps)
     {
-
+        this.noOfFiles = no_of_substeps;
     }
 
     /**
@@ -217,13 +217,16 @@ public class InstallPanel extends IzPanel implements ProgressListener
 
     /**
      * Normal progress indicator.
+     * <p/>
+     * The current step is set from the progression value rather than incremented, as a notification may stand
+     * for several sub-steps when progress is coalesced.
      *
      * @param val The progression value.
      * @param msg The progression message.
      */
     public void progress(final int val, final String msg)
     {
-        currentStep++;
+        currentStep = val + 1;
         SwingUtilities.invokeLater(new Runnable()
         {
             public void run()
@@ -298,11 +301,17 @@ public class InstallPanel extends IzPanel implements ProgressListener
      * @param message a message describing the step
      */
     @Override
-    public void progress(String message)
+    public void progress(final String message)
     {
-        packOpLabel.setText(message);
-        currentStep++;
-        packProgressBar.setValue(currentStep);
+        final int step = ++currentStep;
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            public void run()
+            {
+                packOpLabel.setText(message);
+                packProgressBar.setValue(step);
+            }
+        });
     }
 
     /**
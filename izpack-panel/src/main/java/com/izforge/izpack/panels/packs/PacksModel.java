@@ -31,16 +31,17 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import javax.swing.table.AbstractTableModel;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Pack;
-import com.izforge.izpack.api.data.PackColor;
 import com.izforge.izpack.api.data.Variables;
 import com.izforge.izpack.api.resource.Messages;
 import com.izforge.izpack.api.rules.RulesEngine;
@@ -74,12 +75,24 @@ public class PacksModel extends AbstractTableModel
     // This is used to represent the status of the checkbox
     private int[] checkValues;
 
-    // Map to hold the object name relationship
-    Map<String, Pack> namesObj;
-
     // Map to hold the object name relationship
     Map<String, Integer> namesPos;
 
+    // The positions of the dependencies of each pack, indexed on pack position
+    private int[][] dependencies;
+
+    // The positions of the dependants of each pack, indexed on pack position
+    private int[][] dependants;
+
+    // The positions of the other packs in the exclude group of each pack, indexed on pack position
+    private int[][] excludes;
+
+    // Determines if each pack is already installed, indexed on pack position
+    private boolean[] installed;
+
+    // The total size of the selected packs, excluding hidden packs
+    private long selectedBytes;
+
     // reference to the RulesEngine for validating conditions
     private RulesEngine rules;
 
@@ -159,7 +172,7 @@ public class PacksModel extends AbstractTableModel
         variables.set(INITAL_PACKSELECTION, Boolean.toString(true));
         messages = panel.getMessages();
         checkValues = new int[packs.size()];
-        reverseDeps();
+        createGraph();
         initvalues();
         this.updateConditions(true);
         refreshPacksToInstall();
@@ -201,10 +214,11 @@ public class PacksModel extends AbstractTableModel
         while (changes)
         {
             changes = false;
-            // look for packages,
-            for (Pack pack : packs)
+            // look for packages. Changes are applied as they are found, and the packs re-evaluated until there
+            // are no more
+            for (int pos = 0; pos < packs.size(); pos++)
             {
-                int pos = getPos(pack.getName());
+                Pack pack = packs.get(pos);
                 logger.fine("Conditions fulfilled for: " + pack.getName() + "?");
                 if (!rules.canInstallPack(pack.getName(), variables))
                 {
@@ -217,10 +231,9 @@ public class PacksModel extends AbstractTableModel
                         {
                             if (checkValues[pos] != 0)
                             {
-                                checkValues[pos] = 0;
+                                setCheckValue(pos, 0);
                                 changes = true;
-                                // let the process start from the beginning
-                                break;
+                                refreshPacksToInstall();
                             }
                         }
                     }
@@ -229,59 +242,119 @@ public class PacksModel extends AbstractTableModel
                         logger.fine("Pack" + pack.getName() + " cannot be installed");
                         if (checkValues[pos] != -2)
                         {
-                            checkValues[pos] = -2;
+                            setCheckValue(pos, -2);
                             changes = true;
-                            // let the process start from the beginning
-                            break;
+                            refreshPacksToInstall();
                         }
                     }
                 }
             }
-            refreshPacksToInstall();
         }
+        refreshPacksToInstall();
     }
 
     /**
-     * Creates the reverse dependency graph
+     * Creates the position based dependency, dependant and exclude group graphs, so that selection changes don't
+     * need to look up packs by name or scan all packs.
      */
-    private void reverseDeps()
+    private void createGraph()
     {
-        // name to pack map
-        namesObj = new HashMap<String, Pack>();
-        for (Pack pack : packs)
+        int size = packs.size();
+
+        // name to pack position map
+        namesPos = new HashMap<String, Integer>();
+        for (int i = 0; i < size; i++)
+        {
+            namesPos.put(packs.get(i).getName(), i);
+        }
+
+        dependencies = new int[size][];
+        List<List<Integer>> reverse = new ArrayList<List<Integer>>(size);
+        for (int i = 0; i < size; i++)
         {
-            namesObj.put(pack.getName(), pack);
+            reverse.add(new ArrayList<Integer>());
         }
-        // process each pack
-        for (Pack pack : packs)
+        for (int i = 0; i < size; i++)
         {
-            List<String> deps = pack.getDependencies();
+            List<Integer> positions = new ArrayList<Integer>();
+            List<String> deps = packs.get(i).getDependencies();
             for (int j = 0; deps != null && j < deps.size(); j++)
             {
-                String name = deps.get(j);
-                Pack parent = namesObj.get(name);
-                parent.addDependant(pack.getName());
+                Integer pos = namesPos.get(deps.get(j));
+                if (pos != null)
+                {
+                    positions.add(pos);
+                    reverse.get(pos).add(i);
+                }
             }
+            dependencies[i] = toArray(positions);
+        }
+        dependants = new int[size][];
+        for (int i = 0; i < size; i++)
+        {
+            dependants[i] = toArray(reverse.get(i));
         }
 
+        Map<String, List<Integer>> groups = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < size; i++)
+        {
+            String group = packs.get(i).getExcludeGroup();
+            if (group != null)
+            {
+                List<Integer> members = groups.get(group);
+                if (members == null)
+                {
+                    members = new ArrayList<Integer>();
+                    groups.put(group, members);
+                }
+                members.add(i);
+            }
+        }
+        excludes = new int[size][];
+        for (int i = 0; i < size; i++)
+        {
+            String group = packs.get(i).getExcludeGroup();
+            List<Integer> others = new ArrayList<Integer>();
+            if (group != null)
+            {
+                for (int member : groups.get(group))
+                {
+                    if (member != i)
+                    {
+                        others.add(member);
+                    }
+                }
+            }
+            excludes[i] = toArray(others);
+        }
+
+        installed = new boolean[size];
+        for (int i = 0; i < size; i++)
+        {
+            installed[i] = installedpacks.containsKey(packs.get(i).getName());
+        }
     }
 
-    private void initvalues()
+    private static int[] toArray(List<Integer> list)
     {
-        // name to pack position map
-        namesPos = new HashMap<String, Integer>();
-        for (int i = 0; i < packs.size(); i++)
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++)
         {
-            Pack pack = packs.get(i);
-            namesPos.put(pack.getName(), i);
+            result[i] = list.get(i);
         }
+        return result;
+    }
+
+    private void initvalues()
+    {
         // Init to the first values
+        Set<Pack> selected = new HashSet<Pack>(packsToInstall);
         for (int i = 0; i < packs.size(); i++)
         {
             Pack pack = packs.get(i);
-            if (packsToInstall.contains(pack))
+            if (selected.contains(pack))
             {
-                checkValues[i] = 1;
+                setCheckValue(i, 1);
             }
         }
 
@@ -292,72 +365,65 @@ public class PacksModel extends AbstractTableModel
             Pack pack = packs.get(i);
             if (checkValues[i] == 0)
             {
-                List<String> deps = pack.getDependants();
-                for (int j = 0; deps != null && j < deps.size(); j++)
+                for (int pos : dependants[i])
                 {
-                    String name = deps.get(j);
-                    int pos = getPos(name);
-                    checkValues[pos] = -2;
+                    setCheckValue(pos, -2);
                 }
             }
             // for mutual exclusion, uncheck uncompatible packs too
             // (if available in the current installGroup)
-
-            if (checkValues[i] > 0 && pack.getExcludeGroup() != null)
-            {
-                for (int q = 0; q < packs.size(); q++)
-                {
-                    if (q != i)
-                    {
-                        Pack otherpack = packs.get(q);
-                        if (pack.getExcludeGroup().equals(otherpack.getExcludeGroup()))
-                        {
-                            if (checkValues[q] == 1)
-                            {
-                                checkValues[q] = 0;
-                            }
-                        }
-                    }
-                }
-            }
+            updateExcludes(i);
         }
         // The required ones must propagate their required status to all the
         // ones
         // that they depend on
-        for (Pack pack : packs)
+        boolean[] visited = new boolean[packs.size()];
+        for (int i = 0; i < packs.size(); i++)
         {
-            if (pack.isRequired())
+            if (packs.get(i).isRequired())
             {
-                propRequirement(pack.getName());
+                propRequirement(i, visited);
             }
         }
 
         refreshPacksToInstall();
     }
 
-    private void propRequirement(String name)
+    /**
+     * Marks a pack and all the packs it depends on as required.
+     *
+     * @param pos     the pack position
+     * @param visited the packs already marked, so that shared dependencies are only visited once
+     */
+    private void propRequirement(int pos, boolean[] visited)
     {
-
-        final int pos = getPos(name);
-        checkValues[pos] = -1;
-        List<String> deps = packs.get(pos).getDependencies();
-        for (int i = 0; deps != null && i < deps.size(); i++)
+        setCheckValue(pos, -1);
+        if (!visited[pos])
         {
-            String s = deps.get(i);
-            propRequirement(s);
+            visited[pos] = true;
+            for (int dependency : dependencies[pos])
+            {
+                propRequirement(dependency, visited);
+            }
         }
-
     }
 
     /**
-     * Given a map of names and Integer for position and a name it return the position of this name
-     * as an int
+     * Sets the checkbox value of a pack, keeping the size of the selected packs up to date.
      *
-     * @return position of the name
+     * @param pos   the pack position
+     * @param value the new value
      */
-    private int getPos(String name)
+    private void setCheckValue(int pos, int value)
     {
-        return namesPos.get(name);
+        boolean wasSelected = Math.abs(checkValues[pos]) == 1;
+        boolean selected = Math.abs(value) == 1;
+        checkValues[pos] = value;
+        if (wasSelected != selected)
+        {
+            long size = packs.get(pos).getSize();
+            selectedBytes += selected ? size : -size;
+        }
     }
 
     /*
@@ -471,18 +537,18 @@ public class PacksModel extends AbstractTableModel
                     {
                         if (pack.isRequired())
                         {
-                            checkValues[rowIndex] = -1;
+                            setCheckValue(rowIndex, -1);
                         }
                         else
                         {
-                            checkValues[rowIndex] = 1;
+                            setCheckValue(rowIndex, 1);
                         }
                     }
                 }
                 else
                 {
                     added = false;
-                    checkValues[rowIndex] = 0;
+                    setCheckValue(rowIndex, 0);
                 }
                 updateExcludes(rowIndex);
                 updateDeps();
@@ -530,21 +596,13 @@ public class PacksModel extends AbstractTableModel
         packsToInstall.clear();
         for (int i = 0; i < packs.size(); i++)
         {
-            Pack pack = packs.get(i);
-            if ((Math.abs(checkValues[i]) == 1) && (!installedpacks.containsKey(pack.getName())))
+            if (installed[i])
             {
-                packsToInstall.add(pack);
+                setCheckValue(i, -3);
             }
-
-        }
-
-        for (int i = 0; i < packs.size(); i++)
-        {
-            Pack pack = packs.get(i);
-
-            if (installedpacks.containsKey(pack.getName()))
+            else if (Math.abs(checkValues[i]) == 1)
             {
-                checkValues[i] = -3;
+                packsToInstall.add(packs.get(i));
             }
         }
         // add hidden packs
@@ -563,36 +621,36 @@ public class PacksModel extends AbstractTableModel
      * installed anymore and enabling those that can after the change. This is accomplished by
      * running a search that pinpoints the packs that must be disabled by a non-fullfiled
      * dependency.
+     * <p/>
+     * This visits every pack and dependency edge, rather than just those reachable from the changed pack, as packs
+     * disabled by a condition are re-enabled here, and conditions may refer to any variable or pack selection.
      */
     private void updateDeps()
     {
-        int[] statusArray = new int[packs.size()];
-        for (int i = 0; i < statusArray.length; i++)
-        {
-            statusArray[i] = 0;
-        }
-        dfs(statusArray);
-        for (int i = 0; i < statusArray.length; i++)
+        boolean[] disabled = getUnfulfilledDependants();
+        for (int i = 0; i < disabled.length; i++)
         {
-            if (statusArray[i] == 0 && checkValues[i] < 0)
+            if (!disabled[i] && checkValues[i] < 0)
             {
-                checkValues[i] += 2;
+                setCheckValue(i, checkValues[i] + 2);
             }
-            if (statusArray[i] == 1 && checkValues[i] >= 0)
+            if (disabled[i] && checkValues[i] >= 0)
             {
-                checkValues[i] = -2;
+                setCheckValue(i, -2);
             }
 
         }
         // The required ones must propagate their required status to all the ones that they depend on
-        for (Pack pack : packs)
+        boolean[] visited = new boolean[packs.size()];
+        for (int i = 0; i < packs.size(); i++)
         {
+            Pack pack = packs.get(i);
             if (pack.isRequired())
             {
                 String name = pack.getName();
                 if (!(!rules.canInstallPack(name, variables) && rules.canInstallPackOptional(name, variables)))
                 {
-                    propRequirement(name);
+                    propRequirement(i, visited);
                 }
             }
         }
@@ -605,24 +663,13 @@ public class PacksModel extends AbstractTableModel
 
     private void updateExcludes(int rowindex)
     {
-        int value = checkValues[rowindex];
-        Pack pack = packs.get(rowindex);
-        if (value > 0 && pack.getExcludeGroup() != null)
+        if (checkValues[rowindex] > 0)
         {
-            for (int q = 0; q < packs.size(); q++)
+            for (int q : excludes[rowindex])
             {
-                if (rowindex != q)
+                if (checkValues[q] == 1)
                 {
-                    Pack otherpack = packs.get(q);
-                    String name1 = otherpack.getExcludeGroup();
-                    String name2 = pack.getExcludeGroup();
-                    if (name2.equals(name1))
-                    {
-                        if (checkValues[q] == 1)
-                        {
-                            checkValues[q] = 0;
-                        }
-                    }
+                    setCheckValue(q, 0);
                 }
             }
         }
@@ -630,15 +677,7 @@ public class PacksModel extends AbstractTableModel
 
     private void updateBytes()
     {
-        long bytes = 0;
-        for (int q = 0; q < packs.size(); q++)
-        {
-            if (Math.abs(checkValues[q]) == 1)
-            {
-                Pack pack = packs.get(q);
-                bytes += pack.getSize();
-            }
-        }
+        long bytes = selectedBytes;
 
         // add selected hidden bytes
         for (Pack hidden : this.hiddenPacks)
@@ -652,62 +691,42 @@ public class PacksModel extends AbstractTableModel
     }
 
     /**
-     * We use a modified dfs graph search algorithm as described in: Thomas H. Cormen, Charles
-     * Leiserson, Ronald Rivest and Clifford Stein. Introduction to algorithms 2nd Edition
-     * 540-549,MIT Press, 2001
+     * Determines the packs that depend, directly or indirectly, on a pack that isn't selected.
+     * <p/>
+     * This is a single breadth-first search along the dependant edges, starting from all of the packs that aren't
+     * selected.
+     *
+     * @return flags indicating the packs with an unfulfilled dependency, indexed on pack position
      */
-    private int dfs(int[] status)
+    private boolean[] getUnfulfilledDependants()
     {
-        Map<String, PackColor> colours = new HashMap<String, PackColor>();
-        for (int i = 0; i < packs.size(); i++)
+        int size = packs.size();
+        boolean[] result = new boolean[size];
+        boolean[] queued = new boolean[size];
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++)
         {
-            for (Pack pack : packs)
-            {
-                colours.put(pack.getName(), PackColor.WHITE);
-            }
-            Pack pack = packs.get(i);
-            boolean wipe = false;
-
-            if (dfsVisit(pack, status, wipe, colours) != 0)
+            if (Math.abs(checkValues[i]) != 1)
             {
-                return -1;
+                queued[i] = true;
+                queue[tail++] = i;
             }
-
         }
-        return 0;
-    }
-
-    private int dfsVisit(Pack u, int[] status, boolean wipe, Map<String, PackColor> colours)
-    {
-        colours.put(u.getName(), PackColor.GREY);
-        int check = checkValues[getPos(u.getName())];
-
-        if (Math.abs(check) != 1)
+        while (head < tail)
         {
-            wipe = true;
-        }
-        List<String> deps = u.getDependants();
-        if (deps != null)
-        {
-            for (String name : deps)
+            for (int dependant : dependants[queue[head++]])
             {
-                Pack v = namesObj.get(name);
-                if (wipe)
-                {
-                    status[getPos(v.getName())] = 1;
-                }
-                if (colours.get(v.getName()) == PackColor.WHITE)
+                result[dependant] = true;
+                if (!queued[dependant])
                 {
-                    final int result = dfsVisit(v, status, wipe, colours);
-                    if (result != 0)
-                    {
-                        return result;
-                    }
+                    queued[dependant] = true;
+                    queue[tail++] = dependant;
                 }
             }
         }
-        colours.put(u.getName(), PackColor.BLACK);
-        return 0;
+        return result;
     }
 
 
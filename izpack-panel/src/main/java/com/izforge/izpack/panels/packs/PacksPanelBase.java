@@ -78,6 +78,7 @@ import com.izforge.izpack.installer.gui.InstallerFrame;
 import com.izforge.izpack.installer.gui.IzPanel;
 import com.izforge.izpack.installer.util.PackHelper;
 import com.izforge.izpack.panels.treepacks.PackValidator;
+import com.izforge.izpack.util.FreeSpaceService;
 import com.izforge.izpack.util.IoHelper;
 
 /**
@@ -282,12 +283,13 @@ public abstract class PacksPanelBase extends IzPanel implements PacksPanelInterf
     /**
      * Indicates wether the panel has been validated or not.
      *
-     * @return true if the needed space is less than the free space, else false
+     * @return true if the needed space is less than the free space of each target file system, else false
      */
     @Override
     public boolean isValidated()
     {
-        if (IoHelper.supported("getFreeSpace") && freeBytes >= 0 && freeBytes <= bytes)
+        if (IoHelper.supported("getFreeSpace") && !FreeSpaceService.getDefault().isSpaceAvailable(
+                installData.getSelectedPacks(), installData.getVariables(), new File(installData.getInstallPath())))
         {
             JOptionPane.showMessageDialog(this, getString("PacksPanel.notEnoughSpace"),
                                           getString("installer.error"), JOptionPane.ERROR_MESSAGE);
@@ -30,6 +30,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -800,6 +801,32 @@ public class ShortcutPanel extends IzPanel implements ActionListener, ListSelect
         shortcutPanelLogic.saveToFile(file);
     }
 
+    /**
+     * Returns the number of shortcuts created for each user, when shortcuts have been created for all users.
+     *
+     * @return the shortcut counts, or {@code null} if no shortcuts have been created for other users
+     */
+    @Override
+    public String getSummaryBody()
+    {
+        if (shortcutPanelLogic == null || shortcutPanelLogic.getShortcutCounts().isEmpty())
+        {
+            return null;
+        }
+        StringBuilder retval = new StringBuilder(256);
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : shortcutPanelLogic.getShortcutCounts().entrySet())
+        {
+            if (!first)
+            {
+                retval.append("<br>");
+            }
+            first = false;
+            retval.append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return retval.toString();
+    }
+
     @Override
     public void makeXMLData(IXMLElement panelRoot)
     {
@@ -29,6 +29,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -373,6 +374,16 @@ public class ShortcutPanelLogic implements CleanupClient
         this.createDesktopShortcuts = createDesktopShortcuts;
     }
 
+    /**
+     * Returns the number of shortcuts created for each user, when shortcuts are created on behalf of other users.
+     *
+     * @return the shortcut counts, keyed on user name. Empty if no shortcuts were created for other users
+     */
+    public Map<String, Integer> getShortcutCounts()
+    {
+        return shortcut.getShortcutCounts();
+    }
+
     /**
      * @param user type of the user {@link Shortcut#ALL_USERS} or {@link Shortcut#CURRENT_USER}
      * @return a list of progrma group names.
@@ -48,6 +48,7 @@ import com.izforge.izpack.installer.web.WebAccessor;
 import com.izforge.izpack.panels.imgpacks.ImgPacksPanelAutomationHelper;
 import com.izforge.izpack.panels.packs.PacksModel;
 import com.izforge.izpack.panels.packs.PacksPanelInterface;
+import com.izforge.izpack.util.FreeSpaceService;
 import com.izforge.izpack.util.IoHelper;
 import com.izforge.izpack.util.file.FileUtils;
 
@@ -284,13 +285,14 @@ public class TreePacksPanel extends IzPanel implements PacksPanelInterface
     /**
      * Indicates wether the panel has been validated or not.
      *
-     * @return true if the needed space is less than the free space, else false
+     * @return true if the needed space is less than the free space of each target file system, else false
      */
     @Override
     public boolean isValidated()
     {
         refreshPacksToInstall();
-        if (IoHelper.supported("getFreeSpace") && freeBytes >= 0 && freeBytes <= bytes)
+        if (IoHelper.supported("getFreeSpace") && !FreeSpaceService.getDefault().isSpaceAvailable(
+                installData.getSelectedPacks(), installData.getVariables(), new File(installData.getInstallPath())))
         {
             JOptionPane.showMessageDialog(this, getString("PacksPanel.notEnoughSpace"), getString("installer.error"),
                                           JOptionPane.ERROR_MESSAGE);
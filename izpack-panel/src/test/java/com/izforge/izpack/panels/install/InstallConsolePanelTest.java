@@ -0,0 +1,105 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.install;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link InstallConsolePanel} class.
+ */
+public class InstallConsolePanelTest
+{
+
+    /**
+     * The original standard output.
+     */
+    private PrintStream out;
+
+    /**
+     * The captured output.
+     */
+    private ByteArrayOutputStream output;
+
+    /**
+     * Captures standard output.
+     */
+    @Before
+    public void setUp()
+    {
+        out = System.out;
+        output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+    }
+
+    /**
+     * Restores standard output.
+     */
+    @After
+    public void tearDown()
+    {
+        System.setOut(out);
+    }
+
+    /**
+     * Verifies that file progress is throttled, that the same file is not reported twice, and that the first and
+     * last files of each pack are always reported.
+     */
+    @Test
+    public void testProgress()
+    {
+        InstallConsolePanel panel = new InstallConsolePanel(null, null);
+        panel.startAction("Unpacking", 2);
+        panel.nextStep("pack1", 1, 1000);
+        for (int i = 0; i < 1000; ++i)
+        {
+            panel.progress(i, "file" + i);
+            panel.progress(i, "file" + i);
+        }
+        panel.nextStep("pack2", 2, 2);
+        panel.progress(0, "a");
+        panel.progress(1, "b");
+        panel.stopAction();
+
+        List<String> files = new ArrayList<String>();
+        for (String line : output.toString().split("\\r?\\n"))
+        {
+            if (line.startsWith("  [ "))
+            {
+                files.add(line);
+            }
+        }
+        assertEquals("  [ 1/1000 ] file0", files.get(0));
+        assertTrue(files.size() < 100);
+        assertEquals("  [ 1000/1000 ] file999", files.get(files.size() - 3));
+        assertEquals("  [ 1/2 ] a", files.get(files.size() - 2));
+        assertEquals("  [ 2/2 ] b", files.get(files.size() - 1));
+    }
+}
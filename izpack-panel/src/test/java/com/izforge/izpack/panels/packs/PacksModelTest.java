@@ -0,0 +1,245 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.packs;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.LocaleDatabase;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.resource.Messages;
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.installer.data.GUIInstallData;
+import com.izforge.izpack.installer.debugger.Debugger;
+import com.izforge.izpack.util.Platform;
+
+
+/**
+ * Tests the {@link PacksModel} class.
+ */
+public class PacksModelTest
+{
+
+    /**
+     * The installation data.
+     */
+    private GUIInstallData installData;
+
+    /**
+     * The rules.
+     */
+    private RulesEngine rules;
+
+    /**
+     * The panel.
+     */
+    private TestPanel panel;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        installData = new GUIInstallData(new DefaultVariables(), new Platform(Platform.Name.LINUX));
+        rules = mock(RulesEngine.class);
+        when(rules.canInstallPack(anyString(), any(Variables.class))).thenReturn(true);
+        panel = new TestPanel();
+    }
+
+    /**
+     * Verifies that deselecting a pack disables the packs that depend on it, directly or indirectly, and that the
+     * byte total follows the selection.
+     */
+    @Test
+    public void testDependencies()
+    {
+        Pack base = createPack("base", 1000, null, false);
+        Pack tools = createPack("tools", 200, null, false, "base");
+        Pack plugins = createPack("plugins", 30, null, false, "tools");
+        Pack docs = createPack("docs", 4, null, false);
+        PacksModel model = createModel(Arrays.asList(base, tools, plugins, docs), base, tools, plugins, docs);
+
+        checkValues(model, 1, 1, 1, 1);
+
+        model.setValueAt(0, 0, 0);
+        checkValues(model, 0, -2, -2, 1);
+        assertEquals(4, panel.getBytes());
+        assertEquals(Arrays.asList(docs), installData.getSelectedPacks());
+
+        // tools is re-enabled, but plugins stays disabled until tools is selected
+        model.setValueAt(1, 0, 0);
+        checkValues(model, 1, 0, -2, 1);
+        assertEquals(1004, panel.getBytes());
+
+        model.setValueAt(1, 1, 0);
+        checkValues(model, 1, 1, 0, 1);
+        assertEquals(1204, panel.getBytes());
+        assertEquals(Arrays.asList(base, tools, docs), installData.getSelectedPacks());
+    }
+
+    /**
+     * Verifies that required packs propagate their status to the packs they depend on.
+     */
+    @Test
+    public void testRequired()
+    {
+        Pack core = createPack("core", 10, null, false);
+        Pack lib = createPack("lib", 20, null, false, "core");
+        Pack app = createPack("app", 30, null, true, "lib", "core");
+        Pack extra = createPack("extra", 40, null, false);
+        PacksModel model = createModel(Arrays.asList(core, lib, app, extra), app);
+
+        checkValues(model, -1, -1, -1, 0);
+
+        model.setValueAt(1, 3, 0);
+        checkValues(model, -1, -1, -1, 1);
+        assertEquals(100, panel.getBytes());
+    }
+
+    /**
+     * Verifies that selecting a pack deselects the other packs in its exclude group.
+     */
+    @Test
+    public void testExcludeGroup()
+    {
+        Pack small = createPack("small", 1, "size", false);
+        Pack large = createPack("large", 100, "size", false);
+        Pack other = createPack("other", 10, null, false);
+        PacksModel model = createModel(Arrays.asList(small, large, other), small, other);
+
+        checkValues(model, 1, 0, 1);
+
+        model.setValueAt(1, 1, 0);
+        checkValues(model, 0, 1, 1);
+        assertEquals(110, panel.getBytes());
+        assertEquals(Arrays.asList(large, other), installData.getSelectedPacks());
+    }
+
+    /**
+     * Creates a model.
+     *
+     * @param available the available packs
+     * @param selected  the initially selected packs
+     * @return a new model
+     */
+    private PacksModel createModel(List<Pack> available, Pack... selected)
+    {
+        installData.setAvailablePacks(available);
+        installData.setSelectedPacks(new ArrayList<Pack>(Arrays.asList(selected)));
+        return new PacksModel(panel, installData, rules);
+    }
+
+    /**
+     * Verifies the checkbox values of a model.
+     *
+     * @param model    the model
+     * @param expected the expected values
+     */
+    private void checkValues(PacksModel model, int... expected)
+    {
+        int[] actual = new int[model.getRowCount()];
+        for (int i = 0; i < actual.length; i++)
+        {
+            actual[i] = (Integer) model.getValueAt(i, 0);
+        }
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+    }
+
+    /**
+     * Creates a pack.
+     *
+     * @param name         the pack name
+     * @param size         the pack size
+     * @param excludeGroup the exclude group. May be {@code null}
+     * @param required     determines if the pack is required
+     * @param dependencies the names of the packs that the pack depends on
+     * @return a new pack
+     */
+    private Pack createPack(String name, long size, String excludeGroup, boolean required, String... dependencies)
+    {
+        List<String> deps = (dependencies.length != 0) ? Arrays.asList(dependencies) : null;
+        return new Pack(name, null, null, null, deps, required, false, false, excludeGroup, true, size);
+    }
+
+    /**
+     * Panel that records the required bytes.
+     */
+    private static class TestPanel implements PacksPanelInterface
+    {
+
+        /**
+         * The required bytes.
+         */
+        private long bytes;
+
+        @Override
+        public Messages getMessages()
+        {
+            return null;
+        }
+
+        @Override
+        public LocaleDatabase getLangpack()
+        {
+            return null;
+        }
+
+        @Override
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        @Override
+        public void setBytes(long bytes)
+        {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void showSpaceRequired()
+        {
+        }
+
+        @Override
+        public void showFreeSpace()
+        {
+        }
+
+        @Override
+        public Debugger getDebugger()
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.data;
+
+import java.io.File;
+import java.io.Serializable;
+
+
+/**
+ * The location of pack file data within a zip archive.
+ * <p/>
+ * This allows the content of an archive to be added to a pack without extracting it; the entry is read from the
+ * archive when the pack is written.
+ */
+public class ArchiveEntry implements Serializable
+{
+
+    private static final long serialVersionUID = 2883624185406735226L;
+
+    /**
+     * The archive.
+     */
+    private final File archive;
+
+    /**
+     * The entry name.
+     */
+    private final String name;
+
+    /**
+     * The CRC-32 of the uncompressed entry data, or <tt>-1</tt> if it is not known.
+     */
+    private final long crc;
+
+    /**
+     * Constructs an {@code ArchiveEntry}.
+     *
+     * @param archive the archive
+     * @param name    the entry name
+     * @param crc     the CRC-32 of the uncompressed entry data, or <tt>-1</tt> if it is not known
+     */
+    public ArchiveEntry(File archive, String name, long crc)
+    {
+        this.archive = archive;
+        this.name = name;
+        this.crc = crc;
+    }
+
+    /**
+     * Returns the archive.
+     *
+     * @return the archive
+     */
+    public File getArchive()
+    {
+        return archive;
+    }
+
+    /**
+     * Returns the entry name.
+     *
+     * @return the entry name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the CRC-32 of the uncompressed entry data.
+     *
+     * @return the CRC-32, or <tt>-1</tt> if it is not known
+     */
+    public long getCrc()
+    {
+        return crc;
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return the archive path and entry name
+     */
+    @Override
+    public String toString()
+    {
+        return archive.getPath() + "!/" + name;
+    }
+}
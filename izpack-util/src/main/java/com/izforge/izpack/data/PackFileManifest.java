@@ -0,0 +1,703 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.binding.OsModel;
+import com.izforge.izpack.api.exception.IzPackException;
+
+
+/**
+ * The files of a pack, in the order they were added.
+ * <p/>
+ * Entries are held in memory until their number exceeds a threshold. They are then spilled to a temporary file, and
+ * all subsequent entries are appended to it, so that the memory used by a pack is bounded regardless of the number of
+ * files it contains.
+ * <p/>
+ * Spilled entries are stored compactly: the directory part of each path is interned in a table, and the attributes
+ * shared by the files of a fileset (OS constraints, override, blockable, additionals and condition) are stored once.
+ * Iterating a spilled manifest streams the entries back from the file, recreating their {@link PackFile}s.
+ * <p/>
+ * The temporary file is deleted by {@link #close()}.
+ */
+public class PackFileManifest implements Iterable<PackFileManifest.Entry>, Serializable
+{
+
+    private static final long serialVersionUID = 6393946457950137802L;
+
+    /**
+     * The default number of entries held in memory before spilling to disk.
+     */
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    /**
+     * Record flag indicating the file is a directory.
+     */
+    private static final int DIRECTORY = 1;
+
+    /**
+     * Record flag indicating the file has a relative source path.
+     */
+    private static final int RELATIVE = 2;
+
+    /**
+     * Record flag indicating the file data is held in an archive entry.
+     */
+    private static final int ARCHIVED = 4;
+
+    /**
+     * The number of entries held in memory before spilling to disk.
+     */
+    private final int threshold;
+
+    /**
+     * Determines if the files are part of a loose pack.
+     */
+    private final boolean loose;
+
+    /**
+     * The in-memory entries. Empty once the manifest has spilled.
+     */
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /**
+     * The number of entries.
+     */
+    private int size;
+
+    /**
+     * The interned path prefixes, keyed on prefix.
+     */
+    private final Map<String, Integer> prefixIds = new HashMap<String, Integer>();
+
+    /**
+     * The interned path prefixes, indexed by identifier.
+     */
+    private final List<String> prefixes = new ArrayList<String>();
+
+    /**
+     * The interned file attributes, keyed on attributes.
+     */
+    private final Map<Attributes, Integer> attributeIds = new HashMap<Attributes, Integer>();
+
+    /**
+     * The interned file attributes, indexed by identifier.
+     */
+    private final List<Attributes> attributes = new ArrayList<Attributes>();
+
+    /**
+     * The file that entries are spilled to, or {@code null} if the manifest hasn't spilled.
+     */
+    private File spillFile;
+
+    /**
+     * The stream to append spilled entries to.
+     */
+    private transient DataOutputStream out;
+
+    /**
+     * Determines if the manifest has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(PackFileManifest.class.getName());
+
+    /**
+     * Constructs a {@code PackFileManifest}, using the {@link #DEFAULT_THRESHOLD}.
+     *
+     * @param loose determines if the files are part of a loose pack
+     */
+    public PackFileManifest(boolean loose)
+    {
+        this(loose, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a {@code PackFileManifest}.
+     *
+     * @param loose     determines if the files are part of a loose pack
+     * @param threshold the number of entries held in memory before spilling to disk
+     */
+    public PackFileManifest(boolean loose, int threshold)
+    {
+        this.loose = loose;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Adds a file.
+     *
+     * @param packFile     the pack file
+     * @param file         the file holding the data, or the archive if the data is held in an archive entry
+     * @param archiveEntry the archive entry holding the data. May be {@code null}
+     * @throws IOException if the entry cannot be spilled to disk
+     */
+    public void add(PackFile packFile, File file, ArchiveEntry archiveEntry) throws IOException
+    {
+        checkOpen();
+        Entry entry = new Entry(packFile, file, archiveEntry);
+        if (spillFile == null && size < threshold)
+        {
+            entries.add(entry);
+        }
+        else
+        {
+            if (spillFile == null)
+            {
+                spill();
+            }
+            write(entry);
+        }
+        ++size;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Determines if the entries have been spilled to disk.
+     *
+     * @return {@code true} if the entries have been spilled
+     */
+    public boolean isSpilled()
+    {
+        return spillFile != null;
+    }
+
+    /**
+     * Returns an iterator over the entries, in the order they were added.
+     * <p/>
+     * If the manifest has spilled, the iterator reads the entries from disk, closing the file when the last entry
+     * is read. I/O errors are thrown as {@link IzPackException}.
+     *
+     * @return an iterator over the entries
+     */
+    @Override
+    public Iterator<Entry> iterator()
+    {
+        checkOpen();
+        if (spillFile == null)
+        {
+            return Collections.unmodifiableList(entries).iterator();
+        }
+        try
+        {
+            out.flush();
+            return new SpillIterator();
+        }
+        catch (IOException exception)
+        {
+            throw new IzPackException("Failed to read " + spillFile, exception);
+        }
+    }
+
+    /**
+     * Closes the manifest, deleting any spilled entries.
+     * <p/>
+     * The manifest may not be used once it is closed.
+     */
+    public void close()
+    {
+        if (!closed)
+        {
+            closed = true;
+            entries.clear();
+            if (spillFile != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (IOException exception)
+                {
+                    logger.log(Level.WARNING, "Failed to close " + spillFile, exception);
+                }
+                if (!spillFile.delete())
+                {
+                    logger.warning("Failed to delete " + spillFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the in-memory entries to a temporary file.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void spill() throws IOException
+    {
+        spillFile = File.createTempFile("izpack-manifest", ".tmp");
+        spillFile.deleteOnExit();
+        logger.fine("Spilling pack file manifest to " + spillFile);
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+        for (Entry entry : entries)
+        {
+            write(entry);
+        }
+        entries.clear();
+    }
+
+    /**
+     * Writes an entry to the spill file.
+     *
+     * @param entry the entry
+     * @throws IOException for any I/O error
+     */
+    private void write(Entry entry) throws IOException
+    {
+        PackFile packFile = entry.getPackFile();
+        ArchiveEntry archiveEntry = entry.getArchiveEntry();
+        String relativePath = packFile.getRelativeSourcePath();
+        int flags = 0;
+        if (packFile.isDirectory())
+        {
+            flags |= DIRECTORY;
+        }
+        if (relativePath != null)
+        {
+            flags |= RELATIVE;
+        }
+        if (archiveEntry != null)
+        {
+            flags |= ARCHIVED;
+        }
+        out.writeByte(flags);
+        writePath(entry.getFile().getPath());
+        writePath(packFile.sourcePath);
+        if (relativePath != null)
+        {
+            writePath(relativePath);
+        }
+        writePath(packFile.getTargetPath());
+        out.writeLong(packFile.size());
+        out.writeLong(packFile.lastModified());
+        writeAttributes(packFile);
+        if (archiveEntry != null)
+        {
+            out.writeUTF(archiveEntry.getName());
+            out.writeLong(archiveEntry.getCrc());
+        }
+    }
+
+    /**
+     * Writes a path, as the identifier of its interned prefix followed by its last segment.
+     *
+     * @param path the path
+     * @throws IOException for any I/O error
+     */
+    private void writePath(String path) throws IOException
+    {
+        int index = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar)) + 1;
+        String prefix = path.substring(0, index);
+        Integer id = prefixIds.get(prefix);
+        if (id == null)
+        {
+            id = prefixes.size();
+            prefixes.add(prefix);
+            prefixIds.put(prefix, id);
+        }
+        out.writeInt(id);
+        out.writeUTF(path.substring(index));
+    }
+
+    /**
+     * Writes the identifier of the interned attributes of a pack file.
+     *
+     * @param packFile the pack file
+     * @throws IOException for any I/O error
+     */
+    private void writeAttributes(PackFile packFile) throws IOException
+    {
+        Attributes key = new Attributes(packFile);
+        Integer id = attributeIds.get(key);
+        if (id == null)
+        {
+            id = attributes.size();
+            attributes.add(key);
+            attributeIds.put(key, id);
+        }
+        out.writeInt(id);
+    }
+
+    /**
+     * Reads an entry from the spill file.
+     *
+     * @param in the stream to read from
+     * @return the entry
+     * @throws IOException for any I/O error
+     */
+    private Entry read(DataInputStream in) throws IOException
+    {
+        int flags = in.readByte();
+        File file = new File(readPath(in));
+        String sourcePath = readPath(in);
+        String relativePath = ((flags & RELATIVE) != 0) ? readPath(in) : null;
+        String targetPath = readPath(in);
+        long length = in.readLong();
+        long mtime = in.readLong();
+        Attributes attrs = attributes.get(in.readInt());
+        ArchiveEntry archiveEntry = null;
+        if ((flags & ARCHIVED) != 0)
+        {
+            archiveEntry = new ArchiveEntry(file, in.readUTF(), in.readLong());
+        }
+        PackFile packFile = new PackFile(sourcePath, relativePath, targetPath, (flags & DIRECTORY) != 0, length,
+                                         mtime, attrs.osList, attrs.override, attrs.overrideRenameTo,
+                                         attrs.blockable, attrs.additionals);
+        packFile.setLoosePackInfo(loose);
+        packFile.setCondition(attrs.condition);
+        return new Entry(packFile, file, archiveEntry);
+    }
+
+    /**
+     * Reads a path written by {@link #writePath(String)}.
+     *
+     * @param in the stream to read from
+     * @return the path
+     * @throws IOException for any I/O error
+     */
+    private String readPath(DataInputStream in) throws IOException
+    {
+        String prefix = prefixes.get(in.readInt());
+        return prefix.concat(in.readUTF());
+    }
+
+    /**
+     * Verifies that the manifest hasn't been closed.
+     *
+     * @throws IllegalStateException if the manifest is closed
+     */
+    private void checkOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Pack file manifest is closed");
+        }
+    }
+
+    /**
+     * Flushes spilled entries before serialization.
+     *
+     * @param stream the stream to write to
+     * @throws IOException for any I/O error
+     */
+    private void writeObject(ObjectOutputStream stream) throws IOException
+    {
+        if (out != null)
+        {
+            out.flush();
+        }
+        stream.defaultWriteObject();
+    }
+
+    /**
+     * Reopens the spill file for appending after deserialization.
+     *
+     * @param stream the stream to read from
+     * @throws IOException            for any I/O error
+     * @throws ClassNotFoundException if a class cannot be found
+     */
+    private void readObject(java.io.ObjectInputStream stream) throws IOException, ClassNotFoundException
+    {
+        stream.defaultReadObject();
+        if (spillFile != null && !closed)
+        {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile, true)));
+        }
+    }
+
+    /**
+     * A manifest entry.
+     */
+    public static class Entry implements Serializable
+    {
+
+        private static final long serialVersionUID = -2297305592460367418L;
+
+        /**
+         * The pack file.
+         */
+        private final PackFile packFile;
+
+        /**
+         * The file holding the data, or the archive if the data is held in an archive entry.
+         */
+        private final File file;
+
+        /**
+         * The archive entry holding the data. May be {@code null}.
+         */
+        private final ArchiveEntry archiveEntry;
+
+        /**
+         * Constructs an {@code Entry}.
+         *
+         * @param packFile     the pack file
+         * @param file         the file holding the data, or the archive if the data is held in an archive entry
+         * @param archiveEntry the archive entry holding the data. May be {@code null}
+         */
+        public Entry(PackFile packFile, File file, ArchiveEntry archiveEntry)
+        {
+            this.packFile = packFile;
+            this.file = file;
+            this.archiveEntry = archiveEntry;
+        }
+
+        /**
+         * Returns the pack file.
+         *
+         * @return the pack file
+         */
+        public PackFile getPackFile()
+        {
+            return packFile;
+        }
+
+        /**
+         * Returns the file holding the data.
+         *
+         * @return the file, or the archive if the data is held in an archive entry
+         */
+        public File getFile()
+        {
+            return file;
+        }
+
+        /**
+         * Returns the archive entry holding the data.
+         *
+         * @return the archive entry, or {@code null} if the data isn't held in an archive, or the file is a directory
+         */
+        public ArchiveEntry getArchiveEntry()
+        {
+            return archiveEntry;
+        }
+    }
+
+    /**
+     * The attributes shared by the files of a fileset.
+     * <p/>
+     * The OS constraints and additionals are compared by identity, as the same instances are shared by each file
+     * added from a fileset.
+     */
+    private static class Attributes implements Serializable
+    {
+
+        private static final long serialVersionUID = 8163735009917296545L;
+
+        /**
+         * The OS constraints.
+         */
+        private final List<OsModel> osList;
+
+        /**
+         * The override type.
+         */
+        private final OverrideType override;
+
+        /**
+         * The override rename expression.
+         */
+        private final String overrideRenameTo;
+
+        /**
+         * The blockable type.
+         */
+        private final Blockable blockable;
+
+        /**
+         * The additional attributes.
+         */
+        private final Map additionals;
+
+        /**
+         * The condition.
+         */
+        private final String condition;
+
+        /**
+         * Constructs an {@code Attributes} from a pack file.
+         *
+         * @param packFile the pack file
+         */
+        public Attributes(PackFile packFile)
+        {
+            osList = packFile.osConstraints();
+            override = packFile.override();
+            overrideRenameTo = packFile.overrideRenameTo();
+            blockable = packFile.blockable();
+            additionals = packFile.getAdditionals();
+            condition = packFile.getCondition();
+        }
+
+        /**
+         * Compares this with another object.
+         *
+         * @param other the object to compare with
+         * @return {@code true} if the attributes are the same
+         */
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Attributes))
+            {
+                return false;
+            }
+            Attributes attrs = (Attributes) other;
+            return osList == attrs.osList && additionals == attrs.additionals && override == attrs.override
+                    && blockable == attrs.blockable && equals(overrideRenameTo, attrs.overrideRenameTo)
+                    && equals(condition, attrs.condition);
+        }
+
+        /**
+         * Returns a hash code for this.
+         *
+         * @return a hash code
+         */
+        @Override
+        public int hashCode()
+        {
+            int result = System.identityHashCode(osList);
+            result = 31 * result + System.identityHashCode(additionals);
+            result = 31 * result + (override != null ? override.hashCode() : 0);
+            result = 31 * result + (condition != null ? condition.hashCode() : 0);
+            return result;
+        }
+
+        /**
+         * Compares two possibly {@code null} strings.
+         *
+         * @param a the first string
+         * @param b the second string
+         * @return {@code true} if they are equal
+         */
+        private static boolean equals(String a, String b)
+        {
+            return (a == null) ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Iterates over spilled entries.
+     */
+    private class SpillIterator implements Iterator<Entry>
+    {
+
+        /**
+         * The stream to read from, or {@code null} once all entries have been read.
+         */
+        private DataInputStream in;
+
+        /**
+         * The number of entries remaining.
+         */
+        private int remaining = size;
+
+        /**
+         * Constructs a {@code SpillIterator}.
+         *
+         * @throws IOException if the spill file cannot be opened
+         */
+        public SpillIterator() throws IOException
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+            closeIfDone();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return remaining > 0;
+        }
+
+        @Override
+        public Entry next()
+        {
+            if (remaining <= 0)
+            {
+                throw new NoSuchElementException();
+            }
+            try
+            {
+                Entry entry = read(in);
+                --remaining;
+                closeIfDone();
+                return entry;
+            }
+            catch (IOException exception)
+            {
+                throw new IzPackException("Failed to read " + spillFile, exception);
+            }
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Closes the stream once all entries have been read.
+         *
+         * @throws IOException for any I/O error
+         */
+        private void closeIfDone() throws IOException
+        {
+            if (remaining == 0 && in != null)
+            {
+                in.close();
+                in = null;
+            }
+        }
+    }
+}
@@ -26,10 +26,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.ZipEntry;
 
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.OverrideType;
@@ -37,6 +38,7 @@ import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackColor;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.binding.OsModel;
+import com.izforge.izpack.util.FileUtil;
 
 /**
  * Temporary holding place for Pack information as the Packager is built. The packager is used by
@@ -65,7 +67,7 @@ public class PackInfo implements Serializable
     /**
      * Files of the Pack.
      */
-    private Map<PackFile, File> files = new LinkedHashMap<PackFile, File>();
+    private PackFileManifest files;
 
     /**
      * Parsables files in this Pack.
@@ -100,6 +102,7 @@ public class PackInfo implements Serializable
         boolean ispreselected = (excludegroup == null);
         pack = new Pack(name, id, description, null, null, required, ispreselected, loose, excludegroup, uninstall,
                         size);
+        files = new PackFileManifest(loose);
         colour = PackColor.WHITE;
     }
 
@@ -238,24 +241,99 @@ public class PackInfo implements Serializable
                                          additionals);
         packFile.setLoosePackInfo(pack.isLoose());
         packFile.setCondition(condition);
-        files.put(packFile, file);
+        files.add(packFile, file, null);
+    }
+
+    /**
+     * Add a zip archive entry to the pack, without extracting it. The entry data is read from the archive when the
+     * pack is written.
+     *
+     * @param baseDir          the base directory of the compilation
+     * @param archive          the archive
+     * @param entry            the archive entry. Its size, time and CRC must be known, as they are for entries read
+     *                         from the central directory of a {@link java.util.zip.ZipFile}
+     * @param targetfile       path file will be installed to
+     * @param osList           the target operation system(s) of this pack
+     * @param override         what to do if the file already exists when installing
+     * @param overrideRenameTo the globmapper expression to rename the file with when overriding
+     * @param blockable        whether or not the file might be blocked by the operating system
+     * @param additionals      map which contains additional data
+     * @param condition        condition that must evaluate {@code true} for the file to be installed. May be
+     *                         {@code null}
+     * @throws IOException if the relative path of the archive cannot be determined
+     */
+    public void addArchiveEntry(File baseDir, File archive, ZipEntry entry, String targetfile, List<OsModel> osList,
+                                OverrideType override, String overrideRenameTo, Blockable blockable, Map additionals,
+                                String condition) throws IOException
+    {
+        String name = entry.getName();
+        if (entry.isDirectory())
+        {
+            name = name.substring(0, name.length() - 1);
+        }
+        String relativeArchive = FileUtil.getRelativeFileName(archive, baseDir);
+        String relativePath = (relativeArchive != null) ? relativeArchive + "/" + name : null;
+        long mtime = (entry.getTime() != -1) ? entry.getTime() : archive.lastModified();
+        long length = entry.isDirectory() ? 0 : entry.getSize();
+
+        PackFile packFile = new PackFile(archive.getPath() + "!/" + name, relativePath, targetfile,
+                                         entry.isDirectory(), length, mtime, osList, override, overrideRenameTo,
+                                         blockable, additionals);
+        packFile.setLoosePackInfo(pack.isLoose());
+        packFile.setCondition(condition);
+        ArchiveEntry archiveEntry = null;
+        if (!entry.isDirectory())
+        {
+            archiveEntry = new ArchiveEntry(archive, entry.getName(), entry.getCrc());
+        }
+        files.add(packFile, archive, archiveEntry);
+    }
+
+    /**
+     * The files of this Pack, in the order they were added.
+     * <p/>
+     * Large packs are spilled to disk, so the files should be iterated rather than collected.
+     */
+    public PackFileManifest getManifest()
+    {
+        return files;
     }
 
     /**
      * Set of PackFile objects for this Pack.
+     * <p/>
+     * This loads all of the files into memory; use {@link #getManifest()} to iterate over them instead.
      */
     public Set<PackFile> getPackFiles()
     {
-        return files.keySet();
+        Set<PackFile> result = new LinkedHashSet<PackFile>();
+        for (PackFileManifest.Entry entry : files)
+        {
+            result.add(entry.getPackFile());
+        }
+        return result;
     }
 
     /**
      * The file described by the specified PackFile. Returns <tt>null</tt> if the PackFile did not
-     * come from the set returned by {@link #getPackFiles()}.
+     * come from the set returned by {@link #getPackFiles()}. For PackFiles added from an archive,
+     * this is the archive.
+     *
+     * @deprecated this searches the files of the pack; use the entries of {@link #getManifest()}
      */
+    @Deprecated
     public File getFile(PackFile packFile)
     {
-        return files.get(packFile);
+        for (PackFileManifest.Entry entry : files)
+        {
+            PackFile other = entry.getPackFile();
+            if (other == packFile || (other.sourcePath.equals(packFile.sourcePath)
+                    && other.getTargetPath().equals(packFile.getTargetPath())))
+            {
+                return entry.getFile();
+            }
+        }
+        return null;
     }
 
     /**
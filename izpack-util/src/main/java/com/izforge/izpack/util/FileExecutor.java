@@ -37,6 +37,7 @@ import java.util.logging.Logger;
 
 import com.izforge.izpack.api.handler.AbstractUIHandler;
 import com.izforge.izpack.data.ExecutableFile;
+import com.izforge.izpack.util.unix.CommandResolver;
 
 /**
  * Executes a bunch of files. This class is intended to do a system dependent installation
@@ -331,7 +332,8 @@ public class FileExecutor
             {
                 // fix executable permission for unix systems
                 logger.fine("Making file executable (setting executable flag)");
-                String[] params = {"/bin/chmod", permissions, file.toString()};
+                String[] params = {CommandResolver.getDefault().resolve("chmod", "/bin/chmod"), permissions,
+                        file.toString()};
                 exitStatus = executeCommand(params, output);
                 if (exitStatus != 0)
                 {
@@ -0,0 +1,389 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.Variables;
+
+
+/**
+ * Determines the free space of file systems, and the space that packs require on each file system.
+ * <p/>
+ * Free space is determined using {@link File#getUsableSpace()} rather than running external commands, and is
+ * cached per mount point for a short time, so that it may be queried each time the pack selection changes.
+ * <p/>
+ * Mount points are read from <tt>/proc/mounts</tt> where available; otherwise the file system roots are used.
+ */
+public class FreeSpaceService
+{
+
+    /**
+     * The default time that free space is cached for, in milliseconds.
+     */
+    public static final long DEFAULT_TTL = 2000;
+
+    /**
+     * The default service.
+     */
+    private static final FreeSpaceService DEFAULT = new FreeSpaceService(DEFAULT_TTL);
+
+    /**
+     * The mount table.
+     */
+    private static final File PROC_MOUNTS = new File("/proc/mounts");
+
+    /**
+     * The time that free space and mount points are cached for, in milliseconds.
+     */
+    private final long ttl;
+
+    /**
+     * The cached free space, keyed on mount point.
+     */
+    private final Map<File, Long> freeSpace = new HashMap<File, Long>();
+
+    /**
+     * The times that the cached free space expires, keyed on mount point.
+     */
+    private final Map<File, Long> expiry = new HashMap<File, Long>();
+
+    /**
+     * The mount points, longest path first. May be {@code null}.
+     */
+    private List<File> mounts;
+
+    /**
+     * The time that the mount points expire.
+     */
+    private long mountsExpiry;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(FreeSpaceService.class.getName());
+
+    /**
+     * Constructs a {@code FreeSpaceService}.
+     *
+     * @param ttl the time that free space and mount points are cached for, in milliseconds
+     */
+    public FreeSpaceService(long ttl)
+    {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the default service.
+     *
+     * @return the default service
+     */
+    public static FreeSpaceService getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the free space available to this process on the file system containing a path.
+     *
+     * @param path the path. Need not exist
+     * @return the free space, in bytes, or {@code -1} if it cannot be determined
+     */
+    public synchronized long getFreeSpace(File path)
+    {
+        File mount = getMount(path);
+        long now = System.currentTimeMillis();
+        Long expires = expiry.get(mount);
+        if (expires == null || now >= expires)
+        {
+            File existing = IoHelper.existingParent(path.getAbsoluteFile());
+            long result = existing.exists() ? existing.getUsableSpace() : -1;
+            logger.fine("Free space on " + mount + ": " + result);
+            freeSpace.put(mount, result);
+            expiry.put(mount, now + ttl);
+        }
+        return freeSpace.get(mount);
+    }
+
+    /**
+     * Returns the mount point of the file system containing a path.
+     *
+     * @param path the path. Need not exist
+     * @return the mount point, or the nearest existing directory of the path if it cannot be determined
+     */
+    public synchronized File getMount(File path)
+    {
+        File dir = IoHelper.existingParent(path.getAbsoluteFile());
+        try
+        {
+            dir = dir.getCanonicalFile();
+        }
+        catch (IOException exception)
+        {
+            // use the absolute path
+        }
+        String name = dir.getPath();
+        for (File mount : getMounts())
+        {
+            String mountName = mount.getPath();
+            if (name.equals(mountName) || (name.startsWith(mountName)
+                    && (mountName.endsWith(File.separator) || name.charAt(mountName.length()) == File.separatorChar)))
+            {
+                return mount;
+            }
+        }
+        return dir;
+    }
+
+    /**
+     * Returns the space required to install packs, per file system.
+     * <p/>
+     * The {@link Pack#getTargetSizes() target sizes} of each pack are resolved using the supplied variables. Any
+     * space the pack reserves beyond its files, and the size of packs without target sizes, are accounted to the
+     * default target.
+     *
+     * @param packs         the packs to install
+     * @param variables     the variables used to resolve target roots
+     * @param defaultTarget the default target, normally the installation path
+     * @return the required space in bytes, keyed on mount point
+     */
+    public Map<File, Long> getRequiredSpace(Collection<Pack> packs, Variables variables, File defaultTarget)
+    {
+        Map<File, Long> result = new LinkedHashMap<File, Long>();
+        Map<String, File> resolved = new HashMap<String, File>();
+        for (Pack pack : packs)
+        {
+            Map<String, Long> targetSizes = pack.getTargetSizes();
+            long reserved = targetSizes.isEmpty() ? pack.getSize() : pack.getSize() - pack.getFileSize();
+            if (reserved > 0)
+            {
+                add(result, getMount(defaultTarget), reserved);
+            }
+            for (Map.Entry<String, Long> entry : targetSizes.entrySet())
+            {
+                File mount = resolved.get(entry.getKey());
+                if (mount == null)
+                {
+                    File target = new File(variables.replace(entry.getKey()));
+                    if (!target.isAbsolute())
+                    {
+                        target = new File(defaultTarget, target.getPath());
+                    }
+                    mount = getMount(target);
+                    resolved.put(entry.getKey(), mount);
+                }
+                add(result, mount, entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if there is enough free space to install packs.
+     *
+     * @param packs         the packs to install
+     * @param variables     the variables used to resolve target roots
+     * @param defaultTarget the default target, normally the installation path
+     * @return {@code false} if a file system has less free space than the packs require on it, otherwise
+     *         {@code true}. File systems whose free space cannot be determined are assumed to have enough space
+     */
+    public boolean isSpaceAvailable(Collection<Pack> packs, Variables variables, File defaultTarget)
+    {
+        for (Map.Entry<File, Long> entry : getRequiredSpace(packs, variables, defaultTarget).entrySet())
+        {
+            long free = getFreeSpace(entry.getKey());
+            if (free >= 0 && free <= entry.getValue())
+            {
+                logger.info("Not enough space on " + entry.getKey() + ": " + entry.getValue() + " bytes required, "
+                                    + free + " bytes free");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Discards the cached free space and mount points.
+     */
+    public synchronized void clear()
+    {
+        freeSpace.clear();
+        expiry.clear();
+        mounts = null;
+    }
+
+    /**
+     * Returns the mount points, longest path first.
+     *
+     * @return the mount points
+     */
+    private List<File> getMounts()
+    {
+        long now = System.currentTimeMillis();
+        if (mounts == null || now >= mountsExpiry)
+        {
+            List<File> result = PROC_MOUNTS.canRead() ? readMounts(PROC_MOUNTS) : null;
+            if (result == null)
+            {
+                result = new ArrayList<File>();
+                Collections.addAll(result, File.listRoots());
+            }
+            Collections.sort(result, new Comparator<File>()
+            {
+                @Override
+                public int compare(File o1, File o2)
+                {
+                    return o2.getPath().length() - o1.getPath().length();
+                }
+            });
+            mounts = result;
+            mountsExpiry = now + ttl;
+        }
+        return mounts;
+    }
+
+    /**
+     * Reads the mount points from a mount table in the <tt>/proc/mounts</tt> format.
+     *
+     * @param file the mount table
+     * @return the mount points, or {@code null} if the table cannot be read
+     */
+    static List<File> readMounts(File file)
+    {
+        List<File> result = new ArrayList<File>();
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new FileReader(file));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                StringTokenizer tokens = new StringTokenizer(line);
+                if (tokens.countTokens() >= 2)
+                {
+                    tokens.nextToken(); // the device
+                    result.add(new File(unescape(tokens.nextToken())));
+                }
+            }
+        }
+        catch (IOException exception)
+        {
+            logger.fine("Failed to read " + file + ": " + exception.getMessage());
+            result = null;
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException ignore)
+                {
+                    // do nothing
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the octal escapes used for white space and backslashes in mount table entries.
+     *
+     * @param value the value to unescape
+     * @return the unescaped value
+     */
+    private static String unescape(String value)
+    {
+        if (value.indexOf('\\') == -1)
+        {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length())
+        {
+            char ch = value.charAt(i);
+            if (ch == '\\' && isOctal(value, i + 1))
+            {
+                result.append((char) Integer.parseInt(value.substring(i + 1, i + 4), 8));
+                i += 4;
+            }
+            else
+            {
+                result.append(ch);
+                ++i;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Determines if the three characters at an index are octal digits.
+     *
+     * @param value the value
+     * @param index the index of the first character
+     * @return {@code true} if the characters are octal digits
+     */
+    private static boolean isOctal(String value, int index)
+    {
+        if (index + 3 > value.length())
+        {
+            return false;
+        }
+        for (int i = index; i < index + 3; ++i)
+        {
+            char ch = value.charAt(i);
+            if (ch < '0' || ch > '7')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds to the space required on a file system.
+     *
+     * @param required the required space, keyed on mount point
+     * @param mount    the mount point
+     * @param size     the space to add, in bytes
+     */
+    private static void add(Map<File, Long> required, File mount, long size)
+    {
+        Long current = required.get(mount);
+        required.put(mount, (current != null) ? current + size : size);
+    }
+}
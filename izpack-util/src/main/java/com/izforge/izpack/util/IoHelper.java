@@ -21,8 +21,6 @@
 
 package com.izforge.izpack.util;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -204,18 +202,16 @@ public class IoHelper
         }
         else
         {
-            BufferedInputStream bin = new BufferedInputStream(in, 5120);
-            BufferedOutputStream bout = new BufferedOutputStream(out, 5120);
             try
             {
-                vs.substitute(bin, bout, type, null);
+                vs.substitute(in, out, type, null);
             }
             catch (Exception e)
             {
                 throw new IOException("Substitution failed during copying a stream(" + e.getMessage() + ")");
             }
-            bin.close();
-            bout.close();
+            in.close();
+            out.close();
         }
     }
 
@@ -335,11 +331,27 @@ public class IoHelper
 
     /**
      * Returns the free (disk) space for the given path. If it is not ascertainable -1 returns.
+     * <p/>
+     * The free space is determined by the {@link FreeSpaceService}, falling back to the output of system commands
+     * if the path doesn't exist.
      *
      * @param path path for which the free space should be detected
      * @return the free space for the given path
      */
     public static long getFreeSpace(String path)
+    {
+        long retval = FreeSpaceService.getDefault().getFreeSpace(new File(path));
+        return (retval >= 0) ? retval : getFreeSpaceExternal(path);
+    }
+
+    /**
+     * Returns the free (disk) space for the given path, using the output of system commands. If it is not
+     * ascertainable -1 returns.
+     *
+     * @param path path for which the free space should be detected
+     * @return the free space for the given path
+     */
+    private static long getFreeSpaceExternal(String path)
     {
         long retval = -1;
         if (OsVersion.IS_WINDOWS)
@@ -0,0 +1,485 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Records the time spent in named phases, for diagnosing where time goes at startup.
+ * <p/>
+ * Timing is disabled by default, in which case {@link #start(String)} returns a shared handle and nothing is
+ * recorded. It is enabled by setting the {@link #TRACE_FILE izpack.timeline} system property to the path of a file;
+ * on exit, the recorded phases are written to the file in the
+ * <a href="https://github.com/catapult-project/catapult/wiki/Trace-Event-Format">trace event</a> JSON format, which
+ * may be loaded into <em>chrome://tracing</em> or similar viewers. Timestamps are relative to the start of the JVM.
+ * <p/>
+ * If the {@link #WRITE_AT izpack.timeline.write} system property is also set, the trace is also written as soon as
+ * the phase or mark of that name completes. The JVM keeps running; a harness measuring cold start times waits for
+ * the trace to appear and then stops the process itself. The trace file is replaced atomically, so it is never
+ * read partially written.
+ * <p/>
+ * Usage:
+ * <pre>
+ * PhaseTimer.Phase phase = PhaseTimer.start("rules");
+ * try
+ * {
+ *     ...
+ * }
+ * finally
+ * {
+ *     phase.end();
+ * }
+ * </pre>
+ */
+public final class PhaseTimer
+{
+
+    /**
+     * The system property specifying the trace file. If set, timing is enabled.
+     */
+    public static final String TRACE_FILE = "izpack.timeline";
+
+    /**
+     * The system property specifying the phase or mark at which to write the trace, before exit.
+     */
+    public static final String WRITE_AT = "izpack.timeline.write";
+
+    /**
+     * The handle returned when timing is disabled.
+     */
+    private static final Phase DISABLED = new Phase(null, 0);
+
+    /**
+     * The recorded events.
+     */
+    private static final List<Event> events = new ArrayList<Event>();
+
+    /**
+     * Determines if timing is enabled.
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * The trace file. May be {@code null}.
+     */
+    private static File file;
+
+    /**
+     * The phase or mark at which to write the trace, before exit. May be {@code null}.
+     */
+    private static String writeAt;
+
+    /**
+     * The value of {@link System#nanoTime()} corresponding to the start of the JVM.
+     */
+    private static long origin;
+
+    /**
+     * Determines if the shutdown hook has been registered.
+     */
+    private static boolean hookRegistered;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(PhaseTimer.class.getName());
+
+    static
+    {
+        String path = System.getProperty(TRACE_FILE);
+        if (path != null && path.length() != 0)
+        {
+            enable(new File(path), System.getProperty(WRITE_AT));
+        }
+    }
+
+    /**
+     * Private constructor. Use the static methods.
+     */
+    private PhaseTimer()
+    {
+    }
+
+    /**
+     * Enables timing.
+     * <p/>
+     * Any previously recorded events are discarded.
+     *
+     * @param file    the file to write the trace to on exit. May be {@code null}
+     * @param writeAt the phase or mark at which to write the trace, before exit. May be {@code null}
+     */
+    public static synchronized void enable(File file, String writeAt)
+    {
+        PhaseTimer.file = file;
+        PhaseTimer.writeAt = writeAt;
+        events.clear();
+        origin = getOrigin();
+        if (file != null && !hookRegistered)
+        {
+            hookRegistered = true;
+            Runtime.getRuntime().addShutdownHook(new Thread("PhaseTimer-shutdown")
+            {
+                @Override
+                public void run()
+                {
+                    write();
+                }
+            });
+        }
+        enabled = true;
+    }
+
+    /**
+     * Disables timing, discarding any recorded events.
+     */
+    public static synchronized void disable()
+    {
+        enabled = false;
+        file = null;
+        writeAt = null;
+        events.clear();
+    }
+
+    /**
+     * Determines if timing is enabled.
+     *
+     * @return {@code true} if timing is enabled
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts a phase.
+     *
+     * @param name the phase name
+     * @return a handle to {@link Phase#end() end} the phase
+     */
+    public static Phase start(String name)
+    {
+        return enabled ? new Phase(name, System.nanoTime()) : DISABLED;
+    }
+
+    /**
+     * Records an instant, such as the first paint of a window.
+     *
+     * @param name the mark name
+     */
+    public static void mark(String name)
+    {
+        if (enabled)
+        {
+            record(new Event(name, System.nanoTime(), -1));
+        }
+    }
+
+    /**
+     * Returns the duration of each completed phase, in the order they were recorded.
+     * <p/>
+     * If a phase is recorded more than once, the durations are summed.
+     *
+     * @return the phase durations in nanoseconds, keyed on phase name
+     */
+    public static synchronized Map<String, Long> getDurations()
+    {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Event event : events)
+        {
+            if (event.duration >= 0)
+            {
+                Long total = result.get(event.name);
+                result.put(event.name, (total != null) ? total + event.duration : event.duration);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the trace to the trace file, if timing is enabled and a file was specified.
+     * <p/>
+     * The trace is written to a temporary file which then replaces the trace file, so that the trace file is never
+     * partially written.
+     */
+    public static synchronized void write()
+    {
+        if (enabled && file != null)
+        {
+            File temp = new File(file.getPath() + ".tmp");
+            Writer writer = null;
+            try
+            {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+                write(writer);
+                writer.close();
+                writer = null;
+                if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file)))
+                {
+                    throw new IOException("Failed to rename " + temp + " to " + file);
+                }
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.WARNING, "Failed to write timeline to " + file + ": " + exception.getMessage(),
+                           exception);
+            }
+            finally
+            {
+                if (writer != null)
+                {
+                    try
+                    {
+                        writer.close();
+                    }
+                    catch (IOException ignore)
+                    {
+                        // no-op
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the trace in the trace event JSON format.
+     * <p/>
+     * Each event is written on a separate line.
+     *
+     * @param writer the writer to write to. This is flushed but not closed
+     * @throws IOException for any I/O error
+     */
+    public static synchronized void write(Writer writer) throws IOException
+    {
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        Map<Long, String> threads = new LinkedHashMap<Long, String>();
+        boolean first = true;
+        for (Event event : events)
+        {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write("{\"name\":");
+            writeString(writer, event.name);
+            writer.write(",\"ph\":\"");
+            writer.write(event.duration >= 0 ? "X" : "i");
+            writer.write("\",\"ts\":");
+            writer.write(Long.toString((event.start - origin) / 1000));
+            if (event.duration >= 0)
+            {
+                writer.write(",\"dur\":");
+                writer.write(Long.toString(event.duration / 1000));
+            }
+            else
+            {
+                writer.write(",\"s\":\"g\"");
+            }
+            writer.write(",\"pid\":1,\"tid\":");
+            writer.write(Long.toString(event.threadId));
+            writer.write("}");
+            threads.put(event.threadId, event.threadName);
+        }
+        for (Map.Entry<Long, String> thread : threads.entrySet())
+        {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+            writer.write(Long.toString(thread.getKey()));
+            writer.write(",\"args\":{\"name\":");
+            writeString(writer, thread.getValue());
+            writer.write("}}");
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    /**
+     * Records an event, writing the trace if it is the {@link #WRITE_AT write} event.
+     *
+     * @param event the event
+     */
+    private static synchronized void record(Event event)
+    {
+        if (enabled)
+        {
+            events.add(event);
+            if (event.name.equals(writeAt))
+            {
+                write();
+            }
+        }
+    }
+
+    /**
+     * Returns the value of {@link System#nanoTime()} corresponding to the start of the JVM.
+     *
+     * @return the JVM start time, or the current time if it cannot be determined
+     */
+    private static long getOrigin()
+    {
+        long now = System.nanoTime();
+        try
+        {
+            long uptime = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            if (uptime >= 0)
+            {
+                return now - uptime * 1000000L;
+            }
+        }
+        catch (Throwable exception)
+        {
+            logger.log(Level.FINE, "Failed to determine JVM start time: " + exception.getMessage(), exception);
+        }
+        return now;
+    }
+
+    /**
+     * Writes a JSON string.
+     *
+     * @param writer the writer to write to
+     * @param value  the value to write
+     * @throws IOException for any I/O error
+     */
+    private static void writeString(Writer writer, String value) throws IOException
+    {
+        writer.write('"');
+        for (int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                writer.write('\\');
+                writer.write(c);
+            }
+            else if (c < 0x20)
+            {
+                String hex = Integer.toHexString(c);
+                writer.write("\\u0000", 0, 6 - hex.length());
+                writer.write(hex);
+            }
+            else
+            {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * A phase in progress.
+     */
+    public static class Phase
+    {
+
+        /**
+         * The phase name, or {@code null} if timing is disabled.
+         */
+        private final String name;
+
+        /**
+         * The start time, in nanoseconds.
+         */
+        private final long start;
+
+        /**
+         * Determines if the phase has ended.
+         */
+        private boolean ended;
+
+        /**
+         * Constructs a {@code Phase}.
+         *
+         * @param name  the phase name, or {@code null} if timing is disabled
+         * @param start the start time, in nanoseconds
+         */
+        private Phase(String name, long start)
+        {
+            this.name = name;
+            this.start = start;
+        }
+
+        /**
+         * Ends the phase, recording its duration.
+         * <p/>
+         * Subsequent invocations have no effect.
+         */
+        public void end()
+        {
+            if (name != null && !ended)
+            {
+                ended = true;
+                record(new Event(name, start, System.nanoTime() - start));
+            }
+        }
+    }
+
+    /**
+     * A recorded phase or mark.
+     */
+    private static class Event
+    {
+
+        /**
+         * The event name.
+         */
+        private final String name;
+
+        /**
+         * The start time, in nanoseconds.
+         */
+        private final long start;
+
+        /**
+         * The duration in nanoseconds, or {@code -1} if the event is a mark.
+         */
+        private final long duration;
+
+        /**
+         * The identifier of the thread that recorded the event.
+         */
+        private final long threadId;
+
+        /**
+         * The name of the thread that recorded the event.
+         */
+        private final String threadName;
+
+        public Event(String name, long start, long duration)
+        {
+            this.name = name;
+            this.start = start;
+            this.duration = duration;
+            Thread thread = Thread.currentThread();
+            threadId = thread.getId();
+            threadName = thread.getName();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The entries of a directory, and their types.
+ * <p/>
+ * The type of each entry is determined when the listing is read, so that scanning a directory requires a single
+ * status check for each regular file, rather than separate existence, directory and file checks.
+ * <p/>
+ * Listings are cached, keyed on canonical directory path, so that file sets over the same tree don't read it again.
+ * A cached listing is only used while the directory's modification time is unchanged. Listings of directories
+ * modified within the last {@link #RACY_INTERVAL} aren't cached, as a subsequent change may not update a coarse
+ * grained modification time.
+ */
+class DirectoryListing
+{
+
+    /**
+     * Entry type for regular files.
+     */
+    static final byte FILE = 0;
+
+    /**
+     * Entry type for directories.
+     */
+    static final byte DIRECTORY = 1;
+
+    /**
+     * Entry type for anything else, e.g. devices and broken links.
+     */
+    static final byte OTHER = 2;
+
+    /**
+     * The interval, in milliseconds, within which a directory modification time is too recent to be relied upon.
+     * This allows for file systems with a 2 second modification time resolution.
+     */
+    static final long RACY_INTERVAL = 2000;
+
+    /**
+     * The maximum number of cached listings.
+     */
+    private static final int MAX_CACHED = 10000;
+
+    /**
+     * The cached listings, keyed on canonical directory path, in least recently used order.
+     */
+    private static final Map<String, CachedListing> cache = new LinkedHashMap<String, CachedListing>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedListing> eldest)
+        {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    /**
+     * The entry names.
+     */
+    private final String[] names;
+
+    /**
+     * The entry types.
+     */
+    private final byte[] types;
+
+    /**
+     * Constructs a {@code DirectoryListing}.
+     *
+     * @param names the entry names
+     * @param types the entry types
+     */
+    DirectoryListing(String[] names, byte[] types)
+    {
+        this.names = names;
+        this.types = types;
+    }
+
+    /**
+     * Returns the listing of a directory, from the cache if it is up to date.
+     *
+     * @param dir the directory
+     * @return the listing, or {@code null} if the directory cannot be read
+     */
+    static DirectoryListing read(File dir)
+    {
+        String path;
+        try
+        {
+            path = dir.getCanonicalPath();
+        }
+        catch (IOException exception)
+        {
+            return list(dir);
+        }
+        // read the modification time before the listing, so a concurrent change invalidates the cached listing
+        long modified = dir.lastModified();
+        if (modified == 0)
+        {
+            return list(dir);
+        }
+        CachedListing cached;
+        synchronized (cache)
+        {
+            cached = cache.get(path);
+        }
+        if (cached != null && cached.modified == modified)
+        {
+            return cached.listing;
+        }
+        DirectoryListing listing = list(dir);
+        if (listing != null && System.currentTimeMillis() - modified > RACY_INTERVAL)
+        {
+            synchronized (cache)
+            {
+                cache.put(path, new CachedListing(modified, listing));
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Removes all cached listings.
+     */
+    static void clearCache()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Reads the listing of a directory.
+     *
+     * @param dir the directory
+     * @return the listing, or {@code null} if the directory cannot be read
+     */
+    private static DirectoryListing list(File dir)
+    {
+        String[] names = dir.list();
+        if (names == null)
+        {
+            return null;
+        }
+        byte[] types = new byte[names.length];
+        for (int i = 0; i < names.length; ++i)
+        {
+            // regular files are the most common, so check for them first
+            File file = new File(dir, names[i]);
+            if (file.isFile())
+            {
+                types[i] = FILE;
+            }
+            else if (file.isDirectory())
+            {
+                types[i] = DIRECTORY;
+            }
+            else
+            {
+                types[i] = OTHER;
+            }
+        }
+        return new DirectoryListing(names, types);
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of an entry.
+     *
+     * @param index the entry index
+     * @return the entry name
+     */
+    String getName(int index)
+    {
+        return names[index];
+    }
+
+    /**
+     * Returns the type of an entry.
+     *
+     * @param index the entry index
+     * @return one of {@link #FILE}, {@link #DIRECTORY} or {@link #OTHER}
+     */
+    byte getType(int index)
+    {
+        return types[index];
+    }
+
+    /**
+     * A cached listing.
+     */
+    private static class CachedListing
+    {
+
+        /**
+         * The directory modification time when the listing was read.
+         */
+        private final long modified;
+
+        /**
+         * The listing.
+         */
+        private final DirectoryListing listing;
+
+        public CachedListing(long modified, DirectoryListing listing)
+        {
+            this.modified = modified;
+            this.listing = listing;
+        }
+    }
+}
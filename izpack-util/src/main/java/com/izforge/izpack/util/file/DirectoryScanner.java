@@ -25,14 +25,24 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.util.file.types.Resource;
 import com.izforge.izpack.util.file.types.ResourceFactory;
 import com.izforge.izpack.util.file.types.selectors.FileSelector;
+import com.izforge.izpack.util.file.types.selectors.PathPatternTrie;
 import com.izforge.izpack.util.file.types.selectors.SelectorUtils;
 
 /**
@@ -289,6 +299,28 @@ public class DirectoryScanner
      */
     private Set<String> scannedDirs = new HashSet<String>();
 
+    /**
+     * The names of the files in {@link #filesIncluded}, {@link #filesExcluded} and {@link #filesDeselected},
+     * for constant time lookup.
+     */
+    private Set<String> filesAccounted = new HashSet<String>();
+
+    /**
+     * The names of the directories in {@link #dirsIncluded}, {@link #dirsExcluded} and {@link #dirsDeselected},
+     * for constant time lookup.
+     */
+    private Set<String> dirsAccounted = new HashSet<String>();
+
+    /**
+     * Directory listings being read in the background, keyed on directory.
+     */
+    private Map<File, FutureTask<DirectoryListing>> listings = new HashMap<File, FutureTask<DirectoryListing>>();
+
+    /**
+     * The executor used to read directory listings in the background, shared by all scanners.
+     */
+    private static ExecutorService listingExecutor;
+
     /**
      * Set of all include patterns that are full file names and don't
      * contain any wildcards.
@@ -316,22 +348,34 @@ public class DirectoryScanner
     private Set<String> excludeNonPatterns = new HashSet<String>();
 
     /**
-     * Array of all include patterns that contain wildcards.
+     * The include patterns, compiled.
      * <p/>
      * <p>Gets lazily initialized on the first invocation of
-     * isIncluded or isExcluded and cleared at the end of the scan
-     * method (cleared in clearCaches, actually).</p>
+     * isIncluded, isExcluded or couldHoldIncluded and cleared at the end
+     * of the scan method (cleared in clearCaches, actually).</p>
      */
-    private String[] includePatterns;
+    private PathPatternTrie includePatterns;
 
     /**
-     * Array of all exclude patterns that contain wildcards.
+     * The exclude patterns, compiled.
      * <p/>
      * <p>Gets lazily initialized on the first invocation of
-     * isIncluded or isExcluded and cleared at the end of the scan
-     * method (cleared in clearCaches, actually).</p>
+     * isIncluded, isExcluded or couldHoldIncluded and cleared at the end
+     * of the scan method (cleared in clearCaches, actually).</p>
+     */
+    private PathPatternTrie excludePatterns;
+
+    /**
+     * The exclude patterns ending in <tt>**</tt>, with the <tt>**</tt>
+     * removed, compiled. These match directories whose contents are
+     * excluded.
      */
-    private String[] excludePatterns;
+    private PathPatternTrie contentsExcludePatterns;
+
+    /**
+     * Set of all exclude patterns, as specified.
+     */
+    private Set<String> excludeSet = new HashSet<String>();
 
     /**
      * Have the non-pattern sets and pattern arrays for in- and
@@ -542,6 +586,17 @@ public class DirectoryScanner
         defaultExcludes.addAll(Arrays.asList(DEFAULTEXCLUDES));
     }
 
+    /**
+     * Discards the directory listings cached by all scanners.
+     * <p/>
+     * Listings are cached so that scanners over the same directories don't read them again, and are discarded
+     * automatically when a directory is modified. This releases the memory they use.
+     */
+    public static void clearListingCache()
+    {
+        DirectoryListing.clearCache();
+    }
+
     /**
      * Set the base directory to be scanned. This is the directory which is
      * scanned recursively. All '/' and '\' characters are replaced by
@@ -816,6 +871,7 @@ public class DirectoryScanner
                 }
                 if (isIncluded(""))
                 {
+                    dirsAccounted.add("");
                     if (!isExcluded(""))
                     {
                         if (isSelected("", basedir))
@@ -986,6 +1042,8 @@ public class DirectoryScanner
         dirsNotIncluded = new Vector<String>();
         dirsExcluded = new Vector<String>();
         dirsDeselected = new Vector<String>();
+        filesAccounted.clear();
+        dirsAccounted.clear();
         everythingIncluded = (basedir != null);
         scannedDirs.clear();
     }
@@ -1104,14 +1162,31 @@ public class DirectoryScanner
         {
             throw new Exception(dir + " is not a directory.");
         }
+        scan(dir, vpath, fast);
+    }
+
+    /**
+     * Scans a directory known to exist.
+     * <p/>
+     * The listings of the subdirectories that will be scanned are read in the background while the entries of
+     * this directory are processed, so that the directory tree is read in parallel. The entries are processed in
+     * the same order as a sequential scan.
+     *
+     * @param dir   the directory to scan
+     * @param vpath the path relative to the base directory
+     * @param fast  whether or not this call is part of a fast scan
+     * @throws Exception if the directory cannot be read, or a selector fails
+     */
+    private void scan(File dir, String vpath, boolean fast) throws Exception
+    {
         // avoid double scanning of directories, can only happen in fast mode
         if (fast && hasBeenScanned(vpath))
         {
             return;
         }
-        String[] newfiles = dir.list();
+        DirectoryListing listing = getListing(dir);
 
-        if (newfiles == null)
+        if (listing == null)
         {
             /*
              * two reasons are mentioned in the API docs for File.list
@@ -1123,23 +1198,30 @@ public class DirectoryScanner
             throw new Exception("IO error scanning directory "
                     + dir.getAbsolutePath());
         }
+        int size = listing.size();
+        boolean[] links = null;
         if (!followSymlinks)
         {
-            Vector<String> noLinks = new Vector<String>();
-            for (String newfile : newfiles)
+            links = new boolean[size];
+            for (int i = 0; i < size; ++i)
             {
+                String newfile = listing.getName(i);
                 try
                 {
                     if (FILE_UTILS.isSymbolicLink(dir, newfile))
                     {
+                        links[i] = true;
                         String name = vpath + newfile;
-                        File file = new File(dir, newfile);
-                        (file.isDirectory()
-                                ? dirsExcluded : filesExcluded).addElement(name);
-                    }
-                    else
-                    {
-                        noLinks.addElement(newfile);
+                        if (listing.getType(i) == DirectoryListing.DIRECTORY)
+                        {
+                            dirsAccounted.add(name);
+                            dirsExcluded.addElement(name);
+                        }
+                        else
+                        {
+                            filesAccounted.add(name);
+                            filesExcluded.addElement(name);
+                        }
                     }
                 }
                 catch (IOException ioe)
@@ -1148,18 +1230,32 @@ public class DirectoryScanner
                             + "for links, couldn't get canonical path!";
                     // will be caught and redirected to Ant's logging system
                     System.err.println(msg);
-                    noLinks.addElement(newfile);
                 }
             }
-            newfiles = new String[noLinks.size()];
-            noLinks.copyInto(newfiles);
         }
-        for (String newfile : newfiles)
+
+        // start reading the subdirectories that will be descended into
+        for (int i = 0; i < size; ++i)
+        {
+            if (listing.getType(i) == DirectoryListing.DIRECTORY && (links == null || !links[i])
+                    && (!fast || willScan(vpath + listing.getName(i))))
+            {
+                prefetch(new File(dir, listing.getName(i)));
+            }
+        }
+
+        for (int i = 0; i < size; ++i)
         {
+            if (links != null && links[i])
+            {
+                continue;
+            }
+            String newfile = listing.getName(i);
             String name = vpath + newfile;
-            File file = new File(dir, newfile);
-            if (file.isDirectory())
+            byte type = listing.getType(i);
+            if (type == DirectoryListing.DIRECTORY)
             {
+                File file = new File(dir, newfile);
                 if (isIncluded(name))
                 {
                     accountForIncludedDir(name, file, fast);
@@ -1170,19 +1266,19 @@ public class DirectoryScanner
                     dirsNotIncluded.addElement(name);
                     if (fast && couldHoldIncluded(name))
                     {
-                        scandir(file, name + File.separator, fast);
+                        scan(file, name + File.separator, fast);
                     }
                 }
                 if (!fast)
                 {
-                    scandir(file, name + File.separator, fast);
+                    scan(file, name + File.separator, fast);
                 }
             }
-            else if (file.isFile())
+            else if (type == DirectoryListing.FILE)
             {
                 if (isIncluded(name))
                 {
-                    accountForIncludedFile(name, file);
+                    accountForIncludedFile(name, new File(dir, newfile));
                 }
                 else
                 {
@@ -1193,6 +1289,94 @@ public class DirectoryScanner
         }
     }
 
+    /**
+     * Determines if a fast scan will descend into a directory.
+     *
+     * @param name the directory path relative to the base directory
+     * @return {@code true} if the directory will be scanned
+     */
+    private boolean willScan(String name)
+    {
+        if (isIncluded(name))
+        {
+            return !dirsAccounted.contains(name) && couldHoldIncluded(name) && !contentsExcluded(name);
+        }
+        return couldHoldIncluded(name);
+    }
+
+    /**
+     * Starts reading the listing of a directory in the background.
+     *
+     * @param dir the directory
+     */
+    private void prefetch(File dir)
+    {
+        if (!listings.containsKey(dir))
+        {
+            FutureTask<DirectoryListing> task = new FutureTask<DirectoryListing>(new ListingReader(dir));
+            listings.put(dir, task);
+            getListingExecutor().execute(task);
+        }
+    }
+
+    /**
+     * Returns the listing of a directory.
+     * <p/>
+     * If the listing is being read in the background, this waits for it. If it hasn't been started, it is read on
+     * the current thread.
+     *
+     * @param dir the directory
+     * @return the listing, or {@code null} if the directory cannot be read
+     * @throws Exception if the listing cannot be read
+     */
+    private DirectoryListing getListing(File dir) throws Exception
+    {
+        FutureTask<DirectoryListing> task = listings.remove(dir);
+        if (task == null)
+        {
+            return DirectoryListing.read(dir);
+        }
+        task.run();   // no-op if the task has been started by the executor
+        try
+        {
+            return task.get();
+        }
+        catch (ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : exception;
+        }
+    }
+
+    /**
+     * Returns the executor used to read directory listings in the background.
+     *
+     * @return the executor
+     */
+    private static synchronized ExecutorService getListingExecutor()
+    {
+        if (listingExecutor == null)
+        {
+            int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() * 2));
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<Runnable>(),
+                                                                 new ThreadFactory()
+                                                                 {
+                                                                     @Override
+                                                                     public Thread newThread(Runnable runnable)
+                                                                     {
+                                                                         Thread thread = new Thread(
+                                                                                 runnable, "IzPack - DirectoryScanner");
+                                                                         thread.setDaemon(true);
+                                                                         return thread;
+                                                                     }
+                                                                 });
+            executor.allowCoreThreadTimeOut(true);
+            listingExecutor = executor;
+        }
+        return listingExecutor;
+    }
+
     /**
      * Process included file.
      *
@@ -1201,9 +1385,7 @@ public class DirectoryScanner
      */
     private void accountForIncludedFile(String name, File file) throws Exception
     {
-        if (filesIncluded.contains(name)
-                || filesExcluded.contains(name)
-                || filesDeselected.contains(name))
+        if (!filesAccounted.add(name))
         {
             return;
         }
@@ -1235,9 +1417,7 @@ public class DirectoryScanner
     private void accountForIncludedDir(String name, File file, boolean fast)
             throws Exception
     {
-        if (dirsIncluded.contains(name)
-                || dirsExcluded.contains(name)
-                || dirsDeselected.contains(name))
+        if (!dirsAccounted.add(name))
         {
             return;
         }
@@ -1258,7 +1438,7 @@ public class DirectoryScanner
         everythingIncluded &= included;
         if (fast && couldHoldIncluded(name) && !contentsExcluded(name))
         {
-            scandir(file, name + File.separator, fast);
+            scan(file, name + File.separator, fast);
         }
     }
 
@@ -1280,14 +1460,7 @@ public class DirectoryScanner
         {
             return true;
         }
-        for (String includePattern : includePatterns)
-        {
-            if (matchPath(includePattern, name, isCaseSensitive()))
-            {
-                return true;
-            }
-        }
-        return false;
+        return includePatterns.matches(name);
     }
 
     /**
@@ -1300,59 +1473,28 @@ public class DirectoryScanner
      */
     protected boolean couldHoldIncluded(String name)
     {
-        for (String include : includes)
-        {
-            if (matchPatternStart(include, name, isCaseSensitive())
-                    && isMorePowerfulThanExcludes(name, include)
-                    && isDeeper(include, name))
-            {
-                return true;
-            }
-        }
-        return false;
-    }
+        ensureNonPatternSetsReady();
 
-    /**
-     * Verify that a pattern specifies files deeper
-     * than the level of the specified file.
-     *
-     * @param pattern the pattern to check.
-     * @param name    the name to check.
-     * @return whether the pattern is deeper than the name.
-     */
-    private boolean isDeeper(String pattern, String name)
-    {
-        Vector<?> p = SelectorUtils.tokenizePath(pattern);
-        Vector<?> n = SelectorUtils.tokenizePath(name);
-        return p.contains("**") || p.size() > n.size();
+        return includePatterns.couldMatchBelow(name) && isMorePowerfulThanExcludes(name);
     }
 
     /**
-     * Find out whether one particular include pattern is more powerful
+     * Find out whether the include patterns are more powerful
      * than all the excludes.
-     * Note:  the power comparison is based on the length of the include pattern
-     * and of the exclude patterns without the wildcards.
+     * Note:  the power comparison is based on the exclude patterns
+     * without the wildcards.
      * Ideally the comparison should be done based on the depth
      * of the match; that is to say how many file separators have been matched
      * before the first ** or the end of the pattern.
      * <p/>
      * IMPORTANT : this function should return false "with care".
      *
-     * @param name           the relative path to test.
-     * @param includepattern one include pattern.
-     * @return true if there is no exclude pattern more powerful than this include pattern.
+     * @param name the relative path to test.
+     * @return true if there is no exclude pattern more powerful than the include patterns.
      */
-    private boolean isMorePowerfulThanExcludes(String name, String includepattern)
+    private boolean isMorePowerfulThanExcludes(String name)
     {
-        String soughtexclude = name + File.separator + "**";
-        for (String exclude : excludes)
-        {
-            if (exclude.equals(soughtexclude))
-            {
-                return false;
-            }
-        }
-        return true;
+        return !excludeSet.contains(name + File.separator + "**");
     }
 
     /**
@@ -1363,16 +1505,10 @@ public class DirectoryScanner
      */
     private boolean contentsExcluded(String name)
     {
+        ensureNonPatternSetsReady();
+
         name = (name.endsWith(File.separator)) ? name : name + File.separator;
-        for (String e : excludes)
-        {
-            if (e.endsWith("**") && SelectorUtils.matchPath(
-                    e.substring(0, e.length() - 2), name, isCaseSensitive()))
-            {
-                return true;
-            }
-        }
-        return false;
+        return contentsExcludePatterns.matches(name);
     }
 
     /**
@@ -1393,14 +1529,7 @@ public class DirectoryScanner
         {
             return true;
         }
-        for (String excludePattern : excludePatterns)
-        {
-            if (matchPath(excludePattern, name, isCaseSensitive()))
-            {
-                return true;
-            }
-        }
-        return false;
+        return excludePatterns.matches(name);
     }
 
     /**
@@ -1781,10 +1910,17 @@ public class DirectoryScanner
     private synchronized void clearCaches()
     {
         fileListMap.clear();
+        for (FutureTask<DirectoryListing> task : listings.values())
+        {
+            task.cancel(false);
+        }
+        listings.clear();
         includeNonPatterns.clear();
         excludeNonPatterns.clear();
+        excludeSet.clear();
         includePatterns = null;
         excludePatterns = null;
+        contentsExcludePatterns = null;
         areNonPatternSetsReady = false;
     }
 
@@ -1796,35 +1932,64 @@ public class DirectoryScanner
     {
         if (!areNonPatternSetsReady)
         {
-            includePatterns = fillNonPatternSet(includeNonPatterns, includes);
-            excludePatterns = fillNonPatternSet(excludeNonPatterns, excludes);
+            fillNonPatternSet(includeNonPatterns, includes);
+            fillNonPatternSet(excludeNonPatterns, excludes);
+            includePatterns = new PathPatternTrie(includes, isCaseSensitive());
+            excludePatterns = new PathPatternTrie(excludes, isCaseSensitive());
+
+            List<String> contents = new ArrayList<String>();
+            for (String exclude : excludes)
+            {
+                excludeSet.add(exclude);
+                if (exclude.endsWith("**"))
+                {
+                    contents.add(exclude.substring(0, exclude.length() - 2));
+                }
+            }
+            contentsExcludePatterns = new PathPatternTrie(contents.toArray(new String[contents.size()]),
+                                                          isCaseSensitive());
             areNonPatternSetsReady = true;
         }
     }
 
     /**
      * Add all patterns that are not real patterns (do not contain
-     * wildcards) to the set and returns the real patterns.
+     * wildcards) to the set.
      *
      * @param set      Set to populate.
      * @param patterns String[] of patterns.
      */
-    private String[] fillNonPatternSet(Set<String> set, String[] patterns)
+    private void fillNonPatternSet(Set<String> set, String[] patterns)
     {
-        ArrayList<String> al = new ArrayList<String>(patterns.length);
         for (String pattern : patterns)
         {
             if (!SelectorUtils.hasWildcards(pattern))
             {
                 set.add(isCaseSensitive() ? pattern : pattern.toUpperCase());
             }
-            else
-            {
-                al.add(pattern);
-            }
         }
-        return set.size() == 0 ? patterns
-                : al.toArray(new String[al.size()]);
     }
 
+    /**
+     * Reads a directory listing.
+     */
+    private static class ListingReader implements Callable<DirectoryListing>
+    {
+
+        /**
+         * The directory to read.
+         */
+        private final File dir;
+
+        public ListingReader(File dir)
+        {
+            this.dir = dir;
+        }
+
+        @Override
+        public DirectoryListing call()
+        {
+            return DirectoryListing.read(dir);
+        }
+    }
 }
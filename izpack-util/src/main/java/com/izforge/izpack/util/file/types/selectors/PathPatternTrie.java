@@ -0,0 +1,528 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file.types.selectors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A set of path patterns, compiled into a trie of path segments.
+ * <p/>
+ * Patterns have the same syntax and semantics as {@link SelectorUtils#matchPath(String, String, boolean)}:
+ * <tt>*</tt> and <tt>?</tt> match characters within a segment, and <tt>**</tt> matches zero or more segments.
+ * Patterns that share a prefix share trie nodes, and literal segments are looked up by hash, so the cost of matching
+ * a path segment is independent of the number of patterns that don't share its prefix.
+ * <p/>
+ * The match state of each directory is cached, so that matching a path only requires the cached state of its
+ * parent directory to be advanced by one segment. Paths are expected to use <tt>File.separatorChar</tt>, as
+ * produced by {@link com.izforge.izpack.util.file.DirectoryScanner DirectoryScanner}.
+ */
+public final class PathPatternTrie
+{
+
+    /**
+     * The <tt>**</tt> pattern segment.
+     */
+    private static final String ANY_PATH = "**";
+
+    /**
+     * Determines if matching is case sensitive.
+     */
+    private final boolean caseSensitive;
+
+    /**
+     * The state for relative paths, before any segment is matched.
+     */
+    private final State relativeStart;
+
+    /**
+     * The state for paths starting with a separator, before any segment is matched.
+     */
+    private final State absoluteStart;
+
+    /**
+     * The states of directories, keyed on path.
+     */
+    private final Map<String, State> states = new HashMap<String, State>();
+
+    /**
+     * Constructs a {@code PathPatternTrie}.
+     *
+     * @param patterns      the patterns
+     * @param caseSensitive if {@code true}, matching is case sensitive
+     */
+    public PathPatternTrie(String[] patterns, boolean caseSensitive)
+    {
+        this.caseSensitive = caseSensitive;
+        Node relative = new Node(null);
+        Node absolute = new Node(null);
+        for (String pattern : patterns)
+        {
+            add(pattern.startsWith(File.separator) ? absolute : relative, pattern);
+        }
+        relative.prepare();
+        absolute.prepare();
+        relativeStart = new State(relative);
+        absoluteStart = new State(absolute);
+    }
+
+    /**
+     * Determines if a path matches any of the patterns.
+     * <p/>
+     * This is equivalent to invoking {@link SelectorUtils#matchPath(String, String, boolean)} for each pattern.
+     *
+     * @param path the path
+     * @return {@code true} if the path matches a pattern
+     */
+    public boolean matches(String path)
+    {
+        return getState(path, false).matches;
+    }
+
+    /**
+     * Determines if a directory could contain paths that match any of the patterns.
+     * <p/>
+     * This is true for a pattern if {@link SelectorUtils#matchPatternStart(String, String, boolean)} matches the
+     * directory, and the pattern either contains <tt>**</tt> or has more segments than the directory. As with
+     * {@code matchPatternStart}, this may yield false positives.
+     *
+     * @param dir the directory path
+     * @return {@code true} if the directory could contain matching paths
+     */
+    public boolean couldMatchBelow(String dir)
+    {
+        return getState(dir, true).couldMatchBelow;
+    }
+
+    /**
+     * Adds a pattern to the trie.
+     *
+     * @param root    the root node
+     * @param pattern the pattern
+     */
+    private void add(Node root, String pattern)
+    {
+        Node node = root;
+        for (String segment : SelectorUtils.tokenizePath(pattern))
+        {
+            if (segment.equals(ANY_PATH))
+            {
+                // consecutive ** segments are equivalent to one
+                if (!node.isAnyPath())
+                {
+                    if (node.anyPath == null)
+                    {
+                        node.anyPath = new Node(ANY_PATH);
+                    }
+                    node = node.anyPath;
+                }
+            }
+            else if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1)
+            {
+                node = node.getWildcard(segment);
+            }
+            else
+            {
+                node = node.getLiteral(getKey(segment));
+            }
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * Returns the state of a path.
+     *
+     * @param path  the path
+     * @param cache if {@code true}, cache the state of the path
+     * @return the state of the path
+     */
+    private synchronized State getState(String path, boolean cache)
+    {
+        State state = states.get(path);
+        if (state == null)
+        {
+            int index = path.lastIndexOf(File.separatorChar);
+            String segment;
+            if (index == -1)
+            {
+                state = relativeStart;
+                segment = path;
+            }
+            else
+            {
+                state = (index == 0) ? absoluteStart : getState(path.substring(0, index), true);
+                segment = path.substring(index + 1);
+            }
+            if (segment.length() != 0)
+            {
+                state = state.next(segment);
+            }
+            if (cache)
+            {
+                states.put(path, state);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Returns the key used to look up a literal segment.
+     *
+     * @param segment the segment
+     * @return the segment key
+     */
+    private String getKey(String segment)
+    {
+        if (caseSensitive)
+        {
+            return segment;
+        }
+        // compare character by character, as SelectorUtils.match() does
+        char[] chars = segment.toCharArray();
+        for (int i = 0; i < chars.length; ++i)
+        {
+            chars[i] = Character.toUpperCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A trie node, representing a pattern segment.
+     */
+    private final class Node
+    {
+
+        /**
+         * The pattern segment, or {@code null} for the root and literal segments.
+         */
+        private final String segment;
+
+        /**
+         * The literal child segments, keyed on {@link #getKey(String)}.
+         */
+        private Map<String, Node> literals;
+
+        /**
+         * The child segments containing wildcards.
+         */
+        private List<Node> wildcards;
+
+        /**
+         * The <tt>**</tt> child segment.
+         */
+        private Node anyPath;
+
+        /**
+         * Determines if a pattern ends at this node.
+         */
+        private boolean terminal;
+
+        /**
+         * Determines if a pattern ends below this node.
+         */
+        private boolean deeper;
+
+        /**
+         * Constructs a {@code Node}.
+         *
+         * @param segment the pattern segment, or {@code null} for the root and literal segments
+         */
+        public Node(String segment)
+        {
+            this.segment = segment;
+        }
+
+        /**
+         * Determines if this node represents the <tt>**</tt> segment.
+         *
+         * @return {@code true} if this node represents <tt>**</tt>
+         */
+        public boolean isAnyPath()
+        {
+            return ANY_PATH.equals(segment);
+        }
+
+        /**
+         * Returns the child node for a literal segment, creating it if required.
+         *
+         * @param key the segment key
+         * @return the child node
+         */
+        public Node getLiteral(String key)
+        {
+            if (literals == null)
+            {
+                literals = new HashMap<String, Node>();
+            }
+            Node result = literals.get(key);
+            if (result == null)
+            {
+                result = new Node(null);
+                literals.put(key, result);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the child node for a wildcard segment, creating it if required.
+         *
+         * @param segment the segment
+         * @return the child node
+         */
+        public Node getWildcard(String segment)
+        {
+            if (wildcards == null)
+            {
+                wildcards = new ArrayList<Node>();
+            }
+            for (Node wildcard : wildcards)
+            {
+                if (wildcard.segment.equals(segment))
+                {
+                    return wildcard;
+                }
+            }
+            Node result = new Node(segment);
+            wildcards.add(result);
+            return result;
+        }
+
+        /**
+         * Determines if this node's wildcard segment matches a path segment.
+         *
+         * @param name the path segment
+         * @return {@code true} if the segment matches
+         */
+        public boolean matches(String name)
+        {
+            return segment.equals("*") || SelectorUtils.match(segment, name, caseSensitive);
+        }
+
+        /**
+         * Computes {@link #deeper} for this node and its descendants.
+         *
+         * @return {@code true} if a pattern ends at or below this node
+         */
+        public boolean prepare()
+        {
+            if (literals != null)
+            {
+                for (Node child : literals.values())
+                {
+                    deeper |= child.prepare();
+                }
+            }
+            if (wildcards != null)
+            {
+                for (Node child : wildcards)
+                {
+                    deeper |= child.prepare();
+                }
+            }
+            if (anyPath != null)
+            {
+                deeper |= anyPath.prepare();
+            }
+            return terminal || deeper;
+        }
+    }
+
+    /**
+     * The match state after a number of path segments.
+     */
+    private final class State
+    {
+
+        /**
+         * The nodes reachable by the path segments.
+         */
+        private final List<Node> nodes;
+
+        /**
+         * The nodes reachable by the path segments without following any <tt>**</tt>, as matched by
+         * {@link SelectorUtils#matchPatternStart(String, String, boolean)}.
+         */
+        private final List<Node> prefixes;
+
+        /**
+         * Determines if a <tt>**</tt> has been reached by {@link #prefixes}.
+         */
+        private final boolean open;
+
+        /**
+         * Determines if the path matches a pattern.
+         */
+        private final boolean matches;
+
+        /**
+         * Determines if paths below the path could match a pattern.
+         */
+        private final boolean couldMatchBelow;
+
+        /**
+         * Constructs the state of an empty path.
+         *
+         * @param root the root node
+         */
+        public State(Node root)
+        {
+            this(closure(single(root)), single(root), false);
+        }
+
+        /**
+         * Constructs a {@code State}.
+         *
+         * @param nodes    the nodes reachable by the path segments
+         * @param prefixes the nodes reachable without following any <tt>**</tt>
+         * @param open     determines if a <tt>**</tt> was reached by the prefixes of a shorter path
+         */
+        private State(List<Node> nodes, List<Node> prefixes, boolean open)
+        {
+            boolean match = false;
+            for (Node node : nodes)
+            {
+                match |= node.terminal;
+            }
+            boolean below = false;
+            for (Node node : prefixes)
+            {
+                open |= node.anyPath != null;
+                below |= node.deeper;
+            }
+            this.nodes = nodes;
+            this.prefixes = prefixes;
+            this.open = open;
+            this.matches = match;
+            this.couldMatchBelow = open || below;
+        }
+
+        /**
+         * Returns the state after matching a path segment.
+         *
+         * @param name the path segment
+         * @return the next state
+         */
+        public State next(String name)
+        {
+            String key = null;
+            List<Node> next = new ArrayList<Node>();
+            for (Node node : nodes)
+            {
+                if (node.isAnyPath())
+                {
+                    add(next, node);
+                }
+                key = step(node, name, key, next);
+            }
+            List<Node> nextPrefixes = new ArrayList<Node>();
+            for (Node node : prefixes)
+            {
+                key = step(node, name, key, nextPrefixes);
+            }
+            return new State(closure(next), nextPrefixes, open);
+        }
+
+        /**
+         * Adds the literal and wildcard children of a node that match a path segment.
+         *
+         * @param node   the node
+         * @param name   the path segment
+         * @param key    the segment key, or {@code null} if it hasn't been computed yet
+         * @param result the list to add to
+         * @return the segment key
+         */
+        private String step(Node node, String name, String key, List<Node> result)
+        {
+            if (node.literals != null)
+            {
+                if (key == null)
+                {
+                    key = getKey(name);
+                }
+                Node child = node.literals.get(key);
+                if (child != null)
+                {
+                    add(result, child);
+                }
+            }
+            if (node.wildcards != null)
+            {
+                for (Node child : node.wildcards)
+                {
+                    if (child.matches(name))
+                    {
+                        add(result, child);
+                    }
+                }
+            }
+            return key;
+        }
+    }
+
+    /**
+     * Adds the <tt>**</tt> children of nodes, as <tt>**</tt> may match zero segments.
+     *
+     * @param nodes the nodes
+     * @return the nodes
+     */
+    private static List<Node> closure(List<Node> nodes)
+    {
+        for (int i = 0; i < nodes.size(); ++i)
+        {
+            Node anyPath = nodes.get(i).anyPath;
+            if (anyPath != null)
+            {
+                add(nodes, anyPath);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Adds a node to a list, if it isn't already present.
+     *
+     * @param nodes the list
+     * @param node  the node to add
+     */
+    private static void add(List<Node> nodes, Node node)
+    {
+        if (!nodes.contains(node))
+        {
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Returns a modifiable list containing a single node.
+     *
+     * @param node the node
+     * @return a new list
+     */
+    private static List<Node> single(Node node)
+    {
+        List<Node> result = new ArrayList<Node>();
+        result.add(node);
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.unix;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+
+/**
+ * Resolves command names to absolute paths by searching the <tt>PATH</tt>, in the same way as <tt>which</tt>, but
+ * without starting a process.
+ * <p/>
+ * Each <tt>PATH</tt> directory is listed at most once, on first use. The results of lookups, including commands
+ * that aren't found, are cached for the life of the resolver; use {@link #clear()} if the <tt>PATH</tt> directories
+ * change.
+ */
+public class CommandResolver
+{
+
+    /**
+     * The default resolver, for the <tt>PATH</tt> of this process.
+     */
+    private static final CommandResolver DEFAULT = new CommandResolver(System.getenv("PATH"));
+
+    /**
+     * Placeholder for commands that weren't found, as the cache can't hold {@code null}.
+     */
+    private static final String NOT_FOUND = "";
+
+    /**
+     * The <tt>PATH</tt> directories, in search order.
+     */
+    private final List<File> path = new ArrayList<File>();
+
+    /**
+     * The names of the entries of each <tt>PATH</tt> directory, in search order. Each is {@code null} until the
+     * directory is first listed.
+     */
+    private final List<Set<String>> listings = new ArrayList<Set<String>>();
+
+    /**
+     * The resolved commands, keyed on command name.
+     */
+    private final Map<String, String> commands = new HashMap<String, String>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(CommandResolver.class.getName());
+
+    /**
+     * Constructs a {@code CommandResolver}.
+     *
+     * @param path the search path, using the platform path separator. May be {@code null}
+     */
+    public CommandResolver(String path)
+    {
+        if (path != null)
+        {
+            for (String dir : path.split(File.pathSeparator, -1))
+            {
+                // as for the shell, an empty entry denotes the current directory
+                this.path.add(new File(dir.length() == 0 ? "." : dir));
+                listings.add(null);
+            }
+        }
+    }
+
+    /**
+     * Returns the resolver for the <tt>PATH</tt> of this process.
+     *
+     * @return the default resolver
+     */
+    public static CommandResolver getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Resolves a command.
+     * <p/>
+     * If the command contains a <tt>/</tt>, it is returned if it is an executable file; otherwise the first
+     * executable file of that name in the <tt>PATH</tt> is returned.
+     *
+     * @param command the command name
+     * @return the path of the command, or {@code null} if it isn't found
+     */
+    public synchronized String resolve(String command)
+    {
+        if (command == null || command.length() == 0)
+        {
+            return null;
+        }
+        String result = commands.get(command);
+        if (result == null)
+        {
+            result = find(command);
+            logger.fine("Resolved command " + command + " to " + (result != null ? result : "<not found>"));
+            commands.put(command, (result != null) ? result : NOT_FOUND);
+        }
+        return (result != null && result.length() != 0) ? result : null;
+    }
+
+    /**
+     * Resolves a command, returning a default if it isn't found.
+     *
+     * @param command      the command name
+     * @param defaultValue the value to return if the command isn't found
+     * @return the path of the command, or {@code defaultValue} if it isn't found
+     */
+    public String resolve(String command, String defaultValue)
+    {
+        String result = resolve(command);
+        return (result != null) ? result : defaultValue;
+    }
+
+    /**
+     * Discards the cached directory listings and lookups.
+     */
+    public synchronized void clear()
+    {
+        commands.clear();
+        for (int i = 0; i < listings.size(); ++i)
+        {
+            listings.set(i, null);
+        }
+    }
+
+    /**
+     * Searches for a command.
+     *
+     * @param command the command name
+     * @return the path of the command, or {@code null} if it isn't found
+     */
+    private String find(String command)
+    {
+        if (command.indexOf('/') != -1)
+        {
+            return isExecutable(new File(command)) ? command : null;
+        }
+        for (int i = 0; i < path.size(); ++i)
+        {
+            File dir = path.get(i);
+            Set<String> names = listings.get(i);
+            if (names == null)
+            {
+                String[] list = dir.list();
+                names = (list != null) ? new HashSet<String>(Arrays.asList(list)) : new HashSet<String>();
+                listings.set(i, names);
+            }
+            if (names.contains(command))
+            {
+                File file = new File(dir, command);
+                if (isExecutable(file))
+                {
+                    return file.getPath();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines if a file is an executable regular file.
+     *
+     * @param file the file
+     * @return {@code true} if the file is executable
+     */
+    private static boolean isExecutable(File file)
+    {
+        return file.isFile() && file.canExecute();
+    }
+}
@@ -348,8 +348,11 @@ public class ShellScript
      */
     public String exec(String itsParams)
     {
-        FileExecutor.getExecOutput(new String[]{UnixHelper.getCustomCommand("chmod"), "+x",
-                itsLocation});
+        if (!new File(itsLocation).setExecutable(true))
+        {
+            FileExecutor.getExecOutput(new String[]{UnixHelper.getCustomCommand("chmod"), "+x",
+                    itsLocation});
+        }
 
         if (itsParams != null)
         {
@@ -37,8 +37,7 @@ public class UnixHelper
     /**
      * whichCommand = "/usr/bin/which" or /bin/which
      */
-    public static String whichCommand = FileExecutor.getExecOutput(
-            new String[]{"/usr/bin/env", "which", "which"}, false).trim();
+    public static String whichCommand = which("which");
 
     public final static String VERSION = "$Revision$";
 
@@ -176,7 +175,7 @@ public class UnixHelper
      */
     public static String getCpCommand()
     {
-        return FileExecutor.getExecOutput(new String[]{getWhichCommand(), "cp"}).trim();
+        return which("cp");
     }
 
     /**
@@ -187,7 +186,7 @@ public class UnixHelper
      */
     public static String getSuCommand()
     {
-        return FileExecutor.getExecOutput(new String[]{getWhichCommand(), "su"}).trim();
+        return which("su");
     }
 
     /**
@@ -198,7 +197,7 @@ public class UnixHelper
      */
     public static String getRmCommand()
     {
-        return FileExecutor.getExecOutput(new String[]{whichCommand, "rm"}).trim();
+        return which("rm");
     }
 
     /**
@@ -209,20 +208,33 @@ public class UnixHelper
      */
     public static String getYpCatCommand()
     {
-        return FileExecutor.getExecOutput(new String[]{whichCommand, "ypcat"}).trim();
+        return which("ypcat");
     }
 
     /**
      * Gets the absolute Pathe to the given custom command. This is necessary, because the command
-     * may be located at /bin on linux but in /usr/bin on Sun Solaris. Which can locate it in your
-     * $PATH for you.
+     * may be located at /bin on linux but in /usr/bin on Sun Solaris. The command is located in your
+     * $PATH; lookups are cached, so this may be called repeatedly.
      *
      * @param aCommand a Custom Command
      * @return /bin/aCommand on linux /usr/bin/aCommand on solaris
      */
     public static String getCustomCommand(String aCommand)
     {
-        return FileExecutor.getExecOutput(new String[]{whichCommand, aCommand}).trim();
+        return which(aCommand);
+    }
+
+    /**
+     * Locates a command in the <tt>PATH</tt>, as <tt>which</tt> does.
+     * <p/>
+     * This uses the shared {@link CommandResolver}, rather than starting a <tt>which</tt> process for each lookup.
+     *
+     * @param command the command
+     * @return the absolute path of the command, or an empty string if it isn't found
+     */
+    private static String which(String command)
+    {
+        return CommandResolver.getDefault().resolve(command, "");
     }
 
     /**
@@ -23,7 +23,9 @@ package com.izforge.izpack.util.unix;
 
 import com.izforge.izpack.util.FileExecutor;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
 import java.util.StringTokenizer;
 
@@ -253,6 +255,11 @@ public class UnixUser
         File configFile = new File(getHome() + File.separator + ".config" + File.separator + "user-dirs.dirs");
         if (configFile.exists())
         {
+            String folder = readXdgDesktopfolder(configFile);
+            if (folder != null)
+            {
+                return folder;
+            }
             if (XDGDesktopFolderNameScript == null)
             /** TODO: can be optimized with a shared script **/
             {
@@ -272,6 +279,65 @@ public class UnixUser
         }
     }
 
+    /**
+     * Reads the XDG-Desktop Folder from the $HOME/.config/user-dirs.dirs File without running a shell.
+     * <p/>
+     * Only the forms allowed by the XDG user directories specification are handled, i.e. a quoted
+     * <tt>"$HOME/path"</tt> or absolute <tt>"/path"</tt>.
+     *
+     * @param configFile the user-dirs.dirs File
+     * @return The absolute File/Pathname of the Desktop foldername, or <tt>null</tt> if it must be determined by
+     *         the shell
+     */
+    private String readXdgDesktopfolder(File configFile)
+    {
+        String result = null;
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new FileReader(configFile));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if (line.startsWith("XDG_DESKTOP_DIR="))
+                {
+                    String value = line.substring("XDG_DESKTOP_DIR=".length());
+                    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+                    {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    if (value.equals("$HOME") || value.startsWith("$HOME/"))
+                    {
+                        value = getHome() + value.substring("$HOME".length());
+                    }
+                    // anything else needs the shell to expand it
+                    result = (value.startsWith("/") && value.indexOf('$') == -1 && value.indexOf('\\') == -1
+                            && value.indexOf('`') == -1 && value.indexOf('"') == -1) ? value : null;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            result = null;
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException ignore)
+                {
+                    // do nothing
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Dumps the USer fields
      *
@@ -0,0 +1,198 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.binding.OsModel;
+
+
+/**
+ * Tests the {@link PackFileManifest} class.
+ */
+public class PackFileManifestTest
+{
+
+    /**
+     * Verifies that entries are held in memory until the threshold is exceeded.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testInMemory() throws IOException
+    {
+        PackFileManifest manifest = new PackFileManifest(false, 10);
+        PackFile packFile = createPackFile(0, null, null);
+        File file = new File("src/file0.txt");
+        manifest.add(packFile, file, null);
+
+        assertFalse(manifest.isSpilled());
+        assertEquals(1, manifest.size());
+        PackFileManifest.Entry entry = manifest.iterator().next();
+        assertSame(packFile, entry.getPackFile());
+        assertSame(file, entry.getFile());
+        assertNull(entry.getArchiveEntry());
+        manifest.close();
+    }
+
+    /**
+     * Verifies that spilled entries are read back in order, with the same attributes.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSpill() throws IOException
+    {
+        List<OsModel> osList = new ArrayList<OsModel>();
+        Map<String, String> additionals = new HashMap<String, String>();
+        additionals.put("key", "value");
+
+        PackFileManifest manifest = new PackFileManifest(false, 10);
+        List<PackFile> expected = new ArrayList<PackFile>();
+        for (int i = 0; i < 100; ++i)
+        {
+            PackFile packFile = createPackFile(i, (i % 2 == 0) ? osList : null, (i % 3 == 0) ? additionals : null);
+            if (i % 5 == 0)
+            {
+                packFile.setCondition("cond" + (i % 10));
+            }
+            File file = new File("src/file" + i + ".txt");
+            ArchiveEntry archiveEntry = (i % 7 == 0) ? new ArchiveEntry(file, "entry" + i, i) : null;
+            manifest.add(packFile, file, archiveEntry);
+            expected.add(packFile);
+        }
+
+        assertTrue(manifest.isSpilled());
+        assertEquals(100, manifest.size());
+
+        // iterate twice to verify the spill file can be re-read
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            Iterator<PackFileManifest.Entry> iterator = manifest.iterator();
+            for (int i = 0; i < 100; ++i)
+            {
+                PackFileManifest.Entry entry = iterator.next();
+                PackFile packFile = entry.getPackFile();
+                checkEquals(expected.get(i), packFile);
+                assertEquals(new File("src/file" + i + ".txt"), entry.getFile());
+                if (i % 7 == 0)
+                {
+                    assertEquals("entry" + i, entry.getArchiveEntry().getName());
+                    assertEquals(i, entry.getArchiveEntry().getCrc());
+                }
+                else
+                {
+                    assertNull(entry.getArchiveEntry());
+                }
+            }
+            assertFalse(iterator.hasNext());
+        }
+        manifest.close();
+    }
+
+    /**
+     * Verifies that the sizes of spilled loose pack files are preserved.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testLoose() throws IOException
+    {
+        PackFileManifest manifest = new PackFileManifest(true, 0);
+        PackFile packFile = createPackFile(1, null, null);
+        packFile.setLoosePackInfo(true);
+        manifest.add(packFile, new File("src/file1.txt"), null);
+
+        PackFile read = manifest.iterator().next().getPackFile();
+        assertEquals(0, read.length());
+        assertEquals(packFile.size(), read.size());
+        manifest.close();
+    }
+
+    /**
+     * Verifies that a closed manifest cannot be used.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() throws IOException
+    {
+        PackFileManifest manifest = new PackFileManifest(false, 0);
+        manifest.add(createPackFile(0, null, null), new File("src/file0.txt"), null);
+        manifest.close();
+        manifest.iterator();
+    }
+
+    /**
+     * Creates a pack file.
+     *
+     * @param index       the file index
+     * @param osList      the OS constraints. May be {@code null}
+     * @param additionals the additionals. May be {@code null}
+     * @return a new pack file
+     */
+    private PackFile createPackFile(int index, List<OsModel> osList, Map additionals)
+    {
+        boolean directory = index % 11 == 0;
+        return new PackFile("src/file" + index + ".txt", "file" + index + ".txt",
+                            "$INSTALL_PATH/dir" + (index % 4) + "/file" + index + ".txt", directory, index * 100,
+                            1000000000000L + index, osList, OverrideType.OVERRIDE_UPDATE, null,
+                            Blockable.BLOCKABLE_NONE, additionals);
+    }
+
+    /**
+     * Verifies that two pack files have the same attributes.
+     *
+     * @param expected the expected pack file
+     * @param actual   the actual pack file
+     */
+    private void checkEquals(PackFile expected, PackFile actual)
+    {
+        assertEquals(expected.sourcePath, actual.sourcePath);
+        assertEquals(expected.getRelativeSourcePath(), actual.getRelativeSourcePath());
+        assertEquals(expected.getTargetPath(), actual.getTargetPath());
+        assertEquals(expected.isDirectory(), actual.isDirectory());
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.lastModified(), actual.lastModified());
+        assertSame(expected.osConstraints(), actual.osConstraints());
+        assertSame(expected.getAdditionals(), actual.getAdditionals());
+        assertEquals(expected.override(), actual.override());
+        assertEquals(expected.blockable(), actual.blockable());
+        assertEquals(expected.getCondition(), actual.getCondition());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+
+
+/**
+ * Tests the {@link PackInfo} class.
+ */
+public class PackInfoTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that archive entries are added with the entry attributes, without extracting them.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testAddArchiveEntry() throws IOException
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File archive = temporaryFolder.newFile("content.zip");
+        PackInfo packInfo = new PackInfo("pack", null, "", true, false, null, true, 0);
+
+        ZipEntry file = new ZipEntry("dir/file.txt");
+        file.setSize(1234);
+        file.setTime(1000000000000L);
+        file.setCrc(42);
+        ZipEntry dir = new ZipEntry("dir/");
+        dir.setTime(1000000000000L);
+
+        packInfo.addArchiveEntry(baseDir, archive, file, "$INSTALL_PATH/dir/file.txt", null, OverrideType.OVERRIDE_TRUE,
+                                 null, Blockable.BLOCKABLE_NONE, null, null);
+        packInfo.addArchiveEntry(baseDir, archive, dir, "$INSTALL_PATH/dir", null, OverrideType.OVERRIDE_TRUE,
+                                 null, Blockable.BLOCKABLE_NONE, null, null);
+
+        Iterator<PackFileManifest.Entry> files = packInfo.getManifest().iterator();
+        PackFileManifest.Entry fileEntry = files.next();
+        PackFile filePack = fileEntry.getPackFile();
+        assertEquals("$INSTALL_PATH/dir/file.txt", filePack.getTargetPath());
+        assertEquals("content.zip/dir/file.txt", filePack.getRelativeSourcePath());
+        assertEquals(1234, filePack.length());
+        assertEquals(1000000000000L, filePack.lastModified());
+        assertFalse(filePack.isDirectory());
+        assertEquals(archive, fileEntry.getFile());
+
+        ArchiveEntry entry = fileEntry.getArchiveEntry();
+        assertEquals(archive, entry.getArchive());
+        assertEquals("dir/file.txt", entry.getName());
+        assertEquals(42, entry.getCrc());
+
+        PackFileManifest.Entry dirEntry = files.next();
+        PackFile dirPack = dirEntry.getPackFile();
+        assertEquals("$INSTALL_PATH/dir", dirPack.getTargetPath());
+        assertTrue(dirPack.isDirectory());
+        assertEquals(0, dirPack.length());
+        assertNull(dirEntry.getArchiveEntry());
+    }
+}
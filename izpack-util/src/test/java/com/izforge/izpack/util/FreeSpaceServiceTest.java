@@ -0,0 +1,108 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Pack;
+
+
+/**
+ * Tests the {@link FreeSpaceService} class.
+ */
+public class FreeSpaceServiceTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that the free space of paths that don't exist yet is that of their nearest existing parent.
+     */
+    @Test
+    public void testFreeSpace()
+    {
+        FreeSpaceService service = new FreeSpaceService(FreeSpaceService.DEFAULT_TTL);
+        File root = temporaryFolder.getRoot();
+        File target = new File(root, "a/b/c");
+
+        long free = service.getFreeSpace(root);
+        assertTrue(free > 0);
+        assertEquals(service.getMount(root), service.getMount(target));
+        assertEquals(free, service.getFreeSpace(target)); // cached for the mount point
+        assertEquals(free, IoHelper.getFreeSpace(target.getPath()), 64 * 1024 * 1024);
+    }
+
+    /**
+     * Verifies that mount points are read from a mount table, including those containing escaped white space.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testReadMounts() throws IOException
+    {
+        File table = temporaryFolder.newFile("mounts");
+        FileWriter writer = new FileWriter(table);
+        writer.write("/dev/sda1 / ext4 rw,relatime 0 0\n");
+        writer.write("proc /proc proc rw 0 0\n");
+        writer.write("/dev/sdb1 /mnt/my\\040disk ext4 rw 0 0\n");
+        writer.write("\n");
+        writer.close();
+
+        List<File> mounts = FreeSpaceService.readMounts(table);
+        assertEquals(Arrays.asList(new File("/"), new File("/proc"), new File("/mnt/my disk")), mounts);
+    }
+
+    /**
+     * Verifies that the size of packs without target sizes is accounted to the default target.
+     */
+    @Test
+    public void testRequiredSpace()
+    {
+        FreeSpaceService service = new FreeSpaceService(FreeSpaceService.DEFAULT_TTL);
+        Pack core = new Pack("core", null, null, null, null, true, true, false, null, true, 1000);
+        Pack docs = new Pack("docs", null, null, null, null, false, true, false, null, true, 500);
+        File installPath = new File(temporaryFolder.getRoot(), "app");
+
+        Map<File, Long> required = service.getRequiredSpace(Arrays.asList(core, docs), null, installPath);
+        assertEquals(1, required.size());
+        assertEquals(1500, (long) required.get(service.getMount(installPath)));
+        assertTrue(service.isSpaceAvailable(Arrays.asList(core, docs), null, installPath));
+
+        Pack huge = new Pack("huge", null, null, null, null, false, true, false, null, true, Long.MAX_VALUE / 2);
+        assertFalse(service.isSpaceAvailable(Arrays.asList(core, huge), null, installPath));
+    }
+}
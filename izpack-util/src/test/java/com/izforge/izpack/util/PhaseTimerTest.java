@@ -0,0 +1,157 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.file.FileUtils;
+
+
+/**
+ * Tests the {@link PhaseTimer} class.
+ */
+public class PhaseTimerTest
+{
+
+    /**
+     * Temporary folder to write traces to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Disables timing after each test.
+     */
+    @After
+    public void tearDown()
+    {
+        PhaseTimer.disable();
+    }
+
+    /**
+     * Verifies that nothing is recorded when timing is disabled.
+     */
+    @Test
+    public void testDisabled()
+    {
+        PhaseTimer.disable();
+        assertFalse(PhaseTimer.isEnabled());
+        PhaseTimer.start("phase").end();
+        PhaseTimer.mark("mark");
+        assertTrue(PhaseTimer.getDurations().isEmpty());
+    }
+
+    /**
+     * Verifies that phases and marks are recorded and written as trace events.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRecord() throws Exception
+    {
+        PhaseTimer.enable(null, null);
+        assertTrue(PhaseTimer.isEnabled());
+
+        PhaseTimer.Phase outer = PhaseTimer.start("outer");
+        PhaseTimer.Phase inner = PhaseTimer.start("inner \"quoted\"");
+        Thread.sleep(5);
+        inner.end();
+        inner.end(); // no effect
+        PhaseTimer.mark("mark");
+        outer.end();
+        PhaseTimer.start("inner \"quoted\"").end();
+
+        Map<String, Long> durations = PhaseTimer.getDurations();
+        assertEquals(2, durations.size());
+        assertTrue(durations.get("inner \"quoted\"") >= 5000000L);
+        assertTrue(durations.get("outer") >= 5000000L);
+
+        StringWriter writer = new StringWriter();
+        PhaseTimer.write(writer);
+        String trace = writer.toString();
+        assertTrue(trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(trace.contains("{\"name\":\"inner \\\"quoted\\\"\",\"ph\":\"X\",\"ts\":"));
+        assertTrue(trace.contains("{\"name\":\"mark\",\"ph\":\"i\",\"ts\":"));
+        assertTrue(trace.contains("\"ph\":\"M\""));
+        assertTrue(trace.trim().endsWith("]}"));
+    }
+
+    /**
+     * Verifies that the trace is written when the {@link PhaseTimer#WRITE_AT write} event is recorded, and that
+     * recording continues afterwards.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testWriteAt() throws Exception
+    {
+        File file = new File(temporaryFolder.getRoot(), "trace.json");
+        PhaseTimer.enable(file, "ready");
+
+        PhaseTimer.start("phase").end();
+        assertFalse(file.exists());
+        PhaseTimer.mark("ready");
+        assertTrue(file.exists());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        String trace = read(file);
+        assertTrue(trace.contains("{\"name\":\"phase\",\"ph\":\"X\""));
+        assertTrue(trace.contains("{\"name\":\"ready\",\"ph\":\"i\""));
+        assertTrue(PhaseTimer.isEnabled());
+
+        PhaseTimer.start("after").end();
+        assertTrue(PhaseTimer.getDurations().containsKey("after"));
+        PhaseTimer.write();
+        assertTrue(read(file).contains("{\"name\":\"after\""));
+    }
+
+    /**
+     * Reads a trace file.
+     *
+     * @param file the file
+     * @return the file content
+     * @throws Exception for any error
+     */
+    private String read(File file) throws Exception
+    {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try
+        {
+            return FileUtils.readFully(reader);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
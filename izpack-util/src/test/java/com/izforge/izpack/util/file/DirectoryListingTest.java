@@ -0,0 +1,118 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link DirectoryListing} class.
+ */
+public class DirectoryListingTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Clears the cache after each test.
+     */
+    @After
+    public void tearDown()
+    {
+        DirectoryListing.clearCache();
+    }
+
+    /**
+     * Verifies that entry types are read.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testRead() throws IOException
+    {
+        File dir = temporaryFolder.newFolder("dir");
+        assertTrue(new File(dir, "file").createNewFile());
+        assertTrue(new File(dir, "subdir").mkdir());
+
+        DirectoryListing listing = DirectoryListing.read(dir);
+        assertEquals(2, listing.size());
+        for (int i = 0; i < listing.size(); ++i)
+        {
+            byte expected = listing.getName(i).equals("file") ? DirectoryListing.FILE : DirectoryListing.DIRECTORY;
+            assertEquals(expected, listing.getType(i));
+        }
+        assertNull(DirectoryListing.read(new File(dir, "missing")));
+    }
+
+    /**
+     * Verifies that listings are cached until the directory is modified.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCache() throws IOException
+    {
+        File dir = temporaryFolder.newFolder("dir");
+        assertTrue(new File(dir, "a").createNewFile());
+
+        // recently modified directories aren't cached
+        DirectoryListing recent = DirectoryListing.read(dir);
+        assertNotSame(recent, DirectoryListing.read(dir));
+
+        setModified(dir, 20000);
+        DirectoryListing listing = DirectoryListing.read(dir);
+        assertSame(listing, DirectoryListing.read(dir));
+        assertSame(listing, DirectoryListing.read(new File(dir, ".")));
+
+        assertTrue(new File(dir, "b").createNewFile());
+        setModified(dir, 10000);
+        DirectoryListing modified = DirectoryListing.read(dir);
+        assertNotSame(listing, modified);
+        assertEquals(2, modified.size());
+    }
+
+    /**
+     * Sets the modification time of a directory to the past.
+     *
+     * @param dir the directory
+     * @param age the age of the directory, in milliseconds
+     */
+    private static void setModified(File dir, long age)
+    {
+        long time = System.currentTimeMillis() - age;
+        assertTrue(dir.setLastModified(time - time % 1000));
+    }
+}
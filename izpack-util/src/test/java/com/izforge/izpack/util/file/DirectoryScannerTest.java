@@ -0,0 +1,190 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link DirectoryScanner} class.
+ */
+public class DirectoryScannerTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The base directory to scan.
+     */
+    private File basedir;
+
+    /**
+     * Creates the directory tree to scan.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        basedir = temporaryFolder.newFolder("base");
+        createFile("a.txt");
+        createFile("b.xml");
+        createFile("lib/c.jar");
+        createFile("lib/ext/d.jar");
+        createFile("lib/ext/e.txt");
+        createFile("doc/f.txt");
+        createFile("doc/api/g.html");
+        new File(basedir, "empty").mkdirs();
+    }
+
+    /**
+     * Verifies that everything is included when no patterns are specified.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testIncludeAll() throws Exception
+    {
+        DirectoryScanner scanner = createScanner(null, null);
+
+        assertArrayEquals(paths("a.txt", "b.xml", "doc/api/g.html", "doc/f.txt", "lib/c.jar", "lib/ext/d.jar",
+                                "lib/ext/e.txt"), scanner.getIncludedFiles());
+        assertArrayEquals(paths("", "doc", "doc/api", "empty", "lib", "lib/ext"), scanner.getIncludedDirectories());
+        assertEquals(true, scanner.isEverythingIncluded());
+    }
+
+    /**
+     * Verifies that include and exclude patterns are applied.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPatterns() throws Exception
+    {
+        DirectoryScanner scanner = createScanner(new String[]{"**/*.txt", "lib/**"}, new String[]{"lib/ext/*.jar"});
+
+        assertArrayEquals(paths("a.txt", "doc/f.txt", "lib/c.jar", "lib/ext/e.txt"), scanner.getIncludedFiles());
+        assertArrayEquals(paths("lib", "lib/ext"), scanner.getIncludedDirectories());
+        assertArrayEquals(paths("lib/ext/d.jar"), scanner.getExcludedFiles());
+        assertEquals(false, scanner.isEverythingIncluded());
+    }
+
+    /**
+     * Verifies that excluded directories are reported, and that files matched by several include patterns are only
+     * included once.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testExcludedDirectory() throws Exception
+    {
+        DirectoryScanner scanner = createScanner(new String[]{"lib/**", "lib/c.jar"},
+                                                 new String[]{"lib/ext/**"});
+
+        assertArrayEquals(paths("lib/c.jar"), scanner.getIncludedFiles());
+        assertArrayEquals(paths("lib"), scanner.getIncludedDirectories());
+        assertArrayEquals(paths("lib/ext"), scanner.getExcludedDirectories());
+        String[] excluded = scanner.getExcludedFiles();
+        Arrays.sort(excluded);
+        assertArrayEquals(paths("lib/ext/d.jar", "lib/ext/e.txt"), excluded);
+    }
+
+    /**
+     * Verifies that a large tree is scanned completely.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testLargeTree() throws Exception
+    {
+        for (int i = 0; i < 20; ++i)
+        {
+            for (int j = 0; j < 20; ++j)
+            {
+                createFile("tree/" + i + "/" + j + "/file.txt");
+            }
+        }
+        DirectoryScanner scanner = createScanner(new String[]{"tree/**/*.txt"}, null);
+
+        assertEquals(400, scanner.getIncludedFilesCount());
+        assertEquals(0, scanner.getNotIncludedFiles().length);
+    }
+
+    /**
+     * Creates and runs a scanner.
+     *
+     * @param includes the include patterns. May be {@code null}
+     * @param excludes the exclude patterns. May be {@code null}
+     * @return the scanner
+     * @throws Exception for any error
+     */
+    private DirectoryScanner createScanner(String[] includes, String[] excludes) throws Exception
+    {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(basedir);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.scan();
+        return scanner;
+    }
+
+    /**
+     * Creates an empty file, and any parent directories.
+     *
+     * @param path the path of the file, relative to the base directory
+     * @throws IOException for any I/O error
+     */
+    private void createFile(String path) throws IOException
+    {
+        File file = new File(basedir, path);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+    /**
+     * Converts paths to use the platform separator.
+     *
+     * @param paths the paths
+     * @return the converted paths
+     */
+    private static String[] paths(String... paths)
+    {
+        String[] result = new String[paths.length];
+        for (int i = 0; i < paths.length; ++i)
+        {
+            result[i] = paths[i].replace('/', File.separatorChar);
+        }
+        return result;
+    }
+}
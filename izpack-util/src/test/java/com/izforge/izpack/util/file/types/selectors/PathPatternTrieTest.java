@@ -0,0 +1,173 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file.types.selectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link PathPatternTrie} class.
+ */
+public class PathPatternTrieTest
+{
+
+    /**
+     * Patterns exercising literals, wildcards and <tt>**</tt> in different positions.
+     */
+    private static final String[] PATTERNS = {
+            "", "**", "a", "a/b", "a/*", "a/**", "a/**/c", "**/c", "**/b/**", "*/b", "a/?", "a*/b*", "a/**/**/c",
+            "**/a/**/b/c", "b/**/*.txt", "/a", "/a/**", "/**/c", "A/B", "*", "a/b/c/d/e", "**/*c*"};
+
+    /**
+     * Paths to match the patterns against.
+     */
+    private static final String[] PATHS = {
+            "", "a", "b", "c", "A", "a/b", "a/c", "a/bb", "ab/bc", "a/b/c", "a/x/c", "a/x/y/c", "b/c", "b/x.txt",
+            "b/y/x.txt", "x/a/y/b/c", "a/b/c/d/e", "a/b/c/d", "/a", "/a/b", "/c", "/x/c", "a//b", "c/a/b/c", "abc",
+            "a/B"};
+
+    /**
+     * Verifies that {@link PathPatternTrie#matches(String)} agrees with
+     * {@link SelectorUtils#matchPath(String, String, boolean)} for each pattern.
+     */
+    @Test
+    public void testMatchesEachPattern()
+    {
+        for (boolean caseSensitive : new boolean[]{true, false})
+        {
+            for (String pattern : PATTERNS)
+            {
+                String p = path(pattern);
+                PathPatternTrie trie = new PathPatternTrie(new String[]{p}, caseSensitive);
+                for (String path : PATHS)
+                {
+                    String s = path(path);
+                    assertEquals(pattern + " " + path + " " + caseSensitive,
+                                 SelectorUtils.matchPath(p, s, caseSensitive), trie.matches(s));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that a trie of all the patterns matches a path if any pattern does.
+     */
+    @Test
+    public void testMatchesAllPatterns()
+    {
+        String[] patterns = paths(PATTERNS);
+        PathPatternTrie trie = new PathPatternTrie(patterns, true);
+        PathPatternTrie noWildcards = new PathPatternTrie(paths("a/b", "b/c", "/a"), true);
+        for (String path : paths(PATHS))
+        {
+            boolean expected = false;
+            for (String pattern : patterns)
+            {
+                expected |= SelectorUtils.matchPath(pattern, path, true);
+            }
+            assertEquals(path, expected, trie.matches(path));
+        }
+        assertTrue(noWildcards.matches(path("a/b")));
+        assertTrue(noWildcards.matches(path("/a")));
+        assertFalse(noWildcards.matches(path("a")));
+        assertFalse(noWildcards.matches(path("b/c/d")));
+    }
+
+    /**
+     * Verifies that {@link PathPatternTrie#couldMatchBelow(String)} agrees with the test applied by
+     * {@code DirectoryScanner} to determine if a directory needs to be scanned.
+     */
+    @Test
+    public void testCouldMatchBelow()
+    {
+        for (boolean caseSensitive : new boolean[]{true, false})
+        {
+            for (String pattern : PATTERNS)
+            {
+                String p = path(pattern);
+                PathPatternTrie trie = new PathPatternTrie(new String[]{p}, caseSensitive);
+                for (String path : PATHS)
+                {
+                    String s = path(path);
+                    Vector<String> patternDirs = SelectorUtils.tokenizePath(p);
+                    boolean deeper = patternDirs.contains("**")
+                            || patternDirs.size() > SelectorUtils.tokenizePath(s).size();
+                    boolean expected = SelectorUtils.matchPatternStart(p, s, caseSensitive) && deeper;
+                    assertEquals(pattern + " " + path + " " + caseSensitive, expected, trie.couldMatchBelow(s));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that cached directory states don't affect subsequent results.
+     */
+    @Test
+    public void testCachedStates()
+    {
+        PathPatternTrie trie = new PathPatternTrie(paths("lib/**/*.jar", "doc/*.txt"), true);
+        assertTrue(trie.couldMatchBelow("lib"));
+        assertTrue(trie.couldMatchBelow(path("lib/ext")));
+        assertTrue(trie.matches(path("lib/ext/a.jar")));
+        assertFalse(trie.matches(path("lib/ext/a.txt")));
+        assertTrue(trie.couldMatchBelow("doc"));
+        assertFalse(trie.couldMatchBelow(path("doc/api")));
+        assertTrue(trie.matches(path("doc/a.txt")));
+        assertFalse(trie.matches(path("doc/api/a.txt")));
+        assertFalse(trie.couldMatchBelow("src"));
+        assertTrue(trie.matches(path("lib/a.jar")));
+    }
+
+    /**
+     * Converts a path to use the platform separator.
+     *
+     * @param path the path
+     * @return the converted path
+     */
+    private static String path(String path)
+    {
+        return path.replace('/', File.separatorChar);
+    }
+
+    /**
+     * Converts paths to use the platform separator.
+     *
+     * @param paths the paths
+     * @return the converted paths
+     */
+    private static String[] paths(String... paths)
+    {
+        List<String> result = new ArrayList<String>();
+        for (String path : paths)
+        {
+            result.add(path(path));
+        }
+        return result.toArray(new String[result.size()]);
+    }
+}
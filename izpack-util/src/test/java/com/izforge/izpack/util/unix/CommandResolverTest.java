@@ -0,0 +1,168 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.unix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link CommandResolver} class.
+ */
+public class CommandResolverTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The first path directory.
+     */
+    private File bin;
+
+    /**
+     * The second path directory.
+     */
+    private File usrBin;
+
+    /**
+     * The resolver.
+     */
+    private CommandResolver resolver;
+
+    /**
+     * Sets up the path directories.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        bin = temporaryFolder.newFolder("bin");
+        usrBin = temporaryFolder.newFolder("usrbin");
+        File missing = new File(temporaryFolder.getRoot(), "missing");
+        resolver = new CommandResolver(bin.getPath() + File.pathSeparator + missing.getPath()
+                                               + File.pathSeparator + usrBin.getPath());
+    }
+
+    /**
+     * Verifies that the first executable in the path is returned.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testResolve() throws IOException
+    {
+        File first = createCommand(bin, "cmd", true);
+        createCommand(usrBin, "cmd", true);
+        File other = createCommand(usrBin, "other", true);
+
+        assertEquals(first.getPath(), resolver.resolve("cmd"));
+        assertEquals(other.getPath(), resolver.resolve("other"));
+        assertNull(resolver.resolve("unknown"));
+        assertEquals("default", resolver.resolve("unknown", "default"));
+        assertNull(resolver.resolve(""));
+        assertNull(resolver.resolve(null));
+    }
+
+    /**
+     * Verifies that files that aren't executable, and directories, are skipped.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testNotExecutable() throws IOException
+    {
+        File plain = createCommand(bin, "cmd", false);
+        if (plain.canExecute())
+        {
+            return; // the file system doesn't support the execute permission
+        }
+        File executable = createCommand(usrBin, "cmd", true);
+        assertEquals(executable.getPath(), resolver.resolve("cmd"));
+
+        assertEquals(true, new File(bin, "dir").mkdir());
+        assertNull(resolver.resolve("dir"));
+    }
+
+    /**
+     * Verifies that commands containing a path are resolved directly.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testPath() throws IOException
+    {
+        File file = createCommand(temporaryFolder.getRoot(), "script.sh", true);
+        assertEquals(file.getPath(), resolver.resolve(file.getPath()));
+        assertNull(resolver.resolve(new File(temporaryFolder.getRoot(), "none.sh").getPath()));
+    }
+
+    /**
+     * Verifies that lookups are cached, including those for commands that aren't found, until the resolver is
+     * cleared.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCache() throws IOException
+    {
+        File cmd = createCommand(bin, "cmd", true);
+        assertEquals(cmd.getPath(), resolver.resolve("cmd"));
+        assertNull(resolver.resolve("later"));
+
+        File later = createCommand(bin, "later", true);
+        assertEquals(true, cmd.delete());
+        assertEquals(cmd.getPath(), resolver.resolve("cmd"));
+        assertNull(resolver.resolve("later"));
+
+        resolver.clear();
+        assertNull(resolver.resolve("cmd"));
+        assertEquals(later.getPath(), resolver.resolve("later"));
+    }
+
+    /**
+     * Creates a command file.
+     *
+     * @param dir        the directory
+     * @param name       the command name
+     * @param executable if {@code true}, make the file executable
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File createCommand(File dir, String name, boolean executable) throws IOException
+    {
+        File file = new File(dir, name);
+        assertEquals(true, file.createNewFile());
+        file.setExecutable(executable);
+        return file;
+    }
+}
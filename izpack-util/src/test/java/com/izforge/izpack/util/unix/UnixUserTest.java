@@ -0,0 +1,114 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.unix;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link UnixUser} class.
+ */
+public class UnixUserTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that /etc/passwd lines are parsed.
+     */
+    @Test
+    public void testFromEtcPasswdLine()
+    {
+        UnixUser user = new UnixUser().fromEtcPasswdLine("jdoe:x:1000:100:John Doe:/home/jdoe:/bin/bash");
+        assertEquals("jdoe", user.getName());
+        assertEquals("1000", user.getId());
+        assertEquals("100", user.getGid());
+        assertEquals("/home/jdoe", user.getHome());
+        assertEquals("/bin/bash", user.getShell());
+    }
+
+    /**
+     * Verifies that the desktop folder defaults to $HOME/Desktop if there is no user-dirs.dirs file.
+     */
+    @Test
+    public void testDefaultDesktopFolder()
+    {
+        File home = temporaryFolder.getRoot();
+        UnixUser user = createUser(home);
+        assertEquals(home.getPath() + File.separator + "Desktop", user.getXdgDesktopfolder());
+    }
+
+    /**
+     * Verifies that the desktop folder is read from the user-dirs.dirs file.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testXdgDesktopFolder() throws IOException
+    {
+        File home = temporaryFolder.getRoot();
+        UnixUser user = createUser(home);
+
+        writeUserDirs(home, "XDG_DOCUMENTS_DIR=\"$HOME/Documents\"\nXDG_DESKTOP_DIR=\"$HOME/Bureau\"\n");
+        assertEquals(home.getPath() + "/Bureau", user.getXdgDesktopfolder());
+
+        writeUserDirs(home, "# comment\nXDG_DESKTOP_DIR=\"/srv/desktops/jdoe\"\n");
+        assertEquals("/srv/desktops/jdoe", user.getXdgDesktopfolder());
+    }
+
+    /**
+     * Creates a user.
+     *
+     * @param home the user's home directory
+     * @return a new user
+     */
+    private UnixUser createUser(File home)
+    {
+        return new UnixUser().fromEtcPasswdLine("jdoe:x:1000:100:John Doe:" + home.getPath() + ":/bin/sh");
+    }
+
+    /**
+     * Writes the user-dirs.dirs file.
+     *
+     * @param home    the user's home directory
+     * @param content the file content
+     * @throws IOException for any I/O error
+     */
+    private void writeUserDirs(File home, String content) throws IOException
+    {
+        File config = new File(home, ".config");
+        config.mkdirs();
+        FileWriter writer = new FileWriter(new File(config, "user-dirs.dirs"));
+        writer.write(content);
+        writer.close();
+    }
+}